@@ -2,6 +2,9 @@ package ns.foundation;
 
 import java.util.Comparator;
 
+import ns.foundation.kvc.NSKeyValueCoding._KeyBinding;
+import ns.foundation.kvc.NSKeyValueCodingAdditions.CompiledKeyPath;
+
 @SuppressWarnings("unchecked")
 public abstract class NSComparator<T> implements Comparator<T> {
 
@@ -29,6 +32,41 @@ public abstract class NSComparator<T> implements Comparator<T> {
         return comparison > 0 ? 1 : 0;
     }
 
+    /**
+     * Compares two strings ignoring case like String.CASE_INSENSITIVE_ORDER,
+     * character by character and without the default locale, converting only
+     * the characters that differ and ASCII letters without a table lookup.
+     */
+    public static int _compareIgnoringCase(String string1, String string2) {
+        int length1 = string1.length();
+        int length2 = string2.length();
+        int length = Math.min(length1, length2);
+        for (int i = 0; i < length; i++) {
+            char c1 = string1.charAt(i);
+            char c2 = string2.charAt(i);
+            if (c1 == c2)
+                continue;
+            if (c1 < 128 && c2 < 128) {
+                if (c1 >= 'A' && c1 <= 'Z')
+                    c1 += 'a' - 'A';
+                if (c2 >= 'A' && c2 <= 'Z')
+                    c2 += 'a' - 'A';
+                if (c1 != c2)
+                    return c1 - c2;
+            } else {
+                c1 = Character.toUpperCase(c1);
+                c2 = Character.toUpperCase(c2);
+                if (c1 != c2) {
+                    c1 = Character.toLowerCase(c1);
+                    c2 = Character.toLowerCase(c2);
+                    if (c1 != c2)
+                        return c1 - c2;
+                }
+            }
+        }
+        return length1 - length2;
+    }
+
     private static final NSComparator<?> AscendingComparableComparator = new NSComparator<Comparable<Object>>() {
         @Override
         public int compare(Comparable<Object> object1, Comparable<Object> object2) {
@@ -90,7 +128,7 @@ public abstract class NSComparator<T> implements Comparator<T> {
             else if (object2 == null)
                 return OrderedAscending;
             else {
-                int result = object1.toLowerCase().compareTo(object2.toLowerCase());
+                int result = _compareIgnoringCase(object1, object2);
                 if (result > 0)
                     return OrderedDescending;
                 else if (result < 0)
@@ -111,7 +149,7 @@ public abstract class NSComparator<T> implements Comparator<T> {
             else if (object2 == null)
                 return OrderedDescending;
             else {
-                int result = object1.toLowerCase().compareTo(object2.toLowerCase());
+                int result = _compareIgnoringCase(object1, object2);
                 if (result < 0)
                     return OrderedDescending;
                 else if (result > 0)
@@ -122,6 +160,121 @@ public abstract class NSComparator<T> implements Comparator<T> {
         }
     };
 
+    /**
+     * Compares objects by the value of a key path with the ascending or
+     * descending comparable comparator. When both objects are of the same
+     * class and the key is bound to a primitive property, the values are
+     * compared through the primitive accessors of the binding without boxing.
+     */
+    public static class KeyPathComparator<T> extends NSComparator<T> {
+        private static final int _ObjectValue = 0;
+        private static final int _IntegralValue = 1;
+        private static final int _FloatingPointValue = 2;
+        private static final int _BooleanValue = 3;
+
+        private final String _keyPath;
+        private final boolean _ascending;
+        private _ClassKeyPath _lastClassKeyPath;
+
+        public KeyPathComparator(String keyPath) {
+            this(keyPath, true);
+        }
+
+        public KeyPathComparator(String keyPath, boolean ascending) {
+            if (keyPath == null || keyPath.length() == 0)
+                throw new IllegalArgumentException("Key path cannot be null or empty");
+            _keyPath = keyPath;
+            _ascending = ascending;
+        }
+
+        public String keyPath() {
+            return _keyPath;
+        }
+
+        public boolean isAscending() {
+            return _ascending;
+        }
+
+        @Override
+        public int compare(T object1, T object2) {
+            if (object1 != null && object2 != null) {
+                _ClassKeyPath classKeyPath = _classKeyPathForObject(object1);
+                if (classKeyPath.valueKind != _ObjectValue && object2.getClass() == classKeyPath.objectClass) {
+                    int result = classKeyPath.compare(object1, object2);
+                    return _ascending ? result : -result;
+                }
+            }
+            return compareValues(_valueInObject(object1), _valueInObject(object2));
+        }
+
+        Object _valueInObject(Object object) {
+            return object == null ? null : _classKeyPathForObject(object).keyPath.valueInObject(object);
+        }
+
+        /**
+         * Compares two values of the key path, like compare does for the
+         * objects they were read from.
+         */
+        public int compareValues(Object value1, Object value2) {
+            NSComparator<Object> comparator = (NSComparator<Object>) (_ascending ? AscendingComparableComparator : DescendingComparableComparator);
+            return comparator.compare(value1, value2);
+        }
+
+        // the last class is kept in an immutable holder so that the comparator can be shared between threads
+        private _ClassKeyPath _classKeyPathForObject(Object object) {
+            _ClassKeyPath classKeyPath = _lastClassKeyPath;
+            if (classKeyPath == null || classKeyPath.objectClass != object.getClass()) {
+                classKeyPath = new _ClassKeyPath(object, _keyPath);
+                _lastClassKeyPath = classKeyPath;
+            }
+            return classKeyPath;
+        }
+
+        @Override
+        public String toString() {
+            return "<" + getClass().getName() + " keyPath '" + _keyPath + "' " + (_ascending ? "ascending" : "descending") + ">";
+        }
+
+        private static final class _ClassKeyPath {
+            final Class<?> objectClass;
+            final CompiledKeyPath keyPath;
+            final _KeyBinding binding;
+            final int valueKind;
+
+            _ClassKeyPath(Object object, String keyPath) {
+                objectClass = object.getClass();
+                this.keyPath = CompiledKeyPath.compiledKeyPath(objectClass, keyPath);
+                binding = this.keyPath._primitiveKeyBindingForObject(object);
+                Class<?> primitiveValueType = binding == null ? null : binding.primitiveValueType();
+                if (primitiveValueType == int.class || primitiveValueType == long.class || primitiveValueType == short.class || primitiveValueType == byte.class)
+                    valueKind = _IntegralValue;
+                else if (primitiveValueType == double.class || primitiveValueType == float.class)
+                    valueKind = _FloatingPointValue;
+                else if (primitiveValueType == boolean.class)
+                    valueKind = _BooleanValue;
+                else
+                    valueKind = _ObjectValue;
+            }
+
+            int compare(Object object1, Object object2) {
+                int result;
+                switch (valueKind) {
+                    case _IntegralValue:
+                        result = Long.compare(binding.longValueInObject(object1), binding.longValueInObject(object2));
+                        break;
+                    case _FloatingPointValue:
+                        result = Double.compare(binding.doubleValueInObject(object1), binding.doubleValueInObject(object2));
+                        break;
+                    default:
+                        result = Boolean.compare(binding.booleanValueInObject(object1), binding.booleanValueInObject(object2));
+                }
+                if (result > 0)
+                    return OrderedDescending;
+                return result < 0 ? OrderedAscending : OrderedSame;
+            }
+        }
+    }
+
     @SuppressWarnings("serial")
     public static class ComparisonException extends RuntimeException {
         public ComparisonException(String message) {
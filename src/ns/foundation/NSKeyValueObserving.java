@@ -3,9 +3,11 @@ package ns.foundation;
 import java.util.EnumSet;
 
 import ns.foundation.collections.NSArray;
+import ns.foundation.collections.NSConcurrentMutableDictionary;
+import ns.foundation.collections.NSConcurrentMutableSet;
+import ns.foundation.collections.NSIndexSet;
 import ns.foundation.collections.NSMutableArray;
 import ns.foundation.collections.NSMutableDictionary;
-import ns.foundation.collections.NSMutableSet;
 import ns.foundation.collections.NSSet;
 import ns.foundation.kvc.NSKeyValueCoding;
 import ns.foundation.kvc.NSKeyValueCodingAdditions;
@@ -58,9 +60,12 @@ public interface NSKeyValueObserving extends NSKeyValueCodingAdditions {
       this.indexes = changes.indexes;
     }
 
+    /**
+     * Keeps the indexes of the change as an NSIndexSet.
+     */
     public KeyValueChange(EnumSet<Changes> change, NSSet<Integer> indexes) {
       this.kind = change;
-      this.indexes = indexes;
+      this.indexes = indexes == null ? null : NSIndexSet.indexSetWithIndexes(indexes);
     }
   }
     
@@ -206,8 +211,8 @@ public interface NSKeyValueObserving extends NSKeyValueCodingAdditions {
   }
   
   public static class KeyValueObservingProxy implements NSObservable {
-    private static final NSMutableDictionary<Object, KeyValueObservingProxy> _proxyCache = new NSMutableDictionary<Object, KeyValueObservingProxy>();
-    private static final NSMutableDictionary<Class<? extends Object>, NSMutableDictionary<String, NSMutableSet<String>>> _dependentKeys = new NSMutableDictionary<Class<? extends Object>, NSMutableDictionary<String, NSMutableSet<String>>>();
+    private static final NSConcurrentMutableDictionary<Object, KeyValueObservingProxy> _proxyCache = new NSConcurrentMutableDictionary<Object, KeyValueObservingProxy>();
+    private static final NSConcurrentMutableDictionary<Class<? extends Object>, NSConcurrentMutableDictionary<String, NSConcurrentMutableSet<String>>> _dependentKeys = new NSConcurrentMutableDictionary<Class<? extends Object>, NSConcurrentMutableDictionary<String, NSConcurrentMutableSet<String>>>();
     private final Object _targetObject;
     private NSMutableDictionary<String, KeyValueChange> _changesForKey = new NSMutableDictionary<String, KeyValueChange>();
     private NSMutableDictionary<String, NSMutableDictionary<NSObserver, ObserverInfo>> _observersForKey = new NSMutableDictionary<String, NSMutableDictionary<NSObserver,ObserverInfo>>();
@@ -221,8 +226,8 @@ public interface NSKeyValueObserving extends NSKeyValueCodingAdditions {
       }
       
       proxy = new KeyValueObservingProxy(object);
-      _proxyCache.setObjectForKey(proxy, object);
-      return proxy;
+      KeyValueObservingProxy existingProxy = _proxyCache.setObjectForKeyIfAbsent(proxy, object);
+      return existingProxy != null ? existingProxy : proxy;
     }
     
     private KeyValueObservingProxy(Object object) {
@@ -271,17 +276,21 @@ public interface NSKeyValueObserving extends NSKeyValueCodingAdditions {
     private void addDependentKeysForKey(String key) {
       NSSet<String> composedOfKeys = NSKeyValueObserving.Utility.keyPathsForValuesAffectingValueForKey(_targetObject,key);
       
-      NSMutableDictionary<String, NSMutableSet<String>> dependentKeysForClass = _dependentKeys.objectForKey(_targetObject.getClass());      
+      NSConcurrentMutableDictionary<String, NSConcurrentMutableSet<String>> dependentKeysForClass = _dependentKeys.objectForKey(_targetObject.getClass());      
       if (dependentKeysForClass == null) {
-        dependentKeysForClass = new NSMutableDictionary<String, NSMutableSet<String>>();
-        _dependentKeys.setObjectForKey(dependentKeysForClass, _targetObject.getClass());
+        dependentKeysForClass = new NSConcurrentMutableDictionary<String, NSConcurrentMutableSet<String>>();
+        NSConcurrentMutableDictionary<String, NSConcurrentMutableSet<String>> existingKeys = _dependentKeys.setObjectForKeyIfAbsent(dependentKeysForClass, _targetObject.getClass());
+        if (existingKeys != null)
+          dependentKeysForClass = existingKeys;
       }
       
       for (String componentKey : composedOfKeys) {
-        NSMutableSet<String> keysComposedOfKey = dependentKeysForClass.objectForKey(componentKey);
+        NSConcurrentMutableSet<String> keysComposedOfKey = dependentKeysForClass.objectForKey(componentKey);
         if (keysComposedOfKey == null) {
-          keysComposedOfKey = new NSMutableSet<String>();
-          dependentKeysForClass.setObjectForKey(keysComposedOfKey, componentKey);
+          keysComposedOfKey = new NSConcurrentMutableSet<String>();
+          NSConcurrentMutableSet<String> existingKeys = dependentKeysForClass.setObjectForKeyIfAbsent(keysComposedOfKey, componentKey);
+          if (existingKeys != null)
+            keysComposedOfKey = existingKeys;
         }
         
         keysComposedOfKey.addObject(key);
@@ -304,7 +313,7 @@ public interface NSKeyValueObserving extends NSKeyValueCodingAdditions {
         NSKeyValueCoding.DefaultImplementation._removeKVOAdditionsForKey(_targetObject, keyPath);
       }
       if (_observersForKey.isEmpty())
-        _proxyCache.removeObjectForKey(_targetObject);
+        _proxyCache.remove(_targetObject, this);
     }
     
     @SuppressWarnings("unchecked")
@@ -318,8 +327,8 @@ public interface NSKeyValueObserving extends NSKeyValueCodingAdditions {
         if (indexes != null) {
           EnumSet<Changes> type = changes.kind;
           if (type.contains(Changes.Replacement) || type.contains(Changes.Removal)) {
-            NSMutableArray<Object> oldValues = new NSMutableArray<Object>((NSArray<Object>)NSKeyValueCodingAdditions.Utility.valueForKeyPath(_targetObject, key));
-            changes.oldValue = oldValues;
+            NSArray<Object> values = (NSArray<Object>)NSKeyValueCodingAdditions.Utility.valueForKeyPath(_targetObject, key);
+            changes.oldValue = new NSMutableArray<Object>(values == null ? NSArray.emptyArray() : values);
           }
         } else {
           Object oldValue = NSKeyValueCoding.Utility.valueForKey(_targetObject, key);
@@ -339,8 +348,8 @@ public interface NSKeyValueObserving extends NSKeyValueCodingAdditions {
         if (indexes != null) {
           EnumSet<Changes> type = changes.kind;
           if (type.contains(Changes.Replacement) || type.contains(Changes.Insertion)) {
-            NSMutableArray<Object> newValues = new NSMutableArray<Object>((NSArray<Object>)NSKeyValueCodingAdditions.Utility.valueForKeyPath(_targetObject, key));
-            changes.newValue = newValues;
+            NSArray<Object> values = (NSArray<Object>)NSKeyValueCodingAdditions.Utility.valueForKeyPath(_targetObject, key);
+            changes.newValue = new NSMutableArray<Object>(values == null ? NSArray.emptyArray() : values);
           }
         } else {
           Object newValue = NSKeyValueCoding.Utility.valueForKey(_targetObject, key);
@@ -4,7 +4,7 @@ import java.io.Serializable;
 import java.lang.reflect.InvocationTargetException;
 
 import ns.foundation._private._NSMethod;
-import ns.foundation.collections.NSMutableDictionary;
+import ns.foundation.collections.NSConcurrentMutableDictionary;
 import ns.foundation.kvc.NSKeyValueCoding;
 import ns.foundation.utilities._NSReflectionUtilities;
 
@@ -16,9 +16,18 @@ public class NSSelector<T> implements Serializable {
 
   protected String _name;
   protected Class<?>[] _types;
-  private transient Class<?> _cachedClass;
-  private transient _NSMethod _cachedMethod;
-  private transient NSMutableDictionary<String, _NSMethod> _classToMethodMapTable = new NSMutableDictionary<String, _NSMethod>(8);
+  private transient volatile _CachedMethod _cachedMethod;
+  private transient NSConcurrentMutableDictionary<String, _NSMethod> _classToMethodMapTable = new NSConcurrentMutableDictionary<String, _NSMethod>(8);
+
+  private static final class _CachedMethod {
+    final Class<?> targetClass;
+    final _NSMethod method;
+
+    _CachedMethod(Class<?> targetClass, _NSMethod method) {
+      this.targetClass = targetClass;
+      this.method = method;
+    }
+  }
 
   public static <T> T _safeInvokeSelector(NSSelector<T> selector, Object receiver, Object... parameters) {
     try {
@@ -103,10 +112,11 @@ public class NSSelector<T> implements Serializable {
     return types;
   }
 
-  private synchronized _NSMethod _methodOnObject(Object targetObject) {
+  private _NSMethod _methodOnObject(Object targetObject) {
     Class<?> targetClass = targetObject.getClass();
-    if (targetClass == _cachedClass) {
-      return _cachedMethod;
+    _CachedMethod cachedMethod = _cachedMethod;
+    if (cachedMethod != null && targetClass == cachedMethod.targetClass) {
+      return cachedMethod.method;
     }
 
     String className = targetClass.getName();
@@ -130,8 +140,7 @@ public class NSSelector<T> implements Serializable {
       method = (_NSMethod) value;
     }
 
-    _cachedClass = targetClass;
-    _cachedMethod = method;
+    _cachedMethod = new _CachedMethod(targetClass, method);
     return method;
   }
 
@@ -0,0 +1,207 @@
+package ns.foundation;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import ns.foundation.collections.NSArray;
+import ns.foundation.collections.NSMutableArray;
+import ns.foundation.kvc.NSKeyValueCoding;
+
+/**
+ * Orders objects by the value of a key path, ascending or descending and
+ * optionally ignoring case, or with a comparator of the values. An array of
+ * sort orderings orders objects by the first key path, then by the next for
+ * the objects comparing the same, and so on.
+ *
+ * Sorting an array reads the value of each key path once per object and
+ * sorts the objects on those keys, instead of reading the key paths of both
+ * objects on every comparison.
+ */
+public class NSSortOrdering {
+  @SuppressWarnings("unchecked")
+  private static final NSComparator<Object> AscendingComparator = (NSComparator<Object>) (NSComparator<?>) NSComparator.AscendingNumberComparator;
+  @SuppressWarnings("unchecked")
+  private static final NSComparator<Object> DescendingComparator = (NSComparator<Object>) (NSComparator<?>) NSComparator.DescendingNumberComparator;
+
+  private static final NSComparator<Object> AscendingCaseInsensitiveComparator = new NSComparator<Object>() {
+    @Override
+    public int compare(Object object1, Object object2) {
+      if (object1 instanceof String && object2 instanceof String) {
+        int result = _compareIgnoringCase((String) object1, (String) object2);
+        return result < 0 ? OrderedAscending : (result > 0 ? OrderedDescending : OrderedSame);
+      }
+      return AscendingComparator.compare(object1, object2);
+    }
+
+    @Override
+    public String toString() {
+      return "AscendingCaseInsensitive";
+    }
+  };
+
+  private static final NSComparator<Object> DescendingCaseInsensitiveComparator = new NSComparator<Object>() {
+    @Override
+    public int compare(Object object1, Object object2) {
+      return -AscendingCaseInsensitiveComparator.compare(object1, object2);
+    }
+
+    @Override
+    public String toString() {
+      return "DescendingCaseInsensitive";
+    }
+  };
+
+  private final String _keyPath;
+  private final NSComparator<Object> _comparator;
+
+  public NSSortOrdering(String keyPath) {
+    this(keyPath, true, false);
+  }
+
+  public NSSortOrdering(String keyPath, boolean ascending) {
+    this(keyPath, ascending, false);
+  }
+
+  public NSSortOrdering(String keyPath, boolean ascending, boolean caseInsensitive) {
+    this(keyPath, caseInsensitive ? (ascending ? AscendingCaseInsensitiveComparator : DescendingCaseInsensitiveComparator) : (ascending ? AscendingComparator : DescendingComparator));
+  }
+
+  @SuppressWarnings("unchecked")
+  public NSSortOrdering(String keyPath, NSComparator<?> comparator) {
+    if (keyPath == null || keyPath.length() == 0)
+      throw new IllegalArgumentException("Key path cannot be null or empty");
+    if (comparator == null)
+      throw new IllegalArgumentException("Comparator not specified");
+    _keyPath = keyPath;
+    _comparator = (NSComparator<Object>) comparator;
+  }
+
+  public String keyPath() {
+    return _keyPath;
+  }
+
+  public NSComparator<?> comparator() {
+    return _comparator;
+  }
+
+  public boolean isAscending() {
+    return _comparator != DescendingComparator && _comparator != DescendingCaseInsensitiveComparator;
+  }
+
+  public boolean isCaseInsensitive() {
+    return _comparator == AscendingCaseInsensitiveComparator || _comparator == DescendingCaseInsensitiveComparator;
+  }
+
+  @Override
+  public String toString() {
+    return "<" + getClass().getName() + " keyPath '" + _keyPath + "' comparator " + _comparator + ">";
+  }
+
+  /**
+   * Returns a new array of the objects of array ordered by sortOrderings. The
+   * sort is stable, objects comparing the same keep their order.
+   */
+  public static <T> NSArray<T> sortedArrayUsingKeyOrderArray(NSArray<T> array, List<NSSortOrdering> sortOrderings) {
+    if (array == null)
+      throw new IllegalArgumentException("Array cannot be null");
+    Object[] objects = array.toArray();
+    if (sortOrderings != null && sortOrderings.size() > 0 && objects.length > 1)
+      objects = _sortedObjects(objects, sortOrderings);
+    return NSArray._arrayWithObjectsNoCopy(objects);
+  }
+
+  /**
+   * Orders the objects of array by sortOrderings in place.
+   */
+  public static <T> void sortArrayUsingKeyOrderArray(NSMutableArray<T> array, List<NSSortOrdering> sortOrderings) {
+    if (array == null)
+      throw new IllegalArgumentException("Array cannot be null");
+    if (sortOrderings == null || sortOrderings.size() == 0 || array.count() < 2)
+      return;
+    Object[] objects = _sortedObjects(array.toArray(), sortOrderings);
+    // one bulk write, replacing the objects one by one copies a copy on write array each time
+    array.setArray(NSArray.<T> _arrayWithObjectsNoCopy(objects));
+  }
+
+  /**
+   * Returns a comparator of objects by sortOrderings, reading the key paths
+   * of both objects on each comparison. Sorting an array is faster with
+   * sortedArrayUsingKeyOrderArray, the comparator is meant for searching
+   * arrays kept in that order.
+   */
+  public static <T> NSComparator<T> comparatorForKeyOrderArray(List<NSSortOrdering> sortOrderings) {
+    final NSSortOrdering[] orderings = sortOrderings.toArray(new NSSortOrdering[sortOrderings.size()]);
+    final NSComparator.KeyPathComparator<?>[] values = _keyPathValues(orderings);
+    return new NSComparator<T>() {
+      @Override
+      public int compare(T object1, T object2) {
+        for (int i = 0; i < orderings.length; i++) {
+          int result = orderings[i]._comparator.compare(_valueInObject(values[i], object1), _valueInObject(values[i], object2));
+          if (result != OrderedSame)
+            return result;
+        }
+        return OrderedSame;
+      }
+    };
+  }
+
+  private static Object[] _sortedObjects(Object[] objects, List<NSSortOrdering> sortOrderings) {
+    final NSSortOrdering[] orderings = sortOrderings.toArray(new NSSortOrdering[sortOrderings.size()]);
+    NSComparator.KeyPathComparator<?>[] values = _keyPathValues(orderings);
+    // the first key is kept with its object, the others are only read to break ties
+    final Object[][] keys = new Object[orderings.length][];
+    for (int i = 1; i < orderings.length; i++) {
+      keys[i] = new Object[objects.length];
+      for (int j = 0; j < objects.length; j++) {
+        keys[i][j] = _valueInObject(values[i], objects[j]);
+      }
+    }
+    _KeyedObject[] keyedObjects = new _KeyedObject[objects.length];
+    for (int i = 0; i < objects.length; i++) {
+      keyedObjects[i] = new _KeyedObject(_valueInObject(values[0], objects[i]), i);
+    }
+    Comparator<_KeyedObject> comparator = new Comparator<_KeyedObject>() {
+      @Override
+      public int compare(_KeyedObject object1, _KeyedObject object2) {
+        int result = orderings[0]._comparator.compare(object1.key, object2.key);
+        for (int i = 1; i < orderings.length && result == NSComparator.OrderedSame; i++) {
+          result = orderings[i]._comparator.compare(keys[i][object1.index], keys[i][object2.index]);
+        }
+        return result;
+      }
+    };
+    if (keyedObjects.length >= NSArray.parallelSortThreshold())
+      Arrays.parallelSort(keyedObjects, comparator);
+    else
+      Arrays.sort(keyedObjects, comparator);
+    Object[] sortedObjects = new Object[objects.length];
+    for (int i = 0; i < keyedObjects.length; i++) {
+      sortedObjects[i] = objects[keyedObjects[i].index];
+    }
+    return sortedObjects;
+  }
+
+  private static NSComparator.KeyPathComparator<?>[] _keyPathValues(NSSortOrdering[] orderings) {
+    NSComparator.KeyPathComparator<?>[] values = new NSComparator.KeyPathComparator<?>[orderings.length];
+    for (int i = 0; i < orderings.length; i++) {
+      values[i] = new NSComparator.KeyPathComparator<Object>(orderings[i]._keyPath);
+    }
+    return values;
+  }
+
+  private static Object _valueInObject(NSComparator.KeyPathComparator<?> values, Object object) {
+    Object value = values._valueInObject(object);
+    return value == NSKeyValueCoding.NullValue ? null : value;
+  }
+
+  private static final class _KeyedObject {
+    final Object key;
+    final int index;
+
+    _KeyedObject(Object key, int index) {
+      this.key = key;
+      this.index = index;
+    }
+  }
+}
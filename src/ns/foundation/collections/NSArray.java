@@ -2,6 +2,7 @@ package ns.foundation.collections;
 
 
 import java.io.Serializable;
+import java.lang.ref.SoftReference;
 import java.math.BigDecimal;
 import java.util.AbstractList;
 import java.util.ArrayList;
@@ -10,12 +11,16 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.NoSuchElementException;
 import java.util.RandomAccess;
 import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 import ns.foundation.NSComparator;
 import ns.foundation.NSForwardException;
@@ -23,52 +28,110 @@ import ns.foundation.NSLog;
 import ns.foundation.NSRange;
 import ns.foundation.NSSelector;
 import ns.foundation.NSTimestamp;
+import ns.foundation.collections._private._NSArrayIndex;
 import ns.foundation.collections._private._NSCollectionPrimitives;
 import ns.foundation.collections._private._NSFoundationCollection;
+import ns.foundation.collections._private._NSObjectArrayList;
+import ns.foundation.collections._private._NSPersistentVector;
 import ns.foundation.kvc.NSKeyValueCoding;
+import ns.foundation.kvc.NSKeyValueCoding._KeyBinding;
 import ns.foundation.kvc.NSKeyValueCodingAdditions;
+import ns.foundation.kvc.NSKeyValueCodingAdditions.CompiledKeyPath;
+import ns.foundation.utilities._NSUtilities;
 
 public class NSArray<E> extends AbstractList<E> implements Cloneable, Serializable, NSKeyValueCoding, NSKeyValueCodingAdditions, _NSFoundationCollection,
     List<E> {
   
-  public static class _AvgNumberOperator extends _Operator implements Operator {
+  public static class _AvgNumberOperator extends _Operator implements CombinableOperator {
     @Override
     public Object compute(NSArray<?> values, String keyPath) {
+      return result(partialResult(values, new NSRange(0, values.count()), keyPath), values, keyPath);
+    }
+
+    @Override
+    public Object partialResult(NSArray<?> values, NSRange range, String keyPath) {
+      return _accumulate(values, range, keyPath);
+    }
+
+    @Override
+    public Object combinePartialResults(Object left, Object right) {
+      return ((_NumberAccumulator) left).add((_NumberAccumulator) right);
+    }
+
+    @Override
+    public Object result(Object partialResult, NSArray<?> values, String keyPath) {
       int count = values.count();
       if (count != 0) {
-        BigDecimal sum = _sum(values, keyPath);
+        BigDecimal sum = ((_NumberAccumulator) partialResult).sum();
         return sum.divide(new BigDecimal(count), sum.scale() + 4, 6);
       }
       return null;
     }
   }
 
-  public static class _SumNumberOperator extends _Operator implements Operator {
+  public static class _SumNumberOperator extends _Operator implements CombinableOperator {
     @Override
     public Object compute(NSArray<?> values, String keyPath) {
       return _sum(values, keyPath);
     }
+
+    @Override
+    public Object partialResult(NSArray<?> values, NSRange range, String keyPath) {
+      return _accumulate(values, range, keyPath);
+    }
+
+    @Override
+    public Object combinePartialResults(Object left, Object right) {
+      return ((_NumberAccumulator) left).add((_NumberAccumulator) right);
+    }
+
+    @Override
+    public Object result(Object partialResult, NSArray<?> values, String keyPath) {
+      return ((_NumberAccumulator) partialResult).sum();
+    }
   }
 
-  public static class _MinOperator extends _Operator implements Operator {
+  public static class _MinOperator extends _Operator implements CombinableOperator {
     @Override
     public Object compute(NSArray<?> values, String keyPath) {
-      Object min = null;
-      for (Object obj : values) {
-        min = _minOrMaxValue(min, _operationValue(obj, keyPath), false);
-      }
-      return min;
+      return partialResult(values, new NSRange(0, values.count()), keyPath);
+    }
+
+    @Override
+    public Object partialResult(NSArray<?> values, NSRange range, String keyPath) {
+      return _minOrMaxValue(values, range, keyPath, false);
+    }
+
+    @Override
+    public Object combinePartialResults(Object left, Object right) {
+      return _minOrMaxValue(left, right, false);
+    }
+
+    @Override
+    public Object result(Object partialResult, NSArray<?> values, String keyPath) {
+      return partialResult;
     }
   }
 
-  public static class _MaxOperator extends _Operator implements Operator {
+  public static class _MaxOperator extends _Operator implements CombinableOperator {
     @Override
     public Object compute(NSArray<?> values, String keyPath) {
-      Object max = null;
-      for (Object obj : values) {
-        max = _minOrMaxValue(max, _operationValue(obj, keyPath), true);
-      }
-      return max;
+      return partialResult(values, new NSRange(0, values.count()), keyPath);
+    }
+
+    @Override
+    public Object partialResult(NSArray<?> values, NSRange range, String keyPath) {
+      return _minOrMaxValue(values, range, keyPath, true);
+    }
+
+    @Override
+    public Object combinePartialResults(Object left, Object right) {
+      return _minOrMaxValue(left, right, true);
+    }
+
+    @Override
+    public Object result(Object partialResult, NSArray<?> values, String keyPath) {
+      return partialResult;
     }
   }
 
@@ -77,7 +140,7 @@ public class NSArray<E> extends AbstractList<E> implements Cloneable, Serializab
       return keyPath == null || keyPath.length() <= 0 ? object : NSKeyValueCodingAdditions.Utility.valueForKeyPath(object, keyPath);
     }
 
-    private BigDecimal _bigDecimalForValue(Object object) {
+    private static BigDecimal _bigDecimalForValue(Object object) {
       if (object != null) {
         if (object instanceof Number)
           return new BigDecimal(object.toString());
@@ -91,13 +154,61 @@ public class NSArray<E> extends AbstractList<E> implements Cloneable, Serializab
     }
 
     BigDecimal _sum(NSArray<?> values, String keyPath) {
-      BigDecimal sum = _BigDecimalZero;
-      for (Object obj : values) {
-        BigDecimal value = _bigDecimalForValue(_operationValue(obj, keyPath));
-        if (value != null)
-          sum = sum.add(value);
+      return _accumulate(values, new NSRange(0, values.count()), keyPath).sum();
+    }
+
+    _NumberAccumulator _accumulate(NSArray<?> values, NSRange range, String keyPath) {
+      _OperationValueAccessor accessor = new _OperationValueAccessor(keyPath);
+      _NumberAccumulator accumulator = new _NumberAccumulator();
+      for (int i = range.location(); i < range.maxRange(); i++) {
+        accessor.addValueInObject(values.objectAtIndex(i), accumulator);
       }
-      return sum;
+      return accumulator;
+    }
+
+    Object _minOrMaxValue(NSArray<?> values, NSRange range, String keyPath, boolean trueForMaxAndFalseForMin) {
+      _OperationValueAccessor accessor = new _OperationValueAccessor(keyPath);
+      Object value = null;
+      for (int i = range.location(); i < range.maxRange(); i++) {
+        Object object = values.objectAtIndex(i);
+        int valueKind = accessor.valueKindInObject(object);
+        // primitive values are only boxed when they replace the current value
+        if (valueKind != _OperationValueAccessor._ObjectValue && (_isIntegral(value) || _isFloatingPoint(value))) {
+          int comparison;
+          if (valueKind == _OperationValueAccessor._FloatingPointValue || valueKind == _OperationValueAccessor._FloatValue || _isFloatingPoint(value)) {
+            comparison = Double.compare(_doubleValue(value), accessor.doubleValueInObject(object));
+          } else {
+            long refValue = _longValue(value);
+            long compValue = accessor.longValueInObject(object);
+            comparison = refValue < compValue ? -1 : (refValue == compValue ? 0 : 1);
+          }
+          if (trueForMaxAndFalseForMin ? comparison >= 0 : comparison <= 0) {
+            continue;
+          }
+        }
+        value = _minOrMaxValue(value, accessor.valueInObject(object), trueForMaxAndFalseForMin);
+      }
+      return value;
+    }
+
+    private static boolean _isIntegral(Object value) {
+      return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte || value instanceof Boolean;
+    }
+
+    private static boolean _isFloatingPoint(Object value) {
+      return value instanceof Double || value instanceof Float;
+    }
+
+    private static long _longValue(Object value) {
+      if (value instanceof Boolean)
+        return ((Boolean) value) ? 1 : 0;
+      return ((Number) value).longValue();
+    }
+
+    private static double _doubleValue(Object value) {
+      if (value instanceof Boolean)
+        return ((Boolean) value) ? 1 : 0;
+      return ((Number) value).doubleValue();
     }
 
     @SuppressWarnings("unchecked")
@@ -108,7 +219,13 @@ public class NSArray<E> extends AbstractList<E> implements Cloneable, Serializab
         return referenceValue;
 
       int comparison;
-      if (referenceValue instanceof Number || referenceValue instanceof Boolean) {
+      if (_isIntegral(referenceValue) && _isIntegral(compareValue)) {
+        long refValue = _longValue(referenceValue);
+        long compValue = _longValue(compareValue);
+        comparison = refValue < compValue ? -1 : (refValue == compValue ? 0 : 1);
+      } else if ((_isIntegral(referenceValue) || _isFloatingPoint(referenceValue)) && (_isIntegral(compareValue) || _isFloatingPoint(compareValue))) {
+        comparison = Double.compare(_doubleValue(referenceValue), _doubleValue(compareValue));
+      } else if (referenceValue instanceof Number || referenceValue instanceof Boolean) {
         Comparable<?> refValue = (Comparable<?>) referenceValue;
         if (referenceValue instanceof Boolean)
           refValue = ((Boolean) referenceValue) ? 1 : 0;
@@ -132,19 +249,371 @@ public class NSArray<E> extends AbstractList<E> implements Cloneable, Serializab
       }
       return compareValue;
     }
+
+    /*
+     * Resolves the operator key path against each element, reusing the compiled
+     * key path for as long as consecutive elements share the same class. Keys
+     * bound to primitive properties are read through the primitive accessors of
+     * their binding so that the operators do not box each value.
+     */
+    static final class _OperationValueAccessor {
+      static final int _ObjectValue = 0;
+      static final int _IntegralValue = 1;
+      static final int _BooleanValue = 2;
+      static final int _FloatValue = 3;
+      static final int _FloatingPointValue = 4;
+
+      private final String _keyPath;
+      private Class<?> _objectClass;
+      private CompiledKeyPath _compiledKeyPath;
+      private _KeyBinding _primitiveBinding;
+      private int _valueKind;
+
+      _OperationValueAccessor(String keyPath) {
+        _keyPath = keyPath == null || keyPath.length() <= 0 ? null : keyPath;
+      }
+
+      Object valueInObject(Object object) {
+        if (_keyPath == null)
+          return object;
+        _resolve(object);
+        return _compiledKeyPath.valueInObject(object);
+      }
+
+      int valueKindInObject(Object object) {
+        if (_keyPath == null)
+          return _ObjectValue;
+        _resolve(object);
+        return _valueKind;
+      }
+
+      int intValueInObject(Object object) {
+        switch (valueKindInObject(object)) {
+          case _ObjectValue:
+            return _numberValueInObject(object).intValue();
+          case _BooleanValue:
+            return _primitiveBinding.booleanValueInObject(object) ? 1 : 0;
+          default:
+            return _primitiveBinding.intValueInObject(object);
+        }
+      }
+
+      long longValueInObject(Object object) {
+        switch (valueKindInObject(object)) {
+          case _ObjectValue:
+            return _numberValueInObject(object).longValue();
+          case _BooleanValue:
+            return _primitiveBinding.booleanValueInObject(object) ? 1 : 0;
+          default:
+            return _primitiveBinding.longValueInObject(object);
+        }
+      }
+
+      double doubleValueInObject(Object object) {
+        switch (valueKindInObject(object)) {
+          case _ObjectValue:
+            return _numberValueInObject(object).doubleValue();
+          case _BooleanValue:
+            return _primitiveBinding.booleanValueInObject(object) ? 1 : 0;
+          default:
+            return _primitiveBinding.doubleValueInObject(object);
+        }
+      }
+
+      boolean booleanValueInObject(Object object) {
+        switch (valueKindInObject(object)) {
+          case _ObjectValue:
+            Object value = _nonNullValueInObject(object);
+            return _NSUtilities._convertObjectIntoCompatibleValue(value, Boolean.class).booleanValue();
+          case _BooleanValue:
+            return _primitiveBinding.booleanValueInObject(object);
+          default:
+            // numbers are true when their int value is not zero
+            return _primitiveBinding.intValueInObject(object) != 0;
+        }
+      }
+
+      private Number _numberValueInObject(Object object) {
+        Object value = _nonNullValueInObject(object);
+        return value instanceof Number ? (Number) value : _bigDecimalForValue(value);
+      }
+
+      private Object _nonNullValueInObject(Object object) {
+        Object value = valueInObject(object);
+        if (value == null || value == NSKeyValueCoding.NullValue)
+          throw new IllegalStateException("The value for key path '" + _keyPath + "' of " + object + " is null");
+        return value;
+      }
+
+      void addValueInObject(Object object, _NumberAccumulator accumulator) {
+        switch (valueKindInObject(object)) {
+          case _IntegralValue:
+          case _BooleanValue:
+            accumulator.addLong(longValueInObject(object));
+            return;
+          case _FloatingPointValue:
+            accumulator.addDouble(_primitiveBinding.doubleValueInObject(object));
+            return;
+          default:
+            accumulator.add(valueInObject(object));
+        }
+      }
+
+      private void _resolve(Object object) {
+        if (object == null)
+          throw new IllegalArgumentException("Object cannot be null");
+        Class<?> objectClass = object.getClass();
+        if (objectClass != _objectClass) {
+          _compiledKeyPath = CompiledKeyPath.compiledKeyPath(objectClass, _keyPath);
+          _primitiveBinding = _compiledKeyPath._primitiveKeyBindingForObject(object);
+          _valueKind = _valueKindForType(_primitiveBinding == null ? null : _primitiveBinding.primitiveValueType());
+          _objectClass = objectClass;
+        }
+      }
+
+      private static int _valueKindForType(Class<?> primitiveValueType) {
+        if (primitiveValueType == int.class || primitiveValueType == long.class || primitiveValueType == short.class || primitiveValueType == byte.class)
+          return _IntegralValue;
+        if (primitiveValueType == boolean.class)
+          return _BooleanValue;
+        if (primitiveValueType == float.class)
+          return _FloatValue;
+        if (primitiveValueType == double.class)
+          return _FloatingPointValue;
+        return _ObjectValue;
+      }
+    }
+
+    /*
+     * Sums values exactly as decimals, like the old sum of
+     * new BigDecimal(value.toString()), so 0.1 + 0.2 is 0.3 and 0.1f is 0.1.
+     * The sum is kept in a long scaled by a power of ten while every value has
+     * a short decimal form, a floating point value is scaled by the smallest
+     * power of ten from 10 on that gives an integer from which the value reads
+     * back exactly, toString prints at least one fraction digit too. Values that do not fit, sums that overflow and values that are
+     * not primitive wrappers are added in a BigDecimal.
+     */
+    static final class _NumberAccumulator {
+      private static final int _ScaledLongMode = 0;
+      private static final int _BigDecimalMode = 1;
+      private static final int _MaximumScale = 18;
+      // scaled values below this bound leave room for only one decimal per double
+      private static final double _MaximumScaledDouble = 1L << 50;
+      private static final double _MaximumScaledFloat = 1L << 21;
+      private static final long[] _LongPowersOfTen = new long[_MaximumScale + 1];
+      private static final double[] _DoublePowersOfTen = new double[_MaximumScale + 1];
+
+      static {
+        long power = 1;
+        for (int i = 0; i <= _MaximumScale; i++) {
+          _LongPowersOfTen[i] = power;
+          _DoublePowersOfTen[i] = power;
+          power *= 10;
+        }
+      }
+
+      private int _mode = _ScaledLongMode;
+      private long _scaledSum;
+      private int _scale;
+      private BigDecimal _bigDecimalSum;
+
+      void add(Object value) {
+        if (value == null)
+          return;
+        if (_mode != _BigDecimalMode) {
+          if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            addLong(((Number) value).longValue());
+            return;
+          }
+          if (value instanceof Boolean) {
+            addLong(((Boolean) value) ? 1 : 0);
+            return;
+          }
+        }
+        if (value instanceof Double) {
+          addDouble(((Double) value).doubleValue());
+          return;
+        }
+        if (value instanceof Float) {
+          addFloat(((Float) value).floatValue());
+          return;
+        }
+        _addBigDecimal(_bigDecimalForValue(value));
+      }
+
+      void addLong(long value) {
+        if (_mode == _ScaledLongMode && _addScaled(value, 0))
+          return;
+        _addBigDecimal(BigDecimal.valueOf(value));
+      }
+
+      void addDouble(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value))
+          throw new NumberFormatException("Infinite or NaN");
+        if (_mode == _ScaledLongMode && _isPlainDecimal(value)) {
+          for (int scale = 1; scale <= _MaximumScale; scale++) {
+            double scaled = value * _DoublePowersOfTen[scale];
+            if (Math.abs(scaled) >= _MaximumScaledDouble)
+              break;
+            double unscaled = Math.rint(scaled);
+            if (unscaled / _DoublePowersOfTen[scale] == value) {
+              if (_addScaled((long) unscaled, scale))
+                return;
+              break;
+            }
+          }
+        }
+        _addBigDecimal(BigDecimal.valueOf(value));
+      }
+
+      void addFloat(float value) {
+        if (Float.isNaN(value) || Float.isInfinite(value))
+          throw new NumberFormatException("Infinite or NaN");
+        if (_mode == _ScaledLongMode && _isPlainDecimal(value)) {
+          for (int scale = 1; scale <= _MaximumScale; scale++) {
+            double scaled = value * _DoublePowersOfTen[scale];
+            if (Math.abs(scaled) >= _MaximumScaledFloat)
+              break;
+            double unscaled = Math.rint(scaled);
+            if ((float) (unscaled / _DoublePowersOfTen[scale]) == value) {
+              if (_addScaled((long) unscaled, scale))
+                return;
+              break;
+            }
+          }
+        }
+        _addBigDecimal(new BigDecimal(Float.toString(value)));
+      }
+
+      /*
+       * toString prints values outside of this range in scientific notation,
+       * their BigDecimals have other scales.
+       */
+      private static boolean _isPlainDecimal(double value) {
+        double magnitude = Math.abs(value);
+        return magnitude == 0 || magnitude >= 1e-3 && magnitude < 1e7;
+      }
+
+      private boolean _addScaled(long unscaledValue, int scale) {
+        if (scale > _scale) {
+          long factor = _LongPowersOfTen[scale - _scale];
+          if (_scaledSum > Long.MAX_VALUE / factor || _scaledSum < -(Long.MAX_VALUE / factor))
+            return false;
+          _scaledSum *= factor;
+          _scale = scale;
+        } else if (scale < _scale) {
+          long factor = _LongPowersOfTen[_scale - scale];
+          if (unscaledValue > Long.MAX_VALUE / factor || unscaledValue < -(Long.MAX_VALUE / factor))
+            return false;
+          unscaledValue *= factor;
+        }
+        long sum = _scaledSum + unscaledValue;
+        if (((_scaledSum ^ sum) & (unscaledValue ^ sum)) < 0)
+          return false;
+        _scaledSum = sum;
+        return true;
+      }
+
+      private void _addBigDecimal(BigDecimal value) {
+        if (_mode == _ScaledLongMode) {
+          _bigDecimalSum = BigDecimal.valueOf(_scaledSum, _scale);
+          _mode = _BigDecimalMode;
+        }
+        _bigDecimalSum = _bigDecimalSum.add(value);
+      }
+
+      _NumberAccumulator add(_NumberAccumulator accumulator) {
+        if (accumulator._mode == _BigDecimalMode || _mode != _ScaledLongMode || !_addScaled(accumulator._scaledSum, accumulator._scale))
+          _addBigDecimal(accumulator.sum());
+        return this;
+      }
+
+      BigDecimal sum() {
+        if (_mode == _ScaledLongMode)
+          return BigDecimal.valueOf(_scaledSum, _scale);
+        return _bigDecimalSum;
+      }
+    }
   }
 
-  public static class _CountOperator implements Operator {
+  public static class _CountOperator implements CombinableOperator {
     @Override
     public Object compute(NSArray<?> values, String keyPath) {
       return values.count();
     }
+
+    @Override
+    public Object partialResult(NSArray<?> values, NSRange range, String keyPath) {
+      return range.length();
+    }
+
+    @Override
+    public Object combinePartialResults(Object left, Object right) {
+      return (Integer) left + (Integer) right;
+    }
+
+    @Override
+    public Object result(Object partialResult, NSArray<?> values, String keyPath) {
+      return partialResult;
+    }
   }
 
   public static interface Operator {
     public Object compute(NSArray<?> values, String keyPath);
   }
 
+  /**
+   * An operator that can be evaluated over ranges of an array independently.
+   * Arrays with at least {@link NSArray#parallelOperatorThreshold()} elements
+   * are split into ranges that are computed in parallel, their partial results
+   * are combined pairwise in array order (left, right) and the final result is
+   * produced from the combined partial result.
+   */
+  public static interface CombinableOperator extends Operator {
+    public Object partialResult(NSArray<?> values, NSRange range, String keyPath);
+
+    public Object combinePartialResults(Object left, Object right);
+
+    public Object result(Object partialResult, NSArray<?> values, String keyPath);
+  }
+
+  static class _CombinableOperatorTask extends RecursiveTask<Object> {
+    private static final long serialVersionUID = -4107305233384733946L;
+
+    private final CombinableOperator _operator;
+    private final NSArray<?> _values;
+    private final String _keyPath;
+    private final int _location;
+    private final int _length;
+    private final int _minimumLength;
+
+    _CombinableOperatorTask(CombinableOperator operator, NSArray<?> values, String keyPath, int location, int length, int minimumLength) {
+      _operator = operator;
+      _values = values;
+      _keyPath = keyPath;
+      _location = location;
+      _length = length;
+      _minimumLength = minimumLength;
+    }
+
+    @Override
+    protected Object compute() {
+      if (_length <= _minimumLength) {
+        return _operator.partialResult(_values, new NSRange(_location, _length), _keyPath);
+      }
+      int half = _length / 2;
+      _CombinableOperatorTask left = new _CombinableOperatorTask(_operator, _values, _keyPath, _location, half, _minimumLength);
+      _CombinableOperatorTask right = new _CombinableOperatorTask(_operator, _values, _keyPath, _location + half, _length - half, _minimumLength);
+      left.fork();
+      Object rightResult = right.compute();
+      return _operator.combinePartialResults(left.join(), rightResult);
+    }
+  }
+
+  static class _OperatorPool {
+    static final ForkJoinPool pool = new ForkJoinPool();
+  }
+
   private static final char _OperatorIndicatorChar = '@';
   public static final String AverageOperatorName = "avg";
   public static final String CountOperatorName = "count";
@@ -164,9 +633,18 @@ public class NSArray<E> extends AbstractList<E> implements Cloneable, Serializab
 
   protected static final String NULL_NOT_ALLOWED = "Attempt to insert null into an NSArray.";
   protected static final String NULL_NOT_SUPPORTED = "NSArray does not support null values";
-  private static NSMutableDictionary<String, Operator> _operators = new NSMutableDictionary<String, Operator>(8);
+  private static final NSConcurrentMutableDictionary<String, Operator> _operators = new NSConcurrentMutableDictionary<String, Operator>(8);
+  private static volatile int _parallelOperatorThreshold = 65536;
+  private static volatile int _parallelSortThreshold = 65536;
+
+  private static final int _IndexedLookupMinimumCount = 16;
+  private static final int _IndexedLookupLinearSearches = 4;
+  private static final SoftReference<_NSArrayIndex> _NotIndexable = new SoftReference<_NSArrayIndex>(null);
 
   private List<E> _backingStore;
+  private transient int _hashCode;
+  private transient volatile SoftReference<_NSArrayIndex> _indexReference;
+  private transient int _linearSearches;
 
   static {
     try {
@@ -236,9 +714,7 @@ public class NSArray<E> extends AbstractList<E> implements Cloneable, Serializab
   }
 
   protected List<E> _initializeListWithCapacity(int capacity) {
-    List<E> list = new ArrayList<E>(capacity);
-    _setList(Collections.unmodifiableList(list));
-    return list;
+    return _setList(new _NSObjectArrayList<E>(capacity));
   }
   
   protected void _initializeWithCapacity(int capacity) {
@@ -328,6 +804,159 @@ public class NSArray<E> extends AbstractList<E> implements Cloneable, Serializab
   @SuppressWarnings("serial")
   static class RandomAccessNSArray<E> extends NSArray<E> implements RandomAccess { }
 
+  /*
+   * Immutable array backed by a persistent vector. Appending objects and
+   * taking subarrays return new arrays sharing the vector of the receiver.
+   */
+  @SuppressWarnings("serial")
+  static class PersistentNSArray<E> extends NSArray<E> implements RandomAccess {
+    static <E> PersistentNSArray<E> _arrayWithVector(_NSPersistentVector<E> vector) {
+      PersistentNSArray<E> array = new PersistentNSArray<E>();
+      array._setList(vector);
+      return array;
+    }
+
+    _NSPersistentVector<E> _vector() {
+      return (_NSPersistentVector<E>) listNoCopy();
+    }
+
+    @Override
+    public NSArray<E> arrayByAddingObject(E object) {
+      if (object == null)
+        throw new IllegalArgumentException("object may not be null");
+      return _arrayWithVector(_vector().appendingObject(object));
+    }
+
+    @Override
+    public NSArray<E> arrayByAddingObjectsFromArray(NSArray<E> otherArray) {
+      if (otherArray == null || otherArray.count() == 0)
+        return this;
+      Object[] objects = otherArray.objectsNoCopy();
+      return _arrayWithVector(_vector().appendingObjects(objects, 0, objects.length));
+    }
+
+    @Override
+    public NSArray<E> subarrayWithRange(NSRange range) {
+      if (range == null || range.length() == 0)
+        return _arrayWithVector(_NSPersistentVector.<E> emptyVector());
+      return (NSArray<E>) subList(range.location(), range.maxRange());
+    }
+
+    @Override
+    public List<E> subList(int fromIndex, int toIndex) {
+      _NSPersistentVector<E> vector = _vector().subvector(fromIndex, toIndex);
+      return vector == _vector() ? this : _arrayWithVector(vector);
+    }
+
+    @Override
+    public NSArray<E> immutableClone() {
+      return this;
+    }
+  }
+
+  /**
+   * Returns an immutable array backed by a persistent vector, a 32-way trie
+   * with a tail. arrayByAddingObject, arrayByAddingObjectsFromArray,
+   * subarrayWithRange and immutableClone on it share the structure of the
+   * receiver and take O(log32 n) time or less instead of copying it.
+   */
+  public static <E> NSArray<E> persistentArray(Collection<? extends E> objects) {
+    if (objects == null)
+      throw new IllegalArgumentException("objects may not be null");
+    Object[] array = objects.toArray();
+    for (Object object : array) {
+      if (object == null)
+        throw new IllegalArgumentException(NULL_NOT_ALLOWED);
+    }
+    return PersistentNSArray._arrayWithVector(_NSPersistentVector.<E> vectorWithObjects(array, 0, array.length));
+  }
+
+  public static <E> NSArray<E> persistentArray(E... objects) {
+    return persistentArray(objects == null ? Collections.<E> emptyList() : Arrays.asList(objects));
+  }
+
+  /**
+   * Collects objects into an array that is handed over to the immutable
+   * NSArray returned by build() without copying it. The builder can not be
+   * modified once built.
+   */
+  public static class Builder<E> {
+    private Object[] _objects;
+    private int _count;
+    private NSArray<E> _array;
+
+    public Builder() {
+      this(10);
+    }
+
+    public Builder(int capacity) {
+      if (capacity < 0)
+        throw new IllegalArgumentException("Capacity cannot be less than 0");
+      _objects = new Object[capacity];
+    }
+
+    public int count() {
+      return _count;
+    }
+
+    public Builder<E> addObject(E object) {
+      if (object == null)
+        throw new IllegalArgumentException(NULL_NOT_ALLOWED);
+      _ensureCapacity(_count + 1);
+      _objects[_count++] = object;
+      return this;
+    }
+
+    public Builder<E> addObjects(E... objects) {
+      if (objects == null)
+        throw new IllegalArgumentException("objects may not be null");
+      return _addObjects(objects);
+    }
+
+    public Builder<E> addObjectsFromCollection(Collection<? extends E> collection) {
+      if (collection == null)
+        throw new IllegalArgumentException("collection may not be null");
+      return _addObjects(collection instanceof NSArray<?> ? ((NSArray<?>) collection).objectsNoCopy() : collection.toArray());
+    }
+
+    private Builder<E> _addObjects(Object[] objects) {
+      for (Object object : objects) {
+        if (object == null)
+          throw new IllegalArgumentException(NULL_NOT_ALLOWED);
+      }
+      _ensureCapacity(_count + objects.length);
+      System.arraycopy(objects, 0, _objects, _count, objects.length);
+      _count += objects.length;
+      return this;
+    }
+
+    private void _ensureCapacity(int capacity) {
+      if (_array != null)
+        throw new IllegalStateException("Attempt to modify an NSArray.Builder after build()");
+      if (capacity > _objects.length)
+        _objects = Arrays.copyOf(_objects, Math.max(capacity, _objects.length + (_objects.length >> 1) + 1));
+    }
+
+    @SuppressWarnings("unchecked")
+    public NSArray<E> build() {
+      if (_array == null) {
+        _array = new RandomAccessNSArray<E>();
+        _array._setList(new _NSObjectArrayList<E>(_objects, 0, _count));
+      }
+      return _array;
+    }
+  }
+
+  /**
+   * Returns an immutable array adopting objects, which must not contain null
+   * and must not be modified afterwards.
+   */
+  public static <E> NSArray<E> _arrayWithObjectsNoCopy(Object[] objects) {
+    NSArray<E> array = new RandomAccessNSArray<E>();
+    array._setList(new _NSObjectArrayList<E>(objects, 0, objects.length));
+    return array;
+  }
+
   public static <E> NSArray<E> asNSArray(E... objects) {
     return asNSArray(objects, NullHandling.CheckAndFail);
   }
@@ -470,11 +1099,22 @@ public class NSArray<E> extends AbstractList<E> implements Cloneable, Serializab
     return componentsSeparatedByString(string, separator).mutableClone();
   }
 
+  /**
+   * Returns whether the array holds an object equal to object.
+   *
+   * Arrays that can not change look objects up in a hash index once they have
+   * been searched a few times, so their objects must have a hashCode that is
+   * consistent with equals and does not change while they are in the array,
+   * as for the keys of a HashMap. Objects that break this may not be found.
+   */
   public boolean containsObject(Object object) {
     if (object == null)
       return false;
+    _NSArrayIndex index = _lookupIndex(false);
+    if (index != null)
+      return index.indexOf(object) != NotFound;
     return listNoCopy().contains(object);
-}
+  }
 
   public int count() {
     return listNoCopy().size();
@@ -485,13 +1125,18 @@ public class NSArray<E> extends AbstractList<E> implements Cloneable, Serializab
     return EmptyArray;
   }
 
+  /**
+   * Returns the first object of the array that otherArray holds, looking
+   * objects up in otherArray like {@link #containsObject(Object)}.
+   */
   public E firstObjectCommonWithArray(NSArray<? extends E> otherArray) {
     if (otherArray == null || otherArray.isEmpty())
       return null;
 
-    NSSet<E> set = new NSSet<E>(otherArray);
+    _NSArrayIndex index = otherArray._lookupIndex(true);
+    Collection<?> objects = index != null || otherArray.count() < _IndexedLookupMinimumCount ? otherArray.listNoCopy() : new HashSet<Object>(otherArray.listNoCopy());
     for (E e : this) {
-      if (set.containsObject(e))
+      if (index != null ? index.indexOf(e) != NotFound : objects.contains(e))
         return e;
     }
 
@@ -503,21 +1148,50 @@ public class NSArray<E> extends AbstractList<E> implements Cloneable, Serializab
     return NSArray.class.hashCode();
   }
 
+  private static boolean _isImmutableStore(List<?> list) {
+    return list instanceof _NSObjectArrayList<?> || list instanceof _NSPersistentVector<?>;
+  }
+
+  /*
+   * Returns the hash index of the objects of an array that can not change,
+   * built once the array has been searched linearly a few times, or right
+   * away when build is true. Returns null when the array is searched
+   * linearly. The index is only softly referenced, threads building it at the
+   * same time build equal indexes and either one is kept.
+   */
+  _NSArrayIndex _lookupIndex(boolean build) {
+    SoftReference<_NSArrayIndex> reference = _indexReference;
+    if (reference != null) {
+      _NSArrayIndex index = reference.get();
+      if (index != null || reference == _NotIndexable)
+        return index;
+    }
+    List<E> list = listNoCopy();
+    if (list.size() < _IndexedLookupMinimumCount || !_isImmutableStore(list))
+      return null;
+    if (!build && ++_linearSearches <= _IndexedLookupLinearSearches)
+      return null;
+    _linearSearches = 0;
+    _NSArrayIndex index = _NSArrayIndex.indexForList(list);
+    _indexReference = index == null ? _NotIndexable : new SoftReference<_NSArrayIndex>(index);
+    return index;
+  }
+
+  /*
+   * The hash of every element, as specified by List. Arrays with storage of
+   * their own can not change and compute it once.
+   */
   @Override
   public int hashCode() {
-    int hash = 1;
-    int index = 0;
-    Iterator<E> i = iterator();
-    while (i.hasNext() && index <= 16) {
-      E element = i.next();
-      index++;
-      if (element instanceof _NSFoundationCollection) {
-        hash ^= ((_NSFoundationCollection) element)._shallowHashCode();
+    int hash = _hashCode;
+    if (hash == 0) {
+      List<E> list = listNoCopy();
+      if (_isImmutableStore(list)) {
+        hash = _hashCode = list.hashCode();
       } else {
-        hash ^= element.hashCode();
+        hash = super.hashCode();
       }
     }
-
     return hash;
   }
 
@@ -547,10 +1221,18 @@ public class NSArray<E> extends AbstractList<E> implements Cloneable, Serializab
     return subArray.indexOfIdenticalObject(object) + range.location();
   }
 
+  /**
+   * Returns the index of the first object equal to object, or NotFound. The
+   * object is looked up like in {@link #containsObject(Object)}, with the
+   * same requirements on the hashCode of the objects.
+   */
   public int indexOfObject(Object object) {
     if (object == null) {
       return NotFound;
     }
+    _NSArrayIndex index = _lookupIndex(false);
+    if (index != null)
+      return index.indexOf(object);
     return listNoCopy().indexOf(object);
   }
 
@@ -606,16 +1288,15 @@ public class NSArray<E> extends AbstractList<E> implements Cloneable, Serializab
   }
   
   protected Object[] objectsNoCopy() {
-    Object[] objs = listNoCopy().toArray();
+    List<E> list = listNoCopy();
+    if (list instanceof _NSObjectArrayList<?>)
+      return ((_NSObjectArrayList<E>) list).objectsNoCopy();
+    Object[] objs = list.toArray();
     return objs != null ? objs : _NSCollectionPrimitives.EmptyArray;
   }
 
   public static NSArray<String> operatorNames() {
-    NSArray<String> operatorNames;
-    synchronized (_operators) {
-      operatorNames = _operators.allKeys();
-    }
-    return operatorNames;
+    return _operators.allKeys();
   }
 
   public static void setOperatorForKey(String operatorName, Operator arrayOperator) {
@@ -625,24 +1306,43 @@ public class NSArray<E> extends AbstractList<E> implements Cloneable, Serializab
     if (arrayOperator == null) {
       throw new IllegalArgumentException("Operator cannot be null for " + operatorName);
     }
-    synchronized (_operators) {
-      _operators.setObjectForKey(arrayOperator, operatorName);
+    _operators.setObjectForKey(arrayOperator, operatorName);
+  }
+
+  public static int parallelOperatorThreshold() {
+    return _parallelOperatorThreshold;
+  }
+
+  public static void setParallelOperatorThreshold(int threshold) {
+    if (threshold < 1) {
+      throw new IllegalArgumentException("Parallel operator threshold must be greater than zero");
     }
+    _parallelOperatorThreshold = threshold;
   }
 
-  public static Operator operatorForKey(String operatorName) {
-    Operator arrayOperator;
-    synchronized (_operators) {
-      arrayOperator = _operators.objectForKey(operatorName);
+  public static int parallelSortThreshold() {
+    return _parallelSortThreshold;
+  }
+
+  /**
+   * Sets the number of objects from which sortedArrayUsingComparator and
+   * NSMutableArray.sortUsingComparator sort in parallel. The comparators of
+   * arrays this large must be safe to call from several threads at once.
+   */
+  public static void setParallelSortThreshold(int threshold) {
+    if (threshold < 1) {
+      throw new IllegalArgumentException("Parallel sort threshold must be greater than zero");
     }
-    return arrayOperator;
+    _parallelSortThreshold = threshold;
+  }
+
+  public static Operator operatorForKey(String operatorName) {
+    return _operators.objectForKey(operatorName);
   }
 
   public static void removeOperatorForKey(String operatorName) {
     if (operatorName != null) {
-      synchronized (_operators) {
-        _operators.removeObjectForKey(operatorName);
-      }
+      _operators.removeObjectForKey(operatorName);
     }
   }
 
@@ -650,12 +1350,30 @@ public class NSArray<E> extends AbstractList<E> implements Cloneable, Serializab
     return new ListReverseEnumeration();
   }
 
+  /**
+   * Returns a {@link SortedNSArray} of the objects of the receiver, sorted in a
+   * copy of them that the result adopts.
+   */
   public NSArray<E> sortedArrayUsingComparator(NSComparator<? super E> comparator) throws NSComparator.ComparisonException {
     if (comparator == null)
       throw new IllegalArgumentException("Comparator not specified");
-    NSArray<E> result = mutableClone();
-    Collections.sort(result, comparator);
-    return result.immutableClone();
+    Object[] objects = toArray();
+    return new SortedNSArray<E>(SortedNSArray._sort(objects, comparator), 0, objects.length, comparator);
+  }
+
+  /**
+   * Returns the objects at indexes, in the order of the indexes.
+   */
+  public NSArray<E> objectsAtIndexes(NSIndexSet indexes) {
+    if (indexes == null)
+      throw new IllegalArgumentException("Indexes cannot be null");
+    if (indexes.lastIndex() >= count())
+      throw new IllegalArgumentException("Index " + indexes.lastIndex() + " out of bounds [0, " + (count() - 1) + "]");
+    Builder<E> objects = new Builder<E>(indexes.count());
+    for (int index = indexes.firstIndex(); index != NotFound; index = indexes.indexGreaterThanIndex(index)) {
+      objects.addObject(objectAtIndex(index));
+    }
+    return objects.build();
   }
 
   public NSArray<E> subarrayWithRange(NSRange range) {
@@ -675,14 +1393,100 @@ public class NSArray<E> extends AbstractList<E> implements Cloneable, Serializab
       }
     }
     NSMutableArray<Object> values = new NSMutableArray<Object>(size());
-    for (E element : this) {
-      Object value = NSKeyValueCodingAdditions.Utility.valueForKeyPath(element, key);
+    if (key == null) {
+      for (E element : this) {
+        Object value = NSKeyValueCodingAdditions.Utility.valueForKeyPath(element, key);
+        values.addObject(value == null ? ((Object) (NSKeyValueCoding.NullValue)) : value);
+      }
+      return values;
+    }
+    _Operator._OperationValueAccessor accessor = new _Operator._OperationValueAccessor(key);
+    List<E> list = listNoCopy();
+    for (int i = 0, count = list.size(); i < count; i++) {
+      Object value = accessor.valueInObject(list.get(i));
       values.addObject(value == null ? ((Object) (NSKeyValueCoding.NullValue)) : value);
     }
+    return values;
+  }
+
+  /**
+   * Writes the value of keyPath for each element into values, from index 0,
+   * and returns values. A new array is allocated when values is null. Unlike
+   * valueForKey, null values are written as null. The key path is resolved
+   * once for each run of elements of the same class.
+   */
+  public Object[] valuesForKeyPath(String keyPath, Object[] values) {
+    List<E> list = listNoCopy();
+    int count = list.size();
+    values = values == null ? new Object[count] : values;
+    _checkValuesLength(keyPath, values.length, count);
+    _Operator._OperationValueAccessor accessor = new _Operator._OperationValueAccessor(keyPath);
+    for (int i = 0; i < count; i++) {
+      values[i] = accessor.valueInObject(list.get(i));
+    }
+    return values;
+  }
+
+  /**
+   * Writes the value of keyPath for each element into values as an int, see
+   * {@link #valuesForKeyPath(String, Object[])}. Primitive properties are read
+   * without boxing, other values are converted like numbers and cannot be null.
+   */
+  public int[] intValuesForKeyPath(String keyPath, int[] values) {
+    List<E> list = listNoCopy();
+    int count = list.size();
+    values = values == null ? new int[count] : values;
+    _checkValuesLength(keyPath, values.length, count);
+    _Operator._OperationValueAccessor accessor = new _Operator._OperationValueAccessor(keyPath);
+    for (int i = 0; i < count; i++) {
+      values[i] = accessor.intValueInObject(list.get(i));
+    }
+    return values;
+  }
+
+  public long[] longValuesForKeyPath(String keyPath, long[] values) {
+    List<E> list = listNoCopy();
+    int count = list.size();
+    values = values == null ? new long[count] : values;
+    _checkValuesLength(keyPath, values.length, count);
+    _Operator._OperationValueAccessor accessor = new _Operator._OperationValueAccessor(keyPath);
+    for (int i = 0; i < count; i++) {
+      values[i] = accessor.longValueInObject(list.get(i));
+    }
+    return values;
+  }
 
+  public double[] doubleValuesForKeyPath(String keyPath, double[] values) {
+    List<E> list = listNoCopy();
+    int count = list.size();
+    values = values == null ? new double[count] : values;
+    _checkValuesLength(keyPath, values.length, count);
+    _Operator._OperationValueAccessor accessor = new _Operator._OperationValueAccessor(keyPath);
+    for (int i = 0; i < count; i++) {
+      values[i] = accessor.doubleValueInObject(list.get(i));
+    }
     return values;
   }
 
+  public boolean[] booleanValuesForKeyPath(String keyPath, boolean[] values) {
+    List<E> list = listNoCopy();
+    int count = list.size();
+    values = values == null ? new boolean[count] : values;
+    _checkValuesLength(keyPath, values.length, count);
+    _Operator._OperationValueAccessor accessor = new _Operator._OperationValueAccessor(keyPath);
+    for (int i = 0; i < count; i++) {
+      values[i] = accessor.booleanValueInObject(list.get(i));
+    }
+    return values;
+  }
+
+  static void _checkValuesLength(String keyPath, int length, int count) {
+    if (keyPath == null)
+      throw new IllegalArgumentException("Key path cannot be null");
+    if (length < count)
+      throw new IllegalArgumentException("Values array of length " + length + " cannot hold " + count + " values");
+  }
+
   @Override
   public void takeValueForKey(Object value, String key) {
     for (E element : this)
@@ -710,11 +1514,23 @@ public class NSArray<E> extends AbstractList<E> implements Cloneable, Serializab
     }
     Operator arrayOperator = operatorForKey(operatorName);
     if (arrayOperator != null) {
+      if (arrayOperator instanceof CombinableOperator && count() >= _parallelOperatorThreshold) {
+        return _computeInParallel((CombinableOperator) arrayOperator, operatorPath);
+      }
       return arrayOperator.compute(this, operatorPath);
     }
     throw new IllegalArgumentException("No key operator available to compute aggregate " + keyPath);
   }
 
+  private Object _computeInParallel(CombinableOperator arrayOperator, String operatorPath) {
+    ForkJoinPool pool = _OperatorPool.pool;
+    int count = count();
+    int minimumLength = Math.max(count / (pool.getParallelism() * 4), 1024);
+    _CombinableOperatorTask task = new _CombinableOperatorTask(arrayOperator, this, operatorPath, 0, count, minimumLength);
+    Object partialResult = ForkJoinTask.inForkJoinPool() ? task.invoke() : pool.invoke(task);
+    return arrayOperator.result(partialResult, this, operatorPath);
+  }
+
   @Override
   public void takeValueForKeyPath(Object value, String keyPath) {
     if (keyPath == null)
@@ -785,7 +1601,7 @@ public class NSArray<E> extends AbstractList<E> implements Cloneable, Serializab
     if (o == null) {
       throw new NullPointerException(NULL_NOT_SUPPORTED);
     }
-    return listNoCopy().indexOf(o);
+    return indexOfObject(o);
   }
 
   @Override
@@ -801,6 +1617,17 @@ public class NSArray<E> extends AbstractList<E> implements Cloneable, Serializab
     return count();
   }
 
+  @Override
+  public Iterator<E> iterator() {
+    List<E> list = listNoCopy();
+    return list instanceof _NSObjectArrayList<?> ? list.iterator() : super.iterator();
+  }
+
+  @Override
+  public Object[] toArray() {
+    return listNoCopy().toArray();
+  }
+
   @Override
   public List<E> subList(int fromIndex, int toIndex) {
     if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
@@ -809,8 +1636,14 @@ public class NSArray<E> extends AbstractList<E> implements Cloneable, Serializab
     if (fromIndex == 0 && toIndex == size()) {
       return this;
     }
+    List<E> list = listNoCopy();
+    if (list instanceof _NSObjectArrayList<?>) {
+      NSArray<E> array = new RandomAccessNSArray<E>();
+      array._setList(list.subList(fromIndex, toIndex));
+      return array;
+    }
     /* GWT doesn't implement java.util.List.subList so we can't delegate to super */
-    return (listNoCopy() instanceof RandomAccess ? new RandomAccessSubList<E>(this, fromIndex, toIndex) : new SubList<E>(this, fromIndex, toIndex));
+    return (list instanceof RandomAccess ? new RandomAccessSubList<E>(this, fromIndex, toIndex) : new SubList<E>(this, fromIndex, toIndex));
   }
 
   /* Because we implement our own SubList we need to redeclare removeRange() and modCount */
@@ -942,7 +1775,11 @@ class SubList<E> extends NSArray<E> {
 
   @Override
   public int hashCode() {
-    return super.hashCode();
+    int hash = 1;
+    for (E e : this) {
+      hash = 31 * hash + (e == null ? 0 : e.hashCode());
+    }
+    return hash;
   }
 
   @Override
@@ -1061,6 +1898,15 @@ class SubList<E> extends NSArray<E> {
     return listIterator();
   }
 
+  @Override
+  public Object[] toArray() {
+    Object[] objects = new Object[size];
+    for (int i = 0; i < size; i++) {
+      objects[i] = get(i);
+    }
+    return objects;
+  }
+
   @Override
   public ListIterator<E> listIterator(final int index) {
     checkForComodification();
@@ -0,0 +1,174 @@
+package ns.foundation.collections;
+
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * An NSMutableDictionary that can be read and modified from several threads
+ * at once without locking, backed by a ConcurrentHashMap. Its enumerators and
+ * collection views are weakly consistent, they never throw
+ * ConcurrentModificationException and may or may not see changes made while
+ * they are in use.
+ *
+ * Null keys and objects are rejected like in any NSDictionary. Maps copied
+ * with NullHandling.NoCheck skip their null keys and objects, the backing
+ * store can not hold them.
+ *
+ * compute, computeIfAbsent, computeIfPresent and merge are atomic, the
+ * function is called at most once while the key is locked in the backing
+ * ConcurrentHashMap. A function returning null removes the key.
+ */
+public class NSConcurrentMutableDictionary<K, V> extends NSMutableDictionary<K, V> {
+
+  private static final long serialVersionUID = -6392150127386618514L;
+
+  public NSConcurrentMutableDictionary() {
+    super();
+  }
+
+  public NSConcurrentMutableDictionary(int capacity) {
+    super(capacity);
+  }
+
+  public NSConcurrentMutableDictionary(V object, K key) {
+    super(object, key);
+  }
+
+  public NSConcurrentMutableDictionary(V[] objects, K[] keys) {
+    super(objects, keys);
+  }
+
+  public NSConcurrentMutableDictionary(Map<K, V> map) {
+    super(map);
+  }
+
+  public NSConcurrentMutableDictionary(Map<K, V> map, NullHandling nullHandling) {
+    super(0);
+    if (map == null)
+      throw new IllegalArgumentException("map may not be null");
+    _initializeWithMap(map, nullHandling);
+  }
+
+  public NSConcurrentMutableDictionary(NSArray<V> objects, NSArray<K> keys) {
+    super(objects, keys);
+  }
+
+  public NSConcurrentMutableDictionary(NSDictionary<K, V> otherDictionary) {
+    super(otherDictionary);
+  }
+
+  @Override
+  protected Map<K, V> _initializeWithCapacity(int capacity) {
+    return _setMap(new ConcurrentHashMap<K, V>(capacity));
+  }
+
+  @Override
+  protected void _initializeWithMap(Map<K, V> map, NullHandling nullHandling) {
+    super._initializeWithMap(map, nullHandling == NullHandling.NoCheck && !(map instanceof NSDictionary<?, ?>) ? NullHandling.CheckAndSkip : nullHandling);
+  }
+
+  @Override
+  public int _shallowHashCode() {
+    return NSConcurrentMutableDictionary.class.hashCode();
+  }
+
+  @Override
+  public NSConcurrentMutableDictionary<K, V> clone() {
+    return new NSConcurrentMutableDictionary<K, V>(this);
+  }
+
+  @Override
+  public V objectForKey(Object key) {
+    return key == null ? null : mapNoCopy().get(key);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return key != null && mapNoCopy().containsKey(key);
+  }
+
+  @Override
+  public boolean containsValue(Object value) {
+    return value != null && mapNoCopy().containsValue(value);
+  }
+
+  /**
+   * Sets object for key unless key already has an object, atomically.
+   * Returns the object already set for key, or null when object was set.
+   */
+  public V setObjectForKeyIfAbsent(V object, K key) {
+    if (object == null)
+      throw new IllegalArgumentException("Attempt to insert null object into an " + getClass().getName() + ".");
+    if (key == null)
+      throw new IllegalArgumentException("Attempt to insert null key into an " + getClass().getName() + ".");
+
+    return mapNoCopy().putIfAbsent(key, object);
+  }
+
+  @Override
+  public V put(K key, V value) {
+    if (key == null)
+      throw new IllegalArgumentException("Attempt to insert null key into an " + getClass().getName() + ".");
+    if (value == null)
+      throw new IllegalArgumentException("Attempt to insert null object into an " + getClass().getName() + ".");
+
+    return mapNoCopy().put(key, value);
+  }
+
+  @Override
+  public V putIfAbsent(K key, V value) {
+    return setObjectForKeyIfAbsent(value, key);
+  }
+
+  @Override
+  public boolean remove(Object key, Object value) {
+    return key != null && value != null && mapNoCopy().remove(key, value);
+  }
+
+  @Override
+  public boolean replace(K key, V oldValue, V newValue) {
+    if (newValue == null)
+      throw new IllegalArgumentException("Attempt to insert null object into an " + getClass().getName() + ".");
+    return key != null && oldValue != null && mapNoCopy().replace(key, oldValue, newValue);
+  }
+
+  @Override
+  public V replace(K key, V value) {
+    if (value == null)
+      throw new IllegalArgumentException("Attempt to insert null object into an " + getClass().getName() + ".");
+    return key == null ? null : mapNoCopy().replace(key, value);
+  }
+
+  @Override
+  public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+    if (key == null)
+      throw new IllegalArgumentException("Attempt to insert null key into an " + getClass().getName() + ".");
+    return mapNoCopy().compute(key, remappingFunction);
+  }
+
+  @Override
+  public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+    if (key == null)
+      throw new IllegalArgumentException("Attempt to insert null key into an " + getClass().getName() + ".");
+    return mapNoCopy().computeIfAbsent(key, mappingFunction);
+  }
+
+  @Override
+  public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+    if (key == null)
+      return null;
+    return mapNoCopy().computeIfPresent(key, remappingFunction);
+  }
+
+  @Override
+  public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+    if (key == null)
+      throw new IllegalArgumentException("Attempt to insert null key into an " + getClass().getName() + ".");
+    if (value == null)
+      throw new IllegalArgumentException("Attempt to insert null object into an " + getClass().getName() + ".");
+    return mapNoCopy().merge(key, value, remappingFunction);
+  }
+}
@@ -0,0 +1,104 @@
+package ns.foundation.collections;
+
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An NSMutableSet that can be read and modified from several threads at once
+ * without locking, backed by the key set of a ConcurrentHashMap. Its
+ * iterators are weakly consistent, they never throw
+ * ConcurrentModificationException and may or may not see changes made while
+ * they are in use.
+ *
+ * Null objects are rejected like in any NSSet. Collections copied with
+ * NullHandling.NoCheck skip their null objects, the backing store can not
+ * hold them.
+ */
+public class NSConcurrentMutableSet<E> extends NSMutableSet<E> {
+
+  private static final long serialVersionUID = 2640187742318842316L;
+
+  public NSConcurrentMutableSet() {
+    super();
+  }
+
+  public NSConcurrentMutableSet(int capacity) {
+    super(capacity);
+  }
+
+  public NSConcurrentMutableSet(Collection<? extends E> collection) {
+    super(collection);
+  }
+
+  public NSConcurrentMutableSet(Collection<? extends E> collection, NullHandling nullHandling) {
+    super(0);
+    if (collection == null)
+      throw new IllegalArgumentException("objects may not be null");
+    _initializeWithCollection(collection, nullHandling);
+  }
+
+  public NSConcurrentMutableSet(E... objects) {
+    super(objects);
+  }
+
+  public NSConcurrentMutableSet(NSSet<? extends E> otherSet) {
+    super(otherSet);
+  }
+
+  @Override
+  protected Set<E> _initializeWithCapacity(int capacity) {
+    return _setSet(ConcurrentHashMap.<E> newKeySet(capacity));
+  }
+
+  @Override
+  protected void _initializeWithObjects(E[] objects, NullHandling nullHandling) {
+    super._initializeWithObjects(objects, nullHandling == NullHandling.NoCheck ? NullHandling.CheckAndSkip : nullHandling);
+  }
+
+  @Override
+  protected void _initializeWithCollection(Collection<? extends E> collection, NullHandling nullHandling) {
+    super._initializeWithCollection(collection, nullHandling == NullHandling.NoCheck ? NullHandling.CheckAndSkip : nullHandling);
+  }
+
+  @Override
+  public int _shallowHashCode() {
+    return NSConcurrentMutableSet.class.hashCode();
+  }
+
+  @Override
+  public NSConcurrentMutableSet<E> clone() {
+    return new NSConcurrentMutableSet<E>(this);
+  }
+
+  @Override
+  public boolean add(E object) {
+    if (object == null)
+      throw new IllegalArgumentException(NULL_NOT_ALLOWED);
+    return setNoCopy().add(object);
+  }
+
+  @Override
+  public boolean addAll(Collection<? extends E> collection) {
+    boolean modified = false;
+    for (E object : collection) {
+      modified |= add(object);
+    }
+    return modified;
+  }
+
+  @Override
+  public boolean remove(Object object) {
+    return object != null && setNoCopy().remove(object);
+  }
+
+  @Override
+  public boolean removeAll(Collection<?> collection) {
+    boolean modified = false;
+    for (Object object : collection) {
+      modified |= remove(object);
+    }
+    return modified;
+  }
+}
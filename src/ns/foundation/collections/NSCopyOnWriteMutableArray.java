@@ -0,0 +1,526 @@
+package ns.foundation.collections;
+
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.RandomAccess;
+import java.util.function.UnaryOperator;
+
+import ns.foundation.NSComparator;
+import ns.foundation.NSRange;
+import ns.foundation.collections._private._NSArrayIndex;
+import ns.foundation.collections._private._NSObjectArrayList;
+
+/**
+ * An NSMutableArray for lists that are read far more often than they are
+ * modified, such as observer lists shared between threads. The objects are
+ * held in an immutable NSArray that reads take without locking. Every
+ * modification copies the objects under the lock of the array and replaces
+ * that NSArray at once.
+ *
+ * Iterators and enumerators see the objects as they were when they were
+ * created and can not modify the array, sort and replaceAll are done on a
+ * copy under the lock instead. subLists write through to the array under its
+ * lock and throw ConcurrentModificationException once the array was modified
+ * by other means. immutableClone returns the current immutable NSArray
+ * without copying it.
+ */
+public class NSCopyOnWriteMutableArray<E> extends NSMutableArray<E> implements RandomAccess {
+
+  private static final long serialVersionUID = -3276530150728263618L;
+
+  private volatile NSArray<E> _array;
+
+  public NSCopyOnWriteMutableArray() {
+    super();
+  }
+
+  public NSCopyOnWriteMutableArray(int capacity) {
+    super(capacity);
+  }
+
+  public NSCopyOnWriteMutableArray(Collection<? extends E> collection) {
+    super(collection);
+  }
+
+  public NSCopyOnWriteMutableArray(E... objects) {
+    super(objects);
+  }
+
+  public NSCopyOnWriteMutableArray(NSArray<? extends E> otherArray) {
+    super(otherArray);
+  }
+
+  @Override
+  protected List<E> _initializeListWithCapacity(int capacity) {
+    return _setList(new _NSObjectArrayList<E>(capacity));
+  }
+
+  @Override
+  protected List<E> listNoCopy() {
+    return _array.listNoCopy();
+  }
+
+  /*
+   * Lists that are not already immutable storage are copied, the array is
+   * only appended to while it is initialized.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  protected List<E> _setList(List<? extends E> list) {
+    List<E> objects = list instanceof _NSObjectArrayList<?> ? (List<E>) list : new _NSObjectArrayList<E>(list.toArray(), 0, list.size());
+    NSArray<E> array = new RandomAccessNSArray<E>();
+    array._setList(objects);
+    _array = array;
+    return objects;
+  }
+
+  private void _setObjects(Object[] objects) {
+    NSArray<E> array = new RandomAccessNSArray<E>();
+    array._setList(new _NSObjectArrayList<E>(objects, 0, objects.length));
+    _array = array;
+    modCount++;
+  }
+
+  private static void _checkObjects(Object[] objects) {
+    for (Object object : objects) {
+      if (object == null)
+        throw new IllegalArgumentException(NULL_NOT_ALLOWED);
+    }
+  }
+
+  private synchronized void _insertObjects(Object[] objects, int index) {
+    Object[] current = _array.objectsNoCopy();
+    if (index < 0 || index > current.length)
+      throw new IndexOutOfBoundsException("Index " + index + " is out of bounds");
+    if (objects.length == 0)
+      return;
+    Object[] inserted = new Object[current.length + objects.length];
+    System.arraycopy(current, 0, inserted, 0, index);
+    System.arraycopy(objects, 0, inserted, index, objects.length);
+    System.arraycopy(current, index, inserted, index + objects.length, current.length - index);
+    _setObjects(inserted);
+  }
+
+  private synchronized void _removeObjectsInRange(int fromIndex, int toIndex) {
+    Object[] current = _array.objectsNoCopy();
+    if (fromIndex < 0 || toIndex > current.length || fromIndex > toIndex)
+      throw new IndexOutOfBoundsException("Illegal range " + fromIndex + " - " + toIndex + " in an array of " + current.length + " objects");
+    if (fromIndex == toIndex)
+      return;
+    Object[] removed = new Object[current.length - (toIndex - fromIndex)];
+    System.arraycopy(current, 0, removed, 0, fromIndex);
+    System.arraycopy(current, toIndex, removed, fromIndex, current.length - toIndex);
+    _setObjects(removed);
+  }
+
+  private static final int _RemoveEqual = 0;
+  private static final int _RemoveIdentical = 1;
+  private static final int _RemoveContained = 2;
+  private static final int _RetainContained = 3;
+
+  /*
+   * Removes the objects in the range that match, returns whether any was
+   * removed.
+   */
+  private synchronized boolean _removeObjects(Object object, Collection<?> objects, int match, int fromIndex, int toIndex) {
+    Object[] current = _array.objectsNoCopy();
+    if (fromIndex < 0 || toIndex > current.length || fromIndex > toIndex)
+      throw new IndexOutOfBoundsException("Illegal range " + fromIndex + " - " + toIndex + " in an array of " + current.length + " objects");
+    Object[] kept = new Object[current.length];
+    int count = 0;
+    for (int i = 0; i < current.length; i++) {
+      Object candidate = current[i];
+      boolean matches = false;
+      if (i >= fromIndex && i < toIndex) {
+        switch (match) {
+        case _RemoveEqual:
+          matches = candidate.equals(object);
+          break;
+        case _RemoveIdentical:
+          matches = candidate == object;
+          break;
+        case _RemoveContained:
+          matches = objects.contains(candidate);
+          break;
+        default:
+          matches = !objects.contains(candidate);
+        }
+      }
+      if (!matches)
+        kept[count++] = candidate;
+    }
+    if (count == current.length)
+      return false;
+    _setObjects(Arrays.copyOf(kept, count));
+    return true;
+  }
+
+  @Override
+  public NSArray<E> immutableClone() {
+    return _array;
+  }
+
+  @Override
+  public NSCopyOnWriteMutableArray<E> clone() {
+    return new NSCopyOnWriteMutableArray<E>(_array);
+  }
+
+  @Override
+  public int _shallowHashCode() {
+    return NSCopyOnWriteMutableArray.class.hashCode();
+  }
+
+  @Override
+  public int hashCode() {
+    return _array.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj == this || _array.equals(obj);
+  }
+
+  @Override
+  _NSArrayIndex _lookupIndex(boolean build) {
+    return _array._lookupIndex(build);
+  }
+
+  @Override
+  public boolean containsObject(Object object) {
+    return _array.containsObject(object);
+  }
+
+  @Override
+  public int indexOfObject(Object object) {
+    return _array.indexOfObject(object);
+  }
+
+  @Override
+  public E objectAtIndex(int index) {
+    return _array.objectAtIndex(index);
+  }
+
+  @Override
+  public Iterator<E> iterator() {
+    return _array.iterator();
+  }
+
+  @Override
+  public ListIterator<E> listIterator(int index) {
+    return _array.listIterator(index);
+  }
+
+  @Override
+  public Object[] toArray() {
+    return _array.toArray();
+  }
+
+  @Override
+  public <T> T[] toArray(T[] array) {
+    return _array.toArray(array);
+  }
+
+  @Override
+  public synchronized List<E> subList(int fromIndex, int toIndex) {
+    if (fromIndex < 0 || toIndex > count() || fromIndex > toIndex)
+      throw new IndexOutOfBoundsException("Illegal range " + fromIndex + " - " + toIndex + " in an array of " + count() + " objects");
+    return new _SubList(fromIndex, toIndex);
+  }
+
+  @Override
+  public NSArray<E> subarrayWithRange(NSRange range) {
+    return _array.subarrayWithRange(range);
+  }
+
+  @Override
+  public synchronized void addObject(E object) {
+    if (object == null)
+      throw new IllegalArgumentException(NULL_NOT_ALLOWED);
+    _insertObjects(new Object[] { object }, count());
+  }
+
+  @Override
+  public void addObjects(E... objects) {
+    if (objects == null)
+      return;
+    addObjectsFromCollection(Arrays.asList(objects));
+  }
+
+  @Override
+  public void addObjectsFromCollection(Collection<? extends E> collection) {
+    Object[] objects = collection.toArray();
+    _checkObjects(objects);
+    synchronized (this) {
+      _insertObjects(objects, count());
+    }
+  }
+
+  @Override
+  public void addObjectsFromArray(NSArray<? extends E> otherArray) {
+    addObjectsFromCollection(otherArray);
+  }
+
+  @Override
+  public void insertObjectAtIndex(E object, int index) {
+    if (object == null)
+      throw new IllegalArgumentException(NULL_NOT_ALLOWED);
+    _insertObjects(new Object[] { object }, index);
+  }
+
+  @Override
+  public synchronized void _moveObjectAtIndexToIndex(int sourceIndex, int destIndex) {
+    if (sourceIndex == destIndex)
+      return;
+    List<E> objects = new ArrayList<E>(_array);
+    objects.add(destIndex, objects.remove(sourceIndex));
+    _setObjects(objects.toArray());
+  }
+
+  @Override
+  public synchronized void removeAllObjects() {
+    if (count() > 0)
+      _setObjects(new Object[0]);
+  }
+
+  @Override
+  public synchronized boolean removeIdenticalObject(Object object) {
+    return _removeObjects(object, null, _RemoveIdentical, 0, count());
+  }
+
+  @Override
+  public boolean removeIdenticalObject(Object object, NSRange range) {
+    return _removeObjects(object, null, _RemoveIdentical, range.location(), range.maxRange());
+  }
+
+  @Override
+  public synchronized Object removeLastObject() {
+    if (!isEmpty()) {
+      return removeObjectAtIndex(size() - 1);
+    }
+    return null;
+  }
+
+  @Override
+  public synchronized boolean removeObject(Object object) {
+    if (object == null)
+      return false;
+    return _removeObjects(object, null, _RemoveEqual, 0, count());
+  }
+
+  @Override
+  public boolean removeObject(Object object, NSRange range) {
+    if (object == null)
+      return false;
+    return _removeObjects(object, null, _RemoveEqual, range.location(), range.maxRange());
+  }
+
+  @Override
+  public synchronized E removeObjectAtIndex(int index) {
+    E object = objectAtIndex(index);
+    _removeObjectsInRange(index, index + 1);
+    return object;
+  }
+
+  @Override
+  public void removeObjectsInRange(NSRange range) {
+    _removeObjectsInRange(range.location(), range.maxRange());
+  }
+
+  @Override
+  protected void removeRange(int fromIndex, int toIndex) {
+    _removeObjectsInRange(fromIndex, toIndex);
+  }
+
+  @Override
+  public synchronized E replaceObjectAtIndex(E object, int index) {
+    if (object == null)
+      throw new IllegalArgumentException(NULL_NOT_ALLOWED);
+    Object[] objects = _array.toArray();
+    if (index < 0 || index >= objects.length)
+      throw new IndexOutOfBoundsException("Index " + index + " is out of bounds");
+    @SuppressWarnings("unchecked")
+    E replaced = (E) objects[index];
+    objects[index] = object;
+    _setObjects(objects);
+    return replaced;
+  }
+
+  @Override
+  public synchronized void replaceObjectsInRange(NSRange range, NSArray<E> otherArray, NSRange otherRange) {
+    if (range == null || otherRange == null)
+      throw new IllegalArgumentException("Both ranges cannot be null");
+    if (otherArray == null)
+      throw new IllegalArgumentException("Other array cannot be null");
+
+    List<E> objects = new ArrayList<E>(_array);
+    objects.subList(range.location(), range.maxRange()).clear();
+    objects.addAll(range.location(), otherArray.subList(otherRange.location(), otherRange.maxRange()));
+    _setObjects(objects.toArray());
+  }
+
+  @Override
+  public void setArray(NSArray<? extends E> otherArray) {
+    Object[] objects = otherArray.toArray();
+    _checkObjects(objects);
+    synchronized (this) {
+      _setObjects(objects);
+    }
+  }
+
+  @Override
+  @SuppressWarnings("rawtypes")
+  public synchronized void sortUsingComparator(NSComparator comparator) {
+    Object[] objects = _array.toArray();
+    _NSSorting.sort(objects, comparator);
+    _setObjects(objects);
+  }
+
+  @Override
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  public synchronized void sort(Comparator<? super E> comparator) {
+    Object[] objects = _array.toArray();
+    Arrays.sort(objects, (Comparator) comparator);
+    _setObjects(objects);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public synchronized void replaceAll(UnaryOperator<E> operator) {
+    Object[] objects = _array.toArray();
+    for (int i = 0; i < objects.length; i++) {
+      objects[i] = operator.apply((E) objects[i]);
+    }
+    _checkObjects(objects);
+    _setObjects(objects);
+  }
+
+  @Override
+  public boolean addAll(int index, Collection<? extends E> c) {
+    Object[] objects = c.toArray();
+    if (objects.length == 0)
+      return false;
+    _checkObjects(objects);
+    _insertObjects(objects, index);
+    return true;
+  }
+
+  @Override
+  public synchronized boolean remove(Object o) {
+    int index = indexOfObject(o);
+    if (index == NotFound)
+      return false;
+    _removeObjectsInRange(index, index + 1);
+    return true;
+  }
+
+  @Override
+  public synchronized boolean removeAll(Collection<?> c) {
+    return _removeObjects(null, c, _RemoveContained, 0, count());
+  }
+
+  @Override
+  public synchronized boolean retainAll(Collection<?> c) {
+    return _removeObjects(null, c, _RetainContained, 0, count());
+  }
+
+  /*
+   * Keeps the NSArray it last saw to notice modifications of the array that
+   * were not made through it.
+   */
+  private class _SubList extends AbstractList<E> implements RandomAccess {
+    private final int _offset;
+    private int _size;
+    private NSArray<E> _expectedArray;
+
+    _SubList(int fromIndex, int toIndex) {
+      _offset = fromIndex;
+      _size = toIndex - fromIndex;
+      _expectedArray = _array;
+    }
+
+    private void _checkForComodification() {
+      if (_array != _expectedArray)
+        throw new ConcurrentModificationException();
+    }
+
+    private void _rangeCheck(int index) {
+      if (index < 0 || index >= _size)
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + _size);
+    }
+
+    private void _modified(int sizeChange) {
+      _expectedArray = _array;
+      _size += sizeChange;
+      modCount++;
+    }
+
+    @Override
+    public E get(int index) {
+      synchronized (NSCopyOnWriteMutableArray.this) {
+        _rangeCheck(index);
+        _checkForComodification();
+        return _array.objectAtIndex(_offset + index);
+      }
+    }
+
+    @Override
+    public int size() {
+      synchronized (NSCopyOnWriteMutableArray.this) {
+        _checkForComodification();
+        return _size;
+      }
+    }
+
+    @Override
+    public E set(int index, E element) {
+      synchronized (NSCopyOnWriteMutableArray.this) {
+        _rangeCheck(index);
+        _checkForComodification();
+        E replaced = replaceObjectAtIndex(element, _offset + index);
+        _modified(0);
+        return replaced;
+      }
+    }
+
+    @Override
+    public void add(int index, E element) {
+      synchronized (NSCopyOnWriteMutableArray.this) {
+        if (index < 0 || index > _size)
+          throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + _size);
+        _checkForComodification();
+        insertObjectAtIndex(element, _offset + index);
+        _modified(1);
+      }
+    }
+
+    @Override
+    public E remove(int index) {
+      synchronized (NSCopyOnWriteMutableArray.this) {
+        _rangeCheck(index);
+        _checkForComodification();
+        E removed = removeObjectAtIndex(_offset + index);
+        _modified(-1);
+        return removed;
+      }
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+      synchronized (NSCopyOnWriteMutableArray.this) {
+        _checkForComodification();
+        if (fromIndex < 0 || toIndex > _size || fromIndex > toIndex)
+          throw new IndexOutOfBoundsException("Illegal range " + fromIndex + " - " + toIndex + " in a subList of " + _size + " objects");
+        _removeObjectsInRange(_offset + fromIndex, _offset + toIndex);
+        _modified(fromIndex - toIndex);
+      }
+    }
+  }
+}
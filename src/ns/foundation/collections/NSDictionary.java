@@ -10,6 +10,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
+import ns.foundation.collections._private._NSCompactMap;
 import ns.foundation.collections._private._NSFoundationCollection;
 import ns.foundation.kvc.NSKeyValueCoding;
 import ns.foundation.kvc.NSKeyValueCodingAdditions;
@@ -31,6 +32,8 @@ public class NSDictionary<K, V> extends AbstractMap<K, V> implements Map<K, V>,
   protected Set<Map.Entry<K, V>> _entrySetCache;
 
   private Map<K, V> _backingStore;
+  private transient Map<K, V> _ownedMap;
+  private transient int _hashCode;
 
   public NSDictionary() {
     _initializeWithCapacity(0);
@@ -70,8 +73,8 @@ public class NSDictionary<K, V> extends AbstractMap<K, V> implements Map<K, V>,
   }
 
   protected Map<K, V> _initializeWithCapacity(int capacity) {
-    Map<K, V> map = new HashMap<K, V>(capacity);
-    _setMap(Collections.unmodifiableMap(map));
+    Map<K, V> map = new _NSCompactMap<K, V>(capacity, false);
+    _ownedMap = _setMap(map);
     return map;
   }
 
@@ -157,6 +160,63 @@ public class NSDictionary<K, V> extends AbstractMap<K, V> implements Map<K, V>,
     return _backingStore = map;
   }
 
+  /**
+   * Collects entries into a map that is handed over to the immutable
+   * NSDictionary returned by build() without copying it. The builder can not
+   * be modified once built.
+   */
+  public static class Builder<K, V> {
+    private final Map<K, V> _map;
+    private NSDictionary<K, V> _dictionary;
+
+    public Builder() {
+      this(0);
+    }
+
+    public Builder(int capacity) {
+      _map = new _NSCompactMap<K, V>(capacity, false);
+    }
+
+    public int count() {
+      return _map.size();
+    }
+
+    public Builder<K, V> setObjectForKey(V object, K key) {
+      if (object == null || key == null)
+        throw new IllegalArgumentException("Key or value may not be null");
+      _checkNotBuilt();
+      _map.put(key, object);
+      return this;
+    }
+
+    public Builder<K, V> addEntriesFromMap(Map<? extends K, ? extends V> map) {
+      if (map == null)
+        throw new IllegalArgumentException("map may not be null");
+      _checkNotBuilt();
+      if (!(map instanceof NSDictionary<?, ?>)) {
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+          if (entry.getKey() == null || entry.getValue() == null)
+            throw new IllegalArgumentException("Key or value may not be null");
+        }
+      }
+      _map.putAll(map);
+      return this;
+    }
+
+    private void _checkNotBuilt() {
+      if (_dictionary != null)
+        throw new IllegalStateException("Attempt to modify an NSDictionary.Builder after build()");
+    }
+
+    public NSDictionary<K, V> build() {
+      if (_dictionary == null) {
+        _dictionary = new NSDictionary<K, V>();
+        _dictionary._ownedMap = _dictionary._setMap(_map);
+      }
+      return _dictionary;
+    }
+  }
+
   public static <K, V> NSDictionary<K, V> asDictionary(Map<K, V> map) {
     return asDictionary(map, NullHandling.CheckAndFail);
   }
@@ -226,9 +286,18 @@ public class NSDictionary<K, V> extends AbstractMap<K, V> implements Map<K, V>,
     return super.equals(obj);
   }
 
+  /*
+   * The sum of the hashes of the entries, as specified by Map. Dictionaries
+   * with storage of their own can not change and compute it once.
+   */
   @Override
   public int hashCode() {
-    return _shallowHashCode() ^ count();
+    Map<K, V> map = mapNoCopy();
+    if (map != _ownedMap)
+      return super.hashCode();
+    if (_hashCode == 0)
+      _hashCode = map.hashCode();
+    return _hashCode;
   }
 
   @Override
@@ -0,0 +1,222 @@
+package ns.foundation.collections;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+
+import ns.foundation.NSRange;
+
+/**
+ * An immutable array of double values stored without boxing. Key value coding
+ * computes the count, sum, avg, min and max operators on the values and
+ * answers other keys with {@link #arrayValue()}.
+ */
+public class NSDoubleArray extends _NSPrimitiveCollection {
+  private static final long serialVersionUID = 6615809351473276154L;
+
+  public static final NSDoubleArray EmptyArray = new NSDoubleArray();
+
+  private final double[] _values;
+  private final int _count;
+  private transient NSArray<Double> _arrayValue;
+
+  public NSDoubleArray() {
+    this(new double[0], 0, true);
+  }
+
+  public NSDoubleArray(double... values) {
+    this(values == null ? new double[0] : values.clone(), values == null ? 0 : values.length, true);
+  }
+
+  public NSDoubleArray(double[] values, NSRange range) {
+    if (values == null)
+      throw new IllegalArgumentException("values may not be null");
+    if (range == null || range.maxRange() > values.length)
+      throw new IllegalArgumentException("range exceeds array dimensions");
+    _values = Arrays.copyOfRange(values, range.location(), range.maxRange());
+    _count = _values.length;
+  }
+
+  public NSDoubleArray(Collection<? extends Number> numbers) {
+    if (numbers == null)
+      throw new IllegalArgumentException("numbers may not be null");
+    _values = new double[numbers.size()];
+    int count = 0;
+    for (Number number : numbers) {
+      if (number == null)
+        throw new IllegalArgumentException(NSArray.NULL_NOT_ALLOWED);
+      _values[count++] = number.doubleValue();
+    }
+    _count = count;
+  }
+
+  /**
+   * Creates an array of the double values of keyPath in objects.
+   */
+  public NSDoubleArray(NSArray<?> objects, String keyPath) {
+    this(objects.doubleValuesForKeyPath(keyPath, null), objects.count(), true);
+  }
+
+  NSDoubleArray(double[] values, int count, boolean noCopy) {
+    _values = values;
+    _count = count;
+  }
+
+  @Override
+  public int count() {
+    return _count;
+  }
+
+  public double doubleAtIndex(int index) {
+    if (index < 0 || index >= _count)
+      throw new IndexOutOfBoundsException("Index " + index + " is out of bounds");
+    return _values[index];
+  }
+
+  public double[] doubles() {
+    return Arrays.copyOf(_values, _count);
+  }
+
+  public int indexOfDouble(double value) {
+    for (int i = 0; i < _count; i++) {
+      if (Double.doubleToLongBits(_values[i]) == Double.doubleToLongBits(value))
+        return i;
+    }
+    return NSArray.NotFound;
+  }
+
+  public boolean containsDouble(double value) {
+    return indexOfDouble(value) != NSArray.NotFound;
+  }
+
+  public NSDoubleArray subarrayWithRange(NSRange range) {
+    if (range == null || range.length() == 0)
+      return EmptyArray;
+    if (range.maxRange() > _count)
+      throw new IllegalArgumentException("Range [" + range.location() + "; " + range.length() + "] out of bounds [0, " + (_count - 1) + "]");
+    return new NSDoubleArray(_values, range);
+  }
+
+  /**
+   * Returns the values boxed in an NSArray, created once and shared by later
+   * calls.
+   */
+  public NSArray<Double> arrayValue() {
+    NSArray<Double> arrayValue = _arrayValue;
+    if (arrayValue == null) {
+      NSArray.Builder<Double> builder = new NSArray.Builder<Double>(_count);
+      for (int i = 0; i < _count; i++) {
+        builder.addObject(_values[i]);
+      }
+      _arrayValue = arrayValue = builder.build();
+    }
+    return arrayValue;
+  }
+
+  @Override
+  NSArray<? extends Number> _objectValues() {
+    return arrayValue();
+  }
+
+  @Override
+  BigDecimal _sum() {
+    NSArray._Operator._NumberAccumulator accumulator = new NSArray._Operator._NumberAccumulator();
+    for (int i = 0; i < _count; i++) {
+      accumulator.addDouble(_values[i]);
+    }
+    return accumulator.sum();
+  }
+
+  @Override
+  Number _minOrMaxValue(boolean trueForMaxAndFalseForMin) {
+    if (_count == 0)
+      return null;
+    double result = _values[0];
+    for (int i = 1; i < _count; i++) {
+      double value = _values[i];
+      if (trueForMaxAndFalseForMin ? Double.compare(value, result) > 0 : Double.compare(value, result) < 0)
+        result = value;
+    }
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this)
+      return true;
+    if (!(obj instanceof NSDoubleArray))
+      return false;
+    NSDoubleArray other = (NSDoubleArray) obj;
+    if (other._count != _count)
+      return false;
+    for (int i = 0; i < _count; i++) {
+      if (Double.doubleToLongBits(_values[i]) != Double.doubleToLongBits(other._values[i]))
+        return false;
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int hashCode = 1;
+    for (int i = 0; i < _count; i++) {
+      hashCode = 31 * hashCode + Double.hashCode(_values[i]);
+    }
+    return hashCode;
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(doubles());
+  }
+
+  public static class Builder {
+    private double[] _values;
+    private int _count;
+    private NSDoubleArray _array;
+
+    public Builder() {
+      this(10);
+    }
+
+    public Builder(int capacity) {
+      if (capacity < 0)
+        throw new IllegalArgumentException("Capacity cannot be less than 0");
+      _values = new double[capacity];
+    }
+
+    public int count() {
+      return _count;
+    }
+
+    public Builder addDouble(double value) {
+      _checkNotBuilt();
+      if (_count == _values.length)
+        _values = Arrays.copyOf(_values, Math.max(_count * 2, 10));
+      _values[_count++] = value;
+      return this;
+    }
+
+    public Builder addDoubles(double... values) {
+      if (values == null)
+        throw new IllegalArgumentException("values may not be null");
+      _checkNotBuilt();
+      if (_count + values.length > _values.length)
+        _values = Arrays.copyOf(_values, Math.max(_count * 2, _count + values.length));
+      System.arraycopy(values, 0, _values, _count, values.length);
+      _count += values.length;
+      return this;
+    }
+
+    private void _checkNotBuilt() {
+      if (_array != null)
+        throw new IllegalStateException("Attempt to modify an NSDoubleArray.Builder after build()");
+    }
+
+    public NSDoubleArray build() {
+      if (_array == null)
+        _array = _count == 0 ? EmptyArray : new NSDoubleArray(_values, _count, true);
+      return _array;
+    }
+  }
+}
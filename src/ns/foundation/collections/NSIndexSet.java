@@ -0,0 +1,562 @@
+package ns.foundation.collections;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import ns.foundation.NSRange;
+
+/**
+ * An immutable set of indexes, the ints from 0 to Integer.MAX_VALUE - 1,
+ * stored as a bitset that spans the words from the first to the last index.
+ * It is an NSSet of Integers to every other collection, while unions,
+ * intersections and differences with other index sets combine 64 indexes at
+ * a time and the indexes can be walked or read as ranges without boxing:
+ *
+ * <pre>
+ * for (int index = set.firstIndex(); index != NSIndexSet.NotFound; index = set.indexGreaterThanIndex(index))
+ * </pre>
+ */
+public class NSIndexSet extends NSSet<Integer> {
+  private static final long serialVersionUID = -6829417302817392746L;
+
+  private static final long[] _NoWords = new long[0];
+
+  public static final int NotFound = -1;
+  public static final NSIndexSet EmptyIndexSet = new NSIndexSet();
+
+  // bit i of _words[w] is the index ((_wordOffset + w) << 6) + i
+  private final long[] _words;
+  private final int _wordOffset;
+  private final int _count;
+  private transient int _indexHashCode;
+
+  public NSIndexSet() {
+    this(_NoWords, 0);
+  }
+
+  public NSIndexSet(int... indexes) {
+    this(new Builder().addIndexes(indexes));
+  }
+
+  public NSIndexSet(NSRange range) {
+    this(new Builder().addIndexesInRange(range));
+  }
+
+  public NSIndexSet(Collection<? extends Number> indexes) {
+    this(new Builder().addIndexesFromCollection(indexes));
+  }
+
+  private NSIndexSet(Builder builder) {
+    this(builder._words, 0);
+  }
+
+  /*
+   * Uses words as they are when no zero words have to be trimmed from either
+   * end, the caller must not modify them afterwards.
+   */
+  NSIndexSet(long[] words, int wordOffset) {
+    super();
+    int first = 0;
+    int last = words.length - 1;
+    while (first <= last && words[first] == 0)
+      first++;
+    while (last >= first && words[last] == 0)
+      last--;
+    if (first > last) {
+      _words = _NoWords;
+      _wordOffset = 0;
+    } else {
+      _words = first == 0 && last == words.length - 1 ? words : Arrays.copyOfRange(words, first, last + 1);
+      _wordOffset = wordOffset + first;
+    }
+    int count = 0;
+    for (long word : _words)
+      count += Long.bitCount(word);
+    _count = count;
+  }
+
+  @Override
+  protected Set<Integer> _initializeWithCapacity(int capacity) {
+    return _setSet(new _IndexView());
+  }
+
+  /**
+   * Returns indexes when it is an index set, or an index set of the same
+   * indexes.
+   */
+  public static NSIndexSet indexSetWithIndexes(Collection<? extends Number> indexes) {
+    if (indexes instanceof NSIndexSet)
+      return (NSIndexSet) indexes;
+    if (indexes == null || indexes.isEmpty())
+      return EmptyIndexSet;
+    return new NSIndexSet(indexes);
+  }
+
+  /**
+   * Collects indexes into the bitset handed over to the NSIndexSet returned by
+   * build() without copying it. The builder can not be modified once built.
+   */
+  public static class Builder {
+    private long[] _words = _NoWords;
+    private NSIndexSet _indexSet;
+
+    public Builder addIndex(int index) {
+      _checkIndex(index);
+      _ensureCapacity(index + 1);
+      _words[index >>> 6] |= 1L << index;
+      return this;
+    }
+
+    public Builder addIndexes(int... indexes) {
+      if (indexes == null)
+        throw new IllegalArgumentException("indexes may not be null");
+      for (int index : indexes)
+        addIndex(index);
+      return this;
+    }
+
+    public Builder addIndexesInRange(NSRange range) {
+      if (range == null)
+        throw new IllegalArgumentException("range may not be null");
+      if (range.length() == 0)
+        return this;
+      _checkIndex(range.location());
+      _checkIndex(range.maxRange() - 1);
+      _ensureCapacity(range.maxRange());
+      _setRange(_words, range.location(), range.maxRange());
+      return this;
+    }
+
+    public Builder addIndexesFromCollection(Collection<? extends Number> indexes) {
+      if (indexes == null)
+        throw new IllegalArgumentException("indexes may not be null");
+      if (indexes instanceof NSIndexSet) {
+        NSIndexSet indexSet = (NSIndexSet) indexes;
+        if (indexSet._count > 0) {
+          _ensureCapacity(indexSet.lastIndex() + 1);
+          for (int i = 0; i < indexSet._words.length; i++)
+            _words[indexSet._wordOffset + i] |= indexSet._words[i];
+        }
+        return this;
+      }
+      for (Number index : indexes) {
+        if (index == null)
+          throw new IllegalArgumentException(NULL_NOT_ALLOWED);
+        addIndex(index.intValue());
+      }
+      return this;
+    }
+
+    private static void _checkIndex(int index) {
+      if (index < 0 || index == Integer.MAX_VALUE)
+        throw new IllegalArgumentException("Index " + index + " out of bounds [0, " + (Integer.MAX_VALUE - 1) + "]");
+    }
+
+    private void _ensureCapacity(int indexCount) {
+      if (_indexSet != null)
+        throw new IllegalStateException("Attempt to modify an NSIndexSet.Builder after build()");
+      int wordCount = ((indexCount - 1) >>> 6) + 1;
+      if (wordCount > _words.length)
+        _words = Arrays.copyOf(_words, Math.max(wordCount, _words.length + (_words.length >> 1)));
+    }
+
+    public NSIndexSet build() {
+      if (_indexSet == null) {
+        _indexSet = new NSIndexSet(this);
+      }
+      return _indexSet;
+    }
+  }
+
+  /*
+   * Sets the bits from fromIndex included to toIndex excluded.
+   */
+  private static void _setRange(long[] words, int fromIndex, int toIndex) {
+    int firstWord = fromIndex >>> 6;
+    int lastWord = (toIndex - 1) >>> 6;
+    long firstMask = -1L << fromIndex;
+    long lastMask = -1L >>> -toIndex;
+    if (firstWord == lastWord) {
+      words[firstWord] |= firstMask & lastMask;
+    } else {
+      words[firstWord] |= firstMask;
+      Arrays.fill(words, firstWord + 1, lastWord, -1L);
+      words[lastWord] |= lastMask;
+    }
+  }
+
+  private long _wordAt(int wordIndex) {
+    int i = wordIndex - _wordOffset;
+    return i >= 0 && i < _words.length ? _words[i] : 0L;
+  }
+
+  private int _endWord() {
+    return _wordOffset + _words.length;
+  }
+
+  @Override
+  public int count() {
+    return _count;
+  }
+
+  @Override
+  public int size() {
+    return _count;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return _count == 0;
+  }
+
+  public boolean containsIndex(int index) {
+    return index >= 0 && (_wordAt(index >>> 6) & (1L << index)) != 0;
+  }
+
+  @Override
+  public boolean contains(Object object) {
+    return object instanceof Integer && containsIndex((Integer) object);
+  }
+
+  public int countOfIndexesInRange(NSRange range) {
+    if (range == null || range.length() == 0 || _count == 0)
+      return 0;
+    int fromIndex = range.location();
+    int toIndex = range.maxRange();
+    int firstWord = Math.max(fromIndex >>> 6, _wordOffset);
+    int lastWord = Math.min((toIndex - 1) >>> 6, _endWord() - 1);
+    int count = 0;
+    for (int w = firstWord; w <= lastWord; w++) {
+      long word = _wordAt(w);
+      if (w == fromIndex >>> 6)
+        word &= -1L << fromIndex;
+      if (w == (toIndex - 1) >>> 6)
+        word &= -1L >>> -toIndex;
+      count += Long.bitCount(word);
+    }
+    return count;
+  }
+
+  public boolean containsIndexesInRange(NSRange range) {
+    return range != null && countOfIndexesInRange(range) == range.length();
+  }
+
+  public boolean intersectsIndexesInRange(NSRange range) {
+    return countOfIndexesInRange(range) > 0;
+  }
+
+  public int firstIndex() {
+    if (_count == 0)
+      return NotFound;
+    return (_wordOffset << 6) + Long.numberOfTrailingZeros(_words[0]);
+  }
+
+  public int lastIndex() {
+    if (_count == 0)
+      return NotFound;
+    return ((_endWord() - 1) << 6) + 63 - Long.numberOfLeadingZeros(_words[_words.length - 1]);
+  }
+
+  public int indexGreaterThanOrEqualToIndex(int index) {
+    if (_count == 0)
+      return NotFound;
+    if (index < _wordOffset << 6)
+      index = _wordOffset << 6;
+    int w = (index >>> 6) - _wordOffset;
+    if (w >= _words.length)
+      return NotFound;
+    long word = _words[w] & (-1L << index);
+    while (word == 0) {
+      if (++w == _words.length)
+        return NotFound;
+      word = _words[w];
+    }
+    return ((_wordOffset + w) << 6) + Long.numberOfTrailingZeros(word);
+  }
+
+  public int indexGreaterThanIndex(int index) {
+    return index == Integer.MAX_VALUE ? NotFound : indexGreaterThanOrEqualToIndex(index + 1);
+  }
+
+  public int indexLessThanOrEqualToIndex(int index) {
+    if (_count == 0 || index < 0)
+      return NotFound;
+    int w = (index >>> 6) - _wordOffset;
+    if (w < 0)
+      return NotFound;
+    long word;
+    if (w >= _words.length) {
+      w = _words.length - 1;
+      word = _words[w];
+    } else {
+      word = _words[w] & (-1L >>> (63 - (index & 63)));
+    }
+    while (word == 0) {
+      if (w-- == 0)
+        return NotFound;
+      word = _words[w];
+    }
+    return ((_wordOffset + w) << 6) + 63 - Long.numberOfLeadingZeros(word);
+  }
+
+  public int indexLessThanIndex(int index) {
+    return index <= 0 ? NotFound : indexLessThanOrEqualToIndex(index - 1);
+  }
+
+  /*
+   * Returns the first index after the run of indexes starting at index.
+   */
+  private int _endOfRange(int index) {
+    int w = (index >>> 6) - _wordOffset;
+    long word = ~_words[w] & (-1L << index);
+    while (word == 0) {
+      if (++w == _words.length)
+        return (int) Math.min((long) _endWord() << 6, Integer.MAX_VALUE);
+      word = ~_words[w];
+    }
+    return ((_wordOffset + w) << 6) + Long.numberOfTrailingZeros(word);
+  }
+
+  /**
+   * Returns the runs of consecutive indexes as ranges, in ascending order.
+   */
+  public NSArray<NSRange> ranges() {
+    NSArray.Builder<NSRange> ranges = new NSArray.Builder<NSRange>();
+    for (int start = firstIndex(); start != NotFound;) {
+      int end = _endOfRange(start);
+      ranges.addObject(new NSRange(start, end - start));
+      start = indexGreaterThanOrEqualToIndex(end);
+    }
+    return ranges.build();
+  }
+
+  public NSIntArray intArrayValue() {
+    int[] indexes = new int[_count];
+    int i = 0;
+    for (int index = firstIndex(); index != NotFound; index = indexGreaterThanIndex(index))
+      indexes[i++] = index;
+    return new NSIntArray(indexes, _count, true);
+  }
+
+  @Override
+  public Integer anyObject() {
+    return _count == 0 ? null : Integer.valueOf(firstIndex());
+  }
+
+  @Override
+  public Iterator<Integer> iterator() {
+    return new Iterator<Integer>() {
+      private int _next = firstIndex();
+
+      public boolean hasNext() {
+        return _next != NotFound;
+      }
+
+      public Integer next() {
+        if (_next == NotFound)
+          throw new NoSuchElementException();
+        int index = _next;
+        _next = indexGreaterThanIndex(index);
+        return index;
+      }
+
+      public void remove() {
+        throw new UnsupportedOperationException("NSIndexSet is immutable");
+      }
+    };
+  }
+
+  public NSIndexSet indexSetByUnioningIndexSet(NSIndexSet otherSet) {
+    if (otherSet._count == 0)
+      return this;
+    if (_count == 0)
+      return otherSet;
+    int from = Math.min(_wordOffset, otherSet._wordOffset);
+    int to = Math.max(_endWord(), otherSet._endWord());
+    long[] words = new long[to - from];
+    for (int w = from; w < to; w++)
+      words[w - from] = _wordAt(w) | otherSet._wordAt(w);
+    return new NSIndexSet(words, from);
+  }
+
+  public NSIndexSet indexSetByIntersectingIndexSet(NSIndexSet otherSet) {
+    int from = Math.max(_wordOffset, otherSet._wordOffset);
+    int to = Math.min(_endWord(), otherSet._endWord());
+    if (from >= to)
+      return EmptyIndexSet;
+    long[] words = new long[to - from];
+    for (int w = from; w < to; w++)
+      words[w - from] = _wordAt(w) & otherSet._wordAt(w);
+    return new NSIndexSet(words, from);
+  }
+
+  public NSIndexSet indexSetBySubtractingIndexSet(NSIndexSet otherSet) {
+    if (_count == 0 || otherSet._count == 0)
+      return this;
+    long[] words = _words.clone();
+    for (int w = 0; w < words.length; w++)
+      words[w] &= ~otherSet._wordAt(_wordOffset + w);
+    return new NSIndexSet(words, _wordOffset);
+  }
+
+  /*
+   * Like any NSSet the set algebra methods return mutable sets, the indexSetBy
+   * methods return the index sets they compute.
+   */
+  @Override
+  public NSSet<Integer> setByUnioningSet(NSSet<? extends Integer> otherSet) {
+    if (otherSet instanceof NSIndexSet)
+      return new NSMutableSet<Integer>(indexSetByUnioningIndexSet((NSIndexSet) otherSet));
+    return super.setByUnioningSet(otherSet);
+  }
+
+  @Override
+  public NSSet<Integer> setByIntersectingSet(NSSet<?> otherSet) {
+    if (otherSet instanceof NSIndexSet)
+      return new NSMutableSet<Integer>(indexSetByIntersectingIndexSet((NSIndexSet) otherSet));
+    Builder builder = new Builder();
+    if (otherSet.size() < _count) {
+      for (Object object : otherSet) {
+        if (contains(object))
+          builder.addIndex((Integer) object);
+      }
+    } else {
+      for (int index = firstIndex(); index != NotFound; index = indexGreaterThanIndex(index)) {
+        if (otherSet.contains(index))
+          builder.addIndex(index);
+      }
+    }
+    return new NSMutableSet<Integer>(builder.build());
+  }
+
+  @Override
+  public NSSet<Integer> setBySubtractingSet(NSSet<?> otherSet) {
+    if (otherSet instanceof NSIndexSet)
+      return new NSMutableSet<Integer>(indexSetBySubtractingIndexSet((NSIndexSet) otherSet));
+    long[] words = _words.clone();
+    for (Object object : otherSet) {
+      if (contains(object)) {
+        int index = (Integer) object;
+        words[(index >>> 6) - _wordOffset] &= ~(1L << index);
+      }
+    }
+    return new NSMutableSet<Integer>(new NSIndexSet(words, _wordOffset));
+  }
+
+  @Override
+  public boolean intersectsSet(NSSet<?> otherSet) {
+    if (!(otherSet instanceof NSIndexSet))
+      return super.intersectsSet(otherSet);
+    NSIndexSet other = (NSIndexSet) otherSet;
+    int to = Math.min(_endWord(), other._endWord());
+    for (int w = Math.max(_wordOffset, other._wordOffset); w < to; w++) {
+      if ((_wordAt(w) & other._wordAt(w)) != 0)
+        return true;
+    }
+    return false;
+  }
+
+  @Override
+  public boolean isSubsetOfSet(NSSet<?> otherSet) {
+    if (!(otherSet instanceof NSIndexSet))
+      return super.isSubsetOfSet(otherSet);
+    NSIndexSet other = (NSIndexSet) otherSet;
+    for (int w = 0; w < _words.length; w++) {
+      if ((_words[w] & ~other._wordAt(_wordOffset + w)) != 0)
+        return false;
+    }
+    return true;
+  }
+
+  static NSIndexSet _unionOfIndexSets(Set<?>[] sets) {
+    Builder builder = new Builder();
+    for (Set<?> set : sets)
+      builder.addIndexesFromCollection((NSIndexSet) set);
+    return builder.build();
+  }
+
+  static NSIndexSet _intersectionOfIndexSets(Set<?>[] sets) {
+    NSIndexSet result = (NSIndexSet) sets[0];
+    for (int i = 1; i < sets.length && result._count > 0; i++)
+      result = result.indexSetByIntersectingIndexSet((NSIndexSet) sets[i]);
+    return result;
+  }
+
+  static boolean _areIndexSets(Set<?>[] sets) {
+    for (Set<?> set : sets) {
+      if (!(set instanceof NSIndexSet))
+        return false;
+    }
+    return true;
+  }
+
+  /*
+   * The sum of the indexes, as specified by Set for Integers.
+   */
+  @Override
+  public int hashCode() {
+    int hash = _indexHashCode;
+    if (hash == 0 && _count > 0) {
+      for (int w = 0; w < _words.length; w++) {
+        long word = _words[w];
+        int base = (_wordOffset + w) << 6;
+        hash += Long.bitCount(word) * base;
+        while (word != 0) {
+          hash += Long.numberOfTrailingZeros(word);
+          word &= word - 1;
+        }
+      }
+      _indexHashCode = hash;
+    }
+    return hash;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj instanceof NSIndexSet) {
+      NSIndexSet other = (NSIndexSet) obj;
+      return _wordOffset == other._wordOffset && Arrays.equals(_words, other._words);
+    }
+    return super.equals(obj);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder buffer = new StringBuilder("(");
+    for (NSRange range : ranges()) {
+      if (buffer.length() > 1)
+        buffer.append(", ");
+      buffer.append(range.location());
+      if (range.length() > 1)
+        buffer.append('-').append(range.maxRange() - 1);
+    }
+    return buffer.append(')').toString();
+  }
+
+  /*
+   * The Set seen through NSSet, answering from the bitset of the index set.
+   */
+  private class _IndexView extends AbstractSet<Integer> implements Serializable {
+    private static final long serialVersionUID = 2875391003569180236L;
+
+    @Override
+    public Iterator<Integer> iterator() {
+      return NSIndexSet.this.iterator();
+    }
+
+    @Override
+    public int size() {
+      return _count;
+    }
+
+    @Override
+    public boolean contains(Object object) {
+      return NSIndexSet.this.contains(object);
+    }
+  }
+}
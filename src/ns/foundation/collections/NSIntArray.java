@@ -0,0 +1,222 @@
+package ns.foundation.collections;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+
+import ns.foundation.NSRange;
+
+/**
+ * An immutable array of int values stored without boxing. Key value coding
+ * computes the count, sum, avg, min and max operators on the values and
+ * answers other keys with {@link #arrayValue()}.
+ */
+public class NSIntArray extends _NSPrimitiveCollection {
+  private static final long serialVersionUID = 3032624387720457166L;
+
+  public static final NSIntArray EmptyArray = new NSIntArray();
+
+  private final int[] _values;
+  private final int _count;
+  private transient NSArray<Integer> _arrayValue;
+
+  public NSIntArray() {
+    this(new int[0], 0, true);
+  }
+
+  public NSIntArray(int... values) {
+    this(values == null ? new int[0] : values.clone(), values == null ? 0 : values.length, true);
+  }
+
+  public NSIntArray(int[] values, NSRange range) {
+    if (values == null)
+      throw new IllegalArgumentException("values may not be null");
+    if (range == null || range.maxRange() > values.length)
+      throw new IllegalArgumentException("range exceeds array dimensions");
+    _values = Arrays.copyOfRange(values, range.location(), range.maxRange());
+    _count = _values.length;
+  }
+
+  public NSIntArray(Collection<? extends Number> numbers) {
+    if (numbers == null)
+      throw new IllegalArgumentException("numbers may not be null");
+    _values = new int[numbers.size()];
+    int count = 0;
+    for (Number number : numbers) {
+      if (number == null)
+        throw new IllegalArgumentException(NSArray.NULL_NOT_ALLOWED);
+      _values[count++] = number.intValue();
+    }
+    _count = count;
+  }
+
+  /**
+   * Creates an array of the int values of keyPath in objects.
+   */
+  public NSIntArray(NSArray<?> objects, String keyPath) {
+    this(objects.intValuesForKeyPath(keyPath, null), objects.count(), true);
+  }
+
+  NSIntArray(int[] values, int count, boolean noCopy) {
+    _values = values;
+    _count = count;
+  }
+
+  @Override
+  public int count() {
+    return _count;
+  }
+
+  public int intAtIndex(int index) {
+    if (index < 0 || index >= _count)
+      throw new IndexOutOfBoundsException("Index " + index + " is out of bounds");
+    return _values[index];
+  }
+
+  public int[] ints() {
+    return Arrays.copyOf(_values, _count);
+  }
+
+  public int indexOfInt(int value) {
+    for (int i = 0; i < _count; i++) {
+      if (_values[i] == value)
+        return i;
+    }
+    return NSArray.NotFound;
+  }
+
+  public boolean containsInt(int value) {
+    return indexOfInt(value) != NSArray.NotFound;
+  }
+
+  public NSIntArray subarrayWithRange(NSRange range) {
+    if (range == null || range.length() == 0)
+      return EmptyArray;
+    if (range.maxRange() > _count)
+      throw new IllegalArgumentException("Range [" + range.location() + "; " + range.length() + "] out of bounds [0, " + (_count - 1) + "]");
+    return new NSIntArray(_values, range);
+  }
+
+  /**
+   * Returns the values boxed in an NSArray, created once and shared by later
+   * calls.
+   */
+  public NSArray<Integer> arrayValue() {
+    NSArray<Integer> arrayValue = _arrayValue;
+    if (arrayValue == null) {
+      NSArray.Builder<Integer> builder = new NSArray.Builder<Integer>(_count);
+      for (int i = 0; i < _count; i++) {
+        builder.addObject(_values[i]);
+      }
+      _arrayValue = arrayValue = builder.build();
+    }
+    return arrayValue;
+  }
+
+  @Override
+  NSArray<? extends Number> _objectValues() {
+    return arrayValue();
+  }
+
+  @Override
+  BigDecimal _sum() {
+    long sum = 0;
+    for (int i = 0; i < _count; i++) {
+      sum += _values[i];
+    }
+    return BigDecimal.valueOf(sum);
+  }
+
+  @Override
+  Number _minOrMaxValue(boolean trueForMaxAndFalseForMin) {
+    if (_count == 0)
+      return null;
+    int result = _values[0];
+    for (int i = 1; i < _count; i++) {
+      int value = _values[i];
+      if (trueForMaxAndFalseForMin ? value > result : value < result)
+        result = value;
+    }
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this)
+      return true;
+    if (!(obj instanceof NSIntArray))
+      return false;
+    NSIntArray other = (NSIntArray) obj;
+    if (other._count != _count)
+      return false;
+    for (int i = 0; i < _count; i++) {
+      if (_values[i] != other._values[i])
+        return false;
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int hashCode = 1;
+    for (int i = 0; i < _count; i++) {
+      hashCode = 31 * hashCode + _values[i];
+    }
+    return hashCode;
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(ints());
+  }
+
+  public static class Builder {
+    private int[] _values;
+    private int _count;
+    private NSIntArray _array;
+
+    public Builder() {
+      this(10);
+    }
+
+    public Builder(int capacity) {
+      if (capacity < 0)
+        throw new IllegalArgumentException("Capacity cannot be less than 0");
+      _values = new int[capacity];
+    }
+
+    public int count() {
+      return _count;
+    }
+
+    public Builder addInt(int value) {
+      _checkNotBuilt();
+      if (_count == _values.length)
+        _values = Arrays.copyOf(_values, Math.max(_count * 2, 10));
+      _values[_count++] = value;
+      return this;
+    }
+
+    public Builder addInts(int... values) {
+      if (values == null)
+        throw new IllegalArgumentException("values may not be null");
+      _checkNotBuilt();
+      if (_count + values.length > _values.length)
+        _values = Arrays.copyOf(_values, Math.max(_count * 2, _count + values.length));
+      System.arraycopy(values, 0, _values, _count, values.length);
+      _count += values.length;
+      return this;
+    }
+
+    private void _checkNotBuilt() {
+      if (_array != null)
+        throw new IllegalStateException("Attempt to modify an NSIntArray.Builder after build()");
+    }
+
+    public NSIntArray build() {
+      if (_array == null)
+        _array = _count == 0 ? EmptyArray : new NSIntArray(_values, _count, true);
+      return _array;
+    }
+  }
+}
@@ -0,0 +1,288 @@
+package ns.foundation.collections;
+
+import java.io.Serializable;
+import java.util.Map;
+
+import ns.foundation.kvc.NSKeyValueCodingAdditions;
+
+/**
+ * An immutable dictionary from int keys to objects, with the keys stored
+ * without boxing in an open addressing table beside the values. Key value
+ * coding looks keys up by their decimal value, answers allValues, allKeys and
+ * count like NSDictionary, and applies operators to {@link #allValues()}.
+ */
+public class NSIntDictionary<V> implements NSKeyValueCodingAdditions, Serializable {
+  private static final long serialVersionUID = -6019411530741265790L;
+
+  @SuppressWarnings("rawtypes")
+  public static final NSIntDictionary EmptyDictionary = new NSIntDictionary();
+
+  private final int[] _keys;
+  private final Object[] _values;
+  private final int _count;
+
+  public NSIntDictionary() {
+    this(new _Table(0));
+  }
+
+  public NSIntDictionary(Map<? extends Number, ? extends V> map) {
+    this(_tableWithMap(map));
+  }
+
+  /**
+   * Creates a dictionary of objects keyed by the int value of keyPath in each
+   * of them. Later objects replace earlier ones with the same key.
+   */
+  public NSIntDictionary(NSArray<? extends V> objects, String keyPath) {
+    this(_tableWithObjects(objects, keyPath));
+  }
+
+  private NSIntDictionary(_Table table) {
+    _keys = table._keys;
+    _values = table._values;
+    _count = table._count;
+  }
+
+  private static _Table _tableWithMap(Map<? extends Number, ?> map) {
+    if (map == null)
+      throw new IllegalArgumentException("map may not be null");
+    _Table table = new _Table(map.size());
+    for (Map.Entry<? extends Number, ?> entry : map.entrySet()) {
+      if (entry.getKey() == null || entry.getValue() == null)
+        throw new IllegalArgumentException("Key or value may not be null");
+      table._put(entry.getKey().intValue(), entry.getValue());
+    }
+    return table;
+  }
+
+  private static _Table _tableWithObjects(NSArray<?> objects, String keyPath) {
+    _Table table = new _Table(objects.count());
+    int[] keys = objects.intValuesForKeyPath(keyPath, null);
+    for (int i = 0; i < keys.length; i++) {
+      table._put(keys[i], objects.objectAtIndex(i));
+    }
+    return table;
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <V> NSIntDictionary<V> emptyDictionary() {
+    return EmptyDictionary;
+  }
+
+  /*
+   * The entries being collected, the dictionary takes over its final arrays
+   * once they are complete.
+   */
+  private static final class _Table {
+    int[] _keys;
+    Object[] _values;
+    int _count;
+
+    _Table(int capacity) {
+      int length = _NSPrimitiveCollection._tableLength(capacity);
+      _keys = new int[length];
+      _values = new Object[length];
+    }
+
+    void _put(int key, Object value) {
+      int mask = _keys.length - 1;
+      int slot = _NSPrimitiveCollection._slot(key, mask);
+      while (_values[slot] != null) {
+        if (_keys[slot] == key) {
+          _values[slot] = value;
+          return;
+        }
+        slot = (slot + 1) & mask;
+      }
+      _keys[slot] = key;
+      _values[slot] = value;
+      if (++_count * 3 > _keys.length * 2)
+        _resize();
+    }
+
+    private void _resize() {
+      int[] keys = _keys;
+      Object[] values = _values;
+      _keys = new int[keys.length << 1];
+      _values = new Object[values.length << 1];
+      int mask = _keys.length - 1;
+      for (int i = 0; i < keys.length; i++) {
+        if (values[i] != null) {
+          int slot = _NSPrimitiveCollection._slot(keys[i], mask);
+          while (_values[slot] != null)
+            slot = (slot + 1) & mask;
+          _keys[slot] = keys[i];
+          _values[slot] = values[i];
+        }
+      }
+    }
+  }
+
+  public int count() {
+    return _count;
+  }
+
+  @SuppressWarnings("unchecked")
+  public V objectForKey(int key) {
+    int mask = _keys.length - 1;
+    int slot = _NSPrimitiveCollection._slot(key, mask);
+    Object value;
+    while ((value = _values[slot]) != null) {
+      if (_keys[slot] == key)
+        return (V) value;
+      slot = (slot + 1) & mask;
+    }
+    return null;
+  }
+
+  public boolean containsKey(int key) {
+    return objectForKey(key) != null;
+  }
+
+  /**
+   * Returns the keys of the dictionary in no particular order, in the same
+   * order as {@link #allValues()}.
+   */
+  public NSIntArray allKeys() {
+    int[] keys = new int[_count];
+    int count = 0;
+    for (int i = 0; i < _keys.length; i++) {
+      if (_values[i] != null)
+        keys[count++] = _keys[i];
+    }
+    return new NSIntArray(keys, count, true);
+  }
+
+  @SuppressWarnings("unchecked")
+  public NSArray<V> allValues() {
+    NSArray.Builder<V> builder = new NSArray.Builder<V>(_count);
+    for (Object value : _values) {
+      if (value != null)
+        builder.addObject((V) value);
+    }
+    return builder.build();
+  }
+
+  @SuppressWarnings("unchecked")
+  public NSDictionary<Integer, V> dictionaryValue() {
+    NSDictionary.Builder<Integer, V> builder = new NSDictionary.Builder<Integer, V>(_count);
+    for (int i = 0; i < _keys.length; i++) {
+      if (_values[i] != null)
+        builder.setObjectForKey((V) _values[i], _keys[i]);
+    }
+    return builder.build();
+  }
+
+  @Override
+  public Object valueForKey(String key) {
+    if (key == null || key.length() == 0)
+      return null;
+    char first = key.charAt(0);
+    if (first == '@')
+      return allValues().valueForKey(key);
+    if (first == '-' || (first >= '0' && first <= '9')) {
+      try {
+        return objectForKey(Integer.parseInt(key));
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+    if (key.equals("allValues"))
+      return allValues();
+    if (key.equals("allKeys"))
+      return allKeys();
+    if (key.equals("count"))
+      return count();
+    return null;
+  }
+
+  @Override
+  public void takeValueForKey(Object value, String key) {
+    throw new IllegalStateException(getClass().getName() + " is immutable.");
+  }
+
+  @Override
+  public Object valueForKeyPath(String keyPath) {
+    if (keyPath != null && keyPath.length() > 0 && keyPath.charAt(0) == '@')
+      return allValues().valueForKeyPath(keyPath);
+    return NSKeyValueCodingAdditions.DefaultImplementation.valueForKeyPath(this, keyPath);
+  }
+
+  @Override
+  public void takeValueForKeyPath(Object value, String keyPath) {
+    throw new IllegalStateException(getClass().getName() + " is immutable.");
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this)
+      return true;
+    if (!(obj instanceof NSIntDictionary<?>))
+      return false;
+    NSIntDictionary<?> other = (NSIntDictionary<?>) obj;
+    if (other._count != _count)
+      return false;
+    for (int i = 0; i < _keys.length; i++) {
+      if (_values[i] != null && !_values[i].equals(other.objectForKey(_keys[i])))
+        return false;
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int hashCode = 0;
+    for (int i = 0; i < _keys.length; i++) {
+      if (_values[i] != null)
+        hashCode += _keys[i] ^ _values[i].hashCode();
+    }
+    return hashCode;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder("{");
+    for (int i = 0; i < _keys.length; i++) {
+      if (_values[i] != null) {
+        if (result.length() > 1)
+          result.append(", ");
+        result.append(_keys[i]).append('=').append(_values[i]);
+      }
+    }
+    return result.append('}').toString();
+  }
+
+  public static class Builder<V> {
+    private final _Table _table;
+    private NSIntDictionary<V> _dictionary;
+
+    public Builder() {
+      this(0);
+    }
+
+    public Builder(int capacity) {
+      if (capacity < 0)
+        throw new IllegalArgumentException("Capacity cannot be less than 0");
+      _table = new _Table(capacity);
+    }
+
+    public int count() {
+      return _table._count;
+    }
+
+    public Builder<V> setObjectForKey(V object, int key) {
+      if (object == null)
+        throw new IllegalArgumentException("Value may not be null");
+      if (_dictionary != null)
+        throw new IllegalStateException("Attempt to modify an NSIntDictionary.Builder after build()");
+      _table._put(key, object);
+      return this;
+    }
+
+    public NSIntDictionary<V> build() {
+      if (_dictionary == null)
+        _dictionary = new NSIntDictionary<V>(_table);
+      return _dictionary;
+    }
+  }
+}
@@ -0,0 +1,222 @@
+package ns.foundation.collections;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+
+import ns.foundation.NSRange;
+
+/**
+ * An immutable array of long values stored without boxing. Key value coding
+ * computes the count, sum, avg, min and max operators on the values and
+ * answers other keys with {@link #arrayValue()}.
+ */
+public class NSLongArray extends _NSPrimitiveCollection {
+  private static final long serialVersionUID = -4187230568821597305L;
+
+  public static final NSLongArray EmptyArray = new NSLongArray();
+
+  private final long[] _values;
+  private final int _count;
+  private transient NSArray<Long> _arrayValue;
+
+  public NSLongArray() {
+    this(new long[0], 0, true);
+  }
+
+  public NSLongArray(long... values) {
+    this(values == null ? new long[0] : values.clone(), values == null ? 0 : values.length, true);
+  }
+
+  public NSLongArray(long[] values, NSRange range) {
+    if (values == null)
+      throw new IllegalArgumentException("values may not be null");
+    if (range == null || range.maxRange() > values.length)
+      throw new IllegalArgumentException("range exceeds array dimensions");
+    _values = Arrays.copyOfRange(values, range.location(), range.maxRange());
+    _count = _values.length;
+  }
+
+  public NSLongArray(Collection<? extends Number> numbers) {
+    if (numbers == null)
+      throw new IllegalArgumentException("numbers may not be null");
+    _values = new long[numbers.size()];
+    int count = 0;
+    for (Number number : numbers) {
+      if (number == null)
+        throw new IllegalArgumentException(NSArray.NULL_NOT_ALLOWED);
+      _values[count++] = number.longValue();
+    }
+    _count = count;
+  }
+
+  /**
+   * Creates an array of the long values of keyPath in objects.
+   */
+  public NSLongArray(NSArray<?> objects, String keyPath) {
+    this(objects.longValuesForKeyPath(keyPath, null), objects.count(), true);
+  }
+
+  NSLongArray(long[] values, int count, boolean noCopy) {
+    _values = values;
+    _count = count;
+  }
+
+  @Override
+  public int count() {
+    return _count;
+  }
+
+  public long longAtIndex(int index) {
+    if (index < 0 || index >= _count)
+      throw new IndexOutOfBoundsException("Index " + index + " is out of bounds");
+    return _values[index];
+  }
+
+  public long[] longs() {
+    return Arrays.copyOf(_values, _count);
+  }
+
+  public int indexOfLong(long value) {
+    for (int i = 0; i < _count; i++) {
+      if (_values[i] == value)
+        return i;
+    }
+    return NSArray.NotFound;
+  }
+
+  public boolean containsLong(long value) {
+    return indexOfLong(value) != NSArray.NotFound;
+  }
+
+  public NSLongArray subarrayWithRange(NSRange range) {
+    if (range == null || range.length() == 0)
+      return EmptyArray;
+    if (range.maxRange() > _count)
+      throw new IllegalArgumentException("Range [" + range.location() + "; " + range.length() + "] out of bounds [0, " + (_count - 1) + "]");
+    return new NSLongArray(_values, range);
+  }
+
+  /**
+   * Returns the values boxed in an NSArray, created once and shared by later
+   * calls.
+   */
+  public NSArray<Long> arrayValue() {
+    NSArray<Long> arrayValue = _arrayValue;
+    if (arrayValue == null) {
+      NSArray.Builder<Long> builder = new NSArray.Builder<Long>(_count);
+      for (int i = 0; i < _count; i++) {
+        builder.addObject(_values[i]);
+      }
+      _arrayValue = arrayValue = builder.build();
+    }
+    return arrayValue;
+  }
+
+  @Override
+  NSArray<? extends Number> _objectValues() {
+    return arrayValue();
+  }
+
+  @Override
+  BigDecimal _sum() {
+    NSArray._Operator._NumberAccumulator accumulator = new NSArray._Operator._NumberAccumulator();
+    for (int i = 0; i < _count; i++) {
+      accumulator.addLong(_values[i]);
+    }
+    return accumulator.sum();
+  }
+
+  @Override
+  Number _minOrMaxValue(boolean trueForMaxAndFalseForMin) {
+    if (_count == 0)
+      return null;
+    long result = _values[0];
+    for (int i = 1; i < _count; i++) {
+      long value = _values[i];
+      if (trueForMaxAndFalseForMin ? value > result : value < result)
+        result = value;
+    }
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this)
+      return true;
+    if (!(obj instanceof NSLongArray))
+      return false;
+    NSLongArray other = (NSLongArray) obj;
+    if (other._count != _count)
+      return false;
+    for (int i = 0; i < _count; i++) {
+      if (_values[i] != other._values[i])
+        return false;
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int hashCode = 1;
+    for (int i = 0; i < _count; i++) {
+      hashCode = 31 * hashCode + Long.hashCode(_values[i]);
+    }
+    return hashCode;
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(longs());
+  }
+
+  public static class Builder {
+    private long[] _values;
+    private int _count;
+    private NSLongArray _array;
+
+    public Builder() {
+      this(10);
+    }
+
+    public Builder(int capacity) {
+      if (capacity < 0)
+        throw new IllegalArgumentException("Capacity cannot be less than 0");
+      _values = new long[capacity];
+    }
+
+    public int count() {
+      return _count;
+    }
+
+    public Builder addLong(long value) {
+      _checkNotBuilt();
+      if (_count == _values.length)
+        _values = Arrays.copyOf(_values, Math.max(_count * 2, 10));
+      _values[_count++] = value;
+      return this;
+    }
+
+    public Builder addLongs(long... values) {
+      if (values == null)
+        throw new IllegalArgumentException("values may not be null");
+      _checkNotBuilt();
+      if (_count + values.length > _values.length)
+        _values = Arrays.copyOf(_values, Math.max(_count * 2, _count + values.length));
+      System.arraycopy(values, 0, _values, _count, values.length);
+      _count += values.length;
+      return this;
+    }
+
+    private void _checkNotBuilt() {
+      if (_array != null)
+        throw new IllegalStateException("Attempt to modify an NSLongArray.Builder after build()");
+    }
+
+    public NSLongArray build() {
+      if (_array == null)
+        _array = _count == 0 ? EmptyArray : new NSLongArray(_values, _count, true);
+      return _array;
+    }
+  }
+}
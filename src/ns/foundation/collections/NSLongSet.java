@@ -0,0 +1,266 @@
+package ns.foundation.collections;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * An immutable set of long values stored without boxing, in an open addressing
+ * table where 0 marks an empty slot and is tracked on its own. Key value coding
+ * computes the count, sum, avg, min and max operators on the values and answers
+ * other keys with the values of {@link #allLongs()}.
+ */
+public class NSLongSet extends _NSPrimitiveCollection {
+  private static final long serialVersionUID = 2471539868031552317L;
+
+  public static final NSLongSet EmptySet = new NSLongSet();
+
+  private final long[] _table;
+  private final int _count;
+  private final boolean _containsZero;
+  private transient NSLongArray _allLongs;
+
+  public NSLongSet() {
+    this(new _Table(0));
+  }
+
+  public NSLongSet(long... values) {
+    this(_tableWithValues(values));
+  }
+
+  public NSLongSet(Collection<? extends Number> numbers) {
+    this(_tableWithNumbers(numbers));
+  }
+
+  private NSLongSet(_Table table) {
+    _table = table._slots;
+    _count = table._count;
+    _containsZero = table._containsZero;
+  }
+
+  private static _Table _tableWithValues(long[] values) {
+    _Table table = new _Table(values == null ? 0 : values.length);
+    if (values != null) {
+      for (long value : values) {
+        table._add(value);
+      }
+    }
+    return table;
+  }
+
+  private static _Table _tableWithNumbers(Collection<? extends Number> numbers) {
+    if (numbers == null)
+      throw new IllegalArgumentException("numbers may not be null");
+    _Table table = new _Table(numbers.size());
+    for (Number number : numbers) {
+      if (number == null)
+        throw new IllegalArgumentException(NSSet.NULL_NOT_ALLOWED);
+      table._add(number.longValue());
+    }
+    return table;
+  }
+
+  /*
+   * The values being collected, the set takes over its final arrays once they
+   * are complete.
+   */
+  private static final class _Table {
+    long[] _slots;
+    int _count;
+    boolean _containsZero;
+
+    _Table(int capacity) {
+      _slots = new long[_tableLength(capacity)];
+    }
+
+    void _add(long value) {
+      if (value == 0) {
+        if (!_containsZero) {
+          _containsZero = true;
+          _count++;
+        }
+        return;
+      }
+      int mask = _slots.length - 1;
+      int slot = _slot(value, mask);
+      while (_slots[slot] != 0) {
+        if (_slots[slot] == value)
+          return;
+        slot = (slot + 1) & mask;
+      }
+      _slots[slot] = value;
+      if (++_count * 3 > _slots.length * 2)
+        _resize();
+    }
+
+    private void _resize() {
+      long[] slots = _slots;
+      _slots = new long[slots.length << 1];
+      int mask = _slots.length - 1;
+      for (long value : slots) {
+        if (value != 0) {
+          int slot = _slot(value, mask);
+          while (_slots[slot] != 0)
+            slot = (slot + 1) & mask;
+          _slots[slot] = value;
+        }
+      }
+    }
+  }
+
+  @Override
+  public int count() {
+    return _count;
+  }
+
+  public boolean containsLong(long value) {
+    if (value == 0)
+      return _containsZero;
+    int mask = _table.length - 1;
+    int slot = _slot(value, mask);
+    long entry;
+    while ((entry = _table[slot]) != 0) {
+      if (entry == value)
+        return true;
+      slot = (slot + 1) & mask;
+    }
+    return false;
+  }
+
+  /**
+   * Returns the values of the set in no particular order.
+   */
+  public long[] longs() {
+    long[] values = new long[_count];
+    int count = 0;
+    if (_containsZero)
+      count++;
+    for (long value : _table) {
+      if (value != 0)
+        values[count++] = value;
+    }
+    return values;
+  }
+
+  public NSLongArray allLongs() {
+    NSLongArray allLongs = _allLongs;
+    if (allLongs == null)
+      _allLongs = allLongs = new NSLongArray(longs(), _count, true);
+    return allLongs;
+  }
+
+  public NSSet<Long> setValue() {
+    NSSet.Builder<Long> builder = new NSSet.Builder<Long>(NSSet._capacity(_count));
+    if (_containsZero)
+      builder.addObject(0L);
+    for (long value : _table) {
+      if (value != 0)
+        builder.addObject(value);
+    }
+    return builder.build();
+  }
+
+  @Override
+  NSArray<? extends Number> _objectValues() {
+    return allLongs().arrayValue();
+  }
+
+  @Override
+  BigDecimal _sum() {
+    NSArray._Operator._NumberAccumulator accumulator = new NSArray._Operator._NumberAccumulator();
+    for (long value : _table) {
+      accumulator.addLong(value);
+    }
+    return accumulator.sum();
+  }
+
+  @Override
+  Number _minOrMaxValue(boolean trueForMaxAndFalseForMin) {
+    if (_count == 0)
+      return null;
+    long result = trueForMaxAndFalseForMin ? Long.MIN_VALUE : Long.MAX_VALUE;
+    if (_containsZero)
+      result = 0;
+    for (long value : _table) {
+      if (value != 0 && (trueForMaxAndFalseForMin ? value > result : value < result))
+        result = value;
+    }
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this)
+      return true;
+    if (!(obj instanceof NSLongSet))
+      return false;
+    NSLongSet other = (NSLongSet) obj;
+    if (other._count != _count || other._containsZero != _containsZero)
+      return false;
+    for (long value : _table) {
+      if (value != 0 && !other.containsLong(value))
+        return false;
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int hashCode = 0;
+    for (long value : _table) {
+      hashCode += Long.hashCode(value);
+    }
+    return hashCode;
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(longs());
+  }
+
+  public static class Builder {
+    private final _Table _table;
+    private NSLongSet _set;
+
+    public Builder() {
+      this(16);
+    }
+
+    public Builder(int capacity) {
+      if (capacity < 0)
+        throw new IllegalArgumentException("Capacity cannot be less than 0");
+      _table = new _Table(capacity);
+    }
+
+    public int count() {
+      return _table._count;
+    }
+
+    public Builder addLong(long value) {
+      _checkNotBuilt();
+      _table._add(value);
+      return this;
+    }
+
+    public Builder addLongs(long... values) {
+      if (values == null)
+        throw new IllegalArgumentException("values may not be null");
+      _checkNotBuilt();
+      for (long value : values) {
+        _table._add(value);
+      }
+      return this;
+    }
+
+    private void _checkNotBuilt() {
+      if (_set != null)
+        throw new IllegalStateException("Attempt to modify an NSLongSet.Builder after build()");
+    }
+
+    public NSLongSet build() {
+      if (_set == null)
+        _set = new NSLongSet(_table);
+      return _set;
+    }
+  }
+}
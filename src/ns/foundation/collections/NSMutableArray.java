@@ -6,6 +6,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.RandomAccess;
 
 import ns.foundation.NSComparator;
@@ -16,6 +17,11 @@ public class NSMutableArray<E> extends NSArray<E> {
   
   private static final long serialVersionUID = 1107878723451378786L;
 
+  private transient List<E> _ownedList;
+  private transient List<E> _hashedList;
+  private transient int _hashCode;
+  private transient int _hashCodeModCount;
+
   public NSMutableArray() {
     super();
   }
@@ -50,7 +56,7 @@ public class NSMutableArray<E> extends NSArray<E> {
   
   @Override
   protected List<E> _initializeListWithCapacity(int capacity) {
-    return _setList(new ArrayList<E>(capacity));
+    return _ownedList = _setList(new ArrayList<E>(capacity));
   }
   
   @Override
@@ -86,6 +92,7 @@ public class NSMutableArray<E> extends NSArray<E> {
     if (object == null)
       throw new IllegalArgumentException(NULL_NOT_ALLOWED);
     if (listNoCopy().add(object)) {
+      _appendHashCode(object);
       modCount++;
     }
   }
@@ -109,7 +116,10 @@ public class NSMutableArray<E> extends NSArray<E> {
   public void addObjectsFromArray(NSArray<? extends E> otherArray) {
     if (otherArray.count() == 0)
       return;
-    if (listNoCopy().addAll(otherArray)) {
+    List<E> list = listNoCopy();
+    int count = list.size();
+    if (list.addAll(otherArray)) {
+      _appendHashCodes(list.subList(count, list.size()));
       modCount++;
     }
   }
@@ -119,6 +129,42 @@ public class NSMutableArray<E> extends NSArray<E> {
     return NSMutableArray.class.hashCode();
   }
 
+  /*
+   * The hash is kept until the array changes, appending objects updates it.
+   * Lists the array does not own could change behind its back.
+   */
+  @Override
+  public int hashCode() {
+    List<E> list = listNoCopy();
+    if (list != _ownedList)
+      return super.hashCode();
+    if (_hashedList != list || _hashCodeModCount != modCount) {
+      _hashCode = list.hashCode();
+      _hashedList = list;
+      _hashCodeModCount = modCount;
+    }
+    return _hashCode;
+  }
+
+  /* Called before modCount is incremented for the append */
+  private void _appendHashCode(Object object) {
+    if (_hashedList == listNoCopy() && _hashCodeModCount == modCount) {
+      _hashCode = 31 * _hashCode + object.hashCode();
+      _hashCodeModCount = modCount + 1;
+    }
+  }
+
+  private void _appendHashCodes(Collection<?> objects) {
+    if (_hashedList == listNoCopy() && _hashCodeModCount == modCount) {
+      int hash = _hashCode;
+      for (Object object : objects) {
+        hash = 31 * hash + (object == null ? 0 : object.hashCode());
+      }
+      _hashCode = hash;
+      _hashCodeModCount = modCount + 1;
+    }
+  }
+
   public void insertObjectAtIndex(E object, int index) {
     if (object == null)
       throw new IllegalArgumentException(NULL_NOT_ALLOWED);
@@ -131,6 +177,7 @@ public class NSMutableArray<E> extends NSArray<E> {
       return;
     List<E> listNoCopy = listNoCopy();
     listNoCopy.add(destIndex, listNoCopy.remove(sourceIndex));
+    modCount++;
   }
 
 
@@ -249,9 +296,31 @@ public class NSMutableArray<E> extends NSArray<E> {
     addObjectsFromArray(otherArray);
   }
 
+  /**
+   * Sorts the array in place. The backing array of the array is sorted
+   * directly, or a copy of it is sorted and written back when the array is
+   * large enough to be sorted in parallel or the comparator is a
+   * KeyPathComparator, whose values are then read once per object.
+   */
   @SuppressWarnings({ "unchecked", "rawtypes" })
   public void sortUsingComparator(NSComparator comparator) {
-    Collections.sort(this, comparator);
+    List<E> list = listNoCopy();
+    if (list instanceof ArrayList && list.size() < parallelSortThreshold() && !_NSSorting._usesSortKeys(comparator)) {
+      ((ArrayList<E>) list).sort(comparator);
+    } else {
+      Object[] objects = list.toArray();
+      _NSSorting.sort(objects, comparator);
+      if (list instanceof RandomAccess) {
+        for (int i = 0; i < objects.length; i++)
+          list.set(i, (E) objects[i]);
+      } else {
+        ListIterator<E> iterator = list.listIterator();
+        for (Object object : objects) {
+          iterator.next();
+          iterator.set((E) object);
+        }
+      }
+    }
     modCount++;
   }
 
@@ -1,9 +1,10 @@
 package ns.foundation.collections;
 
 
-import java.util.HashMap;
 import java.util.Map;
 
+import ns.foundation.collections._private._NSCompactMap;
+
 
 /**
  * Fully implemented except for NSKeyValueCodingAdditions
@@ -42,7 +43,7 @@ public class NSMutableDictionary<K, V> extends NSDictionary<K, V> {
 
   @Override
   protected Map<K, V> _initializeWithCapacity(int capacity) {
-    return _setMap(new HashMap<K, V>(capacity));
+    return _setMap(new _NSCompactMap<K, V>(capacity, true));
   }
   
   public void addEntriesFromDictionary(NSDictionary<? extends K, ? extends V> otherDictionary) {
@@ -124,8 +125,16 @@ public class NSMutableDictionary<K, V> extends NSDictionary<K, V> {
 
   @Override
   public void putAll(Map<? extends K, ? extends V> m) {
-    if (m.containsKey(null) || m.containsValue(null))
-      throw new IllegalArgumentException("Key or value may not be null");
+    /*
+     * Maps without null support like ConcurrentHashMap throw from
+     * containsKey(null), their entries are checked instead.
+     */
+    if (!(m instanceof NSDictionary<?, ?>)) {
+      for (Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
+        if (entry.getKey() == null || entry.getValue() == null)
+          throw new IllegalArgumentException("Key or value may not be null");
+      }
+    }
 
     mapNoCopy().putAll(m);
   }
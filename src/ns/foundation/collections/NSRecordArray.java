@@ -0,0 +1,450 @@
+package ns.foundation.collections;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectStreamException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import ns.foundation.NSRange;
+import ns.foundation.kvc.NSKeyValueCoding;
+
+/**
+ * An immutable array of fixed layout records stored outside of the Java heap,
+ * in direct or memory mapped byte buffers. Records are read in place:
+ * objectAtIndex returns a lightweight {@link Record} view, the column accessors
+ * and the count, sum, avg, min and max operators on a column read the buffers
+ * without creating an object per record, and subarrays share the buffers.
+ *
+ * A mapped array maps its file read only, so the pages are shared through the
+ * page cache with every other process mapping the same file. Files larger than
+ * 2GB are mapped in several segments.
+ */
+public class NSRecordArray extends NSArray<NSRecordArray.Record> implements RandomAccess {
+  private static final long serialVersionUID = 4120883478195264870L;
+
+  private final NSRecordLayout _layout;
+  private final ByteBuffer[] _segments;
+  private final int _recordsPerSegment;
+  private final int _first;
+  private final int _count;
+
+  /**
+   * Creates an array of the records between the position and the limit of
+   * buffer, which are read without copying them.
+   */
+  public NSRecordArray(NSRecordLayout layout, ByteBuffer buffer) {
+    this(layout, new ByteBuffer[] { buffer.slice() }, Integer.MAX_VALUE / layout.recordLength(), 0, _recordCount(layout, buffer.remaining()));
+  }
+
+  private NSRecordArray(NSRecordLayout layout, ByteBuffer[] segments, int recordsPerSegment, int first, int count) {
+    super();
+    _layout = layout;
+    _segments = segments;
+    _recordsPerSegment = recordsPerSegment;
+    _first = first;
+    _count = count;
+    _setList(new _RecordList());
+  }
+
+  private static int _recordCount(NSRecordLayout layout, long length) {
+    if (length % layout.recordLength() != 0)
+      throw new IllegalArgumentException("Length " + length + " is not a multiple of the record length of " + layout);
+    if (length / layout.recordLength() > Integer.MAX_VALUE)
+      throw new IllegalArgumentException("Length " + length + " holds more than " + Integer.MAX_VALUE + " records of " + layout);
+    return (int) (length / layout.recordLength());
+  }
+
+  /**
+   * Maps the records of file read only.
+   */
+  public static NSRecordArray mappedArray(File file, NSRecordLayout layout) throws IOException {
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = randomAccessFile.getChannel();
+      long length = channel.size();
+      int count = _recordCount(layout, length);
+      int recordsPerSegment = Integer.MAX_VALUE / layout.recordLength();
+      long segmentLength = (long) recordsPerSegment * layout.recordLength();
+      ByteBuffer[] segments = new ByteBuffer[(int) ((length + segmentLength - 1) / segmentLength)];
+      for (int i = 0; i < segments.length; i++) {
+        long position = i * segmentLength;
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(segmentLength, length - position));
+      }
+      return new NSRecordArray(layout, segments, recordsPerSegment, 0, count);
+    } finally {
+      randomAccessFile.close();
+    }
+  }
+
+  /**
+   * Writes the values of the columns of layout in objects to file, in the
+   * format read by {@link #mappedArray(File, NSRecordLayout)}.
+   */
+  public static void writeToFile(NSArray<?> objects, NSRecordLayout layout, File file) throws IOException {
+    int columnCount = layout.columnCount();
+    long[][] longValues = new long[columnCount][];
+    double[][] doubleValues = new double[columnCount][];
+    for (int column = 0; column < columnCount; column++) {
+      if (layout.columnType(column) == NSRecordLayout.ColumnType.Double)
+        doubleValues[column] = objects.doubleValuesForKeyPath(layout.columnName(column), null);
+      else
+        longValues[column] = objects.longValuesForKeyPath(layout.columnName(column), null);
+    }
+    DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536));
+    try {
+      for (int i = 0, count = objects.count(); i < count; i++) {
+        for (int column = 0; column < columnCount; column++) {
+          switch (layout.columnType(column)) {
+          case Int:
+            stream.writeInt((int) longValues[column][i]);
+            break;
+          case Long:
+            stream.writeLong(longValues[column][i]);
+            break;
+          case Double:
+            stream.writeDouble(doubleValues[column][i]);
+            break;
+          }
+        }
+      }
+    } finally {
+      stream.close();
+    }
+  }
+
+  public NSRecordLayout layout() {
+    return _layout;
+  }
+
+  @Override
+  public int count() {
+    return _count;
+  }
+
+  private int _record(int index) {
+    if (index < 0 || index >= _count)
+      throw new IndexOutOfBoundsException("Index " + index + " is out of bounds");
+    return _first + index;
+  }
+
+  private long _longValue(int record, int column) {
+    ByteBuffer segment = _segments[record / _recordsPerSegment];
+    int position = (record % _recordsPerSegment) * _layout.recordLength() + _layout._offset(column);
+    switch (_layout.columnType(column)) {
+    case Int:
+      return segment.getInt(position);
+    case Long:
+      return segment.getLong(position);
+    default:
+      return (long) segment.getDouble(position);
+    }
+  }
+
+  private double _doubleValue(int record, int column) {
+    ByteBuffer segment = _segments[record / _recordsPerSegment];
+    int position = (record % _recordsPerSegment) * _layout.recordLength() + _layout._offset(column);
+    switch (_layout.columnType(column)) {
+    case Int:
+      return segment.getInt(position);
+    case Long:
+      return segment.getLong(position);
+    default:
+      return segment.getDouble(position);
+    }
+  }
+
+  private Object _value(int record, int column) {
+    switch (_layout.columnType(column)) {
+    case Int:
+      return (int) _longValue(record, column);
+    case Long:
+      return _longValue(record, column);
+    default:
+      return _doubleValue(record, column);
+    }
+  }
+
+  public int intValueAtIndex(int index, String column) {
+    return (int) _longValue(_record(index), _layout._column(column));
+  }
+
+  public long longValueAtIndex(int index, String column) {
+    return _longValue(_record(index), _layout._column(column));
+  }
+
+  public double doubleValueAtIndex(int index, String column) {
+    return _doubleValue(_record(index), _layout._column(column));
+  }
+
+  @Override
+  public int[] intValuesForKeyPath(String keyPath, int[] values) {
+    int column = _layout.indexOfColumn(keyPath);
+    if (column == NotFound)
+      return super.intValuesForKeyPath(keyPath, values);
+    values = values == null ? new int[_count] : values;
+    _checkValuesLength(keyPath, values.length, _count);
+    for (int i = 0; i < _count; i++) {
+      values[i] = (int) _longValue(_first + i, column);
+    }
+    return values;
+  }
+
+  @Override
+  public long[] longValuesForKeyPath(String keyPath, long[] values) {
+    int column = _layout.indexOfColumn(keyPath);
+    if (column == NotFound)
+      return super.longValuesForKeyPath(keyPath, values);
+    values = values == null ? new long[_count] : values;
+    _checkValuesLength(keyPath, values.length, _count);
+    for (int i = 0; i < _count; i++) {
+      values[i] = _longValue(_first + i, column);
+    }
+    return values;
+  }
+
+  @Override
+  public double[] doubleValuesForKeyPath(String keyPath, double[] values) {
+    int column = _layout.indexOfColumn(keyPath);
+    if (column == NotFound)
+      return super.doubleValuesForKeyPath(keyPath, values);
+    values = values == null ? new double[_count] : values;
+    _checkValuesLength(keyPath, values.length, _count);
+    for (int i = 0; i < _count; i++) {
+      values[i] = _doubleValue(_first + i, column);
+    }
+    return values;
+  }
+
+  /**
+   * Searches an array sorted in ascending order of column for key, and returns
+   * its index like {@link java.util.Arrays#binarySearch(long[], long)}: the
+   * index of a record with the key, or (-(insertion point) - 1).
+   */
+  public int binarySearch(String column, long key) {
+    int columnIndex = _layout._column(column);
+    int low = 0;
+    int high = _count - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      long value = _longValue(_first + middle, columnIndex);
+      if (value < key)
+        low = middle + 1;
+      else if (value > key)
+        high = middle - 1;
+      else
+        return middle;
+    }
+    return -(low + 1);
+  }
+
+  public int binarySearch(String column, double key) {
+    int columnIndex = _layout._column(column);
+    int low = 0;
+    int high = _count - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int comparison = Double.compare(_doubleValue(_first + middle, columnIndex), key);
+      if (comparison < 0)
+        low = middle + 1;
+      else if (comparison > 0)
+        high = middle - 1;
+      else
+        return middle;
+    }
+    return -(low + 1);
+  }
+
+  @Override
+  public Object valueForKey(String key) {
+    int column = _operatorColumn(key);
+    return column == NotFound ? super.valueForKey(key) : _computeOperator(key, column);
+  }
+
+  @Override
+  public Object valueForKeyPath(String keyPath) {
+    int column = _operatorColumn(keyPath);
+    return column == NotFound ? super.valueForKeyPath(keyPath) : _computeOperator(keyPath, column);
+  }
+
+  /*
+   * Returns the column of an "@operator.column" key path computed on the
+   * buffers, or NotFound for other key paths.
+   */
+  private int _operatorColumn(String keyPath) {
+    if (keyPath == null || keyPath.length() == 0 || keyPath.charAt(0) != '@')
+      return NotFound;
+    int index = keyPath.indexOf('.');
+    if (index < 0)
+      return NotFound;
+    Class<?> operatorClass = _NSPrimitiveCollection._operatorClass(keyPath.substring(1, index));
+    if (operatorClass != _SumNumberOperator.class && operatorClass != _AvgNumberOperator.class && operatorClass != _MinOperator.class && operatorClass != _MaxOperator.class)
+      return NotFound;
+    return _layout.indexOfColumn(keyPath.substring(index + 1));
+  }
+
+  private Object _computeOperator(String keyPath, int column) {
+    Class<?> operatorClass = _NSPrimitiveCollection._operatorClass(keyPath.substring(1, keyPath.indexOf('.')));
+    if (operatorClass == _MinOperator.class || operatorClass == _MaxOperator.class)
+      return _minOrMaxValue(column, operatorClass == _MaxOperator.class);
+    _Operator._NumberAccumulator accumulator = new _Operator._NumberAccumulator();
+    boolean floatingPoint = _layout.columnType(column) == NSRecordLayout.ColumnType.Double;
+    for (int i = 0; i < _count; i++) {
+      if (floatingPoint)
+        accumulator.addDouble(_doubleValue(_first + i, column));
+      else
+        accumulator.addLong(_longValue(_first + i, column));
+    }
+    if (operatorClass == _AvgNumberOperator.class)
+      return _NSPrimitiveCollection._average(accumulator.sum(), _count);
+    return accumulator.sum();
+  }
+
+  private Object _minOrMaxValue(int column, boolean trueForMaxAndFalseForMin) {
+    if (_count == 0)
+      return null;
+    int result = _first;
+    if (_layout.columnType(column) == NSRecordLayout.ColumnType.Double) {
+      double resultValue = _doubleValue(result, column);
+      for (int i = _first + 1; i < _first + _count; i++) {
+        int comparison = Double.compare(_doubleValue(i, column), resultValue);
+        if (trueForMaxAndFalseForMin ? comparison > 0 : comparison < 0) {
+          result = i;
+          resultValue = _doubleValue(i, column);
+        }
+      }
+    } else {
+      long resultValue = _longValue(result, column);
+      for (int i = _first + 1; i < _first + _count; i++) {
+        long value = _longValue(i, column);
+        if (trueForMaxAndFalseForMin ? value > resultValue : value < resultValue) {
+          result = i;
+          resultValue = value;
+        }
+      }
+    }
+    return _value(result, column);
+  }
+
+  @Override
+  public NSArray<Record> subarrayWithRange(NSRange range) {
+    if (range == null || range.length() == 0)
+      return new NSRecordArray(_layout, _segments, _recordsPerSegment, _first, 0);
+    return (NSArray<Record>) subList(range.location(), range.maxRange());
+  }
+
+  @Override
+  public List<Record> subList(int fromIndex, int toIndex) {
+    if (fromIndex < 0 || toIndex > _count || fromIndex > toIndex)
+      throw new IndexOutOfBoundsException("Range [" + fromIndex + ", " + toIndex + ") is out of bounds [0, " + _count + ")");
+    return new NSRecordArray(_layout, _segments, _recordsPerSegment, _first + fromIndex, toIndex - fromIndex);
+  }
+
+  @Override
+  public NSArray<Record> immutableClone() {
+    return this;
+  }
+
+  private Object writeReplace() throws ObjectStreamException {
+    throw new NotSerializableException(getClass().getName());
+  }
+
+  private class _RecordList extends AbstractList<Record> implements RandomAccess {
+    @Override
+    public Record get(int index) {
+      return new Record(NSRecordArray.this, _record(index));
+    }
+
+    @Override
+    public int size() {
+      return _count;
+    }
+  }
+
+  /**
+   * A record of an NSRecordArray. Key value coding reads the column named by
+   * the key.
+   */
+  public static final class Record implements NSKeyValueCoding {
+    private final NSRecordArray _array;
+    private final int _record;
+
+    Record(NSRecordArray array, int record) {
+      _array = array;
+      _record = record;
+    }
+
+    public NSRecordLayout layout() {
+      return _array._layout;
+    }
+
+    public int intValueForKey(String key) {
+      return (int) _array._longValue(_record, _array._layout._column(key));
+    }
+
+    public long longValueForKey(String key) {
+      return _array._longValue(_record, _array._layout._column(key));
+    }
+
+    public double doubleValueForKey(String key) {
+      return _array._doubleValue(_record, _array._layout._column(key));
+    }
+
+    @Override
+    public Object valueForKey(String key) {
+      int column = _array._layout.indexOfColumn(key);
+      if (column == NSArray.NotFound)
+        return NSKeyValueCoding.Utility.handleQueryWithUnboundKey(this, key);
+      return _array._value(_record, column);
+    }
+
+    @Override
+    public void takeValueForKey(Object value, String key) {
+      throw new IllegalStateException(getClass().getName() + " is immutable.");
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj == this)
+        return true;
+      if (!(obj instanceof Record))
+        return false;
+      Record other = (Record) obj;
+      if (!_array._layout.equals(other._array._layout))
+        return false;
+      for (int column = 0; column < _array._layout.columnCount(); column++) {
+        if (!_array._value(_record, column).equals(other._array._value(other._record, column)))
+          return false;
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      int hashCode = 1;
+      for (int column = 0; column < _array._layout.columnCount(); column++) {
+        hashCode = 31 * hashCode + _array._value(_record, column).hashCode();
+      }
+      return hashCode;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder result = new StringBuilder("{");
+      for (int column = 0; column < _array._layout.columnCount(); column++) {
+        if (column > 0)
+          result.append(", ");
+        result.append(_array._layout.columnName(column)).append('=').append(_array._value(_record, column));
+      }
+      return result.append('}').toString();
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package ns.foundation.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The fixed schema of the records of an {@link NSRecordArray}: named int, long
+ * and double columns stored big-endian one after the other in declaration
+ * order, without padding.
+ */
+public final class NSRecordLayout {
+  public enum ColumnType {
+    Int(4), Long(8), Double(8);
+
+    private final int _length;
+
+    ColumnType(int length) {
+      _length = length;
+    }
+
+    public int length() {
+      return _length;
+    }
+  }
+
+  private final String[] _names;
+  private final ColumnType[] _types;
+  private final int[] _offsets;
+  private final int _recordLength;
+
+  private NSRecordLayout(List<String> names, List<ColumnType> types) {
+    _names = names.toArray(new String[names.size()]);
+    _types = types.toArray(new ColumnType[types.size()]);
+    _offsets = new int[_names.length];
+    int offset = 0;
+    for (int i = 0; i < _types.length; i++) {
+      _offsets[i] = offset;
+      offset += _types[i].length();
+    }
+    _recordLength = offset;
+  }
+
+  public int columnCount() {
+    return _names.length;
+  }
+
+  public String columnName(int column) {
+    return _names[column];
+  }
+
+  public ColumnType columnType(int column) {
+    return _types[column];
+  }
+
+  public int indexOfColumn(String name) {
+    for (int i = 0; i < _names.length; i++) {
+      if (_names[i].equals(name))
+        return i;
+    }
+    return NSArray.NotFound;
+  }
+
+  public int recordLength() {
+    return _recordLength;
+  }
+
+  int _offset(int column) {
+    return _offsets[column];
+  }
+
+  int _column(String name) {
+    int column = indexOfColumn(name);
+    if (column == NSArray.NotFound)
+      throw new IllegalArgumentException("No column named " + name + " in " + this);
+    return column;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this)
+      return true;
+    if (!(obj instanceof NSRecordLayout))
+      return false;
+    NSRecordLayout other = (NSRecordLayout) obj;
+    return Arrays.equals(_names, other._names) && Arrays.equals(_types, other._types);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Arrays.hashCode(_names) + Arrays.hashCode(_types);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder("(");
+    for (int i = 0; i < _names.length; i++) {
+      if (i > 0)
+        result.append(", ");
+      result.append(_names[i]).append(' ').append(_types[i]);
+    }
+    return result.append(')').toString();
+  }
+
+  public static class Builder {
+    private final List<String> _names = new ArrayList<String>();
+    private final List<ColumnType> _types = new ArrayList<ColumnType>();
+
+    public Builder addColumn(String name, ColumnType type) {
+      if (name == null || type == null)
+        throw new IllegalArgumentException("Column name and type may not be null");
+      if (_names.contains(name))
+        throw new IllegalArgumentException("Duplicate column " + name);
+      _names.add(name);
+      _types.add(type);
+      return this;
+    }
+
+    public NSRecordLayout build() {
+      if (_names.isEmpty())
+        throw new IllegalStateException("A record layout needs at least one column");
+      return new NSRecordLayout(_names, _types);
+    }
+  }
+}
@@ -4,12 +4,18 @@ package ns.foundation.collections;
 
 import java.io.Serializable;
 import java.util.AbstractSet;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 import ns.foundation.collections._private._NSFoundationCollection;
 
@@ -27,6 +33,8 @@ public class NSSet<E> extends AbstractSet<E> implements Set<E>, _NSFoundationCol
 	protected static final String NULL_NOT_ALLOWED = "Attempt to insert null into an NSSet.";
 	
 	private Set<E> _backingStore;
+  private transient Set<E> _ownedSet;
+  private transient int _hashCode;
 	
 	public NSSet() {
 	  _initializeWithCapacity(0);
@@ -85,7 +93,7 @@ public class NSSet<E> extends AbstractSet<E> implements Set<E>, _NSFoundationCol
   
   protected Set<E> _initializeWithCapacity(int capacity) {
     Set<E> set = new HashSet<E>(capacity);
-    _setSet(Collections.unmodifiableSet(set));
+    _ownedSet = _setSet(Collections.unmodifiableSet(set));
     return set;
   }
 	
@@ -125,6 +133,63 @@ public class NSSet<E> extends AbstractSet<E> implements Set<E>, _NSFoundationCol
     }
   }
 
+  /**
+   * Collects objects into a set that is handed over to the immutable NSSet
+   * returned by build() without copying it. The builder can not be modified
+   * once built.
+   */
+  public static class Builder<E> {
+    private final Set<E> _set;
+    private NSSet<E> _nsset;
+
+    public Builder() {
+      this(16);
+    }
+
+    public Builder(int capacity) {
+      _set = new HashSet<E>(capacity);
+    }
+
+    public int count() {
+      return _set.size();
+    }
+
+    public Builder<E> addObject(E object) {
+      if (object == null)
+        throw new IllegalArgumentException(NULL_NOT_ALLOWED);
+      _checkNotBuilt();
+      _set.add(object);
+      return this;
+    }
+
+    public Builder<E> addObjectsFromCollection(Collection<? extends E> collection) {
+      if (collection == null)
+        throw new IllegalArgumentException("collection may not be null");
+      _checkNotBuilt();
+      if (!(collection instanceof _NSFoundationCollection)) {
+        for (E object : collection) {
+          if (object == null)
+            throw new IllegalArgumentException(NULL_NOT_ALLOWED);
+        }
+      }
+      _set.addAll(collection);
+      return this;
+    }
+
+    private void _checkNotBuilt() {
+      if (_nsset != null)
+        throw new IllegalStateException("Attempt to modify an NSSet.Builder after build()");
+    }
+
+    public NSSet<E> build() {
+      if (_nsset == null) {
+        _nsset = new NSSet<E>();
+        _nsset._ownedSet = _nsset._setSet(Collections.unmodifiableSet(_set));
+      }
+      return _nsset;
+    }
+  }
+
   public static <E> NSSet<E> asSet(Set<E> set) {
     return asSet(set, NullHandling.CheckAndFail);
   }
@@ -190,6 +255,11 @@ public class NSSet<E> extends AbstractSet<E> implements Set<E>, _NSFoundationCol
   public boolean containsObject(Object object) {
     return contains(object);
   }
+
+  @Override
+  public boolean contains(Object object) {
+    return object != null && setNoCopy().contains(object);
+  }
 	
 	@Override
   public NSSet<E> clone() {
@@ -206,10 +276,19 @@ public class NSSet<E> extends AbstractSet<E> implements Set<E>, _NSFoundationCol
 	  return NSSet.class.hashCode();
 	}
 	
-	@Override
+  /*
+   * The sum of the hashes of the objects, as specified by Set. Sets with
+   * storage of their own can not change and compute it once.
+   */
+  @Override
   public int hashCode() {
-	  return _shallowHashCode() ^ count();
-	}
+    Set<E> set = setNoCopy();
+    if (set != _ownedSet)
+      return super.hashCode();
+    if (_hashCode == 0)
+      _hashCode = set.hashCode();
+    return _hashCode;
+  }
 	 
   @Override
   public boolean equals(Object obj) {
@@ -228,20 +307,24 @@ public class NSSet<E> extends AbstractSet<E> implements Set<E>, _NSFoundationCol
 		return this;
 	}
 	
-	public boolean intersectsSet(NSSet<?> otherSet) {		
-		for (Object o : otherSet) {
-			if (containsObject(o)) {
-				return true;
-			}
-		}
-		return false;
-	}
+  public boolean intersectsSet(NSSet<?> otherSet) {
+    Set<?> smallerSet = otherSet.size() < size() ? otherSet : this;
+    Set<?> largerSet = smallerSet == this ? otherSet : this;
+    for (Object o : smallerSet) {
+      if (largerSet.contains(o)) {
+        return true;
+      }
+    }
+    return false;
+  }
 	
 	public boolean isEqualToSet(NSSet<?> otherSet) {
 		return equals(otherSet);
 	}
 	
-	public boolean isSubsetOfSet(NSSet<?> otherSet) {		
+	public boolean isSubsetOfSet(NSSet<?> otherSet) {
+		if (size() > otherSet.size())
+			return false;
 		for (Object o : this) {
 			if (!otherSet.containsObject(o)) {
 				return false;
@@ -275,28 +358,201 @@ public class NSSet<E> extends AbstractSet<E> implements Set<E>, _NSFoundationCol
     return setNoCopy().size();
   }
 
+  /**
+   * Returns the objects in both sets, found by looking up the objects of the
+   * smaller set in the larger one.
+   */
+  @SuppressWarnings("unchecked")
   public NSSet<E> setByIntersectingSet(NSSet<?> otherSet) {
-		NSMutableSet<E> result = new NSMutableSet<E>();
-		
-		for (E e : this) {
-			if (otherSet.contains(e)) {
-				result.add(e);
-			}
-		}
-		
-		return result;
-	}
-	
-	public NSSet<E> setBySubtractingSet(NSSet<?> otherSet) {
-		NSSet<E> result = mutableClone();
-		result.removeAll(otherSet);
-		return result;
-	}
-	
-	public NSSet<E> setByUnioningSet(NSSet<? extends E> otherSet) {
-		NSSet<E> result = mutableClone();
-		result.addAll(otherSet);
-		return result;
-	}
-		
+    return (NSSet<E>) intersectionOfSets(Arrays.<Set<?>> asList(this, otherSet));
+  }
+
+  public NSSet<E> setBySubtractingSet(NSSet<?> otherSet) {
+    if (otherSet.isEmpty())
+      return mutableClone();
+    HashSet<E> result = new HashSet<E>(_capacity(size()));
+    for (E e : this) {
+      if (!otherSet.contains(e)) {
+        result.add(e);
+      }
+    }
+    return _mutableSetWithSet(result);
+  }
+
+  @SuppressWarnings("unchecked")
+  public NSSet<E> setByUnioningSet(NSSet<? extends E> otherSet) {
+    if (otherSet.isEmpty())
+      return mutableClone();
+    return (NSSet<E>) unionOfSets(Arrays.<Set<?>> asList(this, otherSet));
+  }
+
+  /**
+   * Returns the objects of all the sets, added in one pass to a set sized for
+   * all of them. The sets are merged in parallel pairs when they hold at
+   * least {@link NSArray#parallelOperatorThreshold()} objects together.
+   * Index sets are combined a word of indexes at a time.
+   */
+  @SuppressWarnings("unchecked")
+  public static <E> NSSet<E> unionOfSets(Collection<? extends Set<? extends E>> sets) {
+    if (sets == null || sets.isEmpty())
+      return new NSMutableSet<E>();
+    Set<?>[] array = sets.toArray(new Set<?>[sets.size()]);
+    if (NSIndexSet._areIndexSets(array))
+      return new NSMutableSet<E>((NSSet<E>) (NSSet<?>) NSIndexSet._unionOfIndexSets(array));
+    long count = 0;
+    for (Set<?> set : array) {
+      count += set.size();
+    }
+    HashSet<Object> result;
+    if (array.length > 1 && count >= NSArray.parallelOperatorThreshold()) {
+      result = _invoke(new _UnionTask(array, 0, array.length));
+    } else {
+      result = new HashSet<Object>(_capacity((int) Math.min(count, Integer.MAX_VALUE)));
+      for (Set<?> set : array) {
+        result.addAll(set);
+      }
+    }
+    return _checkedMutableSetWithSet(result);
+  }
+
+  /**
+   * Returns the objects found in every set, looking up each object of the
+   * smallest set in the others from the next smallest on. The smallest set is
+   * split into ranges looked up in parallel when it holds at least
+   * {@link NSArray#parallelOperatorThreshold()} objects. Index sets are
+   * combined a word of indexes at a time.
+   */
+  @SuppressWarnings("unchecked")
+  public static <E> NSSet<E> intersectionOfSets(Collection<? extends Set<? extends E>> sets) {
+    if (sets == null || sets.isEmpty())
+      return new NSMutableSet<E>();
+    Set<?>[] array = sets.toArray(new Set<?>[sets.size()]);
+    Arrays.sort(array, new Comparator<Set<?>>() {
+      public int compare(Set<?> set1, Set<?> set2) {
+        return set1.size() < set2.size() ? -1 : (set1.size() == set2.size() ? 0 : 1);
+      }
+    });
+    Set<?> smallestSet = array[0];
+    if (smallestSet.isEmpty())
+      return new NSMutableSet<E>();
+    if (NSIndexSet._areIndexSets(array))
+      return new NSMutableSet<E>((NSSet<E>) (NSSet<?>) NSIndexSet._intersectionOfIndexSets(array));
+    List<Object> objects;
+    if (smallestSet.size() >= NSArray.parallelOperatorThreshold()) {
+      Object[] smallestObjects = smallestSet.toArray();
+      int minimumLength = Math.max(smallestObjects.length / (NSArray._OperatorPool.pool.getParallelism() * 4), 1024);
+      objects = _invoke(new _IntersectionTask(smallestObjects, array, 0, smallestObjects.length, minimumLength));
+    } else {
+      objects = _objectsInAllSets(smallestSet, array);
+    }
+    HashSet<Object> result = new HashSet<Object>(_capacity(objects.size()));
+    result.addAll(objects);
+    return _checkedMutableSetWithSet(result);
+  }
+
+  private static List<Object> _objectsInAllSets(Iterable<?> objects, Set<?>[] sets) {
+    ArrayList<Object> result = new ArrayList<Object>();
+    for (Object object : objects) {
+      int i = 1;
+      while (i < sets.length && sets[i].contains(object)) {
+        i++;
+      }
+      if (i == sets.length)
+        result.add(object);
+    }
+    return result;
+  }
+
+  static int _capacity(int count) {
+    return count < 3 ? count + 1 : (int) Math.min(count / 0.75f + 1, Integer.MAX_VALUE);
+  }
+
+  private static <T> T _invoke(RecursiveTask<T> task) {
+    ForkJoinPool pool = NSArray._OperatorPool.pool;
+    return ForkJoinTask.inForkJoinPool() ? task.invoke() : pool.invoke(task);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <E> NSMutableSet<E> _checkedMutableSetWithSet(HashSet<?> set) {
+    if (set.contains(null))
+      throw new IllegalArgumentException(NULL_NOT_ALLOWED);
+    return _mutableSetWithSet((HashSet<E>) set);
+  }
+
+  /*
+   * The results of set algebra are mutable sets like they have always been,
+   * they take over the set they were computed in.
+   */
+  private static <E> NSMutableSet<E> _mutableSetWithSet(HashSet<E> set) {
+    NSMutableSet<E> nsset = new NSMutableSet<E>();
+    nsset._setSet(set);
+    return nsset;
+  }
+
+  private static class _UnionTask extends RecursiveTask<HashSet<Object>> {
+    private static final long serialVersionUID = 4184962283218958124L;
+
+    private final Set<?>[] _sets;
+    private final int _from;
+    private final int _to;
+
+    _UnionTask(Set<?>[] sets, int from, int to) {
+      _sets = sets;
+      _from = from;
+      _to = to;
+    }
+
+    @Override
+    protected HashSet<Object> compute() {
+      if (_to - _from == 1) {
+        return new HashSet<Object>(_sets[_from]);
+      }
+      int middle = (_from + _to) >>> 1;
+      _UnionTask left = new _UnionTask(_sets, _from, middle);
+      _UnionTask right = new _UnionTask(_sets, middle, _to);
+      left.fork();
+      HashSet<Object> rightResult = right.compute();
+      HashSet<Object> leftResult = left.join();
+      // the smaller set is added to the larger one
+      if (leftResult.size() < rightResult.size()) {
+        rightResult.addAll(leftResult);
+        return rightResult;
+      }
+      leftResult.addAll(rightResult);
+      return leftResult;
+    }
+  }
+
+  private static class _IntersectionTask extends RecursiveTask<List<Object>> {
+    private static final long serialVersionUID = -3022911734838468563L;
+
+    private final Object[] _objects;
+    private final Set<?>[] _sets;
+    private final int _location;
+    private final int _length;
+    private final int _minimumLength;
+
+    _IntersectionTask(Object[] objects, Set<?>[] sets, int location, int length, int minimumLength) {
+      _objects = objects;
+      _sets = sets;
+      _location = location;
+      _length = length;
+      _minimumLength = minimumLength;
+    }
+
+    @Override
+    protected List<Object> compute() {
+      if (_length <= _minimumLength) {
+        return _objectsInAllSets(Arrays.asList(_objects).subList(_location, _location + _length), _sets);
+      }
+      int half = _length / 2;
+      _IntersectionTask left = new _IntersectionTask(_objects, _sets, _location, half, _minimumLength);
+      _IntersectionTask right = new _IntersectionTask(_objects, _sets, _location + half, _length - half, _minimumLength);
+      left.fork();
+      List<Object> rightResult = right.compute();
+      List<Object> leftResult = left.join();
+      leftResult.addAll(rightResult);
+      return leftResult;
+    }
+  }
 }
@@ -0,0 +1,215 @@
+package ns.foundation.collections;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+
+import ns.foundation.NSComparator;
+import ns.foundation.NSRange;
+import ns.foundation.collections._private._NSObjectArrayList;
+
+/**
+ * An immutable array sorted with a comparator it remembers. Searches for
+ * objects and for ranges between two bounds are binary searches, merging with
+ * another array sorted with the same comparator takes linear time, and
+ * subarrays share the sorted objects of the receiver.
+ *
+ * Objects comparing the same keep their relative order, so an array sorted on
+ * several keys one after the other stays ordered on the previous keys.
+ *
+ * Comparators need not be serializable, a sorted array is serialized as a
+ * plain NSArray of its objects.
+ */
+public class SortedNSArray<E> extends NSArray<E> implements RandomAccess {
+  private static final long serialVersionUID = -2380826218316227455L;
+
+  private final transient NSComparator<? super E> _comparator;
+  private final Object[] _objects;
+  private final int _offset;
+  private final int _count;
+
+  public SortedNSArray(Collection<? extends E> objects, NSComparator<? super E> comparator) {
+    this(_sortedObjects(objects, comparator), 0, objects.size(), comparator);
+  }
+
+  SortedNSArray(Object[] sortedObjects, int offset, int count, NSComparator<? super E> comparator) {
+    super(0);
+    _comparator = comparator;
+    _objects = sortedObjects;
+    _offset = offset;
+    _count = count;
+    _setList(new _NSObjectArrayList<E>(sortedObjects, offset, count));
+  }
+
+  private static Object[] _sortedObjects(Collection<?> objects, NSComparator<?> comparator) {
+    if (objects == null)
+      throw new IllegalArgumentException("objects may not be null");
+    Object[] array = objects instanceof NSArray<?> ? ((NSArray<?>) objects).toArray() : objects.toArray();
+    if (array.getClass() != Object[].class)
+      array = Arrays.copyOf(array, array.length, Object[].class);
+    for (Object object : array) {
+      if (object == null)
+        throw new IllegalArgumentException(NULL_NOT_ALLOWED);
+    }
+    return _sort(array, comparator);
+  }
+
+  /*
+   * Sorts objects in place, with the comparator required by the sorted array.
+   */
+  static Object[] _sort(Object[] objects, NSComparator<?> comparator) {
+    if (comparator == null)
+      throw new IllegalArgumentException("Comparator not specified");
+    _NSSorting.sort(objects, comparator);
+    return objects;
+  }
+
+  public NSComparator<? super E> comparator() {
+    return _comparator;
+  }
+
+  private Object writeReplace() {
+    return new NSArray<E>(this);
+  }
+
+  @SuppressWarnings("unchecked")
+  private int _compare(int index, Object object) {
+    return ((Comparator<Object>) _comparator).compare(_objects[_offset + index], object);
+  }
+
+  /*
+   * Returns the index of the first object not ordered before object.
+   */
+  private int _lowerBound(Object object) {
+    int low = 0;
+    int high = _count;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (_compare(middle, object) < 0)
+        low = middle + 1;
+      else
+        high = middle;
+    }
+    return low;
+  }
+
+  /*
+   * Returns the index of the first object ordered after object.
+   */
+  private int _upperBound(Object object) {
+    int low = 0;
+    int high = _count;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (_compare(middle, object) <= 0)
+        low = middle + 1;
+      else
+        high = middle;
+    }
+    return low;
+  }
+
+  /**
+   * Returns the index of an object equal to object, found with a binary search
+   * for the objects comparing the same, or NotFound.
+   */
+  public int indexOfObjectUsingBinarySearch(E object) {
+    if (object == null)
+      return NotFound;
+    for (int i = _lowerBound(object); i < _count && _compare(i, object) == 0; i++) {
+      if (object.equals(_objects[_offset + i]))
+        return i;
+    }
+    return NotFound;
+  }
+
+  /**
+   * Returns the index at which object would be inserted to keep the array
+   * sorted, after the objects comparing the same.
+   */
+  public int insertionIndexForObject(E object) {
+    if (object == null)
+      throw new IllegalArgumentException("object may not be null");
+    return _upperBound(object);
+  }
+
+  /**
+   * Returns the range of the objects ordered between fromObject and toObject,
+   * both included. A null bound leaves that end of the range open.
+   */
+  public NSRange rangeOfObjectsBetween(E fromObject, E toObject) {
+    int location = fromObject == null ? 0 : _lowerBound(fromObject);
+    int maxRange = toObject == null ? _count : _upperBound(toObject);
+    return maxRange <= location ? new NSRange(location, 0) : new NSRange(location, maxRange - location);
+  }
+
+  public SortedNSArray<E> subarrayWithObjectsBetween(E fromObject, E toObject) {
+    return subarrayWithRange(rangeOfObjectsBetween(fromObject, toObject));
+  }
+
+  /**
+   * Returns the objects of the receiver and of otherArray sorted with the
+   * comparator of the receiver. When otherArray is sorted with the same
+   * comparator they are merged in linear time, otherwise it is sorted first.
+   * Objects of the receiver come first among objects comparing the same.
+   */
+  @SuppressWarnings("unchecked")
+  public SortedNSArray<E> mergedWithSortedArray(NSArray<? extends E> otherArray) {
+    if (otherArray == null || otherArray.count() == 0)
+      return this;
+    SortedNSArray<? extends E> other;
+    if (otherArray instanceof SortedNSArray<?> && _comparator.equals(((SortedNSArray<?>) otherArray)._comparator))
+      other = (SortedNSArray<? extends E>) otherArray;
+    else
+      other = new SortedNSArray<E>(otherArray, _comparator);
+    Comparator<Object> comparator = (Comparator<Object>) _comparator;
+    Object[] objects = new Object[_count + other._count];
+    int i = 0;
+    int j = 0;
+    int k = 0;
+    while (i < _count && j < other._count) {
+      Object object = _objects[_offset + i];
+      Object otherObject = other._objects[other._offset + j];
+      if (comparator.compare(otherObject, object) < 0) {
+        objects[k++] = otherObject;
+        j++;
+      } else {
+        objects[k++] = object;
+        i++;
+      }
+    }
+    System.arraycopy(_objects, _offset + i, objects, k, _count - i);
+    System.arraycopy(other._objects, other._offset + j, objects, k + _count - i, other._count - j);
+    return new SortedNSArray<E>(objects, 0, objects.length, _comparator);
+  }
+
+  @Override
+  public NSArray<E> sortedArrayUsingComparator(NSComparator<? super E> comparator) {
+    if (comparator != null && comparator.equals(_comparator))
+      return this;
+    return super.sortedArrayUsingComparator(comparator);
+  }
+
+  @Override
+  public SortedNSArray<E> subarrayWithRange(NSRange range) {
+    if (range == null || range.length() == 0)
+      return new SortedNSArray<E>(_objects, _offset, 0, _comparator);
+    return (SortedNSArray<E>) subList(range.location(), range.maxRange());
+  }
+
+  @Override
+  public List<E> subList(int fromIndex, int toIndex) {
+    if (fromIndex < 0 || toIndex > _count || fromIndex > toIndex)
+      throw new IndexOutOfBoundsException("Illegal index value (fromIndex < 0 || toIndex > size || fromIndex > toIndex)");
+    if (fromIndex == 0 && toIndex == _count)
+      return this;
+    return new SortedNSArray<E>(_objects, _offset + fromIndex, toIndex - fromIndex, _comparator);
+  }
+
+  @Override
+  public NSArray<E> immutableClone() {
+    return this;
+  }
+}
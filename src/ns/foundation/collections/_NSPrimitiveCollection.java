@@ -0,0 +1,98 @@
+package ns.foundation.collections;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+import ns.foundation.kvc.NSKeyValueCodingAdditions;
+
+/*
+ * Key value coding of the immutable primitive collections. The count, sum,
+ * avg, min and max operators are computed on the primitive values, other
+ * keys and operators, and the operators replaced with setOperatorForKey, are
+ * handled by the NSArray of the boxed values.
+ */
+abstract class _NSPrimitiveCollection implements NSKeyValueCodingAdditions, Serializable {
+  private static final long serialVersionUID = -1953785096372146180L;
+
+  private static final char _OperatorIndicatorChar = '@';
+
+  public abstract int count();
+
+  abstract NSArray<? extends Number> _objectValues();
+
+  abstract BigDecimal _sum();
+
+  abstract Number _minOrMaxValue(boolean trueForMaxAndFalseForMin);
+
+  /*
+   * Open addressing tables of the primitive sets and dictionaries are kept at
+   * most 2/3 full, with a power of two length probed linearly from the mixed
+   * hash of the key.
+   */
+  static int _tableLength(int count) {
+    int length = 2;
+    while (length < count + (count >> 1) + 1)
+      length <<= 1;
+    return length;
+  }
+
+  static int _slot(long key, int mask) {
+    long hash = key * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+
+  static BigDecimal _average(BigDecimal sum, int count) {
+    return count == 0 ? null : sum.divide(new BigDecimal(count), sum.scale() + 4, 6);
+  }
+
+  @Override
+  public Object valueForKey(String key) {
+    if (key != null) {
+      if (key.length() > 0 && key.charAt(0) == _OperatorIndicatorChar)
+        return _valueForKeyPathWithOperator(key);
+      if (key.equals(NSArray.CountOperatorName))
+        return count();
+    }
+    return _objectValues().valueForKey(key);
+  }
+
+  @Override
+  public Object valueForKeyPath(String keyPath) {
+    if (keyPath != null && keyPath.length() > 0 && keyPath.charAt(0) == _OperatorIndicatorChar)
+      return _valueForKeyPathWithOperator(keyPath);
+    return NSKeyValueCodingAdditions.DefaultImplementation.valueForKeyPath(this, keyPath);
+  }
+
+  private Object _valueForKeyPathWithOperator(String keyPath) {
+    if (keyPath.indexOf(NSKeyValueCodingAdditions._KeyPathSeparatorChar) < 0) {
+      String operatorName = keyPath.substring(1);
+      Class<?> operatorClass = _operatorClass(operatorName);
+      if (operatorClass == NSArray._CountOperator.class)
+        return count();
+      if (operatorClass == NSArray._SumNumberOperator.class)
+        return _sum();
+      if (operatorClass == NSArray._AvgNumberOperator.class)
+        return _average(_sum(), count());
+      if (operatorClass == NSArray._MinOperator.class)
+        return _minOrMaxValue(false);
+      if (operatorClass == NSArray._MaxOperator.class)
+        return _minOrMaxValue(true);
+    }
+    return _objectValues().valueForKeyPath(keyPath);
+  }
+
+  static Class<?> _operatorClass(String operatorName) {
+    NSArray.Operator arrayOperator = NSArray.operatorForKey(operatorName);
+    return arrayOperator == null ? null : arrayOperator.getClass();
+  }
+
+  @Override
+  public void takeValueForKey(Object value, String key) {
+    throw new IllegalStateException(getClass().getName() + " is immutable.");
+  }
+
+  @Override
+  public void takeValueForKeyPath(Object value, String keyPath) {
+    throw new IllegalStateException(getClass().getName() + " is immutable.");
+  }
+}
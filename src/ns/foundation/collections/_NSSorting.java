@@ -0,0 +1,69 @@
+package ns.foundation.collections;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import ns.foundation.NSComparator;
+
+/*
+ * Stable sorts of the objects of arrays. Arrays of at least
+ * NSArray.parallelSortThreshold() objects are sorted with a parallel merge
+ * sort. The values compared by a KeyPathComparator are read once per object
+ * before sorting instead of twice per comparison.
+ */
+final class _NSSorting {
+  private _NSSorting() {
+  }
+
+  private static final class _KeyedObject {
+    final Object key;
+    final Object object;
+
+    _KeyedObject(Object key, Object object) {
+      this.key = key;
+      this.object = object;
+    }
+  }
+
+  private static final class _KeyComparator implements Comparator<_KeyedObject> {
+    private final NSComparator.KeyPathComparator<?> _comparator;
+
+    _KeyComparator(NSComparator.KeyPathComparator<?> comparator) {
+      _comparator = comparator;
+    }
+
+    @Override
+    public int compare(_KeyedObject object1, _KeyedObject object2) {
+      return _comparator.compareValues(object1.key, object2.key);
+    }
+  }
+
+  static boolean _usesSortKeys(Comparator<?> comparator) {
+    return comparator != null && comparator.getClass() == NSComparator.KeyPathComparator.class;
+  }
+
+  static void sort(Object[] objects, Comparator<?> comparator) {
+    if (_usesSortKeys(comparator) && objects.length > 1) {
+      NSComparator.KeyPathComparator<?> keyPathComparator = (NSComparator.KeyPathComparator<?>) comparator;
+      NSArray._Operator._OperationValueAccessor accessor = new NSArray._Operator._OperationValueAccessor(keyPathComparator.keyPath());
+      _KeyedObject[] keyedObjects = new _KeyedObject[objects.length];
+      for (int i = 0; i < objects.length; i++) {
+        keyedObjects[i] = new _KeyedObject(accessor.valueInObject(objects[i]), objects[i]);
+      }
+      _sort(keyedObjects, new _KeyComparator(keyPathComparator));
+      for (int i = 0; i < objects.length; i++) {
+        objects[i] = keyedObjects[i].object;
+      }
+      return;
+    }
+    _sort(objects, comparator);
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private static void _sort(Object[] objects, Comparator comparator) {
+    if (objects.length >= NSArray.parallelSortThreshold())
+      Arrays.parallelSort(objects, comparator);
+    else
+      Arrays.sort(objects, comparator);
+  }
+}
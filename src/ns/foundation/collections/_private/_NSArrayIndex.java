@@ -0,0 +1,85 @@
+package ns.foundation.collections._private;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hash index of the objects of an immutable NSArray: open addressing with
+ * linear probing from the hash of each object to the index of its first
+ * occurrence. The table holds the hashes and indexes in two int[] of at most
+ * three slots per object and reads the objects from the list itself.
+ *
+ * Arrays of collections or maps are not indexed, their hash codes follow
+ * their contents, which can change after the index is built.
+ */
+public final class _NSArrayIndex {
+  private final List<?> _list;
+  private final int[] _hashes;
+  private final int[] _indexes;
+  private final int _mask;
+
+  private _NSArrayIndex(List<?> list, int slots) {
+    _list = list;
+    _hashes = new int[slots];
+    _indexes = new int[slots];
+    _mask = slots - 1;
+  }
+
+  /**
+   * Returns the index of the objects of list, or null when they can not be
+   * indexed.
+   */
+  public static _NSArrayIndex indexForList(List<?> list) {
+    int count = list.size();
+    int slots = 16;
+    while (slots * 2 < count * 3) {
+      slots <<= 1;
+    }
+    _NSArrayIndex index = new _NSArrayIndex(list, slots);
+    for (int i = 0; i < count; i++) {
+      Object object = list.get(i);
+      if (object instanceof Collection<?> || object instanceof Map<?, ?>)
+        return null;
+      index._add(object, i);
+    }
+    return index;
+  }
+
+  private static int _hash(Object object) {
+    int hash = object.hashCode();
+    return hash ^ (hash >>> 16);
+  }
+
+  private void _add(Object object, int index) {
+    int hash = _hash(object);
+    int slot = hash & _mask;
+    while (_indexes[slot] != 0) {
+      if (_hashes[slot] == hash && object.equals(_list.get(_indexes[slot] - 1)))
+        return;
+      slot = (slot + 1) & _mask;
+    }
+    _hashes[slot] = hash;
+    _indexes[slot] = index + 1;
+  }
+
+  /**
+   * Returns the index of the first object equal to object, or -1.
+   */
+  public int indexOf(Object object) {
+    if (object == null)
+      return -1;
+    int hash = _hash(object);
+    int slot = hash & _mask;
+    int index;
+    while ((index = _indexes[slot]) != 0) {
+      if (_hashes[slot] == hash) {
+        Object candidate = _list.get(index - 1);
+        if (candidate == object || object.equals(candidate))
+          return index - 1;
+      }
+      slot = (slot + 1) & _mask;
+    }
+    return -1;
+  }
+}
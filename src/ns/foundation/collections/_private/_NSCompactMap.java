@@ -0,0 +1,478 @@
+package ns.foundation.collections._private;
+
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Storage of NSDictionaries: keys and values interleaved in one Object[]. Up to
+ * {@link #LinearThreshold} entries are kept in insertion order and searched
+ * linearly, larger maps use open addressing with linear probing. There are no
+ * entry objects, iterating over keys or values or with forEach allocates
+ * nothing but the iterator.
+ *
+ * The views of a map created without modifiable views can not be used to
+ * change it, immutable NSDictionaries rely on it to hand them out.
+ */
+public final class _NSCompactMap<K, V> extends AbstractMap<K, V> implements Serializable {
+  private static final long serialVersionUID = -6260718421406432384L;
+
+  public static final int LinearThreshold = 16;
+
+  private static final Object _NullKey = new Object() {
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+  };
+
+  private Object[] _table;
+  private int _size;
+  private final boolean _hasModifiableViews;
+  private transient int _modCount;
+  private transient Set<K> _keySet;
+  private transient Collection<V> _values;
+  private transient Set<Map.Entry<K, V>> _entrySet;
+
+  public _NSCompactMap(int capacity, boolean hasModifiableViews) {
+    if (capacity < 0)
+      throw new IllegalArgumentException("Capacity cannot be less than 0");
+    _table = capacity == 0 ? _NSCollectionPrimitives.EmptyArray : new Object[2 * (capacity <= LinearThreshold ? capacity : _slotsForCapacity(capacity))];
+    _hasModifiableViews = hasModifiableViews;
+  }
+
+  private static int _slotsForCapacity(int capacity) {
+    int slots = 2 * LinearThreshold;
+    while (slots * 2 < capacity * 3) {
+      slots <<= 1;
+    }
+    return slots;
+  }
+
+  private boolean _isHashed() {
+    return _table.length > 2 * LinearThreshold;
+  }
+
+  private static Object _maskNull(Object key) {
+    return key == null ? _NullKey : key;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <K> K _unmaskNull(Object key) {
+    return key == _NullKey ? null : (K) key;
+  }
+
+  private static int _slot(Object key, int mask) {
+    int hash = key.hashCode();
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+
+  // the index of the key in the table, or -1
+  private int _indexOfKey(Object key) {
+    Object[] table = _table;
+    Object maskedKey = _maskNull(key);
+    if (!_isHashed()) {
+      int hash = maskedKey.hashCode();
+      for (int i = 0, end = 2 * _size; i < end; i += 2) {
+        Object tableKey = table[i];
+        if (tableKey == maskedKey || (tableKey.hashCode() == hash && tableKey.equals(maskedKey)))
+          return i;
+      }
+      return -1;
+    }
+    int mask = (table.length >> 1) - 1;
+    for (int slot = _slot(maskedKey, mask);; slot = (slot + 1) & mask) {
+      Object tableKey = table[2 * slot];
+      if (tableKey == null)
+        return -1;
+      if (tableKey == maskedKey || tableKey.equals(maskedKey))
+        return 2 * slot;
+    }
+  }
+
+  @Override
+  public int size() {
+    return _size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return _size == 0;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return _indexOfKey(key) >= 0;
+  }
+
+  @Override
+  public boolean containsValue(Object value) {
+    Object[] table = _table;
+    for (int i = 0; i < table.length; i += 2) {
+      if (table[i] != null && (value == null ? table[i + 1] == null : value.equals(table[i + 1])))
+        return true;
+    }
+    return false;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public V get(Object key) {
+    int index = _indexOfKey(key);
+    return index < 0 ? null : (V) _table[index + 1];
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public V put(K key, V value) {
+    int index = _indexOfKey(key);
+    if (index >= 0) {
+      V oldValue = (V) _table[index + 1];
+      _table[index + 1] = value;
+      return oldValue;
+    }
+    Object maskedKey = _maskNull(key);
+    if (!_isHashed()) {
+      if (_size < LinearThreshold) {
+        if (2 * _size == _table.length)
+          _table = Arrays.copyOf(_table, 2 * Math.min(LinearThreshold, Math.max(2, _size * 2)));
+        _table[2 * _size] = maskedKey;
+        _table[2 * _size + 1] = value;
+        _size++;
+        _modCount++;
+        return null;
+      }
+      _rehash(_slotsForCapacity(_size + 1));
+    } else if ((_size + 1) * 3 > _table.length) {
+      // more than two thirds of the slots, which are half the table length
+      _rehash(_table.length);
+    }
+    _insert(_table, maskedKey, value);
+    _size++;
+    _modCount++;
+    return null;
+  }
+
+  private static void _insert(Object[] table, Object maskedKey, Object value) {
+    int mask = (table.length >> 1) - 1;
+    int slot = _slot(maskedKey, mask);
+    while (table[2 * slot] != null) {
+      slot = (slot + 1) & mask;
+    }
+    table[2 * slot] = maskedKey;
+    table[2 * slot + 1] = value;
+  }
+
+  private void _rehash(int slots) {
+    Object[] table = new Object[2 * slots];
+    Object[] oldTable = _table;
+    for (int i = 0; i < oldTable.length; i += 2) {
+      if (oldTable[i] != null)
+        _insert(table, oldTable[i], oldTable[i + 1]);
+    }
+    _table = table;
+  }
+
+  @Override
+  public V remove(Object key) {
+    int index = _indexOfKey(key);
+    if (index < 0)
+      return null;
+    return _removeAtIndex(index);
+  }
+
+  @SuppressWarnings("unchecked")
+  private V _removeAtIndex(int index) {
+    Object[] table = _table;
+    V oldValue = (V) table[index + 1];
+    if (!_isHashed()) {
+      int last = 2 * (_size - 1);
+      System.arraycopy(table, index + 2, table, index, last - index);
+      table[last] = null;
+      table[last + 1] = null;
+    } else {
+      // shift back the following entries of the cluster which probed past the removed one
+      int mask = (table.length >> 1) - 1;
+      int hole = index >> 1;
+      for (int slot = (hole + 1) & mask; table[2 * slot] != null; slot = (slot + 1) & mask) {
+        int home = _slot(table[2 * slot], mask);
+        if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+          table[2 * hole] = table[2 * slot];
+          table[2 * hole + 1] = table[2 * slot + 1];
+          hole = slot;
+        }
+      }
+      table[2 * hole] = null;
+      table[2 * hole + 1] = null;
+    }
+    _size--;
+    _modCount++;
+    return oldValue;
+  }
+
+  @Override
+  public void clear() {
+    if (_size > 0) {
+      Arrays.fill(_table, null);
+      _size = 0;
+      _modCount++;
+    }
+  }
+
+  @Override
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    Object[] table = _table;
+    int modCount = _modCount;
+    for (int i = 0; i < table.length; i += 2) {
+      if (table[i] != null) {
+        action.accept(_NSCompactMap.<K> _unmaskNull(table[i]), _NSCompactMap.<V> _value(table[i + 1]));
+        if (modCount != _modCount)
+          throw new ConcurrentModificationException();
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <V> V _value(Object value) {
+    return (V) value;
+  }
+
+  @Override
+  public int hashCode() {
+    Object[] table = _table;
+    int hash = 0;
+    for (int i = 0; i < table.length; i += 2) {
+      if (table[i] != null)
+        hash += table[i].hashCode() ^ (table[i + 1] == null ? 0 : table[i + 1].hashCode());
+    }
+    return hash;
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (object == this)
+      return true;
+    if (!(object instanceof Map<?, ?>))
+      return false;
+    Map<?, ?> map = (Map<?, ?>) object;
+    if (map.size() != _size)
+      return false;
+    Object[] table = _table;
+    try {
+      for (int i = 0; i < table.length; i += 2) {
+        if (table[i] == null)
+          continue;
+        Object key = _unmaskNull(table[i]);
+        Object value = table[i + 1];
+        if (value == null ? map.get(key) != null || !map.containsKey(key) : !value.equals(map.get(key)))
+          return false;
+      }
+    } catch (ClassCastException e) {
+      return false;
+    } catch (NullPointerException e) {
+      return false;
+    }
+    return true;
+  }
+
+  @Override
+  public Set<K> keySet() {
+    if (_keySet == null) {
+      _keySet = new AbstractSet<K>() {
+        @Override
+        public Iterator<K> iterator() {
+          return new _TableIterator<K>() {
+            @Override
+            K _next(Object[] table, int index) {
+              return _unmaskNull(table[index]);
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return _size;
+        }
+
+        @Override
+        public boolean contains(Object object) {
+          return containsKey(object);
+        }
+
+        @Override
+        public boolean remove(Object object) {
+          _checkModifiableViews();
+          int index = _indexOfKey(object);
+          if (index < 0)
+            return false;
+          _removeAtIndex(index);
+          return true;
+        }
+
+        @Override
+        public void clear() {
+          _checkModifiableViews();
+          _NSCompactMap.this.clear();
+        }
+      };
+    }
+    return _keySet;
+  }
+
+  @Override
+  public Collection<V> values() {
+    if (_values == null) {
+      _values = new AbstractCollection<V>() {
+        @Override
+        public Iterator<V> iterator() {
+          return new _TableIterator<V>() {
+            @Override
+            V _next(Object[] table, int index) {
+              return _value(table[index + 1]);
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return _size;
+        }
+
+        @Override
+        public boolean contains(Object object) {
+          return containsValue(object);
+        }
+
+        @Override
+        public void clear() {
+          _checkModifiableViews();
+          _NSCompactMap.this.clear();
+        }
+      };
+    }
+    return _values;
+  }
+
+  @Override
+  public Set<Map.Entry<K, V>> entrySet() {
+    if (_entrySet == null) {
+      _entrySet = new AbstractSet<Map.Entry<K, V>>() {
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+          return new _TableIterator<Map.Entry<K, V>>() {
+            @Override
+            Map.Entry<K, V> _next(Object[] table, int index) {
+              return new _Entry(_NSCompactMap.<K> _unmaskNull(table[index]), _NSCompactMap.<V> _value(table[index + 1]));
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return _size;
+        }
+
+        @Override
+        public boolean contains(Object object) {
+          if (!(object instanceof Map.Entry<?, ?>))
+            return false;
+          Map.Entry<?, ?> entry = (Map.Entry<?, ?>) object;
+          int index = _indexOfKey(entry.getKey());
+          return index >= 0 && (entry.getValue() == null ? _table[index + 1] == null : entry.getValue().equals(_table[index + 1]));
+        }
+
+        @Override
+        public boolean remove(Object object) {
+          _checkModifiableViews();
+          if (!contains(object))
+            return false;
+          _removeAtIndex(_indexOfKey(((Map.Entry<?, ?>) object).getKey()));
+          return true;
+        }
+
+        @Override
+        public void clear() {
+          _checkModifiableViews();
+          _NSCompactMap.this.clear();
+        }
+      };
+    }
+    return _entrySet;
+  }
+
+  private void _checkModifiableViews() {
+    if (!_hasModifiableViews)
+      throw new UnsupportedOperationException();
+  }
+
+  @SuppressWarnings("serial")
+  private class _Entry extends AbstractMap.SimpleEntry<K, V> {
+    _Entry(K key, V value) {
+      super(key, value);
+    }
+
+    @Override
+    public V setValue(V value) {
+      _checkModifiableViews();
+      put(getKey(), value);
+      return super.setValue(value);
+    }
+  }
+
+  /*
+   * Removing entries moves others in the table, so an iterator which removed
+   * one carries on over a copy of the table taken before.
+   */
+  private abstract class _TableIterator<T> implements Iterator<T> {
+    private Object[] _iteratedTable = _table;
+    private int _index = _nextIndex(0);
+    private int _lastIndex = -1;
+    private int _expectedModCount = _modCount;
+
+    private int _nextIndex(int index) {
+      Object[] table = _iteratedTable;
+      while (index < table.length && table[index] == null) {
+        index += 2;
+      }
+      return index;
+    }
+
+    abstract T _next(Object[] table, int index);
+
+    public boolean hasNext() {
+      return _index < _iteratedTable.length;
+    }
+
+    public T next() {
+      if (_modCount != _expectedModCount)
+        throw new ConcurrentModificationException();
+      if (_index >= _iteratedTable.length)
+        throw new NoSuchElementException();
+      _lastIndex = _index;
+      _index = _nextIndex(_index + 2);
+      return _next(_iteratedTable, _lastIndex);
+    }
+
+    public void remove() {
+      _checkModifiableViews();
+      if (_lastIndex < 0)
+        throw new IllegalStateException();
+      if (_modCount != _expectedModCount)
+        throw new ConcurrentModificationException();
+      if (_iteratedTable == _table)
+        _iteratedTable = _table.clone();
+      _removeAtIndex(_indexOfKey(_unmaskNull(_iteratedTable[_lastIndex])));
+      _lastIndex = -1;
+      _expectedModCount = _modCount;
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package ns.foundation.collections._private;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Storage of immutable NSArrays: a range of an Object[] read without any
+ * further indirection. Objects can only be appended, which NSArray does while
+ * it is initialized, and only to a list that owns its array. Sublists share
+ * the array of the receiver.
+ */
+public final class _NSObjectArrayList<E> extends AbstractList<E> implements RandomAccess, Serializable {
+  private static final long serialVersionUID = -4108926478390851357L;
+
+  private Object[] _objects;
+  private final int _offset;
+  private int _count;
+  private final boolean _appendable;
+
+  public _NSObjectArrayList(int capacity) {
+    _objects = capacity == 0 ? _NSCollectionPrimitives.EmptyArray : new Object[capacity];
+    _offset = 0;
+    _appendable = true;
+  }
+
+  /*
+   * The list uses objects as they are, the caller must not modify them
+   * afterwards.
+   */
+  public _NSObjectArrayList(Object[] objects, int offset, int count) {
+    if (offset < 0 || count < 0 || offset + count > objects.length)
+      throw new IndexOutOfBoundsException("Illegal range " + offset + " - " + (offset + count) + " in an array of length " + objects.length);
+    _objects = objects;
+    _offset = offset;
+    _count = count;
+    _appendable = false;
+  }
+
+  /**
+   * Returns the objects of the list, which is the backing array itself when
+   * the list spans all of it. The result must not be modified.
+   */
+  public Object[] objectsNoCopy() {
+    return _offset == 0 && _count == _objects.length ? _objects : toArray();
+  }
+
+  @Override
+  public int size() {
+    return _count;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public E get(int index) {
+    if (index < 0 || index >= _count)
+      throw new IndexOutOfBoundsException("Index " + index + " is out of bounds");
+    return (E) _objects[_offset + index];
+  }
+
+  @Override
+  public int indexOf(Object object) {
+    if (object == null)
+      return -1;
+    Object[] objects = _objects;
+    for (int i = _offset, end = _offset + _count; i < end; i++) {
+      if (object.equals(objects[i]))
+        return i - _offset;
+    }
+    return -1;
+  }
+
+  @Override
+  public int lastIndexOf(Object object) {
+    if (object == null)
+      return -1;
+    Object[] objects = _objects;
+    for (int i = _offset + _count - 1; i >= _offset; i--) {
+      if (object.equals(objects[i]))
+        return i - _offset;
+    }
+    return -1;
+  }
+
+  @Override
+  public boolean contains(Object object) {
+    return indexOf(object) >= 0;
+  }
+
+  @Override
+  public Object[] toArray() {
+    return Arrays.copyOfRange(_objects, _offset, _offset + _count);
+  }
+
+  @Override
+  public Iterator<E> iterator() {
+    return new Iterator<E>() {
+      private final Object[] _iteratedObjects = _objects;
+      private final int _end = _offset + _count;
+      private int _index = _offset;
+
+      @Override
+      public boolean hasNext() {
+        return _index < _end;
+      }
+
+      @SuppressWarnings("unchecked")
+      @Override
+      public E next() {
+        if (_index >= _end)
+          throw new NoSuchElementException();
+        return (E) _iteratedObjects[_index++];
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  @Override
+  public List<E> subList(int fromIndex, int toIndex) {
+    if (fromIndex < 0 || toIndex > _count || fromIndex > toIndex)
+      throw new IndexOutOfBoundsException("Illegal index value (fromIndex < 0 || toIndex > size || fromIndex > toIndex)");
+    return new _NSObjectArrayList<E>(_objects, _offset + fromIndex, toIndex - fromIndex);
+  }
+
+  @Override
+  public boolean add(E object) {
+    _ensureCapacity(_count + 1);
+    _objects[_count++] = object;
+    return true;
+  }
+
+  @Override
+  public boolean addAll(Collection<? extends E> collection) {
+    Object[] objects = collection.toArray();
+    if (objects.length == 0)
+      return false;
+    // toArray returns a new array, which an empty list can keep as it is
+    if (_appendable && _count == 0 && objects.getClass() == Object[].class) {
+      _objects = objects;
+      _count = objects.length;
+      return true;
+    }
+    _ensureCapacity(_count + objects.length);
+    System.arraycopy(objects, 0, _objects, _count, objects.length);
+    _count += objects.length;
+    return true;
+  }
+
+  private void _ensureCapacity(int capacity) {
+    if (!_appendable)
+      throw new UnsupportedOperationException("Objects can not be appended to a list sharing its array");
+    if (capacity > _objects.length)
+      _objects = Arrays.copyOf(_objects, Math.max(capacity, _objects.length + (_objects.length >> 1) + 1));
+  }
+}
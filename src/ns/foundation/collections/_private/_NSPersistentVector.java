@@ -0,0 +1,229 @@
+package ns.foundation.collections._private;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list stored in a 32-way trie with a tail, like the persistent
+ * vectors of Clojure and Scala. Appending copies the tail, or the path from
+ * the root to the new leaf once the tail is full, so it takes O(log32 n) time
+ * and shares all other nodes with the receiver. Subvectors share the trie as
+ * well: elements after the end are trimmed off the right spine, elements
+ * before the start are skipped with an offset (and stay referenced).
+ */
+public final class _NSPersistentVector<E> extends AbstractList<E> implements RandomAccess, Serializable {
+  private static final long serialVersionUID = 2913527362894531025L;
+
+  private static final int _Bits = 5;
+  private static final int _Width = 1 << _Bits;
+  private static final int _Mask = _Width - 1;
+  private static final Object[] _EmptyNode = new Object[0];
+
+  private static final _NSPersistentVector<Object> EmptyVector = new _NSPersistentVector<Object>(0, 0, _Bits, _EmptyNode, _EmptyNode);
+
+  // indexes are physical: the first element of the list is at _start
+  private final int _start;
+  private final int _end;
+  private final int _shift;
+  private final Object[] _root;
+  private final Object[] _tail;
+
+  private _NSPersistentVector(int start, int end, int shift, Object[] root, Object[] tail) {
+    _start = start;
+    _end = end;
+    _shift = shift;
+    _root = root;
+    _tail = tail;
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <E> _NSPersistentVector<E> emptyVector() {
+    return (_NSPersistentVector<E>) EmptyVector;
+  }
+
+  public static <E> _NSPersistentVector<E> vectorWithObjects(Object[] objects, int from, int to) {
+    return _NSPersistentVector.<E> emptyVector().appendingObjects(objects, from, to);
+  }
+
+  @Override
+  public int size() {
+    return _end - _start;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public E get(int index) {
+    if (index < 0 || index >= _end - _start)
+      throw new IndexOutOfBoundsException("Index " + index + " is out of bounds");
+    int position = index + _start;
+    return (E) _nodeForPosition(position)[position & _Mask];
+  }
+
+  private int _tailOffset() {
+    return _end < _Width ? 0 : ((_end - 1) >>> _Bits) << _Bits;
+  }
+
+  private Object[] _nodeForPosition(int position) {
+    if (position >= _tailOffset())
+      return _tail;
+    Object[] node = _root;
+    for (int level = _shift; level > 0; level -= _Bits) {
+      node = (Object[]) node[(position >>> level) & _Mask];
+    }
+    return node;
+  }
+
+  public _NSPersistentVector<E> appendingObject(E object) {
+    int tailSize = _end - _tailOffset();
+    if (tailSize < _Width) {
+      Object[] tail = Arrays.copyOf(_tail, tailSize + 1);
+      tail[tailSize] = object;
+      return new _NSPersistentVector<E>(_start, _end + 1, _shift, _root, tail);
+    }
+    return _pushingTail(new Object[] { object }, 1);
+  }
+
+  public _NSPersistentVector<E> appendingObjects(Object[] objects, int from, int to) {
+    if (from < 0 || to > objects.length || from > to)
+      throw new IndexOutOfBoundsException("Illegal range " + from + " - " + to + " in an array of length " + objects.length);
+    if (from == to)
+      return this;
+    _NSPersistentVector<E> vector = this;
+    int tailSize = _end - _tailOffset();
+    if (tailSize < _Width) {
+      int length = Math.min(_Width - tailSize, to - from);
+      Object[] tail = Arrays.copyOf(_tail, tailSize + length);
+      System.arraycopy(objects, from, tail, tailSize, length);
+      vector = new _NSPersistentVector<E>(_start, _end + length, _shift, _root, tail);
+      from += length;
+    }
+    while (from < to) {
+      int length = Math.min(_Width, to - from);
+      vector = vector._pushingTail(Arrays.copyOfRange(objects, from, from + length), length);
+      from += length;
+    }
+    return vector;
+  }
+
+  // moves the full tail into the trie and starts a new tail
+  private _NSPersistentVector<E> _pushingTail(Object[] tail, int tailSize) {
+    int shift = _shift;
+    Object[] root;
+    if ((_end >>> _Bits) > (1 << _shift)) {
+      root = new Object[] { _root, _pathToLeaf(_shift, _tail) };
+      shift += _Bits;
+    } else {
+      root = _pushingLeaf(_shift, _root, _tail);
+    }
+    return new _NSPersistentVector<E>(_start, _end + tailSize, shift, root, tail);
+  }
+
+  private Object[] _pushingLeaf(int level, Object[] parent, Object[] leaf) {
+    int index = ((_end - 1) >>> level) & _Mask;
+    Object[] node = Arrays.copyOf(parent, index + 1);
+    if (level == _Bits) {
+      node[index] = leaf;
+    } else {
+      Object[] child = index < parent.length ? (Object[]) parent[index] : null;
+      node[index] = child != null ? _pushingLeaf(level - _Bits, child, leaf) : _pathToLeaf(level - _Bits, leaf);
+    }
+    return node;
+  }
+
+  private static Object[] _pathToLeaf(int level, Object[] leaf) {
+    return level == 0 ? leaf : new Object[] { _pathToLeaf(level - _Bits, leaf) };
+  }
+
+  public _NSPersistentVector<E> subvector(int fromIndex, int toIndex) {
+    if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex)
+      throw new IndexOutOfBoundsException("Illegal index value (fromIndex < 0 || toIndex > size || fromIndex > toIndex)");
+    if (fromIndex == 0 && toIndex == size())
+      return this;
+    if (fromIndex == toIndex)
+      return emptyVector();
+    _NSPersistentVector<E> vector = _taking(_start + toIndex);
+    return new _NSPersistentVector<E>(_start + fromIndex, vector._end, vector._shift, vector._root, vector._tail);
+  }
+
+  // the vector of the first end physical positions, its last leaf becomes the tail
+  private _NSPersistentVector<E> _taking(int end) {
+    if (end == _end)
+      return this;
+    int tailOffset = _tailOffset();
+    if (end > tailOffset)
+      return new _NSPersistentVector<E>(_start, end, _shift, _root, Arrays.copyOf(_tail, end - tailOffset));
+    Object[] tail = Arrays.copyOf(_nodeForPosition(end - 1), ((end - 1) & _Mask) + 1);
+    int trieSize = ((end - 1) >>> _Bits) << _Bits;
+    if (trieSize == 0)
+      return new _NSPersistentVector<E>(_start, end, _Bits, _EmptyNode, tail);
+    int shift = _shift;
+    Object[] root = _trimmed(shift, _root, trieSize);
+    while (shift > _Bits && root.length == 1) {
+      root = (Object[]) root[0];
+      shift -= _Bits;
+    }
+    return new _NSPersistentVector<E>(_start, end, shift, root, tail);
+  }
+
+  // copies the right spine of node so that it holds the positions below size
+  private static Object[] _trimmed(int level, Object[] node, int size) {
+    int index = ((size - 1) >>> level) & _Mask;
+    Object[] trimmed = Arrays.copyOf(node, index + 1);
+    if (level > _Bits) {
+      trimmed[index] = _trimmed(level - _Bits, (Object[]) node[index], size);
+    }
+    return trimmed;
+  }
+
+  @Override
+  public List<E> subList(int fromIndex, int toIndex) {
+    return subvector(fromIndex, toIndex);
+  }
+
+  @Override
+  public Iterator<E> iterator() {
+    return new Iterator<E>() {
+      private int _position = _start;
+      private Object[] _node;
+
+      @Override
+      public boolean hasNext() {
+        return _position < _end;
+      }
+
+      @SuppressWarnings("unchecked")
+      @Override
+      public E next() {
+        if (_position >= _end)
+          throw new NoSuchElementException();
+        if (_node == null || (_position & _Mask) == 0)
+          _node = _nodeForPosition(_position);
+        return (E) _node[_position++ & _Mask];
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  @Override
+  public Object[] toArray() {
+    Object[] array = new Object[size()];
+    int position = _start;
+    while (position < _end) {
+      Object[] node = _nodeForPosition(position);
+      int index = position & _Mask;
+      int length = Math.min(node.length - index, _end - position);
+      System.arraycopy(node, index, array, position - _start, length);
+      position += length;
+    }
+    return array;
+  }
+}
@@ -5,16 +5,25 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 
 import ns.foundation.NSKeyValueObserving;
 import ns.foundation.NSLog;
 import ns.foundation.collections.NSMutableDictionary;
+import ns.foundation.properties.NSProperties;
 import ns.foundation.utilities._NSStringUtilities;
+import ns.foundation.utilities._NSUtilities;
 
 
 public interface NSKeyValueCoding {
@@ -136,9 +145,9 @@ public interface NSKeyValueCoding {
   public static class _KeyBinding {
     protected static final Short _shortFalse = (short) 0;
     protected static final Short _shortTrue = (short) 1;
-    protected Class<?> _targetClass;
-    protected String _key;
-    private int _hashCode;
+    protected final Class<?> _targetClass;
+    protected final String _key;
+    private final int _hashCode;
 
     public static final int _hash(Class<?> targetClass, String key) {
       return  (targetClass == null || key == null) ? 0 : 31 * targetClass.hashCode() ^ key.hashCode();
@@ -201,6 +210,63 @@ public interface NSKeyValueCoding {
       Utility.handleTakeValueForUnboundKey(object, value, this._key);
     }
 
+    /**
+     * Returns the primitive type of the values of this binding, or null if
+     * they are objects. Values of a binding with a primitive type are never
+     * null and can be read without boxing through the primitive accessors.
+     */
+    public Class<?> primitiveValueType() {
+      Class<?> valueType = valueType();
+      return valueType != null && valueType.isPrimitive() && valueType != void.class ? valueType : null;
+    }
+
+    /*
+     * The primitive accessors convert the object value by default, bindings of
+     * primitive properties override them to access the property directly.
+     */
+    public int intValueInObject(Object object) {
+      return _numberValue(valueInObject(object), object).intValue();
+    }
+
+    public long longValueInObject(Object object) {
+      return _numberValue(valueInObject(object), object).longValue();
+    }
+
+    public double doubleValueInObject(Object object) {
+      return _numberValue(valueInObject(object), object).doubleValue();
+    }
+
+    public boolean booleanValueInObject(Object object) {
+      Object value = valueInObject(object);
+      if (value == null) {
+        throw new IllegalStateException("The value for key '" + _key + "' of " + object.getClass().getName() + " is null");
+      }
+      return _NSUtilities._convertObjectIntoCompatibleValue(value, Boolean.class).booleanValue();
+    }
+
+    public void setIntValueInObject(int value, Object object) {
+      setValueInObject(Integer.valueOf(value), object);
+    }
+
+    public void setLongValueInObject(long value, Object object) {
+      setValueInObject(Long.valueOf(value), object);
+    }
+
+    public void setDoubleValueInObject(double value, Object object) {
+      setValueInObject(Double.valueOf(value), object);
+    }
+
+    public void setBooleanValueInObject(boolean value, Object object) {
+      setValueInObject(Boolean.valueOf(value), object);
+    }
+
+    private Number _numberValue(Object value, Object object) {
+      if (value == null) {
+        throw new IllegalStateException("The value for key '" + _key + "' of " + object.getClass().getName() + " is null");
+      }
+      return value instanceof Number ? (Number) value : _NSUtilities._convertObjectIntoCompatibleValue(value, Double.class);
+    }
+
     @Override
     public String toString() {
       return super.getClass().getName() + ": target class = " + ((this._targetClass != null) ? this._targetClass.getName() : "<NULL>") + ", key = "
@@ -208,51 +274,398 @@ public interface NSKeyValueCoding {
     }
   }
   
+  /**
+   * Set-associative cache of key bindings. Lookups are lock-free and allocate
+   * nothing: the (class, key) hash selects a set of {@link #Ways} slots which
+   * are compared in turn. Writers are serialized; a put into a full set grows
+   * the table, so bindings are never evicted. Bindings which growing cannot
+   * place (identical hashes, or the maximum capacity is reached) go to an
+   * overflow map which is only consulted once it is non-empty.
+   *
+   * Bindings of classes which can be unloaded before this class (those of
+   * other class loaders than ours and its ancestors) are kept in a second set
+   * of slots which reference them weakly. They are kept alive by their target
+   * class through a ClassValue instead, so the cache does not prevent a class
+   * loader from being collected, and their stale slots are purged on the next
+   * write.
+   */
   public static class _KeyBindingCache {
-    private Map<_KeyBinding, _KeyBinding> _store;
-    private _KeyBinding[] _storeCache = new _KeyBinding[4096];
+    public static final int Ways = 4;
+    private static final int MaximumCapacity = 1 << 20;
+
+    private static final class _Entry extends WeakReference<_KeyBinding> {
+      final int _hash;
+
+      _Entry(_KeyBinding binding, ReferenceQueue<_KeyBinding> queue) {
+        super(binding, queue);
+        _hash = binding.hashCode();
+      }
+    }
+
+    private static final class _Table {
+      // plain reads, the fields of a binding are final so a racy read sees it complete
+      final _KeyBinding[] _bindings;
+      final AtomicReferenceArray<_Entry> _entries;
+      final int _setMask;
+
+      _Table(int capacity) {
+        _bindings = new _KeyBinding[capacity];
+        _entries = new AtomicReferenceArray<_Entry>(capacity);
+        _setMask = capacity / Ways - 1;
+      }
+
+      int capacity() {
+        return _bindings.length;
+      }
+
+      int _setIndex(int hash) {
+        return ((hash ^ (hash >>> 16)) & _setMask) * Ways;
+      }
+
+      boolean _put(_KeyBinding binding) {
+        int index = _setIndex(binding.hashCode());
+        for (int way = 0; way < Ways; way++) {
+          if (_bindings[index + way] == null) {
+            _bindings[index + way] = binding;
+            return true;
+          }
+        }
+        return false;
+      }
+
+      boolean _put(_Entry entry) {
+        int index = _setIndex(entry._hash);
+        for (int way = 0; way < Ways; way++) {
+          if (_entries.get(index + way) == null) {
+            _entries.set(index + way, entry);
+            return true;
+          }
+        }
+        return false;
+      }
+
+      // growing cannot separate bindings with identical hashes
+      boolean _isSetOfHash(int hash, boolean weak) {
+        int index = _setIndex(hash);
+        for (int way = 0; way < Ways; way++) {
+          Object existing = weak ? _entries.get(index + way) : _bindings[index + way];
+          if (existing == null || (weak ? ((_Entry) existing)._hash : existing.hashCode()) != hash) {
+            return false;
+          }
+        }
+        return true;
+      }
+    }
+
+    private final int _initialCapacity;
+    private volatile _Table _table;
+    private final ConcurrentHashMap<Integer, Object[]> _overflow = new ConcurrentHashMap<Integer, Object[]>();
+    private volatile int _overflowSize;
+    private volatile int _size;
+    private final ReferenceQueue<_KeyBinding> _staleEntries = new ReferenceQueue<_KeyBinding>();
+    private final _ClassValueCache<ArrayList<_KeyBinding>> _bindingsByClass = new _ClassValueCache<ArrayList<_KeyBinding>>() {
+      @Override
+      protected ArrayList<_KeyBinding> computeValue(Class<?> type) {
+        return new ArrayList<_KeyBinding>(4);
+      }
+    };
+    // not volatile, a hit must not pay for a volatile read of a debugging switch
+    private boolean _recordsStatistics;
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+    private final LongAdder _collisions = new LongAdder();
 
     public _KeyBindingCache() {
       this(256);
     }
 
     public _KeyBindingCache(int size) {
-      _store = new ConcurrentHashMap<_KeyBinding, _KeyBinding>(size);
+      if (size < 0)
+        throw new IllegalArgumentException("Illegal cache size: " + size);
+      // sized so that most sets hold a single binding, which get finds in the first way
+      int capacity = Ways * 2;
+      while (capacity < size * Ways * 2 && capacity < MaximumCapacity) {
+        capacity <<= 1;
+      }
+      _initialCapacity = capacity;
+      _table = new _Table(capacity);
     }
 
-    public void clear() {
-      _store.clear();
-      _storeCache = new _KeyBinding[4096];
+    public synchronized void clear() {
+      _table = new _Table(_initialCapacity);
+      _overflow.clear();
+      _overflowSize = 0;
+      _size = 0;
+      _bindingsByClass.clear();
     }
 
     public _KeyBinding get(_KeyBinding binding) {
-      return _store.get(binding);
+      return get(binding.targetClass(), binding.key());
     }
 
     public _KeyBinding get(Class<?> targetClass, String key) {
-      _KeyBinding binding = _storeCache[_KeyBinding._hash(targetClass, key) & 0xfff]; 
+      int hash = _KeyBinding._hash(targetClass, key);
+      _Table table = _table;
+      int index = table._setIndex(hash);
+      // the first way is checked on its own, a loop over the ways doubles the cost of a hit
+      _KeyBinding binding = table._bindings[index];
       if (binding != null && binding.equals(targetClass, key)) {
+        if (_recordsStatistics)
+          _hits.increment();
         return binding;
       }
-      binding = _store.get(new _KeyBinding(targetClass, key));
-      if (binding != null) {
-        _storeCache[binding.hashCode() & 0xfff] =  binding;
+      return _binding(table, index, hash, targetClass, key);
+    }
+
+    // kept out of get so that the hit path stays small enough to be inlined
+    private _KeyBinding _binding(_Table table, int index, int hash, Class<?> targetClass, String key) {
+      _KeyBinding[] bindings = table._bindings;
+      for (int way = 1; way < Ways; way++) {
+        _KeyBinding binding = bindings[index + way];
+        if (binding != null && binding.equals(targetClass, key)) {
+          if (_recordsStatistics)
+            _hits.increment();
+          return binding;
+        }
+      }
+      AtomicReferenceArray<_Entry> entries = table._entries;
+      for (int way = 0; way < Ways; way++) {
+        _Entry entry = entries.get(index + way);
+        if (entry != null && entry._hash == hash) {
+          _KeyBinding binding = entry.get();
+          if (binding != null && binding.equals(targetClass, key)) {
+            if (_recordsStatistics)
+              _hits.increment();
+            return binding;
+          }
+        }
+      }
+      _KeyBinding binding = _overflowSize == 0 ? null : _overflowBinding(hash, targetClass, key);
+      if (_recordsStatistics) {
+        if (binding != null)
+          _hits.increment();
+        else
+          _misses.increment();
       }
       return binding;
     }
 
-    public void put(_KeyBinding binding) {
-      _store.put(binding, binding);
-      _storeCache[binding.hashCode() & 0xfff] = binding;
+    private static _KeyBinding _bindingOf(Object slot) {
+      return slot instanceof _Entry ? ((_Entry) slot).get() : (_KeyBinding) slot;
+    }
+
+    private _KeyBinding _overflowBinding(int hash, Class<?> targetClass, String key) {
+      Object[] slots = _overflow.get(hash);
+      if (slots != null) {
+        for (Object slot : slots) {
+          _KeyBinding binding = _bindingOf(slot);
+          if (binding != null && binding.equals(targetClass, key)) {
+            return binding;
+          }
+        }
+      }
+      return null;
+    }
+
+    public synchronized void put(_KeyBinding binding) {
+      Class<?> targetClass = binding.targetClass();
+      if (targetClass == null)
+        throw new IllegalArgumentException("Key binding without target class: " + binding);
+      _expungeStaleEntries();
+      _remove(binding);
+      _size++;
+      boolean weak = _isUnloadableClass(targetClass);
+      _Entry entry = null;
+      if (weak) {
+        _bindingsByClass.get(targetClass).add(binding);
+        entry = new _Entry(binding, _staleEntries);
+      }
+      _Table table = _table;
+      while (!(weak ? table._put(entry) : table._put(binding))) {
+        if (_recordsStatistics)
+          _collisions.increment();
+        if (table.capacity() >= MaximumCapacity || table._isSetOfHash(binding.hashCode(), weak)) {
+          _putInOverflow(binding.hashCode(), weak ? entry : binding);
+          return;
+        }
+        table = _grownTable(table);
+        _table = table;
+      }
+    }
+
+    private void _putInOverflow(int hash, Object slot) {
+      Object[] slots = _overflow.get(hash);
+      Object[] newSlots;
+      if (slots == null) {
+        newSlots = new Object[] { slot };
+      } else {
+        newSlots = Arrays.copyOf(slots, slots.length + 1);
+        newSlots[slots.length] = slot;
+      }
+      _overflow.put(hash, newSlots);
+      _overflowSize++;
+    }
+
+    private boolean _removeFromOverflow(int hash, Object slot) {
+      Object[] slots = _overflow.get(hash);
+      if (slots == null) {
+        return false;
+      }
+      for (int i = 0; i < slots.length; i++) {
+        if (slots[i] == slot) {
+          if (slots.length == 1) {
+            _overflow.remove(hash);
+          } else {
+            Object[] newSlots = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, newSlots, 0, i);
+            System.arraycopy(slots, i + 1, newSlots, i, slots.length - i - 1);
+            _overflow.put(hash, newSlots);
+          }
+          _overflowSize--;
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private _Table _grownTable(_Table table) {
+      int capacity = table.capacity();
+      while (true) {
+        capacity <<= 1;
+        _Table grownTable = new _Table(capacity);
+        boolean rehashed = true;
+        int collected = 0;
+        for (int i = 0; i < table.capacity() && (rehashed || capacity >= MaximumCapacity); i++) {
+          _KeyBinding binding = table._bindings[i];
+          if (binding != null && !grownTable._put(binding)) {
+            rehashed = false;
+            if (capacity >= MaximumCapacity) {
+              _putInOverflow(binding.hashCode(), binding);
+            }
+          }
+          _Entry entry = table._entries.get(i);
+          if (entry == null) {
+            continue;
+          }
+          if (entry.get() == null) {
+            // collected, the queued entry will not be found anymore
+            collected++;
+          } else if (!grownTable._put(entry)) {
+            rehashed = false;
+            if (capacity >= MaximumCapacity) {
+              _putInOverflow(entry._hash, entry);
+            }
+          }
+        }
+        if (rehashed || capacity >= MaximumCapacity) {
+          // counted only for the table that is kept, a failed attempt is retried from the same entries
+          _size -= collected;
+          return grownTable;
+        }
+      }
     }
 
     public int size() {
-      return _store.size();
+      return _size;
+    }
+
+    public int capacity() {
+      return _table.capacity();
+    }
+
+    public synchronized void remove(_KeyBinding binding) {
+      _expungeStaleEntries();
+      _remove(binding);
+    }
+
+    private void _remove(_KeyBinding binding) {
+      _Table table = _table;
+      int hash = binding.hashCode();
+      int index = table._setIndex(hash);
+      for (int way = 0; way < Ways; way++) {
+        _KeyBinding existing = table._bindings[index + way];
+        if (existing != null && existing.isEqualToKeyBinding(binding)) {
+          table._bindings[index + way] = null;
+          _size--;
+          return;
+        }
+        _Entry entry = table._entries.get(index + way);
+        existing = entry != null && entry._hash == hash ? entry.get() : null;
+        if (existing != null && existing.isEqualToKeyBinding(binding)) {
+          table._entries.set(index + way, null);
+          _bindingsByClass.get(existing.targetClass()).remove(existing);
+          _size--;
+          return;
+        }
+      }
+      Object[] slots = _overflowSize == 0 ? null : _overflow.get(hash);
+      if (slots != null) {
+        for (Object slot : slots) {
+          _KeyBinding existing = _bindingOf(slot);
+          if (existing != null && existing.isEqualToKeyBinding(binding)) {
+            _removeFromOverflow(hash, slot);
+            if (slot instanceof _Entry) {
+              _bindingsByClass.get(existing.targetClass()).remove(existing);
+            }
+            _size--;
+            return;
+          }
+        }
+      }
     }
 
-    public void remove(_KeyBinding binding) {
-      _store.remove(binding);
-      _storeCache[binding.hashCode() & 0xfff] = null;
+    private void _expungeStaleEntries() {
+      Reference<? extends _KeyBinding> reference;
+      while ((reference = _staleEntries.poll()) != null) {
+        _Entry entry = (_Entry) reference;
+        _Table table = _table;
+        int index = table._setIndex(entry._hash);
+        boolean removed = false;
+        for (int way = 0; way < Ways && !removed; way++) {
+          if (table._entries.get(index + way) == entry) {
+            table._entries.set(index + way, null);
+            removed = true;
+          }
+        }
+        if (removed || (_overflowSize > 0 && _removeFromOverflow(entry._hash, entry))) {
+          _size--;
+        }
+      }
+    }
+
+    private static boolean _isUnloadableClass(Class<?> targetClass) {
+      ClassLoader classLoader = targetClass.getClassLoader();
+      for (ClassLoader loader = _KeyBindingCache.class.getClassLoader(); loader != null; loader = loader.getParent()) {
+        if (loader == classLoader)
+          return false;
+      }
+      return classLoader != null;
+    }
+
+    public boolean recordsStatistics() {
+      return _recordsStatistics;
+    }
+
+    public void setRecordsStatistics(boolean recordsStatistics) {
+      _recordsStatistics = recordsStatistics;
+    }
+
+    public long hitCount() {
+      return _hits.sum();
+    }
+
+    public long missCount() {
+      return _misses.sum();
+    }
+
+    public long collisionCount() {
+      return _collisions.sum();
+    }
+
+    public void resetStatistics() {
+      _hits.reset();
+      _misses.reset();
+      _collisions.reset();
     }
   }
   
@@ -311,10 +724,25 @@ public interface NSKeyValueCoding {
   public static abstract class DefaultImplementation {
     private static final _KeyBindingCache _keyGetBindings = new _KeyBindingCache(256);
     private static final _KeyBindingCache _keySetBindings = new _KeyBindingCache(256);
+    static {
+      boolean recordsStatistics = NSProperties.booleanForKeyWithDefault("ns.foundation.kvc.keyBindingCacheStatistics", false);
+      _keyGetBindings.setRecordsStatistics(recordsStatistics);
+      _keySetBindings.setRecordsStatistics(recordsStatistics);
+    }
+
+    public static _KeyBindingCache _keyGetBindingCache() {
+      return _keyGetBindings;
+    }
+
+    public static _KeyBindingCache _keySetBindingCache() {
+      return _keySetBindings;
+    }
 
     public static void _flushCaches() {
       _keyGetBindings.clear();
       _keySetBindings.clear();
+      NSKeyValueCodingAdditions.CompiledKeyPath._flushCaches();
+      _NSKeyBindingRegistry._flushCaches();
     }
 
     public static Object valueForKey(Object object, String key) {
@@ -371,7 +799,14 @@ public interface NSKeyValueCoding {
       
       _KeyBinding keyBinding = _keyGetBindings.get(objectClass, key);
       if (keyBinding == null) {
-        keyBinding = (object instanceof _KeyBindingCreation) ? ((_KeyBindingCreation)object)._createKeyGetBindingForKey(key) : _createKeyGetBindingForKey(object, key);
+        if (object instanceof _KeyBindingCreation) {
+          keyBinding = ((_KeyBindingCreation)object)._createKeyGetBindingForKey(key);
+        } else {
+          keyBinding = _NSKeyBindingRegistry._keyGetBindingForKey(object, key);
+          if (keyBinding == null) {
+            keyBinding = _createKeyGetBindingForKey(object, key);
+          }
+        }
         if (keyBinding == null) {
           keyBinding = new _KeyBinding(objectClass, key);
         }
@@ -385,7 +820,14 @@ public interface NSKeyValueCoding {
       
       _KeyBinding keyBinding = _keySetBindings.get(objectClass, key);
       if (keyBinding == null) {
-        keyBinding = (object instanceof _KeyBindingCreation) ? ((_KeyBindingCreation)object)._createKeySetBindingForKey(key) : _createKeySetBindingForKey(object, key);
+        if (object instanceof _KeyBindingCreation) {
+          keyBinding = ((_KeyBindingCreation)object)._createKeySetBindingForKey(key);
+        } else {
+          keyBinding = _NSKeyBindingRegistry._keySetBindingForKey(object, key);
+          if (keyBinding == null) {
+            keyBinding = _createKeySetBindingForKey(object, key);
+          }
+        }
 
         if (keyBinding == null) {
           keyBinding = new _KeyBinding(objectClass, key);
@@ -1,5 +1,14 @@
 package ns.foundation.kvc;
 
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ns.foundation.NSObject;
+import ns.foundation.kvc.NSKeyValueCoding._KeyBinding;
+
 public interface NSKeyValueCodingAdditions extends NSKeyValueCoding {
 
   public static final String KeyPathSeparator = ".";
@@ -19,6 +28,11 @@ public interface NSKeyValueCodingAdditions extends NSKeyValueCoding {
         return NSKeyValueCoding.Utility.valueForKey(object, keyPath);
       }
 
+      CompiledKeyPath compiledKeyPath = CompiledKeyPath._memoizedKeyPath(object.getClass(), keyPath);
+      if (compiledKeyPath != null) {
+        return compiledKeyPath._valueInObject(object, false);
+      }
+
       String key = keyPath.substring(0, index);
       Object value = NSKeyValueCoding.Utility.valueForKey(object, key);
       return ((value == null) ? null : NSKeyValueCodingAdditions.Utility.valueForKeyPath(value, keyPath.substring(index + 1)));
@@ -32,12 +46,19 @@ public interface NSKeyValueCodingAdditions extends NSKeyValueCoding {
       int index = keyPath.indexOf(_KeyPathSeparatorChar);
       if (index < 0) {
         NSKeyValueCoding.Utility.takeValueForKey(object, value, keyPath);
-      } else {
-        String key = keyPath.substring(0, index);
-        Object targetObject = NSKeyValueCoding.Utility.valueForKey(object, key);
-        if (targetObject != null)
-          NSKeyValueCodingAdditions.Utility.takeValueForKeyPath(targetObject, value, keyPath.substring(index + 1));
+        return;
+      }
+
+      CompiledKeyPath compiledKeyPath = CompiledKeyPath._memoizedKeyPath(object.getClass(), keyPath);
+      if (compiledKeyPath != null) {
+        compiledKeyPath._takeValueInObject(value, object, false);
+        return;
       }
+
+      String key = keyPath.substring(0, index);
+      Object targetObject = NSKeyValueCoding.Utility.valueForKey(object, key);
+      if (targetObject != null)
+        NSKeyValueCodingAdditions.Utility.takeValueForKeyPath(targetObject, value, keyPath.substring(index + 1));
     }
   }
 
@@ -60,4 +81,263 @@ public interface NSKeyValueCodingAdditions extends NSKeyValueCoding {
         NSKeyValueCodingAdditions.DefaultImplementation.takeValueForKeyPath(object, value, keyPath);
     }
   }
+
+  /**
+   * A key path parsed once into its keys, with the key binding used for each
+   * hop cached against the class of the object last seen at that hop. Lookups
+   * only fall back to dynamic dispatch when an intermediate object is of a
+   * different class than the cached one.
+   *
+   * Evaluation follows the same rules as {@link Utility#valueForKeyPath} and
+   * {@link Utility#takeValueForKeyPath}, so objects that provide their own
+   * valueForKey / valueForKeyPath implementations are still asked directly.
+   */
+  public static final class CompiledKeyPath {
+    private static final int _MaximumMemoizedKeyPathsPerClass = 1024;
+    private static final _ClassValueCache<ConcurrentHashMap<String, CompiledKeyPath>> _compiledKeyPaths = new _ClassValueCache<ConcurrentHashMap<String, CompiledKeyPath>>() {
+      @Override
+      protected ConcurrentHashMap<String, CompiledKeyPath> computeValue(Class<?> type) {
+        return new ConcurrentHashMap<String, CompiledKeyPath>(16);
+      }
+    };
+    private static final _ClassValueCache<_Dispatch> _dispatchTable = new _ClassValueCache<_Dispatch>() {
+      @Override
+      protected _Dispatch computeValue(Class<?> type) {
+        return new _Dispatch(type);
+      }
+    };
+    /*
+     * The hops are anchored on their own class rather than on the root class
+     * of the key paths that reach them, compiled key paths only refer to them
+     * weakly so that a memoized path rooted in a foundation class does not
+     * keep the classes it traversed alive.
+     */
+    private static final _ClassValueCache<ConcurrentHashMap<String, _Hop>> _hopTable = new _ClassValueCache<ConcurrentHashMap<String, _Hop>>() {
+      @Override
+      protected ConcurrentHashMap<String, _Hop> computeValue(Class<?> type) {
+        return new ConcurrentHashMap<String, _Hop>(16);
+      }
+    };
+
+    private final String _keyPath;
+    private final String[] _keys;
+    private final String[] _remainingKeyPaths;
+    private final WeakReference<_Hop>[] _hops;
+
+    public static CompiledKeyPath compiledKeyPath(Class<?> rootClass, String keyPath) {
+      if (rootClass == null)
+        throw new IllegalArgumentException("Root class cannot be null");
+      if (keyPath == null)
+        throw new IllegalArgumentException("Key path cannot be null");
+      CompiledKeyPath compiledKeyPath = _memoizedKeyPath(rootClass, keyPath);
+      return compiledKeyPath != null ? compiledKeyPath : new CompiledKeyPath(keyPath);
+    }
+
+    public static void _flushCaches() {
+      _compiledKeyPaths.clear();
+      _dispatchTable.clear();
+      _hopTable.clear();
+    }
+
+    static CompiledKeyPath _memoizedKeyPath(Class<?> rootClass, String keyPath) {
+      ConcurrentHashMap<String, CompiledKeyPath> keyPaths = _compiledKeyPaths.get(rootClass);
+      CompiledKeyPath compiledKeyPath = keyPaths.get(keyPath);
+      if (compiledKeyPath == null) {
+        if (keyPaths.size() >= _MaximumMemoizedKeyPathsPerClass) {
+          // Unbounded dynamic key paths should not grow the cache forever
+          return null;
+        }
+        compiledKeyPath = new CompiledKeyPath(keyPath);
+        CompiledKeyPath existing = keyPaths.putIfAbsent(keyPath, compiledKeyPath);
+        if (existing != null)
+          compiledKeyPath = existing;
+      }
+      return compiledKeyPath;
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompiledKeyPath(String keyPath) {
+      _keyPath = keyPath;
+      ArrayList<String> keys = new ArrayList<String>(4);
+      ArrayList<String> remainingKeyPaths = new ArrayList<String>(4);
+      int start = 0;
+      while (true) {
+        int index = keyPath.indexOf(_KeyPathSeparatorChar, start);
+        remainingKeyPaths.add(start == 0 ? keyPath : keyPath.substring(start));
+        if (index < 0) {
+          keys.add(keyPath.substring(start));
+          break;
+        }
+        keys.add(keyPath.substring(start, index));
+        start = index + 1;
+      }
+      _keys = keys.toArray(new String[keys.size()]);
+      _remainingKeyPaths = remainingKeyPaths.toArray(new String[remainingKeyPaths.size()]);
+      _hops = new WeakReference[_keys.length];
+    }
+
+    public String keyPath() {
+      return _keyPath;
+    }
+
+    public int count() {
+      return _keys.length;
+    }
+
+    public String keyAtIndex(int index) {
+      return _keys[index];
+    }
+
+    public Object valueInObject(Object object) {
+      if (object == null)
+        throw new IllegalArgumentException("Object cannot be null");
+      return _valueInObject(object, true);
+    }
+
+    public void setValueInObject(Object value, Object object) {
+      if (object == null)
+        throw new IllegalArgumentException("Object cannot be null");
+      _takeValueInObject(value, object, true);
+    }
+
+    /**
+     * Returns the binding answering this single key path in instances of the
+     * class of object when its value is a primitive, which can then be read
+     * with the primitive accessors of the binding. Returns null otherwise.
+     */
+    public _KeyBinding _primitiveKeyBindingForObject(Object object) {
+      if (object == null)
+        throw new IllegalArgumentException("Object cannot be null");
+      if (_keys.length != 1)
+        return null;
+      _Hop hop = _hopForObject(0, object);
+      if (hop.dispatch.customValueForKeyPath || hop.binding == null || hop.binding.primitiveValueType() == null)
+        return null;
+      return hop.binding;
+    }
+
+    /*
+     * When dispatchFirst is false the root object is being evaluated on behalf
+     * of its own valueForKeyPath() and must not be asked again.
+     */
+    Object _valueInObject(Object object, boolean dispatchFirst) {
+      Object value = object;
+      for (int i = 0; i < _keys.length; i++) {
+        _Hop hop = _hopForObject(i, value);
+        if (hop.dispatch.customValueForKeyPath && (i > 0 || dispatchFirst)) {
+          return ((NSKeyValueCodingAdditions) value).valueForKeyPath(_remainingKeyPaths[i]);
+        }
+        value = hop.valueInObject(value, _keys[i]);
+        if (value == null)
+          return null;
+      }
+      return value;
+    }
+
+    void _takeValueInObject(Object value, Object object, boolean dispatchFirst) {
+      Object target = object;
+      int last = _keys.length - 1;
+      for (int i = 0; i < last; i++) {
+        _Hop hop = _hopForObject(i, target);
+        if (hop.dispatch.customTakeValueForKeyPath && (i > 0 || dispatchFirst)) {
+          ((NSKeyValueCodingAdditions) target).takeValueForKeyPath(value, _remainingKeyPaths[i]);
+          return;
+        }
+        target = hop.valueInObject(target, _keys[i]);
+        if (target == null)
+          return;
+      }
+      if ((last > 0 || dispatchFirst) && _dispatchForClass(target.getClass()).customTakeValueForKeyPath) {
+        ((NSKeyValueCodingAdditions) target).takeValueForKeyPath(value, _keys[last]);
+        return;
+      }
+      // Set bindings are not cached here since KVO replaces them while observed
+      NSKeyValueCoding.Utility.takeValueForKey(target, value, _keys[last]);
+    }
+
+    private _Hop _hopForObject(int index, Object object) {
+      Class<?> objectClass = object.getClass();
+      WeakReference<_Hop> reference = _hops[index];
+      _Hop hop = reference != null ? reference.get() : null;
+      if (hop == null || hop.objectClass != objectClass) {
+        hop = _hopForClass(objectClass, object, _keys[index]);
+        _hops[index] = new WeakReference<_Hop>(hop);
+      }
+      return hop;
+    }
+
+    private static _Hop _hopForClass(Class<?> objectClass, Object object, String key) {
+      ConcurrentHashMap<String, _Hop> hops = _hopTable.get(objectClass);
+      _Hop hop = hops.get(key);
+      if (hop == null) {
+        _Dispatch dispatch = _dispatchForClass(objectClass);
+        _KeyBinding binding = dispatch.bindable ? NSKeyValueCoding.DefaultImplementation._keyGetBindingForKey(object, key) : null;
+        hop = new _Hop(objectClass, dispatch, binding);
+        if (hops.size() < _MaximumMemoizedKeyPathsPerClass) {
+          _Hop existing = hops.putIfAbsent(key, hop);
+          if (existing != null)
+            hop = existing;
+        }
+      }
+      return hop;
+    }
+
+    @Override
+    public String toString() {
+      return "<" + getClass().getName() + " keyPath '" + _keyPath + "'>";
+    }
+
+    static _Dispatch _dispatchForClass(Class<?> objectClass) {
+      return _dispatchTable.get(objectClass);
+    }
+
+    private static final class _Hop {
+      final Class<?> objectClass;
+      final _Dispatch dispatch;
+      final _KeyBinding binding;
+
+      _Hop(Class<?> objectClass, _Dispatch dispatch, _KeyBinding binding) {
+        this.objectClass = objectClass;
+        this.dispatch = dispatch;
+        this.binding = binding;
+      }
+
+      Object valueInObject(Object object, String key) {
+        if (binding != null)
+          return binding.valueInObject(object);
+        if (dispatch.customValueForKey)
+          return ((NSKeyValueCoding) object).valueForKey(key);
+        return NSKeyValueCoding.DefaultImplementation.valueForKey(object, key);
+      }
+    }
+
+    /*
+     * Describes how instances of a class answer key value coding messages.
+     * Classes that inherit NSObject's implementations behave exactly like
+     * objects that do not implement the interfaces at all.
+     */
+    static final class _Dispatch {
+      final boolean customValueForKey;
+      final boolean customValueForKeyPath;
+      final boolean customTakeValueForKeyPath;
+      final boolean bindable;
+
+      _Dispatch(Class<?> objectClass) {
+        customValueForKey = NSKeyValueCoding.class.isAssignableFrom(objectClass) && !_isInheritedFromNSObject(objectClass, "valueForKey", String.class);
+        boolean isAdditions = NSKeyValueCodingAdditions.class.isAssignableFrom(objectClass);
+        customValueForKeyPath = isAdditions && !_isInheritedFromNSObject(objectClass, "valueForKeyPath", String.class);
+        customTakeValueForKeyPath = isAdditions && !_isInheritedFromNSObject(objectClass, "takeValueForKeyPath", Object.class, String.class);
+        bindable = !customValueForKey && !Map.class.isAssignableFrom(objectClass) && !_KeyBindingCreation.class.isAssignableFrom(objectClass);
+      }
+
+      private static boolean _isInheritedFromNSObject(Class<?> objectClass, String methodName, Class<?>... parameterTypes) {
+        try {
+          Method method = objectClass.getMethod(methodName, parameterTypes);
+          return method.getDeclaringClass() == NSObject.class;
+        } catch (NoSuchMethodException e) {
+          return false;
+        }
+      }
+    }
+  }
 }
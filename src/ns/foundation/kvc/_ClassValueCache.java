@@ -0,0 +1,34 @@
+package ns.foundation.kvc;
+
+/**
+ * One lazily computed value per class, stored through ClassValue so that the
+ * cache keeps neither the classes nor their class loaders alive. Clearing
+ * replaces the ClassValue, the values computed by the old one are released
+ * with it.
+ */
+abstract class _ClassValueCache<V> {
+  private volatile ClassValue<V> _classValue = _newClassValue();
+
+  protected abstract V computeValue(Class<?> type);
+
+  public V get(Class<?> type) {
+    return _classValue.get(type);
+  }
+
+  public void remove(Class<?> type) {
+    _classValue.remove(type);
+  }
+
+  public void clear() {
+    _classValue = _newClassValue();
+  }
+
+  private ClassValue<V> _newClassValue() {
+    return new ClassValue<V>() {
+      @Override
+      protected V computeValue(Class<?> type) {
+        return _ClassValueCache.this.computeValue(type);
+      }
+    };
+  }
+}
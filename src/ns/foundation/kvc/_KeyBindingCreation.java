@@ -1,9 +1,10 @@
 package ns.foundation.kvc;
 
 import ns.foundation.kvc.NSKeyValueCoding._KeyBinding;
+import ns.foundation.properties.NSProperties;
 
 public interface _KeyBindingCreation {
-    public static _KeyBindingFactory defaultFactory = new _ReflectionKeyBindingCreation();
+    public static _KeyBindingFactory defaultFactory = _DefaultKeyBindingFactory._factoryForProperty();
 
     public _KeyBinding _createKeyGetBindingForKey(String key);
 
@@ -62,6 +63,49 @@ public interface _KeyBindingCreation {
         }
     }
 
+    public static class _MethodHandleKeyBindingCreation implements _KeyBindingCreation._KeyBindingFactory {
+
+        @Override
+        public _KeyBinding _createKeyGetBindingForKey(Object object, String key, int lookupOrder[]) {
+            return _NSPropertyAccessorMethodHandle._createKeyBindingForKey(object, key, lookupOrder, false);
+        }
+
+        @Override
+        public _KeyBinding _createKeySetBindingForKey(Object object, String key, int lookupOrder[]) {
+            return _NSPropertyAccessorMethodHandle._createKeyBindingForKey(object, key, lookupOrder, true);
+        }
+    }
+
+    /**
+     * Chooses the default factory from the ns.foundation.kvc.keyBindingFactory
+     * property, which is one of "reflection" (the default), "bytecode",
+     * "methodhandle" or the class name of a _KeyBindingFactory implementation.
+     */
+    public static class _DefaultKeyBindingFactory {
+        public static final String FactoryPropertyKey = "ns.foundation.kvc.keyBindingFactory";
+
+        static _KeyBindingFactory _factoryForProperty() {
+            return _factoryNamed(NSProperties.stringForKeyWithDefault(FactoryPropertyKey, "reflection"));
+        }
+
+        public static _KeyBindingFactory _factoryNamed(String name) {
+            if (name == null || "reflection".equalsIgnoreCase(name)) {
+                return new _ReflectionKeyBindingCreation();
+            }
+            if ("bytecode".equalsIgnoreCase(name)) {
+                return new _BytecodeKeyBindingCreation();
+            }
+            if ("methodhandle".equalsIgnoreCase(name)) {
+                return new _MethodHandleKeyBindingCreation();
+            }
+            try {
+                return (_KeyBindingFactory) Class.forName(name).newInstance();
+            } catch (Exception e) {
+                throw new IllegalArgumentException("Unable to create key binding factory " + name, e);
+            }
+        }
+    }
+
     public static class _ReflectionKeyBindingCreation implements _KeyBindingCreation._KeyBindingFactory {
 
         @Override
@@ -0,0 +1,508 @@
+package ns.foundation.kvc;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import ns.foundation.kvc._KeyBindingCreation._KeyBindingFactory;
+import ns.foundation.utilities._NSStringUtilities;
+import ns.foundation.utilities._NSUtilities;
+
+/**
+ * Generates the source of precompiled key bindings for the public accessor
+ * methods and fields of the classes in a set of packages. Each class gets a
+ * <code>&lt;Class&gt;_KeyBindings</code> class in its own package, which
+ * _NSKeyBindingRegistry loads the first time a binding of the class is
+ * needed. Keys resolve with the same lookup order as the runtime factories
+ * (getKey, key, isKey, _getKey, _key, _isKey, then the fields _key, _isKey,
+ * key, isKey); keys which resolve to static or inaccessible members are left
+ * to the runtime factory.
+ *
+ * Usage: java ns.foundation.kvc._NSKeyBindingGenerator outputDirectory package ...
+ */
+public class _NSKeyBindingGenerator {
+  private final File _outputDirectory;
+  private final ClassLoader _classLoader;
+
+  public _NSKeyBindingGenerator(File outputDirectory, ClassLoader classLoader) {
+    if (outputDirectory == null)
+      throw new IllegalArgumentException("No output directory specified");
+    _outputDirectory = outputDirectory;
+    _classLoader = classLoader != null ? classLoader : _NSKeyBindingGenerator.class.getClassLoader();
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("Usage: java " + _NSKeyBindingGenerator.class.getName() + " outputDirectory package ...");
+      System.exit(1);
+    }
+    _NSKeyBindingGenerator generator = new _NSKeyBindingGenerator(new File(args[0]), Thread.currentThread().getContextClassLoader());
+    int count = 0;
+    for (int i = 1; i < args.length; i++) {
+      count += generator.generateKeyBindingsForPackage(args[i]);
+    }
+    System.out.println("Generated key bindings for " + count + " classes in " + generator._outputDirectory);
+  }
+
+  public int generateKeyBindingsForPackage(String packageName) throws IOException {
+    int count = 0;
+    for (String className : _classNamesInPackage(packageName)) {
+      Class<?> objectClass;
+      try {
+        objectClass = Class.forName(className, false, _classLoader);
+      } catch (ClassNotFoundException e) {
+        continue;
+      } catch (LinkageError e) {
+        System.err.println("Skipping " + className + ": " + e);
+        continue;
+      }
+      if (generateKeyBindingsForClass(objectClass)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  public boolean generateKeyBindingsForClass(Class<?> objectClass) throws IOException {
+    String source = keyBindingsSourceForClass(objectClass);
+    if (source == null) {
+      return false;
+    }
+    File directory = _outputDirectory;
+    String packageName = _packageName(objectClass);
+    if (packageName.length() > 0) {
+      directory = new File(_outputDirectory, packageName.replace('.', File.separatorChar));
+    }
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Unable to create directory " + directory);
+    }
+    File file = new File(directory, _generatedSimpleName(objectClass) + ".java");
+    Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+    try {
+      writer.write(source);
+    } finally {
+      writer.close();
+    }
+    return true;
+  }
+
+  public static boolean _canGenerateKeyBindingsForClass(Class<?> objectClass) {
+    int modifiers = objectClass.getModifiers();
+    if (objectClass.isInterface() || objectClass.isEnum() || objectClass.isArray() || objectClass.isPrimitive() || objectClass.isSynthetic()
+        || objectClass.isAnonymousClass() || objectClass.isLocalClass() || Modifier.isAbstract(modifiers)) {
+      return false;
+    }
+    if (objectClass.getName().endsWith(_NSKeyBindingRegistry.GeneratedClassSuffix)) {
+      return false;
+    }
+    for (Class<?> c = objectClass; c != null; c = c.getEnclosingClass()) {
+      if (!Modifier.isPublic(c.getModifiers()) || (c.getEnclosingClass() != null && !Modifier.isStatic(c.getModifiers()))) {
+        return false;
+      }
+    }
+    if (_KeyBindingFactory.Callback.class.isAssignableFrom(objectClass) || _KeyBindingCreation.class.isAssignableFrom(objectClass)) {
+      return false;
+    }
+    // protected accessors make non-public members visible to the runtime lookup
+    return NSKeyValueCoding.ValueAccessor._valueAccessorForClass(objectClass) == null;
+  }
+
+  public static String keyBindingsSourceForClass(Class<?> objectClass) {
+    if (!_canGenerateKeyBindingsForClass(objectClass)) {
+      return null;
+    }
+    String packageName = _packageName(objectClass);
+    String targetClassName = _sourceName(objectClass);
+    StringBuilder getBindings = new StringBuilder();
+    StringBuilder setBindings = new StringBuilder();
+    for (String key : _candidateKeys(objectClass)) {
+      Member getter = _getterMember(objectClass, key);
+      Class<?> valueType = getter == null ? null : _memberType(getter);
+      if (getter != null && _isUsableMember(getter, packageName, false)) {
+        _appendGetBinding(getBindings, targetClassName, key, getter);
+      }
+      Member setter = _setterMember(objectClass, key, valueType);
+      if (setter != null && _isUsableMember(setter, packageName, true)) {
+        _appendSetBinding(setBindings, targetClassName, key, setter, setter instanceof Field ? ((Field) setter).getType() : valueType);
+      }
+    }
+    if (getBindings.length() == 0 && setBindings.length() == 0) {
+      return null;
+    }
+
+    StringBuilder source = new StringBuilder(4096);
+    source.append("// Generated by ").append(_NSKeyBindingGenerator.class.getName()).append(" from ").append(objectClass.getName()).append(", do not edit.\n");
+    if (packageName.length() > 0) {
+      source.append("package ").append(packageName).append(";\n");
+    }
+    source.append("\n");
+    source.append("import ns.foundation.NSForwardException;\n");
+    source.append("import ns.foundation.kvc.NSKeyValueCoding;\n");
+    source.append("import ns.foundation.kvc._NSKeyBindingRegistry;\n");
+    source.append("import ns.foundation.utilities._NSUtilities;\n");
+    source.append("\n");
+    source.append("@SuppressWarnings(\"unchecked\")\n");
+    source.append("public final class ").append(_generatedSimpleName(objectClass)).append(" implements _NSKeyBindingRegistry._ClassKeyBindings {\n");
+    source.append("  public NSKeyValueCoding._KeyBinding _keyGetBindingForKey(String key) {\n");
+    source.append("    switch (key) {\n");
+    source.append(getBindings);
+    source.append("      default:\n");
+    source.append("        return null;\n");
+    source.append("    }\n");
+    source.append("  }\n");
+    source.append("\n");
+    source.append("  public NSKeyValueCoding._KeyBinding _keySetBindingForKey(String key) {\n");
+    source.append("    switch (key) {\n");
+    source.append(setBindings);
+    source.append("      default:\n");
+    source.append("        return null;\n");
+    source.append("    }\n");
+    source.append("  }\n");
+    source.append("}\n");
+    return source.toString();
+  }
+
+  private static void _appendGetBinding(StringBuilder source, String targetClassName, String key, Member getter) {
+    Class<?> valueType = _memberType(getter);
+    source.append("      case \"").append(key).append("\":\n");
+    source.append("        return new NSKeyValueCoding._KeyBinding(").append(targetClassName).append(".class, key) {\n");
+    source.append("          @Override\n");
+    source.append("          public Object valueInObject(Object object) {\n");
+    if (getter instanceof Field) {
+      source.append("            return ((").append(targetClassName).append(") object).").append(getter.getName()).append(";\n");
+    } else if (valueType == void.class) {
+      _appendStatement(source, "((" + targetClassName + ") object)." + getter.getName() + "();", getter);
+      source.append("            return null;\n");
+    } else {
+      _appendStatement(source, "return ((" + targetClassName + ") object)." + getter.getName() + "();", getter);
+    }
+    source.append("          }\n");
+    _appendValueType(source, valueType, getter instanceof Field && valueType.isPrimitive());
+    if (_isNumberOrBooleanPrimitive(valueType)) {
+      String value = "((" + targetClassName + ") object)." + getter.getName() + (getter instanceof Field ? "" : "()");
+      source.append("\n");
+      source.append("          @Override\n");
+      source.append("          public Class<?> primitiveValueType() {\n");
+      source.append("            return ").append(valueType.getName()).append(".class;\n");
+      source.append("          }\n");
+      for (String primitiveType : _primitiveAccessorTypes(valueType)) {
+        source.append("\n");
+        source.append("          @Override\n");
+        source.append("          public ").append(primitiveType).append(" ").append(primitiveType).append("ValueInObject(Object object) {\n");
+        _appendStatement(source, "return (" + primitiveType + ") " + value + ";", getter);
+        source.append("          }\n");
+      }
+    }
+    source.append("        };\n");
+  }
+
+  private static void _appendSetBinding(StringBuilder source, String targetClassName, String key, Member setter, Class<?> valueType) {
+    if (valueType == null) {
+      valueType = Object.class;
+    }
+    Class<?> parameterType = setter instanceof Field ? ((Field) setter).getType() : ((Method) setter).getParameterTypes()[0];
+    String value = "_NSUtilities._convertObjectIntoCompatibleValue(value, " + _sourceName(_wrapperType(parameterType)) + ".class)";
+    source.append("      case \"").append(key).append("\":\n");
+    source.append("        return new NSKeyValueCoding._KeyBinding(").append(targetClassName).append(".class, key) {\n");
+    source.append("          @Override\n");
+    source.append("          public void setValueInObject(Object value, Object object) {\n");
+    if (parameterType.isPrimitive()) {
+      source.append("            if (value == null) {\n");
+      source.append("              NSKeyValueCoding.Utility.unableToSetNullForKey(object, _key);\n");
+      source.append("              return;\n");
+      source.append("            }\n");
+    }
+    if (setter instanceof Field) {
+      source.append("            ((").append(targetClassName).append(") object).").append(setter.getName()).append(" = ").append(value).append(";\n");
+    } else {
+      _appendStatement(source, "((" + targetClassName + ") object)." + setter.getName() + "(" + value + ");", setter);
+    }
+    source.append("          }\n");
+    _appendValueType(source, valueType, valueType.isPrimitive());
+    if (_isNumberOrBooleanPrimitive(parameterType)) {
+      String primitiveValue = "(" + parameterType.getName() + ") value";
+      for (String primitiveType : _primitiveAccessorTypes(parameterType)) {
+        source.append("\n");
+        source.append("          @Override\n");
+        source.append("          public void set").append(Character.toUpperCase(primitiveType.charAt(0))).append(primitiveType.substring(1)).append("ValueInObject(").append(primitiveType).append(" value, Object object) {\n");
+        if (setter instanceof Field) {
+          source.append("            ((").append(targetClassName).append(") object).").append(setter.getName()).append(" = ").append(primitiveValue).append(";\n");
+        } else {
+          _appendStatement(source, "((" + targetClassName + ") object)." + setter.getName() + "(" + primitiveValue + ");", setter);
+        }
+        source.append("          }\n");
+      }
+    }
+    source.append("        };\n");
+  }
+
+  // accessors declaring checked exceptions are called like the runtime factories call them, forwarding the exception
+  private static void _appendStatement(StringBuilder source, String statement, Member member) {
+    if (!(member instanceof Method) || !_declaresCheckedException((Method) member)) {
+      source.append("            ").append(statement).append("\n");
+      return;
+    }
+    source.append("            try {\n");
+    source.append("              ").append(statement).append("\n");
+    source.append("            } catch (Error e) {\n");
+    source.append("              throw e;\n");
+    source.append("            } catch (Throwable e) {\n");
+    source.append("              throw NSForwardException._runtimeExceptionForThrowable(e);\n");
+    source.append("            }\n");
+  }
+
+  private static boolean _declaresCheckedException(Method method) {
+    for (Class<?> exceptionType : method.getExceptionTypes()) {
+      if (!RuntimeException.class.isAssignableFrom(exceptionType) && !Error.class.isAssignableFrom(exceptionType)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean _isNumberOrBooleanPrimitive(Class<?> valueType) {
+    return valueType.isPrimitive() && _NSUtilities._isClassANumberOrABoolean(valueType);
+  }
+
+  // the primitive accessors answered directly, converting with a cast like Number does
+  private static String[] _primitiveAccessorTypes(Class<?> valueType) {
+    return valueType == boolean.class ? new String[] { "boolean" } : new String[] { "int", "long", "double" };
+  }
+
+  private static void _appendValueType(StringBuilder source, Class<?> valueType, boolean isScalarProperty) {
+    // same value types as the runtime factories, which report numbers and booleans with their object class
+    if (_isNumberOrBooleanPrimitive(valueType)) {
+      valueType = _wrapperType(valueType);
+    }
+    source.append("\n");
+    source.append("          @Override\n");
+    source.append("          public Class<?> valueType() {\n");
+    source.append("            return ").append(_sourceName(valueType)).append(".class;\n");
+    source.append("          }\n");
+    source.append("\n");
+    source.append("          @Override\n");
+    source.append("          public boolean isScalarProperty() {\n");
+    source.append("            return ").append(isScalarProperty).append(";\n");
+    source.append("          }\n");
+  }
+
+  static Set<String> _candidateKeys(Class<?> objectClass) {
+    Set<String> keys = new TreeSet<String>();
+    for (Method method : objectClass.getMethods()) {
+      int parameterCount = method.getParameterTypes().length;
+      if (method.getDeclaringClass() == Object.class || parameterCount > 1) {
+        continue;
+      }
+      String name = method.getName();
+      if (parameterCount == 0) {
+        keys.add(name);
+        _addKeyWithoutPrefix(keys, name, "get");
+        _addKeyWithoutPrefix(keys, name, "is");
+        _addKeyWithoutPrefix(keys, name, "_get");
+        _addKeyWithoutPrefix(keys, name, "_is");
+        _addKeyWithoutPrefix(keys, name, "_");
+      } else {
+        _addKeyWithoutPrefix(keys, name, "set");
+        _addKeyWithoutPrefix(keys, name, "_set");
+      }
+    }
+    for (Field field : objectClass.getFields()) {
+      String name = field.getName();
+      keys.add(name);
+      _addKeyWithoutPrefix(keys, name, "is");
+      _addKeyWithoutPrefix(keys, name, "_is");
+      _addKeyWithoutPrefix(keys, name, "_");
+    }
+    return keys;
+  }
+
+  private static void _addKeyWithoutPrefix(Set<String> keys, String name, String prefix) {
+    if (name.length() <= prefix.length() || !name.startsWith(prefix)) {
+      return;
+    }
+    String key = name.substring(prefix.length());
+    if (!"_".equals(prefix)) {
+      key = Character.toLowerCase(key.charAt(0)) + key.substring(1);
+    }
+    keys.add(key);
+  }
+
+  static Member _getterMember(Class<?> objectClass, String key) {
+    String[] methodNames = { _prefixedKey("get", key), key, _prefixedKey("is", key), _prefixedKey("_get", key), _prefixedKey("_", key), _prefixedKey("_is", key) };
+    for (String methodName : methodNames) {
+      Method method = _publicMethod(objectClass, methodName, 0, null);
+      if (method != null) {
+        return method;
+      }
+    }
+    return _publicField(objectClass, key);
+  }
+
+  static Member _setterMember(Class<?> objectClass, String key, Class<?> valueType) {
+    Method method = _publicMethod(objectClass, _prefixedKey("set", key), 1, valueType);
+    if (method == null) {
+      method = _publicMethod(objectClass, _prefixedKey("_set", key), 1, valueType);
+    }
+    return method != null ? method : _publicField(objectClass, key);
+  }
+
+  private static Field _publicField(Class<?> objectClass, String key) {
+    String[] fieldNames = { _prefixedKey("_", key), _prefixedKey("_is", key), key, _prefixedKey("is", key) };
+    for (String fieldName : fieldNames) {
+      try {
+        return objectClass.getField(fieldName);
+      } catch (NoSuchFieldException e) {
+        // try the next name
+      }
+    }
+    return null;
+  }
+
+  private static Method _publicMethod(Class<?> objectClass, String methodName, int parameterCount, Class<?> valueType) {
+    Method method = null;
+    for (Method target : objectClass.getMethods()) {
+      if (!target.getName().equals(methodName) || target.getParameterTypes().length != parameterCount) {
+        continue;
+      }
+      if (parameterCount == 0) {
+        if (method == null || method.isBridge()) {
+          method = target;
+        }
+        continue;
+      }
+      Class<?> parameterType = target.getParameterTypes()[0];
+      if (parameterType == valueType) {
+        return target;
+      } else if (valueType != null && _wrapperType(parameterType) == _wrapperType(valueType)) {
+        method = target;
+      } else if (method == null) {
+        method = target;
+      }
+    }
+    return method;
+  }
+
+  private static boolean _isUsableMember(Member member, String packageName, boolean trueForSetAndFalseForGet) {
+    int modifiers = member.getModifiers();
+    if (Modifier.isStatic(modifiers) || member.getDeclaringClass() == Object.class) {
+      return false;
+    }
+    if (member instanceof Field) {
+      return !(trueForSetAndFalseForGet && Modifier.isFinal(modifiers)) && _isAccessibleType(((Field) member).getType(), packageName);
+    }
+    Method method = (Method) member;
+    if (!_isAccessibleType(method.getReturnType(), packageName)) {
+      return false;
+    }
+    for (Class<?> parameterType : method.getParameterTypes()) {
+      if (!_isAccessibleType(parameterType, packageName)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean _isAccessibleType(Class<?> type, String packageName) {
+    while (type.isArray()) {
+      type = type.getComponentType();
+    }
+    if (type.isPrimitive()) {
+      return true;
+    }
+    if (type.isAnonymousClass() || type.isLocalClass()) {
+      return false;
+    }
+    boolean samePackage = _packageName(type).equals(packageName);
+    for (Class<?> c = type; c != null; c = c.getEnclosingClass()) {
+      int modifiers = c.getModifiers();
+      if (Modifier.isPrivate(modifiers) || (!samePackage && !Modifier.isPublic(modifiers))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static Class<?> _memberType(Member member) {
+    return member instanceof Field ? ((Field) member).getType() : ((Method) member).getReturnType();
+  }
+
+  private static Class<?> _wrapperType(Class<?> type) {
+    return MethodType.methodType(type).wrap().returnType();
+  }
+
+  private static String _prefixedKey(String prefix, String key) {
+    return "_".equals(prefix) ? prefix + key : prefix + _NSStringUtilities.capitalizedString(key);
+  }
+
+  private static String _sourceName(Class<?> type) {
+    return type.isArray() ? _sourceName(type.getComponentType()) + "[]" : type.getCanonicalName();
+  }
+
+  private static String _packageName(Class<?> type) {
+    String className = type.getName();
+    int index = className.lastIndexOf('.');
+    return index < 0 ? "" : className.substring(0, index);
+  }
+
+  private static String _generatedSimpleName(Class<?> objectClass) {
+    String generatedClassName = _NSKeyBindingRegistry._generatedClassNameForClassName(objectClass.getName());
+    return generatedClassName.substring(generatedClassName.lastIndexOf('.') + 1);
+  }
+
+  private Set<String> _classNamesInPackage(String packageName) throws IOException {
+    String path = packageName.replace('.', '/');
+    Set<String> classNames = new TreeSet<String>();
+    Enumeration<URL> resources = _classLoader.getResources(path);
+    while (resources.hasMoreElements()) {
+      URL url = resources.nextElement();
+      if ("file".equals(url.getProtocol())) {
+        File[] files;
+        try {
+          files = new File(url.toURI()).listFiles();
+        } catch (URISyntaxException e) {
+          throw new IOException("Invalid package location " + url, e);
+        }
+        if (files == null) {
+          continue;
+        }
+        for (File file : files) {
+          String name = file.getName();
+          if (file.isFile() && name.endsWith(".class")) {
+            classNames.add(packageName + "." + name.substring(0, name.length() - ".class".length()));
+          }
+        }
+      } else if ("jar".equals(url.getProtocol())) {
+        JarURLConnection connection = (JarURLConnection) url.openConnection();
+        connection.setUseCaches(false);
+        JarFile jarFile = connection.getJarFile();
+        try {
+          Enumeration<JarEntry> entries = jarFile.entries();
+          while (entries.hasMoreElements()) {
+            String name = entries.nextElement().getName();
+            if (name.startsWith(path + "/") && name.endsWith(".class") && name.indexOf('/', path.length() + 1) < 0) {
+              classNames.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+            }
+          }
+        } finally {
+          jarFile.close();
+        }
+      }
+    }
+    return classNames;
+  }
+}
@@ -0,0 +1,129 @@
+package ns.foundation.kvc;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import ns.foundation.NSForwardException;
+import ns.foundation.kvc.NSKeyValueCoding._KeyBinding;
+import ns.foundation.kvc._KeyBindingCreation._KeyBindingFactory;
+import ns.foundation.properties.NSProperties;
+
+/**
+ * Registry of key bindings compiled ahead of time by _NSKeyBindingGenerator.
+ * The bindings of a class are found by registration or by loading the class
+ * named after the target class with the {@link #GeneratedClassSuffix} suffix
+ * from the target class loader. Keys without a generated binding return null
+ * and fall back to the runtime key binding factory.
+ */
+public class _NSKeyBindingRegistry {
+  public static final String GeneratedClassSuffix = "_KeyBindings";
+  public static final String UsesGeneratedKeyBindingsPropertyKey = "ns.foundation.kvc.usesGeneratedKeyBindings";
+
+  public static interface _ClassKeyBindings {
+    public _KeyBinding _keyGetBindingForKey(String key);
+
+    public _KeyBinding _keySetBindingForKey(String key);
+  }
+
+  private static final _ClassKeyBindings _NoClassKeyBindings = new _ClassKeyBindings() {
+    public _KeyBinding _keyGetBindingForKey(String key) {
+      return null;
+    }
+
+    public _KeyBinding _keySetBindingForKey(String key) {
+      return null;
+    }
+  };
+
+  private static final _ClassValueCache<AtomicReference<_ClassKeyBindings>> _registeredClassKeyBindings = new _ClassValueCache<AtomicReference<_ClassKeyBindings>>() {
+    @Override
+    protected AtomicReference<_ClassKeyBindings> computeValue(Class<?> type) {
+      return new AtomicReference<_ClassKeyBindings>();
+    }
+  };
+  private static final _ClassValueCache<_ClassKeyBindings> _classKeyBindings = new _ClassValueCache<_ClassKeyBindings>() {
+    @Override
+    protected _ClassKeyBindings computeValue(Class<?> type) {
+      _ClassKeyBindings classKeyBindings = _registeredClassKeyBindings.get(type).get();
+      return classKeyBindings != null ? classKeyBindings : _loadClassKeyBindings(type);
+    }
+  };
+  private static volatile boolean _usesGeneratedKeyBindings = NSProperties.booleanForKeyWithDefault(UsesGeneratedKeyBindingsPropertyKey, true);
+
+  public static boolean _usesGeneratedKeyBindings() {
+    return _usesGeneratedKeyBindings;
+  }
+
+  public static void _setUsesGeneratedKeyBindings(boolean usesGeneratedKeyBindings) {
+    _usesGeneratedKeyBindings = usesGeneratedKeyBindings;
+  }
+
+  public static void _flushCaches() {
+    _classKeyBindings.clear();
+  }
+
+  public static void registerClassKeyBindings(Class<?> objectClass, _ClassKeyBindings classKeyBindings) {
+    if (objectClass == null)
+      throw new IllegalArgumentException("No class specified");
+    if (classKeyBindings == null)
+      throw new IllegalArgumentException("No key bindings specified for class " + objectClass.getName());
+    _registeredClassKeyBindings.get(objectClass).set(classKeyBindings);
+    _classKeyBindings.remove(objectClass);
+  }
+
+  public static void unregisterClassKeyBindings(Class<?> objectClass) {
+    if (objectClass == null)
+      throw new IllegalArgumentException("No class specified");
+    _registeredClassKeyBindings.get(objectClass).set(null);
+    _classKeyBindings.remove(objectClass);
+  }
+
+  public static _ClassKeyBindings classKeyBindingsForClass(Class<?> objectClass) {
+    _ClassKeyBindings classKeyBindings = _classKeyBindings.get(objectClass);
+    return classKeyBindings == _NoClassKeyBindings ? null : classKeyBindings;
+  }
+
+  public static _KeyBinding _keyGetBindingForKey(Object object, String key) {
+    if (!_usesGeneratedKeyBindings) {
+      return null;
+    }
+    _ClassKeyBindings classKeyBindings = classKeyBindingsForClass(object.getClass());
+    return classKeyBindings == null ? null : classKeyBindings._keyGetBindingForKey(key);
+  }
+
+  public static _KeyBinding _keySetBindingForKey(Object object, String key) {
+    if (!_usesGeneratedKeyBindings) {
+      return null;
+    }
+    _ClassKeyBindings classKeyBindings = classKeyBindingsForClass(object.getClass());
+    return classKeyBindings == null ? null : classKeyBindings._keySetBindingForKey(key);
+  }
+
+  public static String _generatedClassNameForClassName(String className) {
+    return className.replace('$', '_') + GeneratedClassSuffix;
+  }
+
+  private static _ClassKeyBindings _loadClassKeyBindings(Class<?> objectClass) {
+    // objects creating their own bindings must keep doing so
+    if (_KeyBindingFactory.Callback.class.isAssignableFrom(objectClass) || _KeyBindingCreation.class.isAssignableFrom(objectClass)) {
+      return _NoClassKeyBindings;
+    }
+    ClassLoader classLoader = objectClass.getClassLoader();
+    if (classLoader == null) {
+      return _NoClassKeyBindings;
+    }
+    Class<?> generatedClass;
+    try {
+      generatedClass = Class.forName(_generatedClassNameForClassName(objectClass.getName()), true, classLoader);
+    } catch (ClassNotFoundException e) {
+      return _NoClassKeyBindings;
+    }
+    if (!_ClassKeyBindings.class.isAssignableFrom(generatedClass)) {
+      return _NoClassKeyBindings;
+    }
+    try {
+      return (_ClassKeyBindings) generatedClass.newInstance();
+    } catch (Exception e) {
+      throw NSForwardException._runtimeExceptionForThrowable(e);
+    }
+  }
+}
@@ -1,6 +1,14 @@
 package ns.foundation.kvc;
 
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javassist.CannotCompileException;
 import javassist.ClassPool;
@@ -10,20 +18,38 @@ import javassist.CtField;
 import javassist.CtMember;
 import javassist.CtMethod;
 import javassist.CtPrimitiveType;
+import javassist.LoaderClassPath;
+import javassist.Modifier;
 import javassist.NotFoundException;
 import javassist.bytecode.AccessFlag;
 import ns.foundation.NSForwardException;
+import ns.foundation.NSLog;
 import ns.foundation.kvc.NSKeyValueCoding._KeyBinding;
 import ns.foundation.kvc._KeyBindingCreation._KeyBindingFactory;
 import ns.foundation.kvc._KeyBindingCreation._KeyBindingFactory._BindingStorage;
+import ns.foundation.properties.NSProperties;
 import ns.foundation.utilities._NSStringUtilities;
 import ns.foundation.utilities._NSUtilities;
 
 public class _NSPropertyAccessorBytecode {
   private static final _KeyBinding  _NotAvailableIndicator = new NSKeyValueCoding._KeyBinding(null, null);
-  private static final ConcurrentHashMap<_KeyBinding, _BindingStorage>  _bindingStorageMapTable     = new ConcurrentHashMap<_KeyBinding, _BindingStorage>(256);
-  private static ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+  private static final _ClassValueCache<ConcurrentHashMap<String, _BindingStorage>> _bindingStorageMapTable = new _ClassValueCache<ConcurrentHashMap<String, _BindingStorage>>() {
+    @Override
+    protected ConcurrentHashMap<String, _BindingStorage> computeValue(Class<?> type) {
+      return new ConcurrentHashMap<String, _BindingStorage>(16);
+    }
+  };
+  private static final Map<ClassLoader, ClassPool> _classPools = new WeakHashMap<ClassLoader, ClassPool>();
+
+  private static final _ClassValueCache<AtomicReference<_TargetClassAccessor>> _targetClassAccessors = new _ClassValueCache<AtomicReference<_TargetClassAccessor>>() {
+    @Override
+    protected AtomicReference<_TargetClassAccessor> computeValue(Class<?> type) {
+      return new AtomicReference<_TargetClassAccessor>();
+    }
+  };
+  private static volatile boolean _generatesAccessorClassPerTargetClass = NSProperties.booleanForKeyWithDefault("ns.foundation.kvc.bytecode.accessorClassPerTargetClass", false);
 
+  private static final String[] _PrimitiveAccessorTypes = { "int", "long", "double", "boolean" };
   private static int counter = 0;  
   private ClassPool ctPool;
   private Object targetObject;
@@ -34,8 +60,7 @@ public class _NSPropertyAccessorBytecode {
   public _NSPropertyAccessorBytecode(Object object) {
     targetObject = object;
     targetClass = object.getClass();
-    ctPool = new ClassPool();
-    ctPool.appendSystemPath();
+    ctPool = _classPoolForClass(targetClass);
     try {
       targetCtClass = ctPool.getCtClass(targetClass.getName());
     } catch (NotFoundException e) {
@@ -44,8 +69,32 @@ public class _NSPropertyAccessorBytecode {
 
   }
   
+  static ClassLoader _classLoaderForClass(Class<?> targetClass) {
+    ClassLoader classLoader = targetClass.getClassLoader();
+    return classLoader != null ? classLoader : _NSPropertyAccessorBytecode.class.getClassLoader();
+  }
+
+  /*
+   * Class pools are shared per class loader so that the target classes only
+   * have to be parsed once rather than once per key lookup.
+   */
+  public static ClassPool _classPoolForClass(Class<?> targetClass) {
+    ClassLoader classLoader = _classLoaderForClass(targetClass);
+    synchronized (_classPools) {
+      ClassPool pool = _classPools.get(classLoader);
+      if (pool == null) {
+        pool = new ClassPool(null);
+        pool.appendSystemPath();
+        pool.appendClassPath(new LoaderClassPath(classLoader));
+        _classPools.put(classLoader, pool);
+      }
+      return pool;
+    }
+  }
+
   public static void _flushCaches() {
     _bindingStorageMapTable.clear();
+    _targetClassAccessors.clear();
   }
   
   public static boolean _canAccessFieldsDirectlyForClass(Class<?> objectClass) {
@@ -88,6 +137,51 @@ public class _NSPropertyAccessorBytecode {
     public Object valueInObject(Object object) {
       return _delegate.valueInObject(object);
     }
+
+    @Override
+    public Class<?> primitiveValueType() {
+      return _delegate.primitiveValueType();
+    }
+
+    @Override
+    public int intValueInObject(Object object) {
+      return _delegate.intValueInObject(object);
+    }
+
+    @Override
+    public long longValueInObject(Object object) {
+      return _delegate.longValueInObject(object);
+    }
+
+    @Override
+    public double doubleValueInObject(Object object) {
+      return _delegate.doubleValueInObject(object);
+    }
+
+    @Override
+    public boolean booleanValueInObject(Object object) {
+      return _delegate.booleanValueInObject(object);
+    }
+
+    @Override
+    public void setIntValueInObject(int value, Object object) {
+      _delegate.setIntValueInObject(value, object);
+    }
+
+    @Override
+    public void setLongValueInObject(long value, Object object) {
+      _delegate.setLongValueInObject(value, object);
+    }
+
+    @Override
+    public void setDoubleValueInObject(double value, Object object) {
+      _delegate.setDoubleValueInObject(value, object);
+    }
+
+    @Override
+    public void setBooleanValueInObject(boolean value, Object object) {
+      _delegate.setBooleanValueInObject(value, object);
+    }
     
     @Override
     public String toString() {
@@ -96,10 +190,27 @@ public class _NSPropertyAccessorBytecode {
   }
   
   public static _KeyBinding _createKeyBindingForKey(Object object, String key, int lookupOrder[], boolean trueForSetAndFalseForGet) {
-    _KeyBinding keyBinding = new _NSPropertyAccessorBytecode(object)._createKeyBindingForKey(key, lookupOrder, trueForSetAndFalseForGet);
+    _NSPropertyAccessorBytecode accessor = new _NSPropertyAccessorBytecode(object);
+    _KeyBinding keyBinding;
+    synchronized (accessor.ctPool) {
+      keyBinding = accessor._createKeyBindingForKey(key, lookupOrder, trueForSetAndFalseForGet);
+    }
     return keyBinding == null ? null : new _LegacyCompatibleKeyBinding(keyBinding);
   }
 
+  public static boolean _generatesAccessorClassPerTargetClass() {
+    return _generatesAccessorClassPerTargetClass;
+  }
+
+  /**
+   * When enabled a single accessor class is generated for each target class
+   * covering all of its fields and accessor methods, instead of one class per
+   * key. Bindings for the class then only differ by the slot they switch on.
+   */
+  public static void _setGeneratesAccessorClassPerTargetClass(boolean value) {
+    _generatesAccessorClassPerTargetClass = value;
+  }
+
   private NSKeyValueCoding._KeyBinding _createKeyBindingForKey(String key, int[] lookupOrder, boolean trueForSetAndFalseForGet) {
     if ((key == null) || (key.length() == 0)) {
       return null;
@@ -110,12 +221,12 @@ public class _NSPropertyAccessorBytecode {
     boolean canAccessFieldsDirectlyTestPerformed = false;
     boolean canAccessFieldsDirectly = false;
 
-    // we use a KeyBinding as key for the _BindingStorage object map table since it gives us exactly what we need: a class and a key - but we have to create a new lookup key binding to avoid synchronizing the read lookup (and we need a new instance for the write access)
-    NSKeyValueCoding._KeyBinding lookupBinding = new NSKeyValueCoding._KeyBinding(objectClass, key);
-    _BindingStorage bindingStorage = _bindingStorageMapTable.get(lookupBinding);
+    // the _BindingStorage objects are kept per class (through ClassValue so they do not keep the class alive) and per key
+    ConcurrentHashMap<String, _BindingStorage> bindingStorageMapTable = _bindingStorageMapTable.get(objectClass);
+    _BindingStorage bindingStorage = bindingStorageMapTable.get(key);
     if (bindingStorage == null) {
       bindingStorage = new _KeyBindingFactory._BindingStorage();
-      _bindingStorageMapTable.put(lookupBinding, bindingStorage);
+      bindingStorageMapTable.put(key, bindingStorage);
     }
 
     _KeyBindingFactory.Callback keyBindingCreationCallbackObject = (targetObject instanceof _KeyBindingFactory.Callback) ? (_KeyBindingFactory.Callback) targetObject
@@ -257,6 +368,12 @@ public class _NSPropertyAccessorBytecode {
         return null;
       } 
       
+      if (_generatesAccessorClassPerTargetClass) {
+        _KeyBinding binding = _targetClassKeyBinding(_fieldSlotName(field), key);
+        if (binding != null)
+          return binding;
+      }
+
       CtClass valueType = field.getType();
       CtClass wrapper = _keyBindingClassForMember(key, field);
 
@@ -275,9 +392,12 @@ public class _NSPropertyAccessorBytecode {
       wrapper.addMethod(getter);
       wrapper.addMethod(setter);
       _addMethodsForValueType(wrapper, valueType, valueType.isPrimitive());
+      _addPrimitiveGetters(wrapper, valueType, unbox(targetCtClass, "object") + "." + fieldName);
+      _addPrimitiveSetters(wrapper, valueType, "((" + field.getDeclaringClass().getName() + ")object)." + fieldName + " = ", "");
       
       @SuppressWarnings("unchecked")
-      Class<_KeyBinding> wrapperClass = wrapper.toClass(classLoader, getClass().getProtectionDomain());
+      Class<_KeyBinding> wrapperClass = wrapper.toClass(_classLoaderForClass(targetClass), targetClass.getProtectionDomain());
+      wrapper.detach();
       _KeyBinding binding = wrapperClass.newInstance();
       return binding;
     } catch (NotFoundException e) {
@@ -309,6 +429,11 @@ public class _NSPropertyAccessorBytecode {
       if (method == null) {
         return null;
       }
+      if (_generatesAccessorClassPerTargetClass) {
+        _KeyBinding binding = _targetClassKeyBinding(_getterSlotName(method), key);
+        if (binding != null)
+          return binding;
+      }
       CtClass valueType = method.getReturnType();
       CtClass wrapper = _keyBindingClassForMember(key, method);
       CtMethod getter = CtMethod.make("public Object valueInObject(Object object) {" 
@@ -316,9 +441,11 @@ public class _NSPropertyAccessorBytecode {
       
       wrapper.addMethod(getter);
       _addMethodsForValueType(wrapper, valueType, false);
+      _addPrimitiveGetters(wrapper, valueType, unbox(method.getDeclaringClass(), "object") + "." + methodName + "()");
 
       @SuppressWarnings("unchecked")
-      Class<_KeyBinding> wrapperClass = wrapper.toClass(classLoader, getClass().getProtectionDomain());
+      Class<_KeyBinding> wrapperClass = wrapper.toClass(_classLoaderForClass(targetClass), targetClass.getProtectionDomain());
+      wrapper.detach();
       _KeyBinding binding = wrapperClass.newInstance();
       return binding;
     } catch (NotFoundException e) {
@@ -362,6 +489,11 @@ public class _NSPropertyAccessorBytecode {
       if (method == null) {
         return null;
       }
+      if (_generatesAccessorClassPerTargetClass) {
+        _KeyBinding binding = _targetClassKeyBinding(_setterSlotName(method), key);
+        if (binding != null)
+          return binding;
+      }
       CtClass valueType = method.getParameterTypes()[0];
       StringBuffer code = new StringBuffer ("public void setValueInObject(Object value, Object object) {");
       if (valueType.isPrimitive()) {
@@ -375,9 +507,11 @@ public class _NSPropertyAccessorBytecode {
 
       wrapper.addMethod(setter);
       _addMethodsForValueType(wrapper, valueType, valueType.isPrimitive());
+      _addPrimitiveSetters(wrapper, valueType, unbox(method.getDeclaringClass(), "object") + "." + methodName + "(", ")");
       
       @SuppressWarnings("unchecked")
-      Class<_KeyBinding> wrapperClass = wrapper.toClass(classLoader, getClass().getProtectionDomain());
+      Class<_KeyBinding> wrapperClass = wrapper.toClass(_classLoaderForClass(targetClass), targetClass.getProtectionDomain());
+      wrapper.detach();
       _KeyBinding binding = wrapperClass.newInstance();
       return binding;
     } catch (NotFoundException e) {
@@ -387,6 +521,231 @@ public class _NSPropertyAccessorBytecode {
     }
   }
   
+  private static String _fieldSlotName(CtField field) {
+    return "field:" + field.getName();
+  }
+
+  private static String _getterSlotName(CtMethod method) {
+    return "get:" + method.getName();
+  }
+
+  private static String _setterSlotName(CtMethod method) throws NotFoundException {
+    return "set:" + method.getName() + ":" + method.getParameterTypes()[0].getName();
+  }
+
+  private _KeyBinding _targetClassKeyBinding(String slotName, String key) {
+    AtomicReference<_TargetClassAccessor> accessorReference = _targetClassAccessors.get(targetClass);
+    _TargetClassAccessor accessor = accessorReference.get();
+    if (accessor == null) {
+      accessor = _generateTargetClassAccessor();
+      accessorReference.set(accessor);
+    }
+    return accessor.keyBinding(slotName, key);
+  }
+
+  /*
+   * Generates a single _KeyBinding subclass for the target class with one slot
+   * per accessible field, getter and setter. The class is generated in the
+   * package of the target class, so non-public members are only given a slot
+   * when they are declared in that package, the others are left to a class
+   * per key in their declaring package. If the class can not be generated all
+   * members use a class per key.
+   */
+  private _TargetClassAccessor _generateTargetClassAccessor() {
+    NSKeyValueCoding.ValueAccessor valueAccessor = NSKeyValueCoding.ValueAccessor._valueAccessorForClass(targetClass);
+    boolean publicMembersOnly = (valueAccessor == null);
+    String targetName = targetCtClass.getName();
+    String wrapperName = targetName + "$KVCAccessors" + counter++;
+    if (targetClass.getPackage() == null || targetClass.getPackage().getName().startsWith("java.")) {
+      wrapperName = "com.webobjects.kvc." + wrapperName;
+    }
+    String wrapperPackage = _packageName(wrapperName);
+    String object = unbox(targetCtClass, "object");
+    Map<String, Integer> slots = new HashMap<String, Integer>();
+    StringBuffer getters = new StringBuffer();
+    StringBuffer setters = new StringBuffer();
+    StringBuffer valueTypes = new StringBuffer();
+    StringBuffer scalars = new StringBuffer();
+    StringBuffer[] primitiveGetters = new StringBuffer[_PrimitiveAccessorTypes.length];
+    StringBuffer[] primitiveSetters = new StringBuffer[_PrimitiveAccessorTypes.length];
+    for (int i = 0; i < _PrimitiveAccessorTypes.length; i++) {
+      primitiveGetters[i] = new StringBuffer();
+      primitiveSetters[i] = new StringBuffer();
+    }
+
+    try {
+      if (!_isAccessibleFromPackage(targetCtClass, wrapperPackage)) {
+        return new _TargetClassAccessor(slots, null);
+      }
+
+      List<CtField> fields = new ArrayList<CtField>();
+      List<CtMethod> methods = new ArrayList<CtMethod>();
+      for (CtClass ctClass = targetCtClass; ctClass != null && !Object.class.getName().equals(ctClass.getName()); ctClass = ctClass.getSuperclass()) {
+        fields.addAll(Arrays.asList(ctClass.getDeclaredFields()));
+        methods.addAll(Arrays.asList(ctClass.getDeclaredMethods()));
+      }
+
+      for (CtField field : fields) {
+        String slotName = _fieldSlotName(field);
+        CtClass valueType = field.getType();
+        if (slots.containsKey(slotName) || !_isAccessibleFromPackage(field, publicMembersOnly, wrapperPackage) || !_isAccessibleFromPackage(valueType, wrapperPackage)) {
+          continue;
+        }
+        int slot = slots.size();
+        slots.put(slotName, slot);
+        String value = object + "." + field.getName();
+        getters.append("case " + slot + ": return " + box(valueType, value) + ";");
+        setters.append("case " + slot + ": ");
+        if (valueType.isPrimitive()) {
+          setters.append("if (value == null) { " + NSKeyValueCoding.Utility.class.getName() + ".unableToSetNullForKey(object, key()); return; }");
+        }
+        setters.append(value + " = " + convert(valueType, "value") + "; return;");
+        _appendSlotValueType(slot, valueType, valueType.isPrimitive(), valueTypes, scalars);
+        _appendSlotPrimitiveGetters(slot, valueType, value, primitiveGetters);
+        _appendSlotPrimitiveSetters(slot, valueType, value + " = ", "", primitiveSetters);
+      }
+
+      for (CtMethod method : methods) {
+        if (!_isAccessibleFromPackage(method, publicMembersOnly, wrapperPackage)) {
+          continue;
+        }
+        CtClass[] parameterTypes = method.getParameterTypes();
+        CtClass returnType = method.getReturnType();
+        String invocation = object + "." + method.getName() + "(";
+        if (parameterTypes.length == 0 && returnType != CtClass.voidType) {
+          String slotName = _getterSlotName(method);
+          if (slots.containsKey(slotName) || !_isAccessibleFromPackage(returnType, wrapperPackage))
+            continue;
+          int slot = slots.size();
+          slots.put(slotName, slot);
+          getters.append("case " + slot + ": return " + box(returnType, invocation + ")") + ";");
+          _appendSlotValueType(slot, returnType, false, valueTypes, scalars);
+          _appendSlotPrimitiveGetters(slot, returnType, invocation + ")", primitiveGetters);
+        } else if (parameterTypes.length == 1) {
+          String slotName = _setterSlotName(method);
+          CtClass valueType = parameterTypes[0];
+          if (slots.containsKey(slotName) || !_isAccessibleFromPackage(valueType, wrapperPackage))
+            continue;
+          int slot = slots.size();
+          slots.put(slotName, slot);
+          setters.append("case " + slot + ": ");
+          if (valueType.isPrimitive()) {
+            setters.append("if (value == null) { " + NSKeyValueCoding.Utility.class.getName() + ".unableToSetNullForKey(object, key()); return; }");
+          }
+          setters.append(invocation + convert(valueType, "value") + "); return;");
+          _appendSlotValueType(slot, valueType, valueType.isPrimitive(), valueTypes, scalars);
+          _appendSlotPrimitiveSetters(slot, valueType, invocation, ")", primitiveSetters);
+        }
+      }
+
+      if (slots.isEmpty()) {
+        return new _TargetClassAccessor(slots, null);
+      }
+
+      CtClass ctAccessor = ctPool.getCtClass(_KeyBinding.class.getName());
+      CtClass wrapper = ctPool.makeClass(wrapperName, ctAccessor);
+      wrapper.addField(CtField.make("private final int _slot;", wrapper));
+      CtConstructor c = new CtConstructor(new CtClass[] { ctPool.getCtClass(String.class.getName()), CtClass.intType }, wrapper);
+      c.setBody("{ super(" + targetName + ".class, $1); _slot = $2; }");
+      wrapper.addConstructor(c);
+      wrapper.addMethod(CtMethod.make("public Object valueInObject(Object object) { " + _switchOnSlot(getters) + "return super.valueInObject(object); }", wrapper));
+      wrapper.addMethod(CtMethod.make("public void setValueInObject(Object value, Object object) { " + _switchOnSlot(setters) + "super.setValueInObject(value, object); }", wrapper));
+      wrapper.addMethod(CtMethod.make("public Class valueType() { " + _switchOnSlot(valueTypes) + "return super.valueType(); }", wrapper));
+      wrapper.addMethod(CtMethod.make("public boolean isScalarProperty() { " + _switchOnSlot(scalars) + "return false; }", wrapper));
+      for (int i = 0; i < _PrimitiveAccessorTypes.length; i++) {
+        String primitiveType = _PrimitiveAccessorTypes[i];
+        if (primitiveGetters[i].length() > 0) {
+          wrapper.addMethod(CtMethod.make("public " + primitiveType + " " + _primitiveGetterName(primitiveType) + "(Object object) { " + _switchOnSlot(primitiveGetters[i]) + "return super." + _primitiveGetterName(primitiveType) + "(object); }", wrapper));
+        }
+        if (primitiveSetters[i].length() > 0) {
+          wrapper.addMethod(CtMethod.make("public void " + _primitiveSetterName(primitiveType) + "(" + primitiveType + " value, Object object) { " + _switchOnSlot(primitiveSetters[i]) + "super." + _primitiveSetterName(primitiveType) + "(value, object); }", wrapper));
+        }
+      }
+
+      @SuppressWarnings("unchecked")
+      Class<_KeyBinding> wrapperClass = wrapper.toClass(_classLoaderForClass(targetClass), targetClass.getProtectionDomain());
+      wrapper.detach();
+      return new _TargetClassAccessor(slots, wrapperClass.getConstructor(String.class, int.class));
+    } catch (Exception e) {
+      NSLog.err.appendln("Unable to generate the key binding class for " + targetName + ", using a class per key instead: " + e);
+      NSLog._conditionallyLogPrivateException(e);
+      return new _TargetClassAccessor(slots, null);
+    }
+  }
+
+  private static String _switchOnSlot(StringBuffer cases) {
+    return cases.length() > 0 ? "switch (_slot) { " + cases + " } " : "";
+  }
+
+  private static String _packageName(String className) {
+    int index = className.lastIndexOf('.');
+    return index < 0 ? "" : className.substring(0, index);
+  }
+
+  private static boolean _isAccessibleFromPackage(CtMember member, boolean publicMembersOnly, String packageName) {
+    int modifiers = member.getModifiers();
+    if (AccessFlag.isPrivate(modifiers) || Modifier.isStatic(modifiers) || (publicMembersOnly && !AccessFlag.isPublic(modifiers))) {
+      return false;
+    }
+    return AccessFlag.isPublic(modifiers) || packageName.equals(member.getDeclaringClass().getPackageName());
+  }
+
+  private static boolean _isAccessibleFromPackage(CtClass type, String packageName) throws NotFoundException {
+    while (type.isArray()) {
+      type = type.getComponentType();
+    }
+    return type.isPrimitive() || Modifier.isPublic(type.getModifiers()) || packageName.equals(type.getPackageName());
+  }
+
+  private void _appendSlotValueType(int slot, CtClass valueType, boolean isScalar, StringBuffer valueTypes, StringBuffer scalars) {
+    if (valueType.isPrimitive()) {
+      valueTypes.append("case " + slot + ": return " + boxedTypeName(valueType) + ".TYPE;");
+    } else {
+      valueTypes.append("case " + slot + ": return " + valueType.getName() + ".class;");
+    }
+    if (isScalar) {
+      scalars.append("case " + slot + ": return true;");
+    }
+  }
+
+  private void _appendSlotPrimitiveGetters(int slot, CtClass valueType, String value, StringBuffer[] primitiveGetters) {
+    for (int i = 0; i < _PrimitiveAccessorTypes.length; i++) {
+      if (_hasPrimitiveAccessor(valueType, _PrimitiveAccessorTypes[i])) {
+        primitiveGetters[i].append("case " + slot + ": return (" + _PrimitiveAccessorTypes[i] + ") " + value + ";");
+      }
+    }
+  }
+
+  private void _appendSlotPrimitiveSetters(int slot, CtClass valueType, String assignment, String assignmentEnd, StringBuffer[] primitiveSetters) {
+    for (int i = 0; i < _PrimitiveAccessorTypes.length; i++) {
+      if (_hasPrimitiveAccessor(valueType, _PrimitiveAccessorTypes[i])) {
+        primitiveSetters[i].append("case " + slot + ": " + assignment + "(" + valueType.getName() + ") value" + assignmentEnd + "; return;");
+      }
+    }
+  }
+
+  private static class _TargetClassAccessor {
+    private final Map<String, Integer> _slots;
+    private final Constructor<_KeyBinding> _constructor;
+
+    _TargetClassAccessor(Map<String, Integer> slots, Constructor<_KeyBinding> constructor) {
+      _slots = slots;
+      _constructor = constructor;
+    }
+
+    _KeyBinding keyBinding(String slotName, String key) {
+      Integer slot = _slots.get(slotName);
+      if (_constructor == null || slot == null) {
+        return null;
+      }
+      try {
+        return _constructor.newInstance(key, slot);
+      } catch (Exception e) {
+        throw NSForwardException._runtimeExceptionForThrowable(e);
+      }
+    }
+  }
+
   private CtClass _keyBindingClassForMember(String key, CtMember member) {
     try {
       String declaringClassName = member.getDeclaringClass().getName();
@@ -425,6 +784,42 @@ public class _NSPropertyAccessorBytecode {
     }
   }
   
+  /*
+   * Numeric members answer the numeric primitive accessors (converting with a
+   * cast, like Number does) and booleans the boolean ones. The accessors of
+   * other types keep converting the object value.
+   */
+  private static boolean _hasPrimitiveAccessor(CtClass valueType, String primitiveType) {
+    if (!valueType.isPrimitive() || valueType == CtClass.charType || valueType == CtClass.voidType) {
+      return false;
+    }
+    return (valueType == CtClass.booleanType) == "boolean".equals(primitiveType);
+  }
+
+  private static String _primitiveGetterName(String primitiveType) {
+    return primitiveType + "ValueInObject";
+  }
+
+  private static String _primitiveSetterName(String primitiveType) {
+    return "set" + Character.toUpperCase(primitiveType.charAt(0)) + primitiveType.substring(1) + "ValueInObject";
+  }
+
+  private void _addPrimitiveGetters(CtClass wrapper, CtClass valueType, String value) throws CannotCompileException {
+    for (String primitiveType : _PrimitiveAccessorTypes) {
+      if (_hasPrimitiveAccessor(valueType, primitiveType)) {
+        wrapper.addMethod(CtMethod.make("public " + primitiveType + " " + _primitiveGetterName(primitiveType) + "(Object object) { return (" + primitiveType + ") " + value + "; }", wrapper));
+      }
+    }
+  }
+
+  private void _addPrimitiveSetters(CtClass wrapper, CtClass valueType, String assignment, String assignmentEnd) throws CannotCompileException {
+    for (String primitiveType : _PrimitiveAccessorTypes) {
+      if (_hasPrimitiveAccessor(valueType, primitiveType)) {
+        wrapper.addMethod(CtMethod.make("public void " + _primitiveSetterName(primitiveType) + "(" + primitiveType + " value, Object object) { " + assignment + "(" + valueType.getName() + ") value" + assignmentEnd + "; }", wrapper));
+      }
+    }
+  }
+
   private String box(CtClass type, String arg) {
     boolean isPrimitive = type.isPrimitive();
     if (isPrimitive && (type == CtClass.intType))
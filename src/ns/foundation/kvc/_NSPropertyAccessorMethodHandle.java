@@ -0,0 +1,310 @@
+package ns.foundation.kvc;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import ns.foundation.NSForwardException;
+import ns.foundation.kvc.NSKeyValueCoding._KeyBinding;
+import ns.foundation.kvc._KeyBindingCreation._KeyBindingFactory._BindingStorage;
+import ns.foundation.utilities._NSUtilities;
+
+/**
+ * Key bindings backed by method handles. Public accessor methods are bound
+ * through LambdaMetafactory into Function / BiConsumer instances which the JIT
+ * can inline like a direct call, other methods are called through method
+ * handles adapted to Object signatures. Fields, and anything the handles
+ * cannot reach, use the reflection bindings of the superclass.
+ */
+public class _NSPropertyAccessorMethodHandle extends _NSPropertyAccessorReflection {
+  private static final _ClassValueCache<ConcurrentHashMap<String, _BindingStorage>> _bindingStorageMapTable = new _ClassValueCache<ConcurrentHashMap<String, _BindingStorage>>() {
+    @Override
+    protected ConcurrentHashMap<String, _BindingStorage> computeValue(Class<?> type) {
+      return new ConcurrentHashMap<String, _BindingStorage>(16);
+    }
+  };
+  private static final MethodHandles.Lookup _lookup = MethodHandles.lookup();
+  private static final MethodType _getterType = MethodType.methodType(Object.class, Object.class);
+  private static final MethodType _setterType = MethodType.methodType(void.class, Object.class, Object.class);
+
+  public _NSPropertyAccessorMethodHandle(Object object) {
+    super(object);
+  }
+
+  public static void _flushCaches() {
+    _bindingStorageMapTable.clear();
+  }
+
+  public static _KeyBinding _createKeyBindingForKey(Object object, String key, int lookupOrder[], boolean trueForSetAndFalseForGet) {
+    _KeyBinding keyBinding = new _NSPropertyAccessorMethodHandle(object)._createKeyBindingForKey(key, lookupOrder, trueForSetAndFalseForGet);
+    return keyBinding == null ? null : new _LegacyCompatibleKeyBinding(keyBinding);
+  }
+
+  @Override
+  protected ConcurrentHashMap<String, _BindingStorage> _bindingStorageMapTable(Class<?> objectClass) {
+    return _bindingStorageMapTable.get(objectClass);
+  }
+
+  @Override
+  public _KeyBinding _methodKeyGetBinding(String key, String methodName) {
+    boolean publicMethodOnly = NSKeyValueCoding.ValueAccessor._valueAccessorForClass(targetClass) == null;
+    Method method = null;
+    for (Method target : targetClass.getMethods()) {
+      if (!target.getName().equals(methodName) || target.getParameterTypes().length != 0) {
+        continue;
+      }
+      if ((publicMethodOnly && !Modifier.isPublic(target.getModifiers())) || Modifier.isPrivate(target.getModifiers())) {
+        continue;
+      }
+      method = target;
+      break;
+    }
+    if (method == null) {
+      return null;
+    }
+    Class<?> valueType = method.getReturnType();
+    try {
+      MethodHandle getter = _unreflect(method);
+      if (getter == null) {
+        return super._methodKeyGetBinding(key, methodName);
+      }
+      if (valueType != void.class && _canBindFromLookupClass(method)) {
+        return new _FunctionKeyBinding(targetClass, key, _getterFunction(method, getter), valueType);
+      }
+      return new _MethodHandleKeyBinding(targetClass, key, getter.asType(_getterType), null, valueType, valueType, false);
+    } catch (Throwable e) {
+      throw NSForwardException._runtimeExceptionForThrowable(e);
+    }
+  }
+
+  @Override
+  public _KeyBinding _methodKeySetBinding(String key, String methodName, Class<?> targetValueType) {
+    boolean publicMethodOnly = NSKeyValueCoding.ValueAccessor._valueAccessorForClass(targetClass) == null;
+    if (targetValueType == null) {
+      targetValueType = Object.class;
+    }
+    Method method = null;
+    for (Method target : targetClass.getMethods()) {
+      if (!target.getName().equals(methodName) || target.getParameterTypes().length != 1) {
+        continue;
+      }
+      if ((publicMethodOnly && !Modifier.isPublic(target.getModifiers())) || Modifier.isPrivate(target.getModifiers())) {
+        continue;
+      }
+      Class<?> parameterType = target.getParameterTypes()[0];
+      if (parameterType == targetValueType) {
+        method = target;
+        break;
+      } else if (_wrapperType(parameterType) == _wrapperType(targetValueType)) {
+        method = target;
+      } else if (method == null) {
+        method = target;
+      }
+    }
+    if (method == null) {
+      return null;
+    }
+    Class<?> parameterType = method.getParameterTypes()[0];
+    try {
+      MethodHandle setter = _unreflect(method);
+      if (setter == null) {
+        return super._methodKeySetBinding(key, methodName, targetValueType);
+      }
+      if (_canBindFromLookupClass(method)) {
+        return new _BiConsumerKeyBinding(targetClass, key, _setterConsumer(method, setter), targetValueType, parameterType);
+      }
+      return new _MethodHandleKeyBinding(targetClass, key, null, setter.asType(setter.type().changeReturnType(void.class)).asType(_setterType), targetValueType, parameterType, targetValueType.isPrimitive());
+    } catch (Throwable e) {
+      throw NSForwardException._runtimeExceptionForThrowable(e);
+    }
+  }
+
+  /*
+   * Public methods of non-public classes (anonymous classes for instance) are
+   * only reachable once made accessible.
+   */
+  private static MethodHandle _unreflect(Method method) {
+    try {
+      return _lookup.unreflect(method);
+    } catch (IllegalAccessException e) {
+      try {
+        method.setAccessible(true);
+        return _lookup.unreflect(method);
+      } catch (Exception e2) {
+        return null;
+      }
+    }
+  }
+
+  /*
+   * Lambda classes are defined next to this class and link against the
+   * target class by name, so the target (and its signature types) must be
+   * visible from our class loader, e.g. not an entity in a child loader.
+   */
+  private static boolean _canBindFromLookupClass(Method method) {
+    if (!Modifier.isPublic(method.getModifiers()) || !Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+      return false;
+    }
+    if (!_isVisibleFromLookupClass(method.getDeclaringClass()) || !_isVisibleFromLookupClass(method.getReturnType())) {
+      return false;
+    }
+    for (Class<?> parameterType : method.getParameterTypes()) {
+      if (!_isVisibleFromLookupClass(parameterType))
+        return false;
+    }
+    return true;
+  }
+
+  private static Class<?> _wrapperType(Class<?> type) {
+    return MethodType.methodType(type).wrap().returnType();
+  }
+
+  private static boolean _isVisibleFromLookupClass(Class<?> type) {
+    while (type.isArray()) {
+      type = type.getComponentType();
+    }
+    if (type.isPrimitive()) {
+      return true;
+    }
+    try {
+      return Class.forName(type.getName(), false, _NSPropertyAccessorMethodHandle.class.getClassLoader()) == type;
+    } catch (ClassNotFoundException e) {
+      return false;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Function<Object, Object> _getterFunction(Method method, MethodHandle getter) throws Throwable {
+    MethodType instantiatedType = MethodType.methodType(_wrapperType(method.getReturnType()), method.getDeclaringClass());
+    CallSite callSite = LambdaMetafactory.metafactory(_lookup, "apply", MethodType.methodType(Function.class), _getterType, getter, instantiatedType);
+    return (Function<Object, Object>) callSite.getTarget().invoke();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static BiConsumer<Object, Object> _setterConsumer(Method method, MethodHandle setter) throws Throwable {
+    MethodType instantiatedType = MethodType.methodType(void.class, method.getDeclaringClass(), _wrapperType(method.getParameterTypes()[0]));
+    CallSite callSite = LambdaMetafactory.metafactory(_lookup, "accept", MethodType.methodType(BiConsumer.class), _setterType, setter, instantiatedType);
+    return (BiConsumer<Object, Object>) callSite.getTarget().invoke();
+  }
+
+  static class _FunctionKeyBinding extends _KeyBinding {
+    private final Function<Object, Object> _getter;
+    private final Class<?> _valueType;
+
+    _FunctionKeyBinding(Class<?> targetClass, String key, Function<Object, Object> getter, Class<?> valueType) {
+      super(targetClass, key);
+      _getter = getter;
+      _valueType = valueType;
+    }
+
+    @Override
+    public Object valueInObject(Object object) {
+      return _getter.apply(object);
+    }
+
+    @Override
+    public Class<?> valueType() {
+      return _valueType;
+    }
+
+    @Override
+    public boolean isScalarProperty() {
+      return false;
+    }
+  }
+
+  static class _BiConsumerKeyBinding extends _KeyBinding {
+    private final BiConsumer<Object, Object> _setter;
+    private final Class<?> _valueType;
+    private final Class<?> _parameterType;
+
+    _BiConsumerKeyBinding(Class<?> targetClass, String key, BiConsumer<Object, Object> setter, Class<?> valueType, Class<?> parameterType) {
+      super(targetClass, key);
+      _setter = setter;
+      _valueType = valueType;
+      _parameterType = parameterType;
+    }
+
+    @Override
+    public void setValueInObject(Object value, Object object) {
+      if (value == null && _parameterType.isPrimitive()) {
+        NSKeyValueCoding.Utility.unableToSetNullForKey(object, _key);
+        return;
+      }
+      _setter.accept(object, _NSUtilities._convertObjectIntoCompatibleValue(value, _parameterType));
+    }
+
+    @Override
+    public Class<?> valueType() {
+      return _valueType;
+    }
+
+    @Override
+    public boolean isScalarProperty() {
+      return _valueType.isPrimitive();
+    }
+  }
+
+  static class _MethodHandleKeyBinding extends _KeyBinding {
+    private final MethodHandle _getter;
+    private final MethodHandle _setter;
+    private final Class<?> _valueType;
+    private final Class<?> _parameterType;
+    private final boolean _isScalarProperty;
+
+    _MethodHandleKeyBinding(Class<?> targetClass, String key, MethodHandle getter, MethodHandle setter, Class<?> valueType, Class<?> parameterType, boolean isScalarProperty) {
+      super(targetClass, key);
+      _getter = getter;
+      _setter = setter;
+      _valueType = valueType;
+      _parameterType = parameterType;
+      _isScalarProperty = isScalarProperty;
+    }
+
+    @Override
+    public Object valueInObject(Object object) {
+      if (_getter == null) {
+        return super.valueInObject(object);
+      }
+      try {
+        return (Object) _getter.invokeExact(object);
+      } catch (Throwable e) {
+        throw NSForwardException._runtimeExceptionForThrowable(e);
+      }
+    }
+
+    @Override
+    public void setValueInObject(Object value, Object object) {
+      if (_setter == null) {
+        super.setValueInObject(value, object);
+        return;
+      }
+      if (value == null && _parameterType.isPrimitive()) {
+        NSKeyValueCoding.Utility.unableToSetNullForKey(object, _key);
+        return;
+      }
+      try {
+        _setter.invokeExact(object, (Object) _NSUtilities._convertObjectIntoCompatibleValue(value, _parameterType));
+      } catch (Throwable e) {
+        throw NSForwardException._runtimeExceptionForThrowable(e);
+      }
+    }
+
+    @Override
+    public Class<?> valueType() {
+      return _valueType;
+    }
+
+    @Override
+    public boolean isScalarProperty() {
+      return _isScalarProperty;
+    }
+  }
+}
@@ -15,10 +15,15 @@ import ns.foundation.utilities._NSUtilities;
 
 public class _NSPropertyAccessorReflection {
   private static final _KeyBinding  _NotAvailableIndicator = new NSKeyValueCoding._KeyBinding(null, null);
-  private static final ConcurrentHashMap<_KeyBinding, _BindingStorage>  _bindingStorageMapTable     = new ConcurrentHashMap<_KeyBinding, _BindingStorage>(256);
+  private static final _ClassValueCache<ConcurrentHashMap<String, _BindingStorage>> _bindingStorageMapTable = new _ClassValueCache<ConcurrentHashMap<String, _BindingStorage>>() {
+    @Override
+    protected ConcurrentHashMap<String, _BindingStorage> computeValue(Class<?> type) {
+      return new ConcurrentHashMap<String, _BindingStorage>(16);
+    }
+  };
 
-  private Object targetObject;
-  private Class<?> targetClass;
+  protected Object targetObject;
+  protected Class<?> targetClass;
   
 
   public _NSPropertyAccessorReflection(Object object) {
@@ -70,6 +75,51 @@ public class _NSPropertyAccessorReflection {
     public Object valueInObject(Object object) {
       return _delegate.valueInObject(object);
     }
+
+    @Override
+    public Class<?> primitiveValueType() {
+      return _delegate.primitiveValueType();
+    }
+
+    @Override
+    public int intValueInObject(Object object) {
+      return _delegate.intValueInObject(object);
+    }
+
+    @Override
+    public long longValueInObject(Object object) {
+      return _delegate.longValueInObject(object);
+    }
+
+    @Override
+    public double doubleValueInObject(Object object) {
+      return _delegate.doubleValueInObject(object);
+    }
+
+    @Override
+    public boolean booleanValueInObject(Object object) {
+      return _delegate.booleanValueInObject(object);
+    }
+
+    @Override
+    public void setIntValueInObject(int value, Object object) {
+      _delegate.setIntValueInObject(value, object);
+    }
+
+    @Override
+    public void setLongValueInObject(long value, Object object) {
+      _delegate.setLongValueInObject(value, object);
+    }
+
+    @Override
+    public void setDoubleValueInObject(double value, Object object) {
+      _delegate.setDoubleValueInObject(value, object);
+    }
+
+    @Override
+    public void setBooleanValueInObject(boolean value, Object object) {
+      _delegate.setBooleanValueInObject(value, object);
+    }
     
     @Override
     public String toString() {
@@ -82,7 +132,11 @@ public class _NSPropertyAccessorReflection {
     return keyBinding == null ? null : new _LegacyCompatibleKeyBinding(keyBinding);
   }
 
-  private NSKeyValueCoding._KeyBinding _createKeyBindingForKey(String key, int[] lookupOrder, boolean trueForSetAndFalseForGet) {
+  protected ConcurrentHashMap<String, _BindingStorage> _bindingStorageMapTable(Class<?> objectClass) {
+    return _bindingStorageMapTable.get(objectClass);
+  }
+
+  protected NSKeyValueCoding._KeyBinding _createKeyBindingForKey(String key, int[] lookupOrder, boolean trueForSetAndFalseForGet) {
     if ((key == null) || (key.length() == 0)) {
       return null;
     }
@@ -92,12 +146,12 @@ public class _NSPropertyAccessorReflection {
     boolean canAccessFieldsDirectlyTestPerformed = false;
     boolean canAccessFieldsDirectly = false;
 
-    // we use a KeyBinding as key for the _BindingStorage object map table since it gives us exactly what we need: a class and a key - but we have to create a new lookup key binding to avoid synchronizing the read lookup (and we need a new instance for the write access)
-    NSKeyValueCoding._KeyBinding lookupBinding = new NSKeyValueCoding._KeyBinding(objectClass, key);
-    _BindingStorage bindingStorage = _bindingStorageMapTable.get(lookupBinding);
+    // the _BindingStorage objects are kept per class (through ClassValue so they do not keep the class alive) and per key
+    ConcurrentHashMap<String, _BindingStorage> bindingStorageMapTable = _bindingStorageMapTable(objectClass);
+    _BindingStorage bindingStorage = bindingStorageMapTable.get(key);
     if (bindingStorage == null) {
       bindingStorage = new _KeyBindingFactory._BindingStorage();
-      _bindingStorageMapTable.put(lookupBinding, bindingStorage);
+      bindingStorageMapTable.put(key, bindingStorage);
     }
 
     _KeyBindingFactory.Callback keyBindingCreationCallbackObject = (targetObject instanceof _KeyBindingFactory.Callback) ? (_KeyBindingFactory.Callback) targetObject
@@ -276,6 +330,114 @@ public class _NSPropertyAccessorReflection {
     	public boolean isScalarProperty() {
     		return valueType.isPrimitive();
     	}
+
+    	@Override
+    	public int intValueInObject(Object object) {
+    		if (valueType != int.class && valueType != short.class && valueType != byte.class) {
+    			return super.intValueInObject(object);
+    		}
+    		try {
+    			return targetField.getInt(object);
+    		}
+    		catch (Exception e) {
+    			throw NSForwardException._runtimeExceptionForThrowable(e);
+    		}
+    	}
+
+    	@Override
+    	public long longValueInObject(Object object) {
+    		if (valueType != long.class && valueType != int.class && valueType != short.class && valueType != byte.class) {
+    			return super.longValueInObject(object);
+    		}
+    		try {
+    			return targetField.getLong(object);
+    		}
+    		catch (Exception e) {
+    			throw NSForwardException._runtimeExceptionForThrowable(e);
+    		}
+    	}
+
+    	@Override
+    	public double doubleValueInObject(Object object) {
+    		if (!valueType.isPrimitive() || valueType == boolean.class || valueType == char.class) {
+    			return super.doubleValueInObject(object);
+    		}
+    		try {
+    			return targetField.getDouble(object);
+    		}
+    		catch (Exception e) {
+    			throw NSForwardException._runtimeExceptionForThrowable(e);
+    		}
+    	}
+
+    	@Override
+    	public boolean booleanValueInObject(Object object) {
+    		if (valueType != boolean.class) {
+    			return super.booleanValueInObject(object);
+    		}
+    		try {
+    			return targetField.getBoolean(object);
+    		}
+    		catch (Exception e) {
+    			throw NSForwardException._runtimeExceptionForThrowable(e);
+    		}
+    	}
+
+    	@Override
+    	public void setIntValueInObject(int value, Object object) {
+    		if (valueType != int.class && valueType != long.class && valueType != float.class && valueType != double.class) {
+    			super.setIntValueInObject(value, object);
+    			return;
+    		}
+    		try {
+    			targetField.setInt(object, value);
+    		}
+    		catch (Exception e) {
+    			throw NSForwardException._runtimeExceptionForThrowable(e);
+    		}
+    	}
+
+    	@Override
+    	public void setLongValueInObject(long value, Object object) {
+    		if (valueType != long.class && valueType != float.class && valueType != double.class) {
+    			super.setLongValueInObject(value, object);
+    			return;
+    		}
+    		try {
+    			targetField.setLong(object, value);
+    		}
+    		catch (Exception e) {
+    			throw NSForwardException._runtimeExceptionForThrowable(e);
+    		}
+    	}
+
+    	@Override
+    	public void setDoubleValueInObject(double value, Object object) {
+    		if (valueType != double.class) {
+    			super.setDoubleValueInObject(value, object);
+    			return;
+    		}
+    		try {
+    			targetField.setDouble(object, value);
+    		}
+    		catch (Exception e) {
+    			throw NSForwardException._runtimeExceptionForThrowable(e);
+    		}
+    	}
+
+    	@Override
+    	public void setBooleanValueInObject(boolean value, Object object) {
+    		if (valueType != boolean.class) {
+    			super.setBooleanValueInObject(value, object);
+    			return;
+    		}
+    		try {
+    			targetField.setBoolean(object, value);
+    		}
+    		catch (Exception e) {
+    			throw NSForwardException._runtimeExceptionForThrowable(e);
+    		}
+    	}
       };
       return binding;
     } catch (NoSuchFieldException e) {
@@ -6,16 +6,17 @@ import java.util.HashSet;
 import ns.foundation.NSSelectable;
 import ns.foundation.NSSelector;
 import ns.foundation.collections.NSArray;
+import ns.foundation.collections.NSConcurrentMutableDictionary;
+import ns.foundation.collections.NSCopyOnWriteMutableArray;
 import ns.foundation.collections.NSDictionary;
 import ns.foundation.collections.NSMutableArray;
-import ns.foundation.collections.NSMutableDictionary;
 import ns.foundation.kvc.NSKeyValueCoding;
 import ns.foundation.utilities._NSReflectionUtilities;
 
 public class NSNotificationCenter {
   private static final NSNotificationCenter _defaultCenter = new NSNotificationCenter();
 
-  private final NSMutableDictionary<String, NotificationRegistry> _namedRegistries = new NSMutableDictionary<String, NotificationRegistry>();
+  private final NSConcurrentMutableDictionary<String, NotificationRegistry> _namedRegistries = new NSConcurrentMutableDictionary<String, NotificationRegistry>();
   private final NotificationRegistry _unnamedRegistry = new NotificationRegistry();
 
   private static void postNotification(NSNotificationCenter notificationCenter, NSNotification notification) {
@@ -102,10 +103,12 @@ public class NSNotificationCenter {
     return super.toString();
   }
 
+  /*
+   * Observers are added and removed under the lock of the notification
+   * center and posted to without it, from snapshots of the observer arrays.
+   */
   private static class NotificationRegistry {
-    private NSMutableDictionary<Integer, NSMutableArray<NotificationObserver>> _objectObservers = new NSMutableDictionary<Integer, NSMutableArray<NotificationObserver>>();
-    private boolean _observerRemoval = false;
-    private NSArray<NotificationObserver> _postingObservers;
+    private NSConcurrentMutableDictionary<Integer, NSCopyOnWriteMutableArray<NotificationObserver>> _objectObservers = new NSConcurrentMutableDictionary<Integer, NSCopyOnWriteMutableArray<NotificationObserver>>();
     
     public void addObserver(NotificationObserver observer, Object _object) {
       Object object = _object;
@@ -113,16 +116,12 @@ public class NSNotificationCenter {
         object = NSKeyValueCoding.NullValue;
       }
       
-      NSMutableArray<NotificationObserver> observers = _objectObservers.objectForKey(object.hashCode());
+      NSCopyOnWriteMutableArray<NotificationObserver> observers = _objectObservers.objectForKey(object.hashCode());
       if (observers == null) {
-        observers = new NSMutableArray<NotificationObserver>();
+        observers = new NSCopyOnWriteMutableArray<NotificationObserver>();
         _objectObservers.setObjectForKey(observers, object.hashCode());
       }
       
-      if (observers == _postingObservers) {
-        _postingObservers = observers.immutableClone();
-      }
-      
       observers.add(observer);
     }
     
@@ -137,16 +136,11 @@ public class NSNotificationCenter {
       }
         
       for(Integer key : keys) {
-        NSArray<NotificationObserver> observers = _objectObservers.objectForKey(key);
+        NSCopyOnWriteMutableArray<NotificationObserver> observers = _objectObservers.objectForKey(key);
         if (observers != null) {
           int index = observers.count();
           while(index-- > 0) {
             if (observers.objectAtIndex(index).observer() == observer) {
-              _observerRemoval = true;
-              if (observers == _postingObservers) {
-                _postingObservers = observers.immutableClone();
-              }
-
               observers.remove(index);
             }
           }
@@ -172,23 +166,20 @@ public class NSNotificationCenter {
       }
       
       for (Object key : keys) {
-        _postingObservers = _objectObservers.objectForKey(key);
-        if (_postingObservers == null) {
+        NSCopyOnWriteMutableArray<NotificationObserver> observers = _objectObservers.objectForKey(key);
+        if (observers == null) {
           continue;
         }
 
-        NSArray<NotificationObserver> observers = _postingObservers;
-        
-        _observerRemoval = false;
-        int index = observers.count();
+        NSArray<NotificationObserver> postingObservers = observers.immutableClone();
+        int index = postingObservers.count();
         while (index-- > 0) {
-          NotificationObserver observer = _postingObservers.get(index);
-          if (!_observerRemoval || observers.indexOfIdenticalObject(observer) != NSArray.NotFound) {
+          NotificationObserver observer = postingObservers.objectAtIndex(index);
+          if (observers.immutableClone() == postingObservers || observers.indexOfIdenticalObject(observer) != NSArray.NotFound) {
             observer.postNotification(notification);
           }
         }
       }
-      _postingObservers = null;
     }
   }
 
@@ -0,0 +1,48 @@
+package ns.foundation.benchmarks;
+
+/**
+ * Timing and memory helpers shared by the benchmarks. Each measurement runs
+ * the benchmark as many times as it is timed first so that it is compiled
+ * before it is timed.
+ */
+abstract class BenchmarkHarness {
+
+  static Object blackhole;
+
+  static long time(int warmups, int iterations, Runnable runnable) {
+    for (int i = 0; i < warmups; i++) {
+      runnable.run();
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      runnable.run();
+    }
+    return System.nanoTime() - start;
+  }
+
+  static void measure(String name, int iterations, Runnable runnable) {
+    measure(name, iterations, iterations, runnable);
+  }
+
+  static void measure(String name, int warmups, int iterations, Runnable runnable) {
+    long elapsed = time(warmups, iterations, runnable);
+    report(name, "%12.3f ms/op", elapsed / 1e6 / iterations);
+  }
+
+  static void measurePerElement(String name, int elements, int iterations, Runnable runnable) {
+    long elapsed = time(iterations, iterations, runnable);
+    report(name, "%12.3f ns/element", (double) elapsed / iterations / elements);
+  }
+
+  static void report(String name, String format, Object... values) {
+    System.out.println(String.format("%-36s ", name) + String.format(format, values));
+  }
+
+  static long usedMemory() {
+    for (int i = 0; i < 4; i++) {
+      System.gc();
+    }
+    Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,134 @@
+package ns.foundation.benchmarks;
+
+import ns.foundation.kvc.NSKeyValueCoding;
+import ns.foundation.kvc.NSKeyValueCoding._KeyBinding;
+import ns.foundation.kvc.NSKeyValueCoding._KeyBindingCache;
+import ns.foundation.kvc._KeyBindingCreation;
+import ns.foundation.kvc._KeyBindingCreation._KeyBindingFactory;
+
+/**
+ * Compares get and set throughput of the bindings created by the reflection,
+ * bytecode and method handle key binding factories, and the hit path of the
+ * key binding cache.
+ *
+ * Run with: java ns.foundation.benchmarks.KeyBindingFactoryBenchmark [iterations] [factory | cache ...]
+ *
+ * Run each factory in its own JVM for comparable numbers, otherwise the
+ * binding call sites become megamorphic after the first factory.
+ */
+public class KeyBindingFactoryBenchmark extends BenchmarkHarness {
+
+  public static class Entity {
+    public int quantity;
+    private String _name = "name";
+
+    public String name() {
+      return _name;
+    }
+
+    public void setName(String name) {
+      _name = name;
+    }
+  }
+
+  static void benchmark(String factoryName, int iterations) {
+    final Entity entity = new Entity();
+    _KeyBindingFactory factory = _KeyBindingCreation._DefaultKeyBindingFactory._factoryNamed(factoryName);
+    final _KeyBinding quantityGetter;
+    final _KeyBinding quantitySetter;
+    final _KeyBinding nameGetter;
+    final _KeyBinding nameSetter;
+    try {
+      quantityGetter = factory._createKeyGetBindingForKey(entity, "quantity", _KeyBindingFactory._ValueForKeyLookupOrder);
+      quantitySetter = factory._createKeySetBindingForKey(entity, "quantity", _KeyBindingFactory._ValueForKeyLookupOrder);
+      nameGetter = factory._createKeyGetBindingForKey(entity, "name", _KeyBindingFactory._ValueForKeyLookupOrder);
+      nameSetter = factory._createKeySetBindingForKey(entity, "name", _KeyBindingFactory._ValueForKeyLookupOrder);
+    } catch (RuntimeException e) {
+      System.out.println(factoryName + " factory unavailable: " + e);
+      return;
+    }
+    final Integer value = Integer.valueOf(42);
+    final int loops = 1000000;
+
+    measure(factoryName + " field get", 5, iterations, new Runnable() {
+      public void run() {
+        Object result = null;
+        for (int i = 0; i < loops; i++) {
+          result = quantityGetter.valueInObject(entity);
+        }
+        blackhole = result;
+      }
+    });
+    measure(factoryName + " field set", 5, iterations, new Runnable() {
+      public void run() {
+        for (int i = 0; i < loops; i++) {
+          quantitySetter.setValueInObject(value, entity);
+        }
+      }
+    });
+    measure(factoryName + " method get", 5, iterations, new Runnable() {
+      public void run() {
+        Object result = null;
+        for (int i = 0; i < loops; i++) {
+          result = nameGetter.valueInObject(entity);
+        }
+        blackhole = result;
+      }
+    });
+    measure(factoryName + " method set", 5, iterations, new Runnable() {
+      public void run() {
+        for (int i = 0; i < loops; i++) {
+          nameSetter.setValueInObject("name", entity);
+        }
+      }
+    });
+  }
+
+  static void cacheBenchmark(int iterations) {
+    final _KeyBindingCache cache = new _KeyBindingCache(256);
+    final String[] keys = new String[64];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = "key" + i;
+      cache.put(new _KeyBinding(Entity.class, keys[i]));
+    }
+    final Entity entity = new Entity();
+    final int loops = 1000000;
+
+    measure("cache hit", 5, iterations, new Runnable() {
+      public void run() {
+        Object result = null;
+        for (int i = 0; i < loops; i++) {
+          result = cache.get(Entity.class, keys[i & 63]);
+        }
+        blackhole = result;
+      }
+    });
+    measure("valueForKey cache hit", 5, iterations, new Runnable() {
+      public void run() {
+        Object result = null;
+        for (int i = 0; i < loops; i++) {
+          result = NSKeyValueCoding.Utility.valueForKey(entity, "name");
+        }
+        blackhole = result;
+      }
+    });
+  }
+
+  public static void main(String[] args) {
+    int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+    if (args.length > 1) {
+      for (int i = 1; i < args.length; i++) {
+        if ("cache".equals(args[i])) {
+          cacheBenchmark(iterations);
+        } else {
+          benchmark(args[i], iterations);
+        }
+      }
+    } else {
+      cacheBenchmark(iterations);
+      benchmark("reflection", iterations);
+      benchmark("bytecode", iterations);
+      benchmark("methodhandle", iterations);
+    }
+  }
+}
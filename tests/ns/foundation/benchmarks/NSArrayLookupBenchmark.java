@@ -0,0 +1,60 @@
+package ns.foundation.benchmarks;
+
+import ns.foundation.collections.NSArray;
+import ns.foundation.collections.NSMutableArray;
+
+/**
+ * Dedupes one array of strings against another with containsObject and
+ * indexOfObject, on a mutable array searched linearly and on an immutable
+ * array indexed after its first searches, and calls firstObjectCommonWithArray
+ * in a loop over the same immutable array.
+ *
+ * Run with: java ns.foundation.benchmarks.NSArrayLookupBenchmark [elements] [iterations]
+ */
+public class NSArrayLookupBenchmark extends BenchmarkHarness {
+  static void run(String name, final NSArray<String> array, final NSArray<String> probes, int iterations) {
+    measure(name + " containsObject", iterations, new Runnable() {
+      public void run() {
+        int found = 0;
+        for (String probe : probes) {
+          if (array.containsObject(probe))
+            found++;
+        }
+        blackhole = found;
+      }
+    });
+    measure(name + " indexOfObject", iterations, new Runnable() {
+      public void run() {
+        long sum = 0;
+        for (String probe : probes) {
+          sum += array.indexOfObject(probe);
+        }
+        blackhole = sum;
+      }
+    });
+    final NSArray<String> single = new NSArray<String>(probes.objectAtIndex(0));
+    measure(name + " firstObjectCommon", iterations, new Runnable() {
+      public void run() {
+        int found = 0;
+        for (int i = 0; i < 1000; i++) {
+          if (single.firstObjectCommonWithArray(array) != null)
+            found++;
+        }
+        blackhole = found;
+      }
+    });
+  }
+
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+    int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+    NSMutableArray<String> objects = new NSMutableArray<String>(count);
+    NSMutableArray<String> probes = new NSMutableArray<String>(count);
+    for (int i = 0; i < count; i++) {
+      objects.addObject("key" + i * 2);
+      probes.addObject("key" + i);
+    }
+    run("mutable", objects, probes, iterations);
+    run("immutable", objects.immutableClone(), probes, iterations);
+  }
+}
@@ -0,0 +1,109 @@
+package ns.foundation.benchmarks;
+
+import java.math.BigDecimal;
+
+import ns.foundation.NSObject;
+import ns.foundation.collections.NSArray;
+import ns.foundation.collections.NSMutableArray;
+import ns.foundation.kvc.NSKeyValueCodingAdditions;
+
+/**
+ * Compares the array aggregate operators against the previous BigDecimal
+ * string parsing implementation, and valueForKey against the column
+ * extraction into a primitive array.
+ *
+ * Run with: java ns.foundation.benchmarks.NSArrayOperatorBenchmark [rows] [iterations]
+ */
+public class NSArrayOperatorBenchmark extends BenchmarkHarness {
+
+  public static class Row extends NSObject {
+    public int quantity;
+    public double price;
+
+    public Row(int quantity, double price) {
+      this.quantity = quantity;
+      this.price = price;
+    }
+  }
+
+  static BigDecimal legacySum(NSArray<?> values, String keyPath) {
+    BigDecimal sum = BigDecimal.ZERO;
+    for (Object obj : values) {
+      Object value = keyPath == null ? obj : NSKeyValueCodingAdditions.Utility.valueForKeyPath(obj, keyPath);
+      if (value != null)
+        sum = sum.add(new BigDecimal(value.toString()));
+    }
+    return sum;
+  }
+
+  static NSArray<Row> rows(int count) {
+    NSMutableArray<Row> rows = new NSMutableArray<Row>(count);
+    for (int i = 0; i < count; i++) {
+      rows.addObject(new Row(i % 100, (i % 1000) / 8.0));
+    }
+    return rows.immutableClone();
+  }
+
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+    int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+    final NSArray<Row> rows = rows(count);
+
+    measure("legacy @sum.quantity", iterations, new Runnable() {
+      public void run() {
+        blackhole = legacySum(rows, "quantity");
+      }
+    });
+    measure("@sum.quantity", iterations, new Runnable() {
+      public void run() {
+        blackhole = rows.valueForKeyPath("@sum.quantity");
+      }
+    });
+    measure("legacy @sum.price", iterations, new Runnable() {
+      public void run() {
+        blackhole = legacySum(rows, "price");
+      }
+    });
+    measure("@sum.price", iterations, new Runnable() {
+      public void run() {
+        blackhole = rows.valueForKeyPath("@sum.price");
+      }
+    });
+    NSMutableArray<Double> boxedPrices = new NSMutableArray<Double>(count);
+    for (Row row : rows) {
+      boxedPrices.addObject(row.price);
+    }
+    final NSArray<Double> doubles = boxedPrices.immutableClone();
+    measure("legacy @sum Double", iterations, new Runnable() {
+      public void run() {
+        blackhole = legacySum(doubles, null);
+      }
+    });
+    measure("@sum Double", iterations, new Runnable() {
+      public void run() {
+        blackhole = doubles.valueForKeyPath("@sum");
+      }
+    });
+    measure("@avg.price", iterations, new Runnable() {
+      public void run() {
+        blackhole = rows.valueForKeyPath("@avg.price");
+      }
+    });
+    measure("@max.quantity", iterations, new Runnable() {
+      public void run() {
+        blackhole = rows.valueForKeyPath("@max.quantity");
+      }
+    });
+    measure("valueForKey price", iterations, new Runnable() {
+      public void run() {
+        blackhole = rows.valueForKey("price");
+      }
+    });
+    final double[] prices = new double[count];
+    measure("doubleValuesForKeyPath price", iterations, new Runnable() {
+      public void run() {
+        blackhole = rows.doubleValuesForKeyPath("price", prices);
+      }
+    });
+  }
+}
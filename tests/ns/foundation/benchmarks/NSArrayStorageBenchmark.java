@@ -0,0 +1,77 @@
+package ns.foundation.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ns.foundation.collections.NSArray;
+import ns.foundation.collections._private._NSFoundationCollection.NullHandling;
+
+/**
+ * Compares the Object[] storage of immutable arrays against arrays wrapping an
+ * unmodifiable ArrayList, which was the storage of every NSArray before.
+ * Reports the time per element of indexed access, iteration and toArray, and
+ * the retained size of many small arrays. Pass a storage to measure it alone,
+ * without the call sites seeing the other storage first.
+ *
+ * Run with: java ns.foundation.benchmarks.NSArrayStorageBenchmark [elements] [iterations] [ArrayList|Object[]]
+ */
+public class NSArrayStorageBenchmark extends BenchmarkHarness {
+  static void footprint(String name, boolean wrapsArrayList) {
+    int count = 200000;
+    Integer[] objects = new Integer[] { 1, 2, 3, 4 };
+    Object[] arrays = new Object[count];
+    long before = usedMemory();
+    for (int i = 0; i < count; i++) {
+      arrays[i] = wrapsArrayList ? NSArray.asNSArray(new ArrayList<Integer>(Arrays.asList(objects)), NullHandling.NoCheck) : new NSArray<Integer>(objects);
+    }
+    long after = usedMemory();
+    blackhole = arrays;
+    report(name, "%12.1f bytes/array", (double) (after - before) / count);
+  }
+
+  static void run(String name, final NSArray<Integer> array, int iterations) {
+    final int count = array.count();
+    measurePerElement(name + " objectAtIndex", count, iterations, new Runnable() {
+      public void run() {
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+          sum += array.objectAtIndex(i);
+        }
+        blackhole = sum;
+      }
+    });
+    measurePerElement(name + " iterator", count, iterations, new Runnable() {
+      public void run() {
+        long sum = 0;
+        for (Integer value : array) {
+          sum += value;
+        }
+        blackhole = sum;
+      }
+    });
+    measurePerElement(name + " toArray", count, iterations, new Runnable() {
+      public void run() {
+        blackhole = array.toArray();
+      }
+    });
+  }
+
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+    int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+    List<Integer> list = new ArrayList<Integer>(count);
+    for (int i = 0; i < count; i++) {
+      list.add(i);
+    }
+    String storage = args.length > 2 ? args[2] : null;
+    if (storage == null || storage.equals("ArrayList")) {
+      run("ArrayList", NSArray.asNSArray(new ArrayList<Integer>(list), NullHandling.NoCheck), iterations);
+      footprint("ArrayList footprint", true);
+    }
+    if (storage == null || storage.equals("Object[]")) {
+      run("Object[]", new NSArray<Integer>(list), iterations);
+      footprint("Object[] footprint", false);
+    }
+  }
+}
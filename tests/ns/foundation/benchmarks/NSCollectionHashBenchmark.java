@@ -0,0 +1,86 @@
+package ns.foundation.benchmarks;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import ns.foundation.collections.NSArray;
+import ns.foundation.collections.NSMutableDictionary;
+
+/**
+ * Uses arrays sharing a long prefix as dictionary keys, hashed with the
+ * previous hash of the first 17 objects and with the memoized hash of all
+ * of them. Reports the number of distinct hashes and the lookup time.
+ *
+ * Run with: java ns.foundation.benchmarks.NSCollectionHashBenchmark [keys] [iterations]
+ */
+public class NSCollectionHashBenchmark extends BenchmarkHarness {
+
+  static class LegacyKey {
+    final NSArray<?> array;
+
+    LegacyKey(NSArray<?> array) {
+      this.array = array;
+    }
+
+    @Override
+    public int hashCode() {
+      int hash = 1;
+      for (int i = 0; i < array.count() && i <= 16; i++) {
+        hash ^= array.objectAtIndex(i).hashCode();
+      }
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof LegacyKey && array.equals(((LegacyKey) obj).array);
+    }
+  }
+
+  static int distinctHashes(Object[] keys) {
+    Set<Integer> hashes = new HashSet<Integer>();
+    for (Object key : keys) {
+      hashes.add(key.hashCode());
+    }
+    return hashes.size();
+  }
+
+  static void run(String name, final Object[] keys, int iterations) {
+    final NSMutableDictionary<Object, Object> dictionary = new NSMutableDictionary<Object, Object>(keys.length);
+    for (Object key : keys) {
+      dictionary.setObjectForKey(key, key);
+    }
+    report(name + " distinct hashes", "%12d", distinctHashes(keys));
+    measure(name + " lookups", iterations, new Runnable() {
+      public void run() {
+        int found = 0;
+        for (Object key : keys) {
+          if (dictionary.objectForKey(key) != null)
+            found++;
+        }
+        blackhole = found;
+      }
+    });
+  }
+
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+    Integer[] objects = new Integer[40];
+    for (int i = 0; i < 20; i++) {
+      objects[i] = i;
+    }
+    Object[] legacyKeys = new Object[count];
+    Object[] keys = new Object[count];
+    for (int i = 0; i < count; i++) {
+      for (int j = 20; j < objects.length; j++) {
+        objects[j] = i * 31 + j;
+      }
+      NSArray<Integer> array = new NSArray<Integer>(objects);
+      legacyKeys[i] = new LegacyKey(array);
+      keys[i] = array;
+    }
+    run("legacy", legacyKeys, iterations);
+    run("memoized", keys, iterations);
+  }
+}
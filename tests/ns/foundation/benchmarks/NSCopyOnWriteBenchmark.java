@@ -0,0 +1,65 @@
+package ns.foundation.benchmarks;
+
+import ns.foundation.collections.NSArray;
+import ns.foundation.collections.NSCopyOnWriteMutableArray;
+import ns.foundation.collections.NSMutableArray;
+
+/**
+ * Posts to a shared list of observers the way a notification center does:
+ * takes a snapshot of the list and iterates it, with one registration every
+ * hundred posts. Compares an NSMutableArray copied under a lock with an
+ * NSCopyOnWriteMutableArray.
+ *
+ * Run with: java ns.foundation.benchmarks.NSCopyOnWriteBenchmark [observers] [iterations]
+ */
+public class NSCopyOnWriteBenchmark extends BenchmarkHarness {
+  static int post(NSArray<Integer> observers) {
+    int sum = 0;
+    for (Integer observer : observers) {
+      sum += observer;
+    }
+    return sum;
+  }
+
+  public static void main(String[] args) {
+    final int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+    final NSMutableArray<Integer> locked = new NSMutableArray<Integer>();
+    final NSCopyOnWriteMutableArray<Integer> copyOnWrite = new NSCopyOnWriteMutableArray<Integer>();
+    for (int i = 0; i < count; i++) {
+      locked.addObject(i);
+      copyOnWrite.addObject(i);
+    }
+
+    measure("locked copy", iterations, new Runnable() {
+      public void run() {
+        long sum = 0;
+        for (int i = 0; i < 10000; i++) {
+          NSArray<Integer> snapshot;
+          synchronized (locked) {
+            if (i % 100 == 0) {
+              locked.removeObjectAtIndex(0);
+              locked.addObject(i);
+            }
+            snapshot = locked.immutableClone();
+          }
+          sum += post(snapshot);
+        }
+        blackhole = sum;
+      }
+    });
+    measure("copy on write", iterations, new Runnable() {
+      public void run() {
+        long sum = 0;
+        for (int i = 0; i < 10000; i++) {
+          if (i % 100 == 0) {
+            copyOnWrite.removeObjectAtIndex(0);
+            copyOnWrite.addObject(i);
+          }
+          sum += post(copyOnWrite.immutableClone());
+        }
+        blackhole = sum;
+      }
+    });
+  }
+}
@@ -0,0 +1,83 @@
+package ns.foundation.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import ns.foundation.collections.NSDictionary;
+import ns.foundation.collections.NSMutableDictionary;
+
+/**
+ * Compares the compact storage of dictionaries against the HashMap storage
+ * they used before: the retained size of many dictionaries of a few sizes,
+ * and the time to look up and iterate over their entries.
+ *
+ * Run with: java ns.foundation.benchmarks.NSDictionaryStorageBenchmark [dictionaries] [iterations]
+ */
+public class NSDictionaryStorageBenchmark extends BenchmarkHarness {
+  static NSDictionary<String, Integer> dictionary(String[] keys, int size, boolean hashMap) {
+    Map<String, Integer> map = hashMap ? new HashMap<String, Integer>() : new NSMutableDictionary<String, Integer>();
+    for (int i = 0; i < size; i++) {
+      map.put(keys[i], i);
+    }
+    return hashMap ? NSDictionary.asDictionary(map) : new NSDictionary<String, Integer>(map);
+  }
+
+  static void footprint(String name, String[] keys, int size, int count, boolean hashMap) {
+    Object[] dictionaries = new Object[count];
+    long before = usedMemory();
+    for (int i = 0; i < count; i++) {
+      dictionaries[i] = dictionary(keys, size, hashMap);
+    }
+    long after = usedMemory();
+    blackhole = dictionaries;
+    report(name + " " + size + " entries", "%12.1f bytes/entry", (double) (after - before) / count / size);
+  }
+
+  static void run(String name, final String[] keys, final int size, int count, int iterations, boolean hashMap) {
+    final Object[] dictionaries = new Object[count];
+    for (int i = 0; i < count; i++) {
+      dictionaries[i] = dictionary(keys, size, hashMap);
+    }
+    measure(name + " " + size + " objectForKey", iterations, new Runnable() {
+      @SuppressWarnings("unchecked")
+      public void run() {
+        long sum = 0;
+        for (Object dictionary : dictionaries) {
+          for (int i = 0; i < size; i++) {
+            sum += ((NSDictionary<String, Integer>) dictionary).objectForKey(keys[i]);
+          }
+        }
+        blackhole = sum;
+      }
+    });
+    measure(name + " " + size + " values", iterations, new Runnable() {
+      @SuppressWarnings("unchecked")
+      public void run() {
+        long sum = 0;
+        for (Object dictionary : dictionaries) {
+          for (Integer value : ((NSDictionary<String, Integer>) dictionary).values()) {
+            sum += value;
+          }
+        }
+        blackhole = sum;
+      }
+    });
+  }
+
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+    int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+    String[] keys = new String[64];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = "key" + i;
+    }
+    for (int size : new int[] { 4, 12, 64 }) {
+      footprint("HashMap", keys, size, count, true);
+      footprint("compact", keys, size, count, false);
+    }
+    for (int size : new int[] { 4, 12, 64 }) {
+      run("HashMap", keys, size, count / 10, iterations, true);
+      run("compact", keys, size, count / 10, iterations, false);
+    }
+  }
+}
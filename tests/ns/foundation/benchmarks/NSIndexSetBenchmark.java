@@ -0,0 +1,65 @@
+package ns.foundation.benchmarks;
+
+import java.util.Random;
+
+import ns.foundation.collections.NSIndexSet;
+import ns.foundation.collections.NSSet;
+
+/**
+ * Checks and combines permission flags held as a boxed NSSet of Integer and
+ * as an NSIndexSet: membership tests, union, intersection and subtraction of
+ * two dense sets of small ids.
+ *
+ * Run with: java ns.foundation.benchmarks.NSIndexSetBenchmark [ids] [iterations]
+ */
+public class NSIndexSetBenchmark extends BenchmarkHarness {
+  static void run(String name, final NSSet<Integer> set1, final NSSet<Integer> set2, final int count, int iterations) {
+    measure(name + " contains", iterations, new Runnable() {
+      public void run() {
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+          if (set1.contains(i))
+            found++;
+        }
+        blackhole = found;
+      }
+    });
+    measure(name + " union", iterations, new Runnable() {
+      public void run() {
+        blackhole = set1.setByUnioningSet(set2);
+      }
+    });
+    measure(name + " intersection", iterations, new Runnable() {
+      public void run() {
+        blackhole = set1.setByIntersectingSet(set2);
+      }
+    });
+    measure(name + " subtraction", iterations, new Runnable() {
+      public void run() {
+        blackhole = set1.setBySubtractingSet(set2);
+      }
+    });
+  }
+
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+    Random random = new Random(1);
+    NSSet.Builder<Integer> builder1 = new NSSet.Builder<Integer>(count);
+    NSSet.Builder<Integer> builder2 = new NSSet.Builder<Integer>(count);
+    NSIndexSet.Builder indexes1 = new NSIndexSet.Builder();
+    NSIndexSet.Builder indexes2 = new NSIndexSet.Builder();
+    for (int i = 0; i < count; i++) {
+      if (random.nextBoolean()) {
+        builder1.addObject(i);
+        indexes1.addIndex(i);
+      }
+      if (random.nextBoolean()) {
+        builder2.addObject(i);
+        indexes2.addIndex(i);
+      }
+    }
+    run("NSSet", builder1.build(), builder2.build(), count, iterations);
+    run("NSIndexSet", indexes1.build(), indexes2.build(), count, iterations);
+  }
+}
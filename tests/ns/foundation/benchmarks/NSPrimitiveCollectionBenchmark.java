@@ -0,0 +1,123 @@
+package ns.foundation.benchmarks;
+
+import ns.foundation.collections.NSArray;
+import ns.foundation.collections.NSDictionary;
+import ns.foundation.collections.NSDoubleArray;
+import ns.foundation.collections.NSIntArray;
+import ns.foundation.collections.NSIntDictionary;
+import ns.foundation.collections.NSLongSet;
+import ns.foundation.collections.NSSet;
+
+/**
+ * Compares the retained size per entry of boxed arrays, dictionaries and sets
+ * of primary keys against the primitive collections, and the time of @sum on
+ * both arrays.
+ *
+ * Run with: java ns.foundation.benchmarks.NSPrimitiveCollectionBenchmark [entries] [iterations]
+ */
+public class NSPrimitiveCollectionBenchmark extends BenchmarkHarness {
+  interface Factory {
+    Object create(int count);
+  }
+
+  static void footprint(String name, int count, Factory factory) {
+    long before = usedMemory();
+    Object collection = factory.create(count);
+    long after = usedMemory();
+    blackhole = collection;
+    report(name, "%12.1f bytes/entry", (double) (after - before) / count);
+    blackhole = null;
+  }
+
+  static int key(int i) {
+    return 1000000 + i * 7;
+  }
+
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+    final String value = "value";
+
+    footprint("NSArray<Integer>", count, new Factory() {
+      public Object create(int count) {
+        NSArray.Builder<Integer> builder = new NSArray.Builder<Integer>(count);
+        for (int i = 0; i < count; i++) {
+          builder.addObject(key(i));
+        }
+        return builder.build();
+      }
+    });
+    footprint("NSIntArray", count, new Factory() {
+      public Object create(int count) {
+        NSIntArray.Builder builder = new NSIntArray.Builder(count);
+        for (int i = 0; i < count; i++) {
+          builder.addInt(key(i));
+        }
+        return builder.build();
+      }
+    });
+    footprint("NSDictionary<Integer, V>", count, new Factory() {
+      public Object create(int count) {
+        NSDictionary.Builder<Integer, String> builder = new NSDictionary.Builder<Integer, String>(count);
+        for (int i = 0; i < count; i++) {
+          builder.setObjectForKey(value, key(i));
+        }
+        return builder.build();
+      }
+    });
+    footprint("NSIntDictionary<V>", count, new Factory() {
+      public Object create(int count) {
+        NSIntDictionary.Builder<String> builder = new NSIntDictionary.Builder<String>(count);
+        for (int i = 0; i < count; i++) {
+          builder.setObjectForKey(value, key(i));
+        }
+        return builder.build();
+      }
+    });
+    footprint("NSSet<Long>", count, new Factory() {
+      public Object create(int count) {
+        NSSet.Builder<Long> builder = new NSSet.Builder<Long>(count);
+        for (int i = 0; i < count; i++) {
+          builder.addObject((long) key(i));
+        }
+        return builder.build();
+      }
+    });
+    footprint("NSLongSet", count, new Factory() {
+      public Object create(int count) {
+        NSLongSet.Builder builder = new NSLongSet.Builder(count);
+        for (int i = 0; i < count; i++) {
+          builder.addLong(key(i));
+        }
+        return builder.build();
+      }
+    });
+
+    NSIntArray.Builder builder = new NSIntArray.Builder(count);
+    for (int i = 0; i < count; i++) {
+      builder.addInt(key(i));
+    }
+    final NSIntArray ints = builder.build();
+    final NSArray<Integer> objects = ints.arrayValue();
+    measure("NSArray<Integer> @sum", iterations, new Runnable() {
+      public void run() {
+        blackhole = objects.valueForKeyPath("@sum");
+      }
+    });
+    measure("NSIntArray @sum", iterations, new Runnable() {
+      public void run() {
+        blackhole = ints.valueForKeyPath("@sum");
+      }
+    });
+    double[] prices = new double[count];
+    for (int i = 0; i < count; i++) {
+      prices[i] = key(i) / 100.0;
+    }
+    final NSDoubleArray doubles = new NSDoubleArray(prices);
+    measure("NSDoubleArray @sum", iterations, new Runnable() {
+      public void run() {
+        blackhole = doubles.valueForKeyPath("@sum");
+      }
+    });
+  }
+}
@@ -0,0 +1,78 @@
+package ns.foundation.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+
+import ns.foundation.collections.NSArray;
+import ns.foundation.collections.NSRecordArray;
+import ns.foundation.collections.NSRecordLayout;
+import ns.foundation.collections.NSRecordLayout.ColumnType;
+
+/**
+ * Compares a lookup table of row objects on the heap against the same rows in
+ * a memory mapped NSRecordArray: the heap retained by each, and the time of
+ * @sum, @max and a lookup of every id.
+ *
+ * Run with: java ns.foundation.benchmarks.NSRecordArrayBenchmark [rows] [iterations]
+ */
+public class NSRecordArrayBenchmark extends BenchmarkHarness {
+  public static class Row {
+    public final long id;
+    public final int quantity;
+    public final double price;
+
+    Row(long id, int quantity, double price) {
+      this.id = id;
+      this.quantity = quantity;
+      this.price = price;
+    }
+  }
+
+  static void run(String name, final NSArray<?> array, int iterations) {
+    measure(name + " @sum.price", iterations, new Runnable() {
+      public void run() {
+        blackhole = array.valueForKeyPath("@sum.price");
+      }
+    });
+    measure(name + " @max.quantity", iterations, new Runnable() {
+      public void run() {
+        blackhole = array.valueForKeyPath("@max.quantity");
+      }
+    });
+  }
+
+  public static void main(String[] args) throws IOException {
+    final int count = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+    int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+    NSRecordLayout layout = new NSRecordLayout.Builder().addColumn("id", ColumnType.Long).addColumn("quantity", ColumnType.Int).addColumn("price", ColumnType.Double).build();
+
+    long before = usedMemory();
+    NSArray.Builder<Row> builder = new NSArray.Builder<Row>(count);
+    for (int i = 0; i < count; i++) {
+      builder.addObject(new Row(i * 3L, i % 100, i * 0.25));
+    }
+    final NSArray<Row> rows = builder.build();
+    report("heap rows", "%12.1f MB", (usedMemory() - before) / 1e6);
+
+    File file = File.createTempFile("records", ".bin");
+    file.deleteOnExit();
+    NSRecordArray.writeToFile(rows, layout, file);
+    before = usedMemory();
+    final NSRecordArray records = NSRecordArray.mappedArray(file, layout);
+    report("mapped records", "%12.1f MB", (usedMemory() - before) / 1e6);
+
+    run("heap rows", rows, iterations);
+    run("mapped records", records, iterations);
+    measure("mapped binarySearch id", iterations, new Runnable() {
+      public void run() {
+        int found = 0;
+        for (long id = 0; id < count * 3L; id += 3 * 97) {
+          if (records.binarySearch("id", id) >= 0)
+            found++;
+        }
+        blackhole = found;
+      }
+    });
+    blackhole = rows;
+  }
+}
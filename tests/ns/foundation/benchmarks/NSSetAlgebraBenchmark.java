@@ -0,0 +1,113 @@
+package ns.foundation.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import ns.foundation.collections.NSMutableSet;
+import ns.foundation.collections.NSSet;
+
+/**
+ * Resolves permissions the way an access control list does: a few granted
+ * permissions intersected with a large set of protected ones, and the union
+ * and intersection of the permissions of many roles. Compares the previous
+ * copies through NSMutableSet against setByIntersectingSet, unionOfSets and
+ * intersectionOfSets.
+ *
+ * Run with: java ns.foundation.benchmarks.NSSetAlgebraBenchmark [permissions] [iterations]
+ */
+public class NSSetAlgebraBenchmark extends BenchmarkHarness {
+  static NSSet<String> permissions(int from, int count, int step) {
+    NSSet.Builder<String> builder = new NSSet.Builder<String>(count);
+    for (int i = 0; i < count; i++) {
+      builder.addObject("permission" + (from + i * step));
+    }
+    return builder.build();
+  }
+
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+    final NSSet<String> granted = permissions(0, 20, 1000);
+    final NSSet<String> protectedPermissions = permissions(0, count, 1);
+    final List<Set<String>> roles = new ArrayList<Set<String>>();
+    for (int i = 0; i < 8; i++) {
+      roles.add(permissions(i, count / 4, 2));
+    }
+
+    measure("copy intersection", iterations, new Runnable() {
+      public void run() {
+        int found = 0;
+        for (int i = 0; i < 1000; i++) {
+          NSMutableSet<String> result = new NSMutableSet<String>();
+          for (String permission : granted) {
+            if (protectedPermissions.contains(permission))
+              result.add(permission);
+          }
+          found += result.size();
+        }
+        blackhole = found;
+      }
+    });
+    measure("copy intersection reversed", iterations, new Runnable() {
+      public void run() {
+        NSMutableSet<String> result = new NSMutableSet<String>();
+        for (String permission : protectedPermissions) {
+          if (granted.contains(permission))
+            result.add(permission);
+        }
+        blackhole = result;
+      }
+    });
+    measure("setByIntersectingSet", iterations, new Runnable() {
+      public void run() {
+        int found = 0;
+        for (int i = 0; i < 1000; i++) {
+          found += granted.setByIntersectingSet(protectedPermissions).count();
+        }
+        blackhole = found;
+      }
+    });
+    measure("setByIntersectingSet rev.", iterations, new Runnable() {
+      public void run() {
+        blackhole = protectedPermissions.setByIntersectingSet(granted);
+      }
+    });
+
+    measure("copy union of roles", iterations, new Runnable() {
+      public void run() {
+        NSSet<String> result = NSSet.emptySet();
+        for (Set<String> role : roles) {
+          NSMutableSet<String> union = result.mutableClone();
+          union.addAll(role);
+          result = union;
+        }
+        blackhole = result;
+      }
+    });
+    measure("unionOfSets", iterations, new Runnable() {
+      public void run() {
+        blackhole = NSSet.unionOfSets(roles);
+      }
+    });
+    measure("copy intersection of roles", iterations, new Runnable() {
+      public void run() {
+        NSSet<String> result = (NSSet<String>) roles.get(0);
+        for (Set<String> role : roles) {
+          NSMutableSet<String> intersection = new NSMutableSet<String>();
+          for (String permission : result) {
+            if (role.contains(permission))
+              intersection.add(permission);
+          }
+          result = intersection;
+        }
+        blackhole = result;
+      }
+    });
+    measure("intersectionOfSets", iterations, new Runnable() {
+      public void run() {
+        blackhole = NSSet.intersectionOfSets(roles);
+      }
+    });
+  }
+}
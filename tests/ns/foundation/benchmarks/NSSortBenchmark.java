@@ -0,0 +1,162 @@
+package ns.foundation.benchmarks;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Random;
+
+import ns.foundation.NSComparator;
+import ns.foundation.NSSortOrdering;
+import ns.foundation.collections.NSArray;
+import ns.foundation.collections.NSMutableArray;
+import ns.foundation.collections.SortedNSArray;
+import ns.foundation.kvc.NSKeyValueCodingAdditions;
+
+/**
+ * Compares sortedArrayUsingComparator against the previous mutableClone, sort
+ * and immutableClone, the binary search of a sorted array against
+ * indexOfObject, sortUsingComparator on one thread and in parallel, a key
+ * path sort reading the keys on each comparison or once per object, and a
+ * case insensitive sort on customer.name with a comparator or with
+ * NSSortOrdering.
+ *
+ * Run with: java ns.foundation.benchmarks.NSSortBenchmark [elements] [iterations]
+ */
+public class NSSortBenchmark extends BenchmarkHarness {
+  public static class Row {
+    private final String name;
+
+    Row(String name) {
+      this.name = name;
+    }
+
+    public String name() {
+      return name;
+    }
+  }
+
+  public static class Order {
+    private final Row customer;
+
+    Order(Row customer) {
+      this.customer = customer;
+    }
+
+    public Row customer() {
+      return customer;
+    }
+  }
+
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+    Random random = new Random(1);
+    NSMutableArray<Integer> objects = new NSMutableArray<Integer>(count);
+    for (int i = 0; i < count; i++) {
+      objects.addObject(random.nextInt());
+    }
+    final NSArray<Integer> array = objects.immutableClone();
+    final NSComparator<Number> comparator = NSComparator.AscendingNumberComparator;
+
+    measure("clone, sort, clone", iterations, new Runnable() {
+      public void run() {
+        NSMutableArray<Integer> result = array.mutableClone();
+        Collections.sort(result, comparator);
+        blackhole = result.immutableClone();
+      }
+    });
+    measure("sortedArrayUsingComparator", iterations, new Runnable() {
+      public void run() {
+        blackhole = array.sortedArrayUsingComparator(comparator);
+      }
+    });
+
+    final SortedNSArray<Integer> sortedArray = (SortedNSArray<Integer>) array.sortedArrayUsingComparator(comparator);
+    final Integer[] keys = new Integer[1000];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = array.objectAtIndex(random.nextInt(count));
+    }
+    measure("1000 indexOfObject", iterations, new Runnable() {
+      public void run() {
+        long sum = 0;
+        for (Integer key : keys) {
+          sum += sortedArray.indexOfObject(key);
+        }
+        blackhole = sum;
+      }
+    });
+    measure("1000 binary searches", iterations, new Runnable() {
+      public void run() {
+        long sum = 0;
+        for (Integer key : keys) {
+          sum += sortedArray.indexOfObjectUsingBinarySearch(key);
+        }
+        blackhole = sum;
+      }
+    });
+
+    int threshold = NSArray.parallelSortThreshold();
+    NSArray.setParallelSortThreshold(Integer.MAX_VALUE);
+    measure("sortUsingComparator", iterations, new Runnable() {
+      public void run() {
+        array.mutableClone().sortUsingComparator(comparator);
+      }
+    });
+    NSArray.setParallelSortThreshold(1);
+    measure("parallel sortUsingComparator", iterations, new Runnable() {
+      public void run() {
+        array.mutableClone().sortUsingComparator(comparator);
+      }
+    });
+    NSArray.setParallelSortThreshold(threshold);
+
+    NSMutableArray<Row> rowObjects = new NSMutableArray<Row>(count);
+    for (int i = 0; i < count; i++) {
+      rowObjects.addObject(new Row("name" + random.nextInt()));
+    }
+    final NSArray<Row> rows = rowObjects.immutableClone();
+    final NSComparator.KeyPathComparator<Row> keyPathComparator = new NSComparator.KeyPathComparator<Row>("name");
+    measure("key path, per comparison", iterations, new Runnable() {
+      public void run() {
+        NSMutableArray<Row> result = rows.mutableClone();
+        Collections.sort(result, new Comparator<Row>() {
+          public int compare(Row row1, Row row2) {
+            return keyPathComparator.compare(row1, row2);
+          }
+        });
+        blackhole = result;
+      }
+    });
+    measure("key path, keys read once", iterations, new Runnable() {
+      public void run() {
+        NSMutableArray<Row> result = rows.mutableClone();
+        result.sortUsingComparator(keyPathComparator);
+        blackhole = result;
+      }
+    });
+
+    NSMutableArray<Order> orderObjects = new NSMutableArray<Order>(count);
+    for (Row row : rows) {
+      orderObjects.addObject(new Order(new Row(random.nextBoolean() ? row.name().toUpperCase() : row.name())));
+    }
+    final NSArray<Order> orders = orderObjects.immutableClone();
+    measure("customer.name ci, comparator", iterations, new Runnable() {
+      public void run() {
+        NSMutableArray<Order> result = orders.mutableClone();
+        Collections.sort(result, new Comparator<Order>() {
+          public int compare(Order order1, Order order2) {
+            String name1 = (String) NSKeyValueCodingAdditions.Utility.valueForKeyPath(order1, "customer.name");
+            String name2 = (String) NSKeyValueCodingAdditions.Utility.valueForKeyPath(order2, "customer.name");
+            return name1.toLowerCase().compareTo(name2.toLowerCase());
+          }
+        });
+        blackhole = result;
+      }
+    });
+    final NSArray<NSSortOrdering> orderings = new NSArray<NSSortOrdering>(new NSSortOrdering("customer.name", true, true));
+    measure("customer.name ci, NSSortOrdering", iterations, new Runnable() {
+      public void run() {
+        blackhole = NSSortOrdering.sortedArrayUsingKeyOrderArray(orders, orderings);
+      }
+    });
+  }
+}
@@ -8,6 +8,8 @@ import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.RandomAccess;
 import java.util.Vector;
 
 import ns.foundation.NSComparator;
@@ -433,6 +435,59 @@ public class TestNSArray extends BaseTestCase {
     assertEquals(array, result);
   }
 
+  public void testPersistentArray() {
+    NSArray<Integer> array = NSArray.persistentArray();
+    List<Integer> expected = new ArrayList<Integer>();
+    List<NSArray<Integer>> history = new ArrayList<NSArray<Integer>>();
+    for (int i = 0; i < 40000; i++) {
+      array = array.arrayByAddingObject(i);
+      expected.add(i);
+      if (i % 1000 == 0)
+        history.add(array);
+    }
+    assertEquals(expected, array);
+    assertEquals(new NSArray<Integer>(expected), array);
+    assertEquals(new NSArray<Integer>(expected).hashCode(), array.hashCode());
+    assertTrue(array instanceof RandomAccess);
+    assertSame(array, array.immutableClone());
+    assertEquals(Arrays.asList(expected.toArray()), Arrays.asList(array.toArray()));
+    for (int i = 0; i < history.size(); i++) {
+      assertEquals(i * 1000 + 1, history.get(i).count());
+      assertEquals(Integer.valueOf(i * 1000), history.get(i).lastObject());
+    }
+
+    NSArray<Integer> subarray = array.subarrayWithRange(new NSRange(1000, 35000));
+    assertEquals(expected.subList(1000, 36000), subarray);
+    subarray = subarray.arrayByAddingObjectsFromArray(new NSArray<Integer>(new Integer[] { -1, -2 }));
+    assertEquals(35002, subarray.count());
+    assertEquals(Integer.valueOf(1000), subarray.objectAtIndex(0));
+    assertEquals(Integer.valueOf(35999), subarray.objectAtIndex(34999));
+    assertEquals(Integer.valueOf(-2), subarray.lastObject());
+    assertEquals(expected, array);
+    assertEquals(0, array.subarrayWithRange(new NSRange(5, 0)).count());
+
+    NSMutableArray<Integer> mutableArray = array.mutableClone();
+    mutableArray.addObject(-1);
+    assertEquals(40001, mutableArray.count());
+    assertEquals(40000, array.count());
+
+    try {
+      array.arrayByAddingObject(null);
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+    }
+    try {
+      NSArray.persistentArray("abc", null);
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+    }
+    try {
+      array.add(1);
+      fail("UnsupportedOperationException expected");
+    } catch (UnsupportedOperationException e) {
+    }
+  }
+
   public void testArrayByAddingObjectsFromArrayNull() {
     NSArray<String> array = new NSArray<String>(new String[] { "abc" });
     NSArray<String> result = array.arrayByAddingObjectsFromArray(null);
@@ -940,6 +995,99 @@ public class TestNSArray extends BaseTestCase {
     assertEquals(earlierTime, sorted.objectAtIndex(1));
   }
 
+  public static class PrimitiveRow {
+    public int quantity;
+    public double price;
+    public boolean available;
+    private String _name;
+
+    public PrimitiveRow(String name, int quantity, double price, boolean available) {
+      _name = name;
+      this.quantity = quantity;
+      this.price = price;
+      this.available = available;
+    }
+
+    public String name() {
+      return _name;
+    }
+  }
+
+  public void testSortedArrayUsingKeyPathComparator() {
+    PrimitiveRow a = new PrimitiveRow("a", 3, 1.5, true);
+    PrimitiveRow b = new PrimitiveRow("b", 1, 2.5, false);
+    PrimitiveRow c = new PrimitiveRow(null, 2, 0.5, true);
+    NSArray<PrimitiveRow> array = new NSArray<PrimitiveRow>(new PrimitiveRow[] { a, b, c });
+
+    NSArray<PrimitiveRow> sorted = array.sortedArrayUsingComparator(new NSComparator.KeyPathComparator<PrimitiveRow>("quantity"));
+    assertEquals(new NSArray<PrimitiveRow>(new PrimitiveRow[] { b, c, a }), sorted);
+    sorted = array.sortedArrayUsingComparator(new NSComparator.KeyPathComparator<PrimitiveRow>("price", false));
+    assertEquals(new NSArray<PrimitiveRow>(new PrimitiveRow[] { b, a, c }), sorted);
+    sorted = array.sortedArrayUsingComparator(new NSComparator.KeyPathComparator<PrimitiveRow>("available"));
+    assertEquals(new NSArray<PrimitiveRow>(new PrimitiveRow[] { b, a, c }), sorted);
+    sorted = array.sortedArrayUsingComparator(new NSComparator.KeyPathComparator<PrimitiveRow>("name"));
+    assertEquals(new NSArray<PrimitiveRow>(new PrimitiveRow[] { a, b, c }), sorted);
+
+    NSArray<Object> mixed = new NSArray<Object>(new Object[] { a, new NSDictionary<String, Integer>(2, "quantity"), b });
+    NSArray<Object> mixedSorted = mixed.sortedArrayUsingComparator(new NSComparator.KeyPathComparator<Object>("quantity", false));
+    assertSame(a, mixedSorted.objectAtIndex(0));
+    assertSame(b, mixedSorted.lastObject());
+  }
+
+  public void testOperatorsWithPrimitiveProperties() {
+    NSArray<PrimitiveRow> array = new NSArray<PrimitiveRow>(new PrimitiveRow[] { new PrimitiveRow("a", 3, 1.5, true), new PrimitiveRow("b", 1, 2.25, false), new PrimitiveRow("c", 3, 0.5, true) });
+    assertEquals(BigDecimal.valueOf(7), array.valueForKeyPath("@sum.quantity"));
+    assertEquals(0, new BigDecimal("4.25").compareTo((BigDecimal) array.valueForKeyPath("@sum.price")));
+    assertEquals(BigDecimal.valueOf(2), array.valueForKeyPath("@sum.available"));
+    NSArray<PrimitiveRow> decimals = new NSArray<PrimitiveRow>(new PrimitiveRow[] { new PrimitiveRow("a", 1, 0.1, true), new PrimitiveRow("b", 2, 0.2, true) });
+    assertEquals(new BigDecimal("0.3"), decimals.valueForKeyPath("@sum.price"));
+    assertEquals(Integer.valueOf(3), array.valueForKeyPath("@max.quantity"));
+    assertEquals(Integer.valueOf(1), array.valueForKeyPath("@min.quantity"));
+    assertEquals(Double.valueOf(2.25), array.valueForKeyPath("@max.price"));
+    assertEquals(Double.valueOf(0.5), array.valueForKeyPath("@min.price"));
+    assertEquals(Boolean.FALSE, array.valueForKeyPath("@min.available"));
+
+    NSArray<Object> mixed = new NSArray<Object>(new Object[] { new PrimitiveRow("a", 3, 1.5, true), new NSDictionary<String, Object>(2.5, "quantity"), new PrimitiveRow("b", 1, 2.25, false) });
+    assertEquals(Integer.valueOf(1), mixed.valueForKeyPath("@min.quantity"));
+    assertEquals(Integer.valueOf(3), mixed.valueForKeyPath("@max.quantity"));
+    assertEquals(0, new BigDecimal("6.5").compareTo((BigDecimal) mixed.valueForKeyPath("@sum.quantity")));
+  }
+
+  public void testValuesForKeyPath() {
+    PrimitiveRow a = new PrimitiveRow("a", 3, 1.5, true);
+    PrimitiveRow b = new PrimitiveRow(null, 1, 2.25, false);
+    NSArray<Object> array = new NSArray<Object>(new Object[] { a, b, new NSDictionary<String, Object>("7", "quantity") });
+
+    Object[] names = new NSArray<PrimitiveRow>(new PrimitiveRow[] { a, b }).valuesForKeyPath("name", new Object[3]);
+    assertEquals("a", names[0]);
+    assertNull(names[1]);
+    assertNull(names[2]);
+
+    Object[] quantities = array.valuesForKeyPath("quantity", null);
+    assertTrue(Arrays.equals(new Object[] { 3, 1, "7" }, quantities));
+    assertTrue(Arrays.equals(new int[] { 3, 1, 7 }, array.intValuesForKeyPath("quantity", null)));
+    assertTrue(Arrays.equals(new long[] { 3, 1, 7 }, array.longValuesForKeyPath("quantity", new long[3])));
+    assertTrue(Arrays.equals(new double[] { 3, 1, 7 }, array.doubleValuesForKeyPath("quantity", null)));
+
+    NSArray<PrimitiveRow> rows = new NSArray<PrimitiveRow>(new PrimitiveRow[] { a, b });
+    assertTrue(Arrays.equals(new double[] { 1.5, 2.25 }, rows.doubleValuesForKeyPath("price", null)));
+    assertTrue(Arrays.equals(new int[] { 1, 2 }, rows.intValuesForKeyPath("price", null)));
+    assertTrue(Arrays.equals(new boolean[] { true, false }, rows.booleanValuesForKeyPath("available", null)));
+    assertTrue(Arrays.equals(new boolean[] { true, true }, rows.booleanValuesForKeyPath("quantity", null)));
+    assertTrue(Arrays.equals(new int[] { 1, 0 }, rows.intValuesForKeyPath("available", null)));
+
+    try {
+      rows.intValuesForKeyPath("quantity", new int[1]);
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+    }
+    try {
+      new NSArray<PrimitiveRow>(b).intValuesForKeyPath("name", null);
+      fail("IllegalStateException expected");
+    } catch (IllegalStateException e) {
+    }
+  }
+
   public void testSubarrayWithRange() {
     NSArray<String> array = new NSArray<String>(new String[] { "abc", "def" });
     NSArray<String> subArray = array.subarrayWithRange(new NSRange(1, 1));
@@ -1076,6 +1224,69 @@ public class TestNSArray extends BaseTestCase {
     assertEquals(0, sum.intValue());
   }
   
+  public void testSumOperatorWithPrimitiveValues() {
+    BigDecimal sum = (BigDecimal) new NSArray<Long>(new Long[] { Long.MAX_VALUE, 1L }).valueForKeyPath("@sum");
+    assertEquals(BigDecimal.valueOf(Long.MAX_VALUE).add(BigDecimal.ONE), sum);
+
+    sum = (BigDecimal) new NSArray<Double>(new Double[] { 1.5, 2.25, 3.0 }).valueForKeyPath("@sum");
+    assertEquals(0, BigDecimal.valueOf(6.75).compareTo(sum));
+
+    sum = (BigDecimal) new NSArray<Object>(new Object[] { 1, 2.5, Boolean.TRUE, new BigDecimal("0.25"), "1" }).valueForKeyPath("@sum");
+    assertEquals(0, new BigDecimal("5.75").compareTo(sum));
+
+    sum = (BigDecimal) new NSArray<Double>(new Double[] { 0.1, 0.2 }).valueForKeyPath("@sum");
+    assertEquals(new BigDecimal("0.3"), sum);
+    sum = (BigDecimal) new NSArray<Float>(new Float[] { 0.1f }).valueForKeyPath("@sum");
+    assertEquals(new BigDecimal("0.1"), sum);
+    assertEquals(new BigDecimal("0.15000"), new NSArray<Float>(new Float[] { 0.1f, 0.2f }).valueForKeyPath("@avg"));
+    assertEquals(new BigDecimal("2.0"), new NSArray<Object>(new Object[] { 1, 1.0 }).valueForKeyPath("@sum"));
+
+    sum = (BigDecimal) new NSArray<Double>(new Double[] { 0.002, 1e-5, 12345678.9, 0.1 }).valueForKeyPath("@sum");
+    assertEquals(0, new BigDecimal("12345679.00201").compareTo(sum));
+
+    sum = (BigDecimal) new NSArray<Double>(new Double[] { Double.MAX_VALUE, Double.MAX_VALUE }).valueForKeyPath("@sum");
+    assertEquals(0, BigDecimal.valueOf(Double.MAX_VALUE).multiply(BigDecimal.valueOf(2)).compareTo(sum));
+
+    try {
+      new NSArray<Double>(new Double[] { 1.0, Double.NaN }).valueForKeyPath("@sum");
+      fail("NumberFormatException expected");
+    } catch (NumberFormatException e) {
+    }
+  }
+
+  public void testSumOperatorMatchesDecimalSumOfValues() {
+    Random random = new Random(42);
+    for (int run = 0; run < 200; run++) {
+      int count = 1 + random.nextInt(50);
+      Double[] doubles = new Double[count];
+      Float[] floats = new Float[count];
+      BigDecimal doubleSum = BigDecimal.ZERO;
+      BigDecimal floatSum = BigDecimal.ZERO;
+      for (int i = 0; i < count; i++) {
+        double value;
+        switch (random.nextInt(4)) {
+          case 0:
+            value = random.nextInt(100000) / 100.0;
+            break;
+          case 1:
+            value = (random.nextDouble() - 0.5) * 1000;
+            break;
+          case 2:
+            value = random.nextGaussian() * Math.pow(10, random.nextInt(30) - 10);
+            break;
+          default:
+            value = random.nextInt(1000) - 500;
+        }
+        doubles[i] = value;
+        floats[i] = (float) value;
+        doubleSum = doubleSum.add(new BigDecimal(doubles[i].toString()));
+        floatSum = floatSum.add(new BigDecimal(floats[i].toString()));
+      }
+      assertEquals(0, doubleSum.compareTo((BigDecimal) new NSArray<Double>(doubles).valueForKeyPath("@sum")));
+      assertEquals(0, floatSum.compareTo((BigDecimal) new NSArray<Float>(floats).valueForKeyPath("@sum")));
+    }
+  }
+
   public void testAvgOperator() {
     NSDictionary<?, ?>[] dicts = new NSDictionary[] { new NSDictionary<String, Integer>(2, "key"), new NSDictionary<String, Integer>(4, "key") };
     NSArray<?> array = new NSArray<NSDictionary<?, ?>>(dicts);
@@ -1120,6 +1331,79 @@ public class TestNSArray extends BaseTestCase {
     assertEquals(4, max);
   }
   
+  public void testMinMaxOperatorWithMixedNumbers() {
+    NSArray<Object> array = new NSArray<Object>(new Object[] { 3, 2.5, 7L, Boolean.FALSE });
+    assertEquals(Boolean.FALSE, array.valueForKeyPath("@min"));
+    assertEquals(7L, array.valueForKeyPath("@max"));
+
+    Integer first = new Integer(1000);
+    Integer second = new Integer(1000);
+    array = new NSArray<Object>(new Object[] { first, second });
+    assertSame(first, array.valueForKeyPath("@min"));
+    assertSame(first, array.valueForKeyPath("@max"));
+  }
+
+  public void testParallelOperators() {
+    int threshold = NSArray.parallelOperatorThreshold();
+    NSMutableArray<Object> values = new NSMutableArray<Object>();
+    for (int i = 0; i < 10000; i++) {
+      values.addObject(i % 2 == 0 ? Integer.valueOf(i % 500) : Double.valueOf((i % 700) / 4.0));
+    }
+    Object sum = values.valueForKeyPath("@sum");
+    Object avg = values.valueForKeyPath("@avg");
+    Object min = values.valueForKeyPath("@min");
+    Object max = values.valueForKeyPath("@max");
+    try {
+      NSArray.setParallelOperatorThreshold(100);
+      assertEquals(0, ((BigDecimal) sum).compareTo((BigDecimal) values.valueForKeyPath("@sum")));
+      assertEquals(0, ((BigDecimal) avg).compareTo((BigDecimal) values.valueForKeyPath("@avg")));
+      assertSame(min, values.valueForKeyPath("@min"));
+      assertSame(max, values.valueForKeyPath("@max"));
+      assertEquals(10000, values.valueForKeyPath("@count"));
+      assertEquals(null, NSArray.emptyArray().valueForKeyPath("@avg"));
+    } finally {
+      NSArray.setParallelOperatorThreshold(threshold);
+    }
+  }
+
+  public void testParallelCustomOperator() {
+    int threshold = NSArray.parallelOperatorThreshold();
+    NSArray.setOperatorForKey("longest", new NSArray.CombinableOperator() {
+      public Object compute(NSArray<?> values, String keyPath) {
+        return partialResult(values, new NSRange(0, values.count()), keyPath);
+      }
+
+      public Object partialResult(NSArray<?> values, NSRange range, String keyPath) {
+        String longest = null;
+        for (int i = range.location(); i < range.maxRange(); i++) {
+          longest = (String) combinePartialResults(longest, values.objectAtIndex(i));
+        }
+        return longest;
+      }
+
+      public Object combinePartialResults(Object left, Object right) {
+        if (left == null || ((String) right).length() > ((String) left).length())
+          return right;
+        return left;
+      }
+
+      public Object result(Object partialResult, NSArray<?> values, String keyPath) {
+        return partialResult;
+      }
+    });
+    NSMutableArray<String> values = new NSMutableArray<String>();
+    for (int i = 0; i < 5000; i++) {
+      values.addObject(String.valueOf(i % 1000));
+    }
+    try {
+      NSArray.setParallelOperatorThreshold(10);
+      assertEquals("100", values.valueForKeyPath("@longest"));
+    } finally {
+      NSArray.setParallelOperatorThreshold(threshold);
+      NSArray.removeOperatorForKey("longest");
+    }
+  }
+
   public void testTakeValueForKeyPath() {
     NSMutableDictionary<?, ?> subDict = new NSMutableDictionary<String, Integer>(2, "subkey");
     NSMutableDictionary<?, ?> dict = new NSMutableDictionary<String, NSDictionary<?, ?>>(subDict, "key");
@@ -1428,4 +1712,172 @@ public class TestNSArray extends BaseTestCase {
 //    }
   }
 
+  public void testBuilder() {
+    NSArray.Builder<String> builder = new NSArray.Builder<String>(1);
+    builder.addObject("abc").addObjects("def", "ghi").addObjectsFromCollection(new NSArray<String>("jkl"));
+    assertEquals(4, builder.count());
+    NSArray<String> array = builder.build();
+    assertEquals(new NSArray<String>(new String[] { "abc", "def", "ghi", "jkl" }), array);
+    assertSame(array, builder.build());
+    assertEquals("jkl", array.lastObject());
+    assertEquals(new NSArray<String>("ghi"), array.subarrayWithRange(new NSRange(2, 1)));
+
+    try {
+      builder.addObject("mno");
+      fail("IllegalStateException expected");
+    } catch (IllegalStateException e) {
+    }
+    assertEquals(4, array.count());
+    try {
+      array.add("mno");
+      fail("UnsupportedOperationException expected");
+    } catch (UnsupportedOperationException e) {
+    }
+    try {
+      new NSArray.Builder<String>().addObjects("abc", null);
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+    }
+    assertEquals(NSArray.EmptyArray, new NSArray.Builder<String>().build());
+  }
+
+  public void testSubListSharesImmutableStorage() {
+    NSMutableArray<String> mutableArray = new NSMutableArray<String>(new String[] { "abc", "def", "ghi", "jkl" });
+    NSArray<String> array = mutableArray.immutableClone();
+    mutableArray.replaceObjectAtIndex("xyz", 1);
+    assertEquals("def", array.objectAtIndex(1));
+
+    List<String> subList = array.subList(1, 3);
+    assertTrue(subList instanceof NSArray<?>);
+    assertTrue(subList instanceof RandomAccess);
+    assertEquals(Arrays.asList("def", "ghi"), subList);
+    assertEquals(Arrays.asList("ghi"), subList.subList(1, 2));
+    assertEquals(1, subList.indexOf("ghi"));
+    assertFalse(subList.contains("abc"));
+
+    Object[] objects = subList.toArray();
+    objects[0] = "xyz";
+    assertEquals("def", subList.get(0));
+
+    Iterator<String> iterator = subList.iterator();
+    assertEquals("def", iterator.next());
+    try {
+      iterator.remove();
+      fail("UnsupportedOperationException expected");
+    } catch (UnsupportedOperationException e) {
+    }
+    try {
+      subList.add("xyz");
+      fail("UnsupportedOperationException expected");
+    } catch (UnsupportedOperationException e) {
+    }
+    try {
+      subList.get(2);
+      fail("IndexOutOfBoundsException expected");
+    } catch (IndexOutOfBoundsException e) {
+    }
+  }
+
+  public void testHashCodeUsesAllObjects() {
+    List<Integer> list = new ArrayList<Integer>();
+    for (int i = 0; i < 100; i++) {
+      list.add(i);
+    }
+    NSArray<Integer> array = new NSArray<Integer>(list);
+    assertEquals(list.hashCode(), array.hashCode());
+    assertEquals(list.hashCode(), array.hashCode());
+    list.set(99, -1);
+    assertFalse(array.hashCode() == new NSArray<Integer>(list).hashCode());
+
+    NSMutableArray<Integer> mutableArray = new NSMutableArray<Integer>(list);
+    assertEquals(list.hashCode(), mutableArray.hashCode());
+    mutableArray.addObject(100);
+    list.add(100);
+    assertEquals(list.hashCode(), mutableArray.hashCode());
+    mutableArray.addObjectsFromArray(mutableArray);
+    list.addAll(new ArrayList<Integer>(list));
+    assertEquals(list.hashCode(), mutableArray.hashCode());
+    mutableArray.replaceObjectAtIndex(Integer.valueOf(7), 0);
+    list.set(0, 7);
+    assertEquals(list.hashCode(), mutableArray.hashCode());
+    mutableArray.removeLastObject();
+    list.remove(list.size() - 1);
+    assertEquals(list.hashCode(), mutableArray.hashCode());
+    assertEquals(new NSArray<Integer>(list).hashCode(), mutableArray.hashCode());
+    assertEquals(list.subList(2, 10).hashCode(), mutableArray.subList(2, 10).hashCode());
+  }
+
+  public void testRepeatedLookupsUseHashIndex() {
+    List<String> list = new ArrayList<String>();
+    for (int i = 0; i < 1000; i++) {
+      list.add("s" + (i % 700));
+    }
+    NSArray<String> array = new NSArray<String>(list);
+    for (int round = 0; round < 3; round++) {
+      for (int i = 0; i < 800; i++) {
+        String object = new String("s" + i);
+        assertEquals(list.indexOf(object), array.indexOfObject(object));
+        assertEquals(list.indexOf(object), array.indexOf(object));
+        assertEquals(list.contains(object), array.containsObject(object));
+      }
+    }
+    assertEquals(NSArray.NotFound, array.indexOfObject(Integer.valueOf(1)));
+    assertEquals(NSArray.NotFound, array.indexOfObject(null));
+    assertEquals(699, array.lastIndexOf("s699"));
+
+    NSArray<String> subarray = array.subarrayWithRange(new NSRange(10, 500));
+    for (int i = 0; i < 20; i++) {
+      assertEquals(list.subList(10, 510).indexOf("s" + (i * 30)), subarray.indexOfObject("s" + (i * 30)));
+    }
+  }
+
+  public void testLookupsInArrayOfMutableObjects() {
+    NSMutableArray<NSMutableArray<Integer>> arrays = new NSMutableArray<NSMutableArray<Integer>>();
+    for (int i = 0; i < 100; i++) {
+      arrays.addObject(new NSMutableArray<Integer>(new Integer[] { i }));
+    }
+    NSArray<NSMutableArray<Integer>> array = arrays.immutableClone();
+    for (int i = 0; i < 10; i++) {
+      assertEquals(i, array.indexOfObject(new NSArray<Integer>(i)));
+    }
+    array.objectAtIndex(50).addObject(-1);
+    assertEquals(50, array.indexOfObject(new NSArray<Integer>(50, -1)));
+  }
+
+  public void testFirstObjectCommonWithLargeArray() {
+    NSMutableArray<Integer> objects = new NSMutableArray<Integer>();
+    for (int i = 0; i < 100; i++) {
+      objects.addObject(i * 2);
+    }
+    NSArray<Integer> array = new NSArray<Integer>(5, 7, 9, 10, 12);
+    assertEquals(Integer.valueOf(10), array.firstObjectCommonWithArray(objects));
+    assertEquals(Integer.valueOf(10), array.firstObjectCommonWithArray(objects.immutableClone()));
+    assertNull(new NSArray<Integer>(1, 3, 201).firstObjectCommonWithArray(objects.immutableClone()));
+  }
+
+  public void testConcurrentLookups() throws InterruptedException {
+    List<Integer> list = new ArrayList<Integer>();
+    for (int i = 0; i < 10000; i++) {
+      list.add(i);
+    }
+    final NSArray<Integer> array = new NSArray<Integer>(list);
+    final boolean[] failed = new boolean[1];
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 10000; i += 7) {
+            if (array.indexOfObject(Integer.valueOf(i)) != i)
+              failed[0] = true;
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertFalse(failed[0]);
+  }
 }
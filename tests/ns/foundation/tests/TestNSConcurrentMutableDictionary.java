@@ -0,0 +1,209 @@
+package ns.foundation.tests;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import ns.foundation.collections.NSConcurrentMutableDictionary;
+import ns.foundation.collections.NSDictionary;
+import ns.foundation.collections.NSMutableDictionary;
+import ns.foundation.collections._private._NSFoundationCollection.NullHandling;
+
+public class TestNSConcurrentMutableDictionary extends BaseTestCase {
+
+  public void testNullHandling() {
+    NSConcurrentMutableDictionary<String, String> dict = new NSConcurrentMutableDictionary<String, String>("value", "key");
+    assertNull(dict.objectForKey(null));
+    assertFalse(dict.containsKey(null));
+    assertFalse(dict.containsValue(null));
+    try {
+      dict.setObjectForKey(null, "key");
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+    }
+    try {
+      dict.put(null, "value");
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+    }
+    try {
+      dict.removeObjectForKey(null);
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+    }
+
+    Map<String, String> map = new HashMap<String, String>();
+    map.put("key1", "value1");
+    map.put("key2", null);
+    try {
+      new NSConcurrentMutableDictionary<String, String>(map);
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+    }
+    assertEquals(new NSDictionary<String, String>("value1", "key1"), new NSConcurrentMutableDictionary<String, String>(map, NullHandling.CheckAndSkip));
+    assertEquals(new NSDictionary<String, String>("value1", "key1"), new NSConcurrentMutableDictionary<String, String>(map, NullHandling.NoCheck));
+  }
+
+  public void testAtomicOperations() {
+    NSConcurrentMutableDictionary<String, String> dict = new NSConcurrentMutableDictionary<String, String>();
+    assertNull(dict.setObjectForKeyIfAbsent("value1", "key"));
+    assertEquals("value1", dict.setObjectForKeyIfAbsent("value2", "key"));
+    assertEquals("value1", dict.putIfAbsent("key", "value2"));
+    assertEquals("value1", dict.put("key", "value2"));
+    assertFalse(dict.replace("key", "value1", "value3"));
+    assertTrue(dict.replace("key", "value2", "value3"));
+    assertFalse(dict.remove("key", "value2"));
+    assertTrue(dict.remove("key", "value3"));
+    assertTrue(dict.isEmpty());
+
+    dict.takeValueForKey("value", "key");
+    NSMutableDictionary<String, String> clone = dict.clone();
+    assertTrue(clone instanceof NSConcurrentMutableDictionary<?, ?>);
+    assertEquals(dict, clone);
+    assertEquals(new NSDictionary<String, String>("value", "key"), dict.immutableClone());
+    assertEquals(new NSDictionary<String, String>("value", "key").hashCode(), dict.hashCode());
+  }
+
+  public void testComputeAndMerge() {
+    NSConcurrentMutableDictionary<String, Integer> dict = new NSConcurrentMutableDictionary<String, Integer>();
+    final int[] calls = new int[1];
+    Function<String, Integer> length = new Function<String, Integer>() {
+      public Integer apply(String key) {
+        calls[0]++;
+        return key.length();
+      }
+    };
+    assertEquals(Integer.valueOf(3), dict.computeIfAbsent("key", length));
+    assertEquals(Integer.valueOf(3), dict.computeIfAbsent("key", length));
+    assertEquals(1, calls[0]);
+
+    BiFunction<Object, Integer, Integer> increment = new BiFunction<Object, Integer, Integer>() {
+      public Integer apply(Object key, Integer value) {
+        return value == null ? 1 : value + 1;
+      }
+    };
+    assertEquals(Integer.valueOf(4), dict.computeIfPresent("key", increment));
+    assertNull(dict.computeIfPresent("other", increment));
+    assertFalse(dict.containsKey("other"));
+    assertEquals(Integer.valueOf(1), dict.compute("other", increment));
+    assertEquals(Integer.valueOf(2), dict.compute("other", increment));
+
+    BiFunction<Integer, Integer, Integer> sum = new BiFunction<Integer, Integer, Integer>() {
+      public Integer apply(Integer value1, Integer value2) {
+        return value1 + value2;
+      }
+    };
+    assertEquals(Integer.valueOf(5), dict.merge("new", 5, sum));
+    assertEquals(Integer.valueOf(8), dict.merge("new", 3, sum));
+
+    BiFunction<Object, Object, Integer> remove = new BiFunction<Object, Object, Integer>() {
+      public Integer apply(Object key, Object value) {
+        return null;
+      }
+    };
+    assertNull(dict.compute("new", remove));
+    assertFalse(dict.containsKey("new"));
+
+    try {
+      dict.computeIfAbsent(null, length);
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+    }
+    try {
+      dict.compute(null, increment);
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+    }
+    try {
+      dict.merge("key", null, sum);
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+    }
+    assertNull(dict.computeIfPresent(null, increment));
+  }
+
+  public void testConcurrentCompute() throws InterruptedException {
+    final NSConcurrentMutableDictionary<String, Integer> dict = new NSConcurrentMutableDictionary<String, Integer>();
+    final BiFunction<Integer, Integer, Integer> sum = new BiFunction<Integer, Integer, Integer>() {
+      public Integer apply(Integer value1, Integer value2) {
+        return value1 + value2;
+      }
+    };
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 10000; i++) {
+            dict.merge("count", 1, sum);
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(Integer.valueOf(40000), dict.objectForKey("count"));
+  }
+
+  public void testPutAllFromConcurrentHashMap() {
+    Map<String, String> map = new ConcurrentHashMap<String, String>();
+    map.put("key1", "value1");
+    map.put("key2", "value2");
+    NSConcurrentMutableDictionary<String, String> dict = new NSConcurrentMutableDictionary<String, String>();
+    dict.putAll(map);
+    assertEquals(map, dict);
+    NSMutableDictionary<String, String> mutableDict = new NSMutableDictionary<String, String>();
+    mutableDict.putAll(map);
+    assertEquals(map, mutableDict);
+
+    Map<String, String> mapWithNull = new HashMap<String, String>();
+    mapWithNull.put("key3", null);
+    try {
+      dict.putAll(mapWithNull);
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+    }
+    assertFalse(dict.containsKey("key3"));
+  }
+
+  public void testModifyWhileIterating() {
+    NSConcurrentMutableDictionary<Integer, Integer> dict = new NSConcurrentMutableDictionary<Integer, Integer>();
+    for (int i = 0; i < 100; i++) {
+      dict.setObjectForKey(i, i);
+    }
+    for (Iterator<Integer> iterator = dict.keySet().iterator(); iterator.hasNext();) {
+      Integer key = iterator.next();
+      dict.removeObjectForKey(key);
+    }
+    assertTrue(dict.isEmpty());
+  }
+
+  public void testConcurrentUpdates() throws InterruptedException {
+    final NSConcurrentMutableDictionary<Integer, Integer> dict = new NSConcurrentMutableDictionary<Integer, Integer>();
+    final int[] inserted = new int[4];
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      final int thread = t;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 10000; i++) {
+            if (dict.setObjectForKeyIfAbsent(thread, i) == null)
+              inserted[thread]++;
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(10000, dict.count());
+    assertEquals(10000, inserted[0] + inserted[1] + inserted[2] + inserted[3]);
+  }
+}
@@ -0,0 +1,84 @@
+package ns.foundation.tests;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import ns.foundation.collections.NSConcurrentMutableSet;
+import ns.foundation.collections.NSMutableSet;
+import ns.foundation.collections.NSSet;
+import ns.foundation.collections._private._NSFoundationCollection.NullHandling;
+
+public class TestNSConcurrentMutableSet extends BaseTestCase {
+
+  public void testNullHandling() {
+    NSConcurrentMutableSet<String> set = new NSConcurrentMutableSet<String>("abc", "def");
+    assertFalse(set.contains(null));
+    assertFalse(set.remove(null));
+    assertNull(set.removeObject(null));
+    try {
+      set.addObject(null);
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+    }
+
+    List<String> list = Arrays.asList("abc", null, "def");
+    try {
+      new NSConcurrentMutableSet<String>(list);
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+    }
+    assertEquals(set, new NSConcurrentMutableSet<String>(list, NullHandling.CheckAndSkip));
+    assertEquals(set, new NSConcurrentMutableSet<String>(list, NullHandling.NoCheck));
+    assertFalse(set.removeAll(list.subList(1, 2)));
+  }
+
+  public void testSetOperations() {
+    NSConcurrentMutableSet<String> set = new NSConcurrentMutableSet<String>("abc", "def");
+    set.unionSet(new NSSet<String>("ghi"));
+    set.subtractSet(new NSSet<String>("abc"));
+    assertEquals(new NSSet<String>("def", "ghi"), set);
+    assertEquals(new NSSet<String>("def", "ghi").hashCode(), set.hashCode());
+    assertEquals(new NSSet<String>("ghi"), set.setByIntersectingSet(new NSSet<String>("ghi", "jkl")));
+    NSMutableSet<String> clone = set.clone();
+    assertTrue(clone instanceof NSConcurrentMutableSet<?>);
+    assertEquals(set, clone);
+  }
+
+  public void testModifyWhileIterating() {
+    NSConcurrentMutableSet<Integer> set = new NSConcurrentMutableSet<Integer>();
+    for (int i = 0; i < 100; i++) {
+      set.addObject(i);
+    }
+    for (Iterator<Integer> iterator = set.iterator(); iterator.hasNext();) {
+      Integer object = iterator.next();
+      set.removeObject(object);
+      set.addObject(object + 1000);
+    }
+    assertTrue(set.count() > 0);
+    for (Integer object : set) {
+      assertTrue(object >= 1000);
+    }
+  }
+
+  public void testConcurrentUpdates() throws InterruptedException {
+    final NSConcurrentMutableSet<Integer> set = new NSConcurrentMutableSet<Integer>();
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      final int thread = t;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 10000; i++) {
+            set.addObject(i * 4 + thread);
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(40000, set.count());
+  }
+}
@@ -0,0 +1,178 @@
+package ns.foundation.tests;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+
+import ns.foundation.NSComparator;
+import ns.foundation.NSRange;
+import ns.foundation.collections.NSArray;
+import ns.foundation.collections.NSCopyOnWriteMutableArray;
+import ns.foundation.collections.NSMutableArray;
+
+public class TestNSCopyOnWriteMutableArray extends BaseTestCase {
+
+  public void testModifications() {
+    NSCopyOnWriteMutableArray<String> array = new NSCopyOnWriteMutableArray<String>("a", "b", "c");
+    array.addObject("d");
+    array.insertObjectAtIndex("e", 0);
+    assertEquals(new NSArray<String>("e", "a", "b", "c", "d"), array);
+    array.addObjectsFromArray(new NSArray<String>("a", "f"));
+    assertTrue(array.removeObject("a"));
+    assertEquals(new NSArray<String>("e", "b", "c", "d", "f"), array);
+    assertEquals("b", array.removeObjectAtIndex(1));
+    assertEquals("c", array.replaceObjectAtIndex("g", 1));
+    array.removeObjectsInRange(new NSRange(0, 2));
+    assertEquals(new NSArray<String>("d", "f"), array);
+    array.replaceObjectsInRange(new NSRange(1, 1), new NSArray<String>("x", "y", "z"), new NSRange(0, 2));
+    assertEquals(new NSArray<String>("d", "x", "y"), array);
+    array.addAll(1, Arrays.asList("p", "q"));
+    assertTrue(array.retainAll(Arrays.asList("p", "x", "y")));
+    assertTrue(array.removeAll(Arrays.asList("x")));
+    assertEquals(new NSArray<String>("p", "y"), array);
+    array._moveObjectAtIndexToIndex(0, 1);
+    assertEquals(new NSArray<String>("y", "p"), array);
+    array.sortUsingComparator(NSComparator.AscendingStringComparator);
+    assertEquals(new NSArray<String>("p", "y"), array);
+    assertEquals("y", array.removeLastObject());
+    array.removeAllObjects();
+    assertTrue(array.isEmpty());
+    try {
+      array.addObject(null);
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+    }
+    try {
+      array.insertObjectAtIndex("a", 1);
+      fail("IndexOutOfBoundsException expected");
+    } catch (IndexOutOfBoundsException e) {
+    }
+  }
+
+  public void testSnapshots() {
+    NSCopyOnWriteMutableArray<String> array = new NSCopyOnWriteMutableArray<String>("a", "b", "c");
+    NSArray<String> snapshot = array.immutableClone();
+    assertSame(snapshot, array.immutableClone());
+    assertFalse(snapshot instanceof NSMutableArray<?>);
+
+    Iterator<String> iterator = array.iterator();
+    array.removeObject("b");
+    array.addObject("d");
+    assertEquals("a", iterator.next());
+    assertEquals("b", iterator.next());
+    assertEquals("c", iterator.next());
+    assertFalse(iterator.hasNext());
+    try {
+      array.iterator().remove();
+      fail("UnsupportedOperationException expected");
+    } catch (UnsupportedOperationException e) {
+    }
+
+    assertEquals(new NSArray<String>("a", "b", "c"), snapshot);
+    assertEquals(new NSArray<String>("a", "c", "d"), array);
+    assertEquals(new NSArray<String>("a", "c", "d").hashCode(), array.hashCode());
+    assertNotSame(snapshot, array.immutableClone());
+    assertTrue(array.clone() instanceof NSCopyOnWriteMutableArray<?>);
+    assertEquals(array, array.clone());
+  }
+
+  public void testSort() {
+    NSCopyOnWriteMutableArray<String> array = new NSCopyOnWriteMutableArray<String>("c", "a", "b");
+    NSArray<String> snapshot = array.immutableClone();
+    Collections.sort(array);
+    assertEquals(new NSArray<String>("a", "b", "c"), array);
+    array.sort(Collections.<String> reverseOrder());
+    assertEquals(new NSArray<String>("c", "b", "a"), array);
+    array.sort(null);
+    assertEquals(new NSArray<String>("a", "b", "c"), array);
+    assertEquals(new NSArray<String>("c", "a", "b"), snapshot);
+  }
+
+  public void testSubList() {
+    NSCopyOnWriteMutableArray<String> array = new NSCopyOnWriteMutableArray<String>("a", "b", "c", "d");
+    NSArray<String> snapshot = array.immutableClone();
+    array.subList(0, 1).clear();
+    assertEquals(new NSArray<String>("b", "c", "d"), array);
+
+    List<String> subList = array.subList(1, 3);
+    assertEquals(Arrays.asList("c", "d"), subList);
+    assertEquals("c", subList.set(0, "x"));
+    subList.add("y");
+    assertEquals("d", subList.remove(1));
+    subList.add(0, "w");
+    assertEquals(Arrays.asList("w", "x", "y"), subList);
+    assertEquals(new NSArray<String>("b", "w", "x", "y"), array);
+    assertTrue(subList.remove("w"));
+    subList.subList(0, 1).clear();
+    assertEquals(Arrays.asList("y"), subList);
+    assertEquals(new NSArray<String>("b", "y"), array);
+    assertEquals(new NSArray<String>("a", "b", "c", "d"), snapshot);
+    assertEquals(new NSArray<String>("y"), array.subarrayWithRange(new NSRange(1, 1)));
+
+    try {
+      subList.set(0, null);
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+    }
+    array.addObject("z");
+    try {
+      subList.get(0);
+      fail("ConcurrentModificationException expected");
+    } catch (ConcurrentModificationException e) {
+    }
+    try {
+      array.subList(1, 4);
+      fail("IndexOutOfBoundsException expected");
+    } catch (IndexOutOfBoundsException e) {
+    }
+  }
+
+  public void testLookups() {
+    NSCopyOnWriteMutableArray<Integer> array = new NSCopyOnWriteMutableArray<Integer>();
+    for (int i = 0; i < 100; i++) {
+      array.addObject(i);
+    }
+    for (int i = 0; i < 10; i++) {
+      assertEquals(50, array.indexOfObject(50));
+    }
+    array.removeObjectAtIndex(0);
+    for (int i = 0; i < 10; i++) {
+      assertEquals(49, array.indexOfObject(50));
+      assertFalse(array.containsObject(0));
+    }
+    assertEquals(Integer.valueOf(99), new NSArray<Integer>(99, 100).firstObjectCommonWithArray(array));
+  }
+
+  public void testConcurrentReadsAndWrites() throws InterruptedException {
+    final NSCopyOnWriteMutableArray<Integer> array = new NSCopyOnWriteMutableArray<Integer>();
+    final boolean[] failed = new boolean[1];
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      final int thread = t;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 1000; i++) {
+            array.addObject(thread);
+            int count = 0;
+            for (Integer object : array) {
+              if (object == null)
+                failed[0] = true;
+              count++;
+            }
+            if (count == 0)
+              failed[0] = true;
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertFalse(failed[0]);
+    assertEquals(4000, array.count());
+  }
+}
@@ -373,4 +373,47 @@ public class TestNSDictionary extends BaseTestCase {
 		  fail("Unable to throw unknown key exception");
 		}
 	}
+
+  public void testBuilder() {
+    NSDictionary.Builder<String, String> builder = new NSDictionary.Builder<String, String>();
+    builder.setObjectForKey("value", "key");
+    builder.addEntriesFromMap(new NSDictionary<String, String>("value2", "key2"));
+    assertEquals(2, builder.count());
+    NSDictionary<String, String> dictionary = builder.build();
+    assertEquals(2, dictionary.count());
+    assertEquals("value2", dictionary.objectForKey("key2"));
+    assertSame(dictionary, builder.build());
+
+    try {
+      builder.setObjectForKey("value3", "key3");
+      fail("IllegalStateException expected");
+    } catch (IllegalStateException e) {
+    }
+    assertEquals(2, dictionary.count());
+    try {
+      dictionary.put("key3", "value3");
+      fail("UnsupportedOperationException expected");
+    } catch (UnsupportedOperationException e) {
+    }
+    try {
+      new NSDictionary.Builder<String, String>().setObjectForKey(null, "key");
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+    }
+  }
+
+  public void testHashCode() {
+    Map<String, String> map = new HashMap<String, String>();
+    map.put("key", "value");
+    map.put("key2", "value2");
+    NSDictionary<String, String> dictionary = new NSDictionary<String, String>(map);
+    NSMutableDictionary<String, String> mutableDictionary = new NSMutableDictionary<String, String>(map);
+    assertEquals(map.hashCode(), dictionary.hashCode());
+    assertEquals(map.hashCode(), mutableDictionary.hashCode());
+    mutableDictionary.setObjectForKey("value3", "key2");
+    map.put("key2", "value3");
+    assertEquals(map.hashCode(), mutableDictionary.hashCode());
+    assertFalse(dictionary.hashCode() == mutableDictionary.hashCode());
+  }
+
 }
@@ -0,0 +1,136 @@
+package ns.foundation.tests;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import ns.foundation.NSRange;
+import ns.foundation.collections.NSArray;
+import ns.foundation.collections.NSIndexSet;
+import ns.foundation.collections.NSIntArray;
+import ns.foundation.collections.NSMutableSet;
+import ns.foundation.collections.NSSet;
+
+public class TestNSIndexSet extends BaseTestCase {
+
+  private static Set<Integer> randomIndexes(Random random, int count, int from, int bound) {
+    Set<Integer> indexes = new HashSet<Integer>();
+    for (int i = 0; i < count; i++) {
+      indexes.add(from + random.nextInt(bound));
+    }
+    return indexes;
+  }
+
+  public void testIndexes() {
+    NSIndexSet set = new NSIndexSet.Builder().addIndexes(3, 5, 64, 200).addIndexesInRange(new NSRange(100, 40)).build();
+    assertEquals(44, set.count());
+    assertTrue(set.containsIndex(64));
+    assertTrue(set.contains(Integer.valueOf(139)));
+    assertFalse(set.containsIndex(140));
+    assertFalse(set.containsIndex(-1));
+    assertFalse(set.contains("3"));
+    assertEquals(3, set.firstIndex());
+    assertEquals(200, set.lastIndex());
+    assertEquals(64, set.indexGreaterThanIndex(5));
+    assertEquals(100, set.indexGreaterThanOrEqualToIndex(65));
+    assertEquals(NSIndexSet.NotFound, set.indexGreaterThanIndex(200));
+    assertEquals(139, set.indexLessThanIndex(200));
+    assertEquals(5, set.indexLessThanOrEqualToIndex(63));
+    assertEquals(NSIndexSet.NotFound, set.indexLessThanIndex(3));
+    assertEquals(new NSArray<NSRange>(new NSRange(3, 1), new NSRange(5, 1), new NSRange(64, 1), new NSRange(100, 40), new NSRange(200, 1)), set.ranges());
+    assertTrue(set.containsIndexesInRange(new NSRange(110, 20)));
+    assertFalse(set.containsIndexesInRange(new NSRange(130, 20)));
+    assertEquals(10, set.countOfIndexesInRange(new NSRange(130, 20)));
+    assertTrue(set.intersectsIndexesInRange(new NSRange(60, 10)));
+    assertEquals("(3, 5, 64, 100-139, 200)", set.toString());
+
+    NSIntArray indexes = set.intArrayValue();
+    assertEquals(44, indexes.count());
+    assertEquals(100, indexes.intAtIndex(3));
+
+    assertTrue(NSIndexSet.EmptyIndexSet.isEmpty());
+    assertEquals(NSIndexSet.NotFound, NSIndexSet.EmptyIndexSet.firstIndex());
+    assertEquals(0, NSIndexSet.EmptyIndexSet.ranges().count());
+    try {
+      new NSIndexSet(-1);
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+    }
+    try {
+      set.add(7);
+      fail("UnsupportedOperationException expected");
+    } catch (UnsupportedOperationException e) {
+    }
+  }
+
+  public void testSetSemantics() {
+    Random random = new Random(1);
+    Set<Integer> indexes = randomIndexes(random, 500, 100000, 3000);
+    NSIndexSet set = new NSIndexSet(indexes);
+    assertEquals(indexes, set);
+    assertEquals(set, indexes);
+    assertEquals(indexes.hashCode(), set.hashCode());
+    assertEquals(new NSSet<Integer>(indexes), set);
+    assertEquals(set, new NSSet<Integer>(indexes));
+    assertEquals(indexes, set.mutableClone());
+    assertSame(set, NSIndexSet.indexSetWithIndexes(set));
+
+    List<Integer> iterated = new ArrayList<Integer>(set);
+    for (int i = 1; i < iterated.size(); i++) {
+      assertTrue(iterated.get(i - 1) < iterated.get(i));
+    }
+    assertEquals(indexes.size(), iterated.size());
+  }
+
+  public void testSetAlgebra() {
+    Random random = new Random(2);
+    for (int round = 0; round < 20; round++) {
+      Set<Integer> indexes1 = randomIndexes(random, random.nextInt(400), random.nextInt(300), 1 + random.nextInt(2000));
+      Set<Integer> indexes2 = randomIndexes(random, random.nextInt(400), random.nextInt(300), 1 + random.nextInt(2000));
+      NSIndexSet set1 = new NSIndexSet(indexes1);
+      NSIndexSet set2 = new NSIndexSet(indexes2);
+      NSSet<Integer> other = new NSSet<Integer>(indexes2);
+
+      Set<Integer> union = new HashSet<Integer>(indexes1);
+      union.addAll(indexes2);
+      Set<Integer> intersection = new HashSet<Integer>(indexes1);
+      intersection.retainAll(indexes2);
+      Set<Integer> difference = new HashSet<Integer>(indexes1);
+      difference.removeAll(indexes2);
+
+      assertEquals(union, set1.setByUnioningSet(set2));
+      assertTrue(set1.setByUnioningSet(set2) instanceof NSMutableSet<?>);
+      assertTrue(set1.setByIntersectingSet(set2) instanceof NSMutableSet<?>);
+      assertTrue(set1.setBySubtractingSet(other) instanceof NSMutableSet<?>);
+      assertEquals(union, set1.indexSetByUnioningIndexSet(set2));
+      assertEquals(union, set1.setByUnioningSet(other));
+      assertEquals(intersection, set1.setByIntersectingSet(set2));
+      assertEquals(intersection, set1.setByIntersectingSet(other));
+      assertEquals(difference, set1.setBySubtractingSet(set2));
+      assertEquals(difference, set1.setBySubtractingSet(other));
+      assertEquals(!intersection.isEmpty(), set1.intersectsSet(set2));
+      assertEquals(indexes2.containsAll(indexes1), set1.isSubsetOfSet(set2));
+      assertTrue(set1.setByIntersectingSet(set2).isSubsetOfSet(set1));
+
+      List<Set<Integer>> sets = new ArrayList<Set<Integer>>();
+      sets.add(set1);
+      sets.add(set2);
+      assertEquals(union, NSSet.unionOfSets(sets));
+      assertEquals(intersection, NSSet.intersectionOfSets(sets));
+      assertTrue(NSSet.unionOfSets(sets) instanceof NSMutableSet<?>);
+    }
+  }
+
+  public void testObjectsAtIndexes() {
+    NSArray<String> array = new NSArray<String>("a", "b", "c", "d", "e");
+    assertEquals(new NSArray<String>("b", "d", "e"), array.objectsAtIndexes(new NSIndexSet(4, 1, 3)));
+    assertEquals(0, array.objectsAtIndexes(NSIndexSet.EmptyIndexSet).count());
+    try {
+      array.objectsAtIndexes(new NSIndexSet(5));
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+    }
+  }
+}
@@ -1,22 +1,42 @@
 package ns.foundation.tests;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import ns.foundation.NSForwardException;
+
 import ns.foundation.kvc.NSKeyValueCoding;
+import ns.foundation.kvc.NSKeyValueCodingAdditions;
 import ns.foundation.kvc.NSKeyValueCoding.DefaultImplementation;
 import ns.foundation.kvc.NSKeyValueCoding.ErrorHandling;
 import ns.foundation.kvc.NSKeyValueCoding.UnknownKeyException;
 import ns.foundation.kvc.NSKeyValueCoding.Utility;
 import ns.foundation.kvc.NSKeyValueCoding._KeyBinding;
+import ns.foundation.kvc.NSKeyValueCoding._KeyBindingCache;
 import ns.foundation.kvc._KeyBindingCreation;
+import ns.foundation.kvc._NSKeyBindingGenerator;
+import ns.foundation.kvc._NSKeyBindingRegistry;
+import ns.foundation.kvc._NSPropertyAccessorBytecode;
 import ns.foundation.kvc._KeyBindingCreation._KeyBindingFactory;
 import ns.foundation.kvc._KeyBindingCreation._KeyBindingFactory.Callback;
 import ns.foundation.tests.noaccess.NoAccessClass;
 import ns.foundation.tests.protectedaccess.RestrictedClass;
 import ns.foundation.tests.protectedaccess.SubclassOfNoAccessClass;
+import ns.foundation.tests.protectedaccess.SubclassOfRestrictedClass;
 
 
 @SuppressWarnings("unused")
@@ -2185,4 +2205,451 @@ public class TestNSKeyValueCoding extends BaseTestCase {
     SubclassOfNoAccessClass obj = new SubclassOfNoAccessClass();
     assertEquals(42, Utility.valueForKey(obj, "knownField"));
   }
+
+  public void testBytecodeKeyBindingCreation$sharedClassPool() {
+    assertSame(_NSPropertyAccessorBytecode._classPoolForClass(RestrictedClass.class), _NSPropertyAccessorBytecode._classPoolForClass(SubclassOfNoAccessClass.class));
+  }
+
+  public void testBytecodeKeyBindingCreation$inheritedRestrictedAccess() {
+    _assertBytecodeInheritedRestrictedAccess(false);
+  }
+
+  public void testBytecodeKeyBindingCreation$accessorClassPerTargetClass() {
+    _assertBytecodeInheritedRestrictedAccess(true);
+  }
+
+  private void _assertBytecodeInheritedRestrictedAccess(boolean accessorClassPerTargetClass) {
+    boolean generatesAccessorClassPerTargetClass = _NSPropertyAccessorBytecode._generatesAccessorClassPerTargetClass();
+    _NSPropertyAccessorBytecode._setGeneratesAccessorClassPerTargetClass(accessorClassPerTargetClass);
+    _NSPropertyAccessorBytecode._flushCaches();
+    try {
+      _KeyBindingFactory factory = new _KeyBindingCreation._BytecodeKeyBindingCreation();
+      SubclassOfRestrictedClass obj = new SubclassOfRestrictedClass();
+      for (String key : new String[] { "knownField", "knownField2", "knownMethod", "knownMethod2", "intField" }) {
+        _KeyBinding kb = factory._createKeyGetBindingForKey(obj, key, _KeyBindingFactory._ValueForKeyLookupOrder);
+        assertEquals(FORTY_TWO, kb.valueInObject(obj));
+        assertEquals(accessorClassPerTargetClass, kb.toString().contains("$KVCAccessors"));
+      }
+
+      _KeyBinding kb = factory._createKeySetBindingForKey(obj, "knownMethod", _KeyBindingFactory._ValueForKeyLookupOrder);
+      kb.setValueInObject(24, obj);
+      assertEquals(24, factory._createKeyGetBindingForKey(obj, "knownField", _KeyBindingFactory._ValueForKeyLookupOrder).valueInObject(obj));
+
+      kb = factory._createKeySetBindingForKey(obj, "knownField2", _KeyBindingFactory._ValueForKeyLookupOrder);
+      kb.setValueInObject(24, obj);
+      assertEquals(24, factory._createKeyGetBindingForKey(obj, "knownField2", _KeyBindingFactory._ValueForKeyLookupOrder).valueInObject(obj));
+
+      kb = factory._createKeySetBindingForKey(obj, "intField", _KeyBindingFactory._ValueForKeyLookupOrder);
+      assertTrue(kb.isScalarProperty());
+      kb.setIntValueInObject(5, obj);
+      assertEquals(5, factory._createKeyGetBindingForKey(obj, "intField", _KeyBindingFactory._ValueForKeyLookupOrder).intValueInObject(obj));
+
+      // protected members declared in another package are not accessible from the target class package
+      SubclassOfNoAccessClass other = new SubclassOfNoAccessClass();
+      kb = factory._createKeyGetBindingForKey(other, "knownField", _KeyBindingFactory._ValueForKeyLookupOrder);
+      assertEquals(FORTY_TWO, kb.valueInObject(other));
+      assertFalse(kb.toString().contains("$KVCAccessors"));
+    } finally {
+      _NSPropertyAccessorBytecode._setGeneratesAccessorClassPerTargetClass(generatesAccessorClassPerTargetClass);
+      _NSPropertyAccessorBytecode._flushCaches();
+    }
+  }
+
+  public void testMethodHandleKeyBindingCreation$field() {
+    KeyBindingTypeTest obj = new KeyBindingTypeTest();
+    _KeyBindingFactory factory = new _KeyBindingCreation._MethodHandleKeyBindingCreation();
+
+    _KeyBinding kb = factory._createKeySetBindingForKey(obj, "intField", _KeyBindingFactory._ValueForKeyLookupOrder);
+    assertEquals(Integer.class, kb.valueType());
+    assertTrue(kb.isScalarProperty());
+    kb.setValueInObject(FORTY_TWO_LONG, obj);
+    assertEquals(42, obj.intField);
+
+    kb = factory._createKeyGetBindingForKey(obj, "intField", _KeyBindingFactory._ValueForKeyLookupOrder);
+    assertEquals(FORTY_TWO, kb.valueInObject(obj));
+
+    kb = factory._createKeyGetBindingForKey(obj, "stringField", _KeyBindingFactory._ValueForKeyLookupOrder);
+    obj.stringField = FORTY_TWO_STRING;
+    assertEquals(FORTY_TWO_STRING, kb.valueInObject(obj));
+  }
+
+  public void testMethodHandleKeyBindingCreation$method() {
+    KeyBindingTypeTest obj = new KeyBindingTypeTest();
+    _KeyBindingFactory factory = new _KeyBindingCreation._MethodHandleKeyBindingCreation();
+
+    _KeyBinding kb = factory._createKeyGetBindingForKey(obj, "knownMethod", _KeyBindingFactory._ValueForKeyLookupOrder);
+    assertEquals(FORTY_TWO, kb.valueInObject(obj));
+    assertFalse(kb.isScalarProperty());
+
+    kb = factory._createKeySetBindingForKey(obj, "byteMethod", _KeyBindingFactory._ValueForKeyLookupOrder);
+    kb.setValueInObject(FORTY_TWO, obj);
+    assertEquals(FORTY_TWO_BYTE.byteValue(), obj.byteField);
+
+    try {
+      kb.setValueInObject(null, obj);
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+    }
+  }
+
+  public void testMethodHandleKeyBindingCreation$anonInnerClass() {
+    Object obj = new Object() {
+      @SuppressWarnings("unused")
+      public Integer knownMethod() { return FORTY_TWO; }
+    };
+    _KeyBindingFactory factory = new _KeyBindingCreation._MethodHandleKeyBindingCreation();
+    _KeyBinding kb = factory._createKeyGetBindingForKey(obj, "knownMethod", _KeyBindingFactory._ValueForKeyLookupOrder);
+    assertEquals(FORTY_TWO, kb.valueInObject(obj));
+  }
+
+  private void _assertPrimitiveAccessors(_KeyBindingFactory factory) {
+    KeyBindingTypeTest obj = new KeyBindingTypeTest();
+    obj.intField = 42;
+    obj.doubleField = 2.5;
+    obj.booleanField = true;
+
+    _KeyBinding kb = factory._createKeyGetBindingForKey(obj, "intField", _KeyBindingFactory._ValueForKeyLookupOrder);
+    assertEquals(int.class, kb.primitiveValueType());
+    assertEquals(42, kb.intValueInObject(obj));
+    assertEquals(42L, kb.longValueInObject(obj));
+    assertEquals(42.0, kb.doubleValueInObject(obj));
+    assertTrue(kb.booleanValueInObject(obj));
+
+    kb = factory._createKeyGetBindingForKey(obj, "doubleField", _KeyBindingFactory._ValueForKeyLookupOrder);
+    assertEquals(double.class, kb.primitiveValueType());
+    assertEquals(2, kb.intValueInObject(obj));
+    assertEquals(2.5, kb.doubleValueInObject(obj));
+
+    kb = factory._createKeyGetBindingForKey(obj, "intMethod", _KeyBindingFactory._ValueForKeyLookupOrder);
+    assertEquals(int.class, kb.primitiveValueType());
+    assertEquals(42L, kb.longValueInObject(obj));
+
+    kb = factory._createKeyGetBindingForKey(obj, "booleanField", _KeyBindingFactory._ValueForKeyLookupOrder);
+    assertEquals(boolean.class, kb.primitiveValueType());
+    assertTrue(kb.booleanValueInObject(obj));
+    assertEquals(1, kb.intValueInObject(obj));
+
+    kb = factory._createKeyGetBindingForKey(obj, "integerField", _KeyBindingFactory._ValueForKeyLookupOrder);
+    assertNull(kb.primitiveValueType());
+    obj.integerField = FORTY_TWO;
+    assertEquals(42, kb.intValueInObject(obj));
+    obj.integerField = null;
+    try {
+      kb.intValueInObject(obj);
+      fail("IllegalStateException expected");
+    } catch (IllegalStateException e) {
+    }
+
+    kb = factory._createKeySetBindingForKey(obj, "intField", _KeyBindingFactory._ValueForKeyLookupOrder);
+    kb.setIntValueInObject(7, obj);
+    assertEquals(7, obj.intField);
+    kb.setLongValueInObject(8L, obj);
+    assertEquals(8, obj.intField);
+    kb.setDoubleValueInObject(9.9, obj);
+    assertEquals(9, obj.intField);
+
+    kb = factory._createKeySetBindingForKey(obj, "doubleField", _KeyBindingFactory._ValueForKeyLookupOrder);
+    kb.setIntValueInObject(3, obj);
+    assertEquals(3.0, obj.doubleField);
+
+    kb = factory._createKeySetBindingForKey(obj, "shortMethod", _KeyBindingFactory._ValueForKeyLookupOrder);
+    kb.setIntValueInObject(5, obj);
+    assertEquals(5, obj.shortField);
+
+    kb = factory._createKeySetBindingForKey(obj, "booleanField", _KeyBindingFactory._ValueForKeyLookupOrder);
+    kb.setBooleanValueInObject(false, obj);
+    assertFalse(obj.booleanField);
+  }
+
+  public void testKeyBindingPrimitiveAccessors() {
+    _assertPrimitiveAccessors(new _KeyBindingCreation._ReflectionKeyBindingCreation());
+    _assertPrimitiveAccessors(new _KeyBindingCreation._MethodHandleKeyBindingCreation());
+  }
+
+  public void testDefaultKeyBindingFactory$factoryNamed() {
+    assertTrue(_KeyBindingCreation._DefaultKeyBindingFactory._factoryNamed("reflection") instanceof _KeyBindingCreation._ReflectionKeyBindingCreation);
+    assertTrue(_KeyBindingCreation._DefaultKeyBindingFactory._factoryNamed("methodhandle") instanceof _KeyBindingCreation._MethodHandleKeyBindingCreation);
+    assertTrue(_KeyBindingCreation._DefaultKeyBindingFactory._factoryNamed(_KeyBindingCreation._BytecodeKeyBindingCreation.class.getName()) instanceof _KeyBindingCreation._BytecodeKeyBindingCreation);
+    try {
+      _KeyBindingCreation._DefaultKeyBindingFactory._factoryNamed("unknown");
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+    }
+  }
+
+  public static class GeneratedKeyBindingTest {
+    public int intField;
+    public final String finalField = FORTY_TWO_STRING;
+    public static int staticField;
+    private String _name;
+
+    public String name() { return _name; }
+    public void setName(String name) { _name = name; }
+  }
+
+  public void testKeyBindingGenerator$source() {
+    String source = _NSKeyBindingGenerator.keyBindingsSourceForClass(GeneratedKeyBindingTest.class);
+    assertTrue(source.contains("public final class TestNSKeyValueCoding_GeneratedKeyBindingTest_KeyBindings implements _NSKeyBindingRegistry._ClassKeyBindings"));
+    assertTrue(source.contains("return ((ns.foundation.tests.TestNSKeyValueCoding.GeneratedKeyBindingTest) object).name();"));
+    assertTrue(source.contains("((ns.foundation.tests.TestNSKeyValueCoding.GeneratedKeyBindingTest) object).intField = _NSUtilities._convertObjectIntoCompatibleValue(value, java.lang.Integer.class);"));
+    assertTrue(source.contains("return ((ns.foundation.tests.TestNSKeyValueCoding.GeneratedKeyBindingTest) object).finalField;"));
+    assertFalse(source.contains(".finalField = "));
+    assertTrue(source.contains("public int intValueInObject(Object object)"));
+    assertTrue(source.contains("return (double) ((ns.foundation.tests.TestNSKeyValueCoding.GeneratedKeyBindingTest) object).intField;"));
+    assertTrue(source.contains("((ns.foundation.tests.TestNSKeyValueCoding.GeneratedKeyBindingTest) object).intField = (int) value;"));
+    assertFalse(source.contains("staticField"));
+    assertNull(_NSKeyBindingGenerator.keyBindingsSourceForClass(Callback.class));
+  }
+
+  public static class CheckedExceptionKeyBindingTest {
+    public String name() throws IOException {
+      throw new IOException("name");
+    }
+
+    public int count() throws Exception {
+      return 42;
+    }
+
+    public void setCount(int count) throws Exception {
+      throw new Exception("count");
+    }
+  }
+
+  public void testKeyBindingGenerator$checkedExceptions() {
+    String source = _NSKeyBindingGenerator.keyBindingsSourceForClass(CheckedExceptionKeyBindingTest.class);
+    assertTrue(source.contains("throw NSForwardException._runtimeExceptionForThrowable(e);"));
+    assertFalse(_NSKeyBindingGenerator.keyBindingsSourceForClass(GeneratedKeyBindingTest.class).contains("catch"));
+  }
+
+  public void testKeyBindingGenerator$generatedSourcesCompile() throws Exception {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    if (compiler == null)
+      return;
+    File directory = File.createTempFile("kvc", "");
+    assertTrue(directory.delete() && directory.mkdir());
+    try {
+      _NSKeyBindingGenerator generator = new _NSKeyBindingGenerator(directory, getClass().getClassLoader());
+      assertTrue(generator.generateKeyBindingsForPackage(getClass().getPackage().getName()) > 0);
+      List<String> arguments = new ArrayList<String>();
+      arguments.add("-nowarn");
+      arguments.add("-classpath");
+      arguments.add(System.getProperty("java.class.path"));
+      arguments.add("-d");
+      arguments.add(directory.getPath());
+      _addSourceFiles(directory, arguments);
+      ByteArrayOutputStream errors = new ByteArrayOutputStream();
+      assertEquals(errors.toString(), 0, compiler.run(null, null, errors, arguments.toArray(new String[arguments.size()])));
+
+      URLClassLoader classLoader = new URLClassLoader(new URL[] { directory.toURI().toURL() }, getClass().getClassLoader());
+      _NSKeyBindingRegistry._ClassKeyBindings bindings = (_NSKeyBindingRegistry._ClassKeyBindings) classLoader.loadClass(
+          getClass().getPackage().getName() + ".TestNSKeyValueCoding_CheckedExceptionKeyBindingTest_KeyBindings").newInstance();
+      CheckedExceptionKeyBindingTest obj = new CheckedExceptionKeyBindingTest();
+      assertEquals(FORTY_TWO, bindings._keyGetBindingForKey("count").valueInObject(obj));
+      try {
+        bindings._keyGetBindingForKey("name").valueInObject(obj);
+        fail("NSForwardException expected");
+      } catch (NSForwardException e) {
+        assertTrue(e.originalException() instanceof IOException);
+      }
+      try {
+        bindings._keySetBindingForKey("count").setValueInObject(FORTY_TWO, obj);
+        fail("NSForwardException expected");
+      } catch (NSForwardException e) {
+        assertEquals("count", e.originalException().getMessage());
+      }
+    } finally {
+      _delete(directory);
+    }
+  }
+
+  private static void _addSourceFiles(File directory, List<String> files) {
+    for (File file : directory.listFiles()) {
+      if (file.isDirectory())
+        _addSourceFiles(file, files);
+      else if (file.getName().endsWith(".java"))
+        files.add(file.getPath());
+    }
+  }
+
+  private static void _delete(File file) {
+    File[] files = file.listFiles();
+    if (files != null) {
+      for (File child : files) {
+        _delete(child);
+      }
+    }
+    file.delete();
+  }
+
+  public void testKeyBindingRegistry$registeredClassKeyBindings() {
+    GeneratedKeyBindingTest obj = new GeneratedKeyBindingTest();
+    _NSKeyBindingRegistry.registerClassKeyBindings(GeneratedKeyBindingTest.class, new _NSKeyBindingRegistry._ClassKeyBindings() {
+      public _KeyBinding _keyGetBindingForKey(String key) {
+        if (!"name".equals(key))
+          return null;
+        return new _KeyBinding(GeneratedKeyBindingTest.class, key) {
+          @Override
+          public Object valueInObject(Object object) {
+            return FORTY_TWO_STRING;
+          }
+        };
+      }
+
+      public _KeyBinding _keySetBindingForKey(String key) {
+        return null;
+      }
+    });
+    try {
+      DefaultImplementation._flushCaches();
+      assertEquals(FORTY_TWO_STRING, Utility.valueForKey(obj, "name"));
+      Utility.takeValueForKey(obj, FORTY_TWO, "intField");
+      assertEquals(FORTY_TWO, Utility.valueForKey(obj, "intField"));
+    } finally {
+      _NSKeyBindingRegistry.unregisterClassKeyBindings(GeneratedKeyBindingTest.class);
+      DefaultImplementation._flushCaches();
+    }
+    assertNull(Utility.valueForKey(obj, "name"));
+  }
+
+  public void testKeyBindingCache$growth() {
+    _KeyBindingCache cache = new _KeyBindingCache(16);
+    cache.setRecordsStatistics(true);
+    int initialCapacity = cache.capacity();
+    Class<?>[] classes = { Object.class, String.class, Integer.class, KeyBindingTypeTest.class };
+    for (int i = 0; i < 5000; i++) {
+      cache.put(new _KeyBinding(classes[i % classes.length], "key" + i));
+    }
+    assertEquals(5000, cache.size());
+    assertTrue(cache.capacity() > initialCapacity);
+    for (int i = 0; i < 5000; i++) {
+      _KeyBinding binding = cache.get(classes[i % classes.length], "key" + i);
+      assertNotNull(binding);
+      assertEquals("key" + i, binding.key());
+    }
+    assertNull(cache.get(Object.class, "key1"));
+    assertEquals(5000, cache.hitCount());
+    assertEquals(1, cache.missCount());
+
+    cache.remove(new _KeyBinding(Object.class, "key0"));
+    assertNull(cache.get(Object.class, "key0"));
+    assertEquals(4999, cache.size());
+    cache.clear();
+    assertEquals(0, cache.size());
+    assertNull(cache.get(String.class, "key1"));
+  }
+
+  public void testKeyBindingCache$identicalHashes() {
+    _KeyBindingCache cache = new _KeyBindingCache(16);
+    cache.setRecordsStatistics(true);
+    // "Aa" and "BB" have the same hash code, so do all their concatenations
+    String[] keys = new String[32];
+    for (int i = 0; i < keys.length; i++) {
+      StringBuilder key = new StringBuilder();
+      for (int bit = 0; bit < 5; bit++) {
+        key.append(((i >> bit) & 1) == 0 ? "Aa" : "BB");
+      }
+      keys[i] = key.toString();
+      cache.put(new _KeyBinding(Object.class, keys[i]));
+    }
+    assertEquals(keys.length, cache.size());
+    for (String key : keys) {
+      assertEquals(key, cache.get(Object.class, key).key());
+    }
+    assertTrue(cache.collisionCount() > 0);
+    _KeyBinding replacement = new _KeyBinding(Object.class, keys[31]);
+    cache.put(replacement);
+    assertSame(replacement, cache.get(Object.class, keys[31]));
+    assertEquals(keys.length, cache.size());
+    cache.remove(replacement);
+    assertNull(cache.get(Object.class, keys[31]));
+    assertEquals(keys.length - 1, cache.size());
+  }
+
+  // defined again by its own loader, so it must not use the private members of the test
+  public static class UnloadableEntity {
+    public Integer intField = Integer.valueOf(42);
+    private String _name = "42";
+
+    public String name() { return _name; }
+    public void setName(String name) { _name = name; }
+  }
+
+  static class UnloadableEntityClassLoader extends ClassLoader {
+    UnloadableEntityClassLoader() {
+      super(UnloadableEntity.class.getClassLoader());
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+      if (!name.equals(UnloadableEntity.class.getName()))
+        return super.loadClass(name, resolve);
+      synchronized (getClassLoadingLock(name)) {
+        Class<?> loadedClass = findLoadedClass(name);
+        if (loadedClass == null) {
+          try {
+            InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class");
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            for (int length; (length = in.read(buffer)) > 0;) {
+              bytes.write(buffer, 0, length);
+            }
+            in.close();
+            loadedClass = defineClass(name, bytes.toByteArray(), 0, bytes.size());
+          } catch (IOException e) {
+            throw new ClassNotFoundException(name, e);
+          }
+        }
+        return loadedClass;
+      }
+    }
+  }
+
+  private static WeakReference<ClassLoader> _useUnloadableEntity() throws Exception {
+    ClassLoader loader = new UnloadableEntityClassLoader();
+    Object obj = loader.loadClass(UnloadableEntity.class.getName()).newInstance();
+    assertNotSame(UnloadableEntity.class, obj.getClass());
+    assertEquals(FORTY_TWO, Utility.valueForKey(obj, "intField"));
+    Utility.takeValueForKey(obj, FORTY_TWO_STRING, "name");
+    assertEquals(FORTY_TWO_STRING, Utility.valueForKey(obj, "name"));
+    assertEquals(FORTY_TWO_STRING, NSKeyValueCodingAdditions.Utility.valueForKeyPath(obj, "name.toString"));
+    return new WeakReference<ClassLoader>(loader);
+  }
+
+  public void testKeyBindingCaches$classUnloading() throws Exception {
+    Utility.valueForKey(FORTY_TWO_STRING, "toString");
+    int size = DefaultImplementation._keyGetBindingCache().size();
+    WeakReference<ClassLoader> loader = _useUnloadableEntity();
+    assertTrue(DefaultImplementation._keyGetBindingCache().size() > size);
+    for (int i = 0; i < 50 && loader.get() != null; i++) {
+      System.gc();
+      Thread.sleep(20);
+    }
+    assertNull("class loader retained by the key value coding caches", loader.get());
+    // stale bindings are purged on the next write once their references are enqueued
+    _KeyBindingCache cache = DefaultImplementation._keyGetBindingCache();
+    for (int i = 0; i < 50 && cache.size() > size; i++) {
+      cache.remove(new _KeyBinding(UnloadableEntity.class, "unknownKey"));
+      Thread.sleep(20);
+    }
+    assertEquals(size, cache.size());
+  }
+
+  private static WeakReference<ClassLoader> _useUnloadableEntityThroughMap() throws Exception {
+    ClassLoader loader = new UnloadableEntityClassLoader();
+    Map<String, Object> map = new HashMap<String, Object>();
+    map.put("entity", loader.loadClass(UnloadableEntity.class.getName()).newInstance());
+    NSKeyValueCodingAdditions.CompiledKeyPath keyPath = NSKeyValueCodingAdditions.CompiledKeyPath.compiledKeyPath(HashMap.class, "entity.intField");
+    assertEquals(FORTY_TWO, keyPath.valueInObject(map));
+    assertSame(keyPath, NSKeyValueCodingAdditions.CompiledKeyPath.compiledKeyPath(HashMap.class, "entity.intField"));
+    return new WeakReference<ClassLoader>(loader);
+  }
+
+  public void testCompiledKeyPath$classUnloadingThroughRootClass() throws Exception {
+    WeakReference<ClassLoader> loader = _useUnloadableEntityThroughMap();
+    for (int i = 0; i < 50 && loader.get() != null; i++) {
+      System.gc();
+      Thread.sleep(20);
+    }
+    assertNull("class loader retained by a key path memoized on its root class", loader.get());
+  }
 }
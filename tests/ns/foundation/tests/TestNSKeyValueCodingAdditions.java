@@ -0,0 +1,165 @@
+package ns.foundation.tests;
+
+import ns.foundation.NSObject;
+import ns.foundation.collections.NSArray;
+import ns.foundation.collections.NSDictionary;
+import ns.foundation.collections.NSMutableDictionary;
+import ns.foundation.kvc.NSKeyValueCoding;
+import ns.foundation.kvc.NSKeyValueCodingAdditions;
+import ns.foundation.kvc.NSKeyValueCodingAdditions.CompiledKeyPath;
+
+public class TestNSKeyValueCodingAdditions extends BaseTestCase {
+
+  public static class Node extends NSObject {
+    public String name;
+    public Node child;
+    public Object other;
+
+    public Node(String name) {
+      this.name = name;
+    }
+
+    public Node parent() {
+      return null;
+    }
+  }
+
+  public static class OtherNode {
+    public String name;
+    public Node child;
+
+    public OtherNode(String name) {
+      this.name = name;
+    }
+  }
+
+  public static class CustomPathNode extends NSObject {
+    public String lastKeyPath;
+
+    @Override
+    public Object valueForKeyPath(String keyPath) {
+      lastKeyPath = keyPath;
+      return "custom";
+    }
+
+    @Override
+    public void takeValueForKeyPath(Object value, String keyPath) {
+      lastKeyPath = keyPath;
+    }
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    NSKeyValueCoding.DefaultImplementation._flushCaches();
+  }
+
+  public void testKeys() {
+    CompiledKeyPath keyPath = CompiledKeyPath.compiledKeyPath(Node.class, "child.child.name");
+    assertEquals("child.child.name", keyPath.keyPath());
+    assertEquals(3, keyPath.count());
+    assertEquals("child", keyPath.keyAtIndex(0));
+    assertEquals("name", keyPath.keyAtIndex(2));
+    assertSame(keyPath, CompiledKeyPath.compiledKeyPath(Node.class, "child.child.name"));
+  }
+
+  public void testValueInObject() {
+    Node root = new Node("root");
+    root.child = new Node("child");
+    root.child.child = new Node("grandchild");
+    CompiledKeyPath keyPath = CompiledKeyPath.compiledKeyPath(Node.class, "child.child.name");
+    assertEquals("grandchild", keyPath.valueInObject(root));
+    assertEquals("grandchild", root.valueForKeyPath("child.child.name"));
+  }
+
+  public void testValueInObjectWithNullIntermediate() {
+    Node root = new Node("root");
+    assertNull(root.valueForKeyPath("child.child.name"));
+    assertNull(root.valueForKeyPath("parent.name"));
+  }
+
+  public void testValueInObjectWithChangingClass() {
+    Node root = new Node("root");
+    root.other = new Node("node");
+    assertEquals("node", root.valueForKeyPath("other.name"));
+    root.other = new OtherNode("other");
+    assertEquals("other", root.valueForKeyPath("other.name"));
+    NSMutableDictionary<String, Object> dict = new NSMutableDictionary<String, Object>();
+    dict.setObjectForKey("dictionary", "name");
+    root.other = dict;
+    assertEquals("dictionary", root.valueForKeyPath("other.name"));
+  }
+
+  public void testValueInObjectWithCollection() {
+    Node root = new Node("root");
+    root.other = new NSArray<Node>(new Node("a"), new Node("b"));
+    assertEquals(new NSArray<String>("a", "b"), root.valueForKeyPath("other.name"));
+    assertEquals(Integer.valueOf(2), root.valueForKeyPath("other.@count"));
+  }
+
+  public void testValueInObjectWithCustomKeyPath() {
+    Node root = new Node("root");
+    CustomPathNode custom = new CustomPathNode();
+    root.other = custom;
+    assertEquals("custom", root.valueForKeyPath("other.a.b"));
+    assertEquals("a.b", custom.lastKeyPath);
+    assertEquals("custom", CompiledKeyPath.compiledKeyPath(CustomPathNode.class, "a.b").valueInObject(custom));
+  }
+
+  public void testValueInPlainObject() {
+    OtherNode root = new OtherNode("root");
+    root.child = new Node("child");
+    assertEquals("child", NSKeyValueCodingAdditions.Utility.valueForKeyPath(root, "child.name"));
+  }
+
+  public void testValueInDictionary() {
+    NSDictionary<String, Object> dict = new NSDictionary<String, Object>(new NSDictionary<String, Object>("value", "key"), "inner");
+    assertEquals("value", CompiledKeyPath.compiledKeyPath(NSDictionary.class, "inner.key").valueInObject(dict));
+  }
+
+  public void testSetValueInObject() {
+    Node root = new Node("root");
+    root.child = new Node("child");
+    root.takeValueForKeyPath("renamed", "child.name");
+    assertEquals("renamed", root.child.name);
+    CompiledKeyPath.compiledKeyPath(Node.class, "child.name").setValueInObject("again", root);
+    assertEquals("again", root.child.name);
+  }
+
+  public void testSetValueInObjectWithNullIntermediate() {
+    Node root = new Node("root");
+    root.takeValueForKeyPath("renamed", "child.name");
+    assertNull(root.child);
+  }
+
+  public void testSetValueInObjectWithCustomKeyPath() {
+    Node root = new Node("root");
+    CustomPathNode custom = new CustomPathNode();
+    root.other = custom;
+    root.takeValueForKeyPath("value", "other.a");
+    assertEquals("a", custom.lastKeyPath);
+  }
+
+  public void testUnknownKey() {
+    Node root = new Node("root");
+    root.child = new Node("child");
+    try {
+      root.valueForKeyPath("child.unknown");
+      fail("UnknownKeyException expected");
+    } catch (NSKeyValueCoding.UnknownKeyException e) {
+    }
+  }
+
+  public void testNullArguments() {
+    try {
+      CompiledKeyPath.compiledKeyPath(Node.class, null);
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+    }
+    try {
+      CompiledKeyPath.compiledKeyPath(Node.class, "child.name").valueInObject(null);
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+    }
+  }
+}
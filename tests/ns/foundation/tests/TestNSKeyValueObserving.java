@@ -0,0 +1,72 @@
+package ns.foundation.tests;
+
+import java.util.EnumSet;
+
+import ns.foundation.NSKeyValueObserving.Changes;
+import ns.foundation.NSKeyValueObserving.KeyValueChange;
+import ns.foundation.NSKeyValueObserving.KeyValueObservingProxy;
+import ns.foundation.NSKeyValueObserving.Options;
+import ns.foundation.NSObservable;
+import ns.foundation.NSObserver;
+import ns.foundation.collections.NSArray;
+import ns.foundation.collections.NSMutableArray;
+import ns.foundation.collections.NSSet;
+
+public class TestNSKeyValueObserving extends BaseTestCase {
+
+  public static class Holder {
+    public NSMutableArray<String> items;
+
+    public NSMutableArray<String> items() {
+      return items;
+    }
+  }
+
+  public static class RecordingObserver implements NSObserver {
+    public KeyValueChange changes;
+
+    public void observeValueForKeyPath(String keyPath, NSObservable targetObject, KeyValueChange changes, Object context) {
+      this.changes = changes;
+    }
+  }
+
+  public void testIndexedChangeReportsWholeArray() {
+    Holder holder = new Holder();
+    holder.items = new NSMutableArray<String>("a", "b", "c");
+    RecordingObserver observer = new RecordingObserver();
+    KeyValueObservingProxy proxy = KeyValueObservingProxy.proxyForObject(holder);
+    proxy.addObserverForKeyPath(observer, "items", Options.NewAndOld, null);
+    try {
+      NSSet<Integer> indexes = new NSSet<Integer>(1);
+      proxy.sendNotificationsForKey("items", new KeyValueChange(EnumSet.of(Changes.Replacement), indexes), true);
+      holder.items.replaceObjectAtIndex("x", 1);
+      proxy.sendNotificationsForKey("items", null, false);
+
+      assertNotNull(observer.changes);
+      assertEquals(new NSArray<String>("a", "b", "c"), observer.changes.oldValue);
+      assertEquals(new NSArray<String>("a", "x", "c"), observer.changes.newValue);
+      assertTrue(observer.changes.oldValue instanceof NSMutableArray<?>);
+      assertTrue(observer.changes.newValue instanceof NSMutableArray<?>);
+      assertNotSame(holder.items, observer.changes.newValue);
+    } finally {
+      proxy.removeObserverForKeyPath(observer, "items");
+    }
+  }
+
+  public void testIndexedChangeOfNullArray() {
+    Holder holder = new Holder();
+    RecordingObserver observer = new RecordingObserver();
+    KeyValueObservingProxy proxy = KeyValueObservingProxy.proxyForObject(holder);
+    proxy.addObserverForKeyPath(observer, "items", Options.NewAndOld, null);
+    try {
+      NSSet<Integer> indexes = new NSSet<Integer>(0);
+      proxy.sendNotificationsForKey("items", new KeyValueChange(EnumSet.of(Changes.Insertion), indexes), true);
+      proxy.sendNotificationsForKey("items", null, false);
+
+      assertNotNull(observer.changes);
+      assertEquals(NSArray.emptyArray(), observer.changes.newValue);
+    } finally {
+      proxy.removeObserverForKeyPath(observer, "items");
+    }
+  }
+}
@@ -2,6 +2,7 @@ package ns.foundation.tests;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import ns.foundation.NSComparator;
 import ns.foundation.NSComparator.ComparisonException;
@@ -9,6 +10,8 @@ import ns.foundation.collections.NSArray;
 import ns.foundation.collections.NSDictionary;
 import ns.foundation.collections.NSMutableArray;
 import ns.foundation.collections.NSMutableDictionary;
+import ns.foundation.collections._private._NSFoundationCollection.NullHandling;
+import ns.foundation.kvc.NSKeyValueCoding;
 import ns.foundation.NSRange;
 import ns.foundation.NSTimestamp;
 
@@ -442,6 +445,87 @@ public class TestNSMutableArray extends BaseTestCase {
 		assertEquals(earlierTime, timearray.get(1));
 	}
 
+  public static class CountingRow implements NSKeyValueCoding {
+    static int reads;
+    final int key;
+    final int index;
+
+    CountingRow(int key, int index) {
+      this.key = key;
+      this.index = index;
+    }
+
+    public Object valueForKey(String name) {
+      reads++;
+      return key;
+    }
+
+    public void takeValueForKey(Object value, String name) {
+    }
+  }
+
+  private static NSMutableArray<CountingRow> countingRows(int count) {
+    Random random = new Random(count);
+    NSMutableArray<CountingRow> rows = new NSMutableArray<CountingRow>(count);
+    for (int i = 0; i < count; i++) {
+      rows.addObject(new CountingRow(random.nextInt(count / 10 + 1), i));
+    }
+    return rows;
+  }
+
+  private static void assertSortedAndStable(NSArray<CountingRow> rows, boolean ascending) {
+    for (int i = 1; i < rows.count(); i++) {
+      CountingRow previous = rows.objectAtIndex(i - 1);
+      CountingRow row = rows.objectAtIndex(i);
+      assertTrue(ascending ? previous.key <= row.key : previous.key >= row.key);
+      if (previous.key == row.key)
+        assertTrue(previous.index < row.index);
+    }
+  }
+
+  public void testSortUsingKeyPathComparatorReadsKeysOnce() {
+    NSMutableArray<CountingRow> rows = countingRows(1000);
+    CountingRow.reads = 0;
+    rows.sortUsingComparator(new NSComparator.KeyPathComparator<CountingRow>("key"));
+    assertEquals(1000, CountingRow.reads);
+    assertSortedAndStable(rows, true);
+
+    CountingRow.reads = 0;
+    NSArray<CountingRow> sorted = countingRows(1000).sortedArrayUsingComparator(new NSComparator.KeyPathComparator<CountingRow>("key", false));
+    assertEquals(1000, CountingRow.reads);
+    assertSortedAndStable(sorted, false);
+  }
+
+  public void testSortUsingComparatorInParallel() {
+    int threshold = NSArray.parallelSortThreshold();
+    NSArray.setParallelSortThreshold(100);
+    try {
+      NSMutableArray<CountingRow> rows = countingRows(50000);
+      rows.sortUsingComparator(new NSComparator.KeyPathComparator<CountingRow>("key"));
+      assertSortedAndStable(rows, true);
+
+      rows = countingRows(50000);
+      rows.sortUsingComparator(new NSComparator<CountingRow>() {
+        @Override
+        public int compare(CountingRow row1, CountingRow row2) {
+          return row2.key - row1.key;
+        }
+      });
+      assertSortedAndStable(rows, false);
+
+      NSMutableArray<Integer> view = NSMutableArray.asNSMutableArray(new Integer[] { 5, 3, 9, 1 }, NullHandling.NoCheck);
+      view.sortUsingComparator(NSComparator.AscendingNumberComparator);
+      assertEquals(new NSArray<Integer>(1, 3, 5, 9), view);
+    } finally {
+      NSArray.setParallelSortThreshold(threshold);
+    }
+    try {
+      NSArray.setParallelSortThreshold(0);
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+    }
+  }
+
   public void testTakeValueForKey() {
     NSDictionary<?, ?>[] dicts = new NSDictionary[] {
         new NSMutableDictionary<String, String>("val1", "key"),
@@ -1,6 +1,7 @@
 package ns.foundation.tests;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 
 import ns.foundation.collections.NSArray;
@@ -166,4 +167,59 @@ public class TestNSMutableDictionary extends BaseTestCase {
     assertEquals("newValue", dict.get("key"));
   }
 
+  public void testGrowAndShrink() {
+    NSMutableDictionary<Integer, String> dict = new NSMutableDictionary<Integer, String>();
+    Map<Integer, String> map = new HashMap<Integer, String>();
+    for (int i = 0; i < 1000; i++) {
+      dict.setObjectForKey("value" + i, i);
+      map.put(i, "value" + i);
+      if (i % 7 == 0) {
+        dict.removeObjectForKey(i / 2);
+        map.remove(i / 2);
+      }
+    }
+    assertEquals(map, dict);
+    assertEquals(map.hashCode(), dict.hashCode());
+
+    Iterator<Integer> iterator = dict.keySet().iterator();
+    while (iterator.hasNext()) {
+      Integer key = iterator.next();
+      if (key % 3 == 0) {
+        iterator.remove();
+        map.remove(key);
+      }
+    }
+    assertEquals(map, dict);
+    for (Map.Entry<Integer, String> entry : dict.entrySet()) {
+      entry.setValue(entry.getValue() + "!");
+    }
+    assertEquals("value1!", dict.objectForKey(1));
+    assertNull(dict.objectForKey(3));
+  }
+
+  public void testImmutableViews() {
+    Map<String, String> map = new HashMap<String, String>();
+    for (int i = 0; i < 20; i++) {
+      map.put("key" + i, "value" + i);
+    }
+    NSDictionary<String, String> dict = new NSDictionary<String, String>(map);
+    assertEquals(map, dict);
+    try {
+      dict.keySet().remove("key1");
+      fail("UnsupportedOperationException expected");
+    } catch (UnsupportedOperationException e) {
+    }
+    try {
+      dict.values().iterator().remove();
+      fail("UnsupportedOperationException expected");
+    } catch (UnsupportedOperationException e) {
+    }
+    try {
+      dict.entrySet().iterator().next().setValue("value");
+      fail("UnsupportedOperationException expected");
+    } catch (UnsupportedOperationException e) {
+    }
+    assertEquals(map, dict);
+  }
+
 }
@@ -81,4 +81,32 @@ public class TestNSNotificationCenter extends BaseTestCase {
     assertFalse(observer2.invoked);
   }
 
+  public static class RemovingObserver extends TestObserver {
+    TestObserver removedObserver;
+    TestObserver addedObserver;
+
+    @Override
+    public void invoked(NSNotification notification) {
+      super.invoked(notification);
+      NSNotificationCenter.defaultCenter().removeObserver(removedObserver);
+      NSNotificationCenter.defaultCenter().addObserver(addedObserver, new NSSelector<Void>("invoked", new Class[] { NSNotification.class }), "testRemoving", null);
+    }
+  }
+
+  public void testModifyObserversWhilePosting() {
+    NSNotificationCenter nc = NSNotificationCenter.defaultCenter();
+    RemovingObserver observer = new RemovingObserver();
+    observer.removedObserver = new TestObserver();
+    observer.addedObserver = new TestObserver();
+    nc.addObserver(observer.removedObserver, new NSSelector<Void>("invoked", new Class[] { NSNotification.class }), "testRemoving", null);
+    nc.addObserver(observer, new NSSelector<Void>("invoked", new Class[] { NSNotification.class }), "testRemoving", null);
+    nc.postNotification("testRemoving", this);
+    assertTrue(observer.invoked);
+    assertFalse(observer.removedObserver.invoked);
+    assertFalse(observer.addedObserver.invoked);
+    nc.removeObserver(observer);
+    nc.postNotification("testRemoving", this);
+    assertTrue(observer.addedObserver.invoked);
+  }
+
 }
@@ -0,0 +1,162 @@
+package ns.foundation.tests;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import ns.foundation.NSRange;
+import ns.foundation.collections.NSArray;
+import ns.foundation.collections.NSDictionary;
+import ns.foundation.collections.NSDoubleArray;
+import ns.foundation.collections.NSIntArray;
+import ns.foundation.collections.NSIntDictionary;
+import ns.foundation.collections.NSLongArray;
+import ns.foundation.collections.NSLongSet;
+import ns.foundation.collections.NSSet;
+
+public class TestNSPrimitiveCollections extends BaseTestCase {
+
+  public void testIntArray() {
+    int[] values = new int[] { 3, 1, 7 };
+    NSIntArray array = new NSIntArray(values);
+    values[0] = 5;
+    assertEquals(3, array.count());
+    assertEquals(3, array.intAtIndex(0));
+    assertTrue(Arrays.equals(new int[] { 3, 1, 7 }, array.ints()));
+    assertEquals(2, array.indexOfInt(7));
+    assertEquals(NSArray.NotFound, array.indexOfInt(5));
+    assertTrue(array.containsInt(1));
+    assertEquals(new NSIntArray(1, 7), array.subarrayWithRange(new NSRange(1, 2)));
+    assertEquals(new NSArray<Integer>(new Integer[] { 3, 1, 7 }), array.arrayValue());
+    assertEquals(array.arrayValue().hashCode(), array.hashCode());
+    assertEquals(array, new NSIntArray(array.arrayValue()));
+    assertEquals("[3, 1, 7]", array.toString());
+
+    try {
+      array.intAtIndex(3);
+      fail("IndexOutOfBoundsException expected");
+    } catch (IndexOutOfBoundsException e) {
+    }
+    try {
+      new NSIntArray(Arrays.asList(1, null));
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+    }
+  }
+
+  public void testIntArrayValueForKeyPath() {
+    NSIntArray array = new NSIntArray(3, 1, 7, Integer.MAX_VALUE);
+    assertEquals(4, array.valueForKey("count"));
+    assertEquals(4, array.valueForKeyPath("@count"));
+    assertEquals(new BigDecimal(11L + Integer.MAX_VALUE), array.valueForKeyPath("@sum"));
+    assertEquals(1, array.valueForKeyPath("@min"));
+    assertEquals(Integer.MAX_VALUE, array.valueForKeyPath("@max"));
+    assertEquals(array.arrayValue().valueForKeyPath("@avg"), array.valueForKeyPath("@avg"));
+    assertEquals(array.arrayValue().valueForKeyPath("@sum"), array.valueForKeyPath("@sum"));
+    assertEquals(array.arrayValue().valueForKeyPath("@max.intValue"), array.valueForKeyPath("@max.intValue"));
+
+    assertNull(NSIntArray.EmptyArray.valueForKeyPath("@avg"));
+    assertNull(NSIntArray.EmptyArray.valueForKeyPath("@max"));
+    assertEquals(BigDecimal.ZERO, NSIntArray.EmptyArray.valueForKeyPath("@sum"));
+
+    try {
+      array.takeValueForKey(1, "count");
+      fail("IllegalStateException expected");
+    } catch (IllegalStateException e) {
+    }
+  }
+
+  public void testIntArrayFromKeyPath() {
+    NSArray<NSDictionary<String, Integer>> rows = new NSArray<NSDictionary<String, Integer>>(new NSDictionary<String, Integer>(3, "id"), new NSDictionary<String, Integer>(9, "id"));
+    NSIntArray ids = new NSIntArray(rows, "id");
+    assertEquals(new NSIntArray(3, 9), ids);
+
+    NSIntDictionary<NSDictionary<String, Integer>> rowsById = new NSIntDictionary<NSDictionary<String, Integer>>(rows, "id");
+    assertEquals(2, rowsById.count());
+    assertSame(rows.objectAtIndex(1), rowsById.objectForKey(9));
+    assertNull(rowsById.objectForKey(4));
+    assertEquals(new BigDecimal(12), rowsById.valueForKeyPath("@sum.id"));
+    assertEquals(9, rowsById.valueForKeyPath("9.id"));
+  }
+
+  public void testLongAndDoubleArrays() {
+    NSLongArray longs = new NSLongArray(Long.MAX_VALUE, 1, -4);
+    assertEquals(Long.MAX_VALUE, longs.longAtIndex(0));
+    assertEquals(new BigDecimal(Long.MAX_VALUE).subtract(new BigDecimal(3)), longs.valueForKeyPath("@sum"));
+    assertEquals(longs.arrayValue().valueForKeyPath("@sum"), longs.valueForKeyPath("@sum"));
+    assertEquals(-4L, longs.valueForKeyPath("@min"));
+    assertEquals(longs.arrayValue().hashCode(), longs.hashCode());
+    assertEquals(longs, new NSLongArray.Builder(1).addLong(Long.MAX_VALUE).addLongs(1, -4).build());
+
+    NSDoubleArray doubles = new NSDoubleArray(1.5, 2.25, -0.5);
+    assertEquals(2.25, doubles.doubleAtIndex(1));
+    assertEquals(doubles.arrayValue().valueForKeyPath("@sum"), doubles.valueForKeyPath("@sum"));
+    assertEquals(doubles.arrayValue().valueForKeyPath("@avg"), doubles.valueForKeyPath("@avg"));
+    assertEquals(-0.5, doubles.valueForKeyPath("@min"));
+    assertEquals(2.25, doubles.valueForKeyPath("@max"));
+    assertEquals(doubles.arrayValue().hashCode(), doubles.hashCode());
+    assertEquals(1, doubles.indexOfDouble(2.25));
+    assertEquals(new BigDecimal("0.3"), new NSDoubleArray(0.1, 0.2).valueForKeyPath("@sum"));
+  }
+
+  public void testIntDictionary() {
+    Map<Integer, String> map = new HashMap<Integer, String>();
+    for (int i = -50; i < 50; i++) {
+      map.put(i * 7, "v" + i);
+    }
+    NSIntDictionary<String> dictionary = new NSIntDictionary<String>(map);
+    assertEquals(100, dictionary.count());
+    for (Map.Entry<Integer, String> entry : map.entrySet()) {
+      assertEquals(entry.getValue(), dictionary.objectForKey(entry.getKey()));
+    }
+    assertFalse(dictionary.containsKey(1));
+    assertEquals(map, dictionary.dictionaryValue());
+    assertEquals(map.hashCode(), dictionary.hashCode());
+    assertEquals(new NSSet<String>(map.values()), new NSSet<String>(dictionary.allValues()));
+    assertEquals(new NSSet<Integer>(map.keySet()), new NSSet<Integer>(dictionary.allKeys().arrayValue()));
+    assertEquals(dictionary, new NSIntDictionary<String>(dictionary.dictionaryValue()));
+
+    assertEquals("v-3", dictionary.valueForKey("-21"));
+    assertEquals(100, dictionary.valueForKey("count"));
+    assertNull(dictionary.valueForKey("1"));
+
+    NSIntDictionary.Builder<String> builder = new NSIntDictionary.Builder<String>();
+    builder.setObjectForKey("a", 0).setObjectForKey("b", 0);
+    NSIntDictionary<String> built = builder.build();
+    assertEquals(1, built.count());
+    assertEquals("b", built.objectForKey(0));
+    try {
+      builder.setObjectForKey("c", 1);
+      fail("IllegalStateException expected");
+    } catch (IllegalStateException e) {
+    }
+  }
+
+  public void testLongSet() {
+    NSLongSet set = new NSLongSet(0, 5, 5, -5, Long.MIN_VALUE);
+    assertEquals(4, set.count());
+    assertTrue(set.containsLong(0));
+    assertTrue(set.containsLong(Long.MIN_VALUE));
+    assertFalse(set.containsLong(6));
+    assertFalse(new NSLongSet(1).containsLong(0));
+    assertEquals(new NSSet<Long>(new Long[] { 0L, 5L, -5L, Long.MIN_VALUE }), set.setValue());
+    assertEquals(set.setValue().hashCode(), set.hashCode());
+    assertEquals(set, new NSLongSet(set.setValue()));
+    assertEquals(Long.MIN_VALUE, set.valueForKeyPath("@min"));
+    assertEquals(5L, set.valueForKeyPath("@max"));
+    assertEquals(new BigDecimal(Long.MIN_VALUE), set.valueForKeyPath("@sum"));
+
+    NSLongSet.Builder builder = new NSLongSet.Builder(0);
+    for (long i = 0; i < 1000; i++) {
+      builder.addLong(i * 1000003);
+    }
+    NSLongSet large = builder.build();
+    assertEquals(1000, large.count());
+    for (long i = 0; i < 1000; i++) {
+      assertTrue(large.containsLong(i * 1000003));
+      assertFalse(large.containsLong(i * 1000003 + 1));
+    }
+    assertEquals(1000, large.allLongs().count());
+  }
+}
@@ -0,0 +1,133 @@
+package ns.foundation.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import ns.foundation.NSRange;
+import ns.foundation.collections.NSArray;
+import ns.foundation.collections.NSDictionary;
+import ns.foundation.collections.NSMutableArray;
+import ns.foundation.collections.NSMutableDictionary;
+import ns.foundation.collections.NSRecordArray;
+import ns.foundation.collections.NSRecordLayout;
+import ns.foundation.collections.NSRecordLayout.ColumnType;
+
+public class TestNSRecordArray extends BaseTestCase {
+  private static final NSRecordLayout Layout = new NSRecordLayout.Builder()
+      .addColumn("id", ColumnType.Long)
+      .addColumn("quantity", ColumnType.Int)
+      .addColumn("price", ColumnType.Double)
+      .build();
+
+  private static NSArray<NSDictionary<String, Object>> rows(int count) {
+    NSMutableArray<NSDictionary<String, Object>> rows = new NSMutableArray<NSDictionary<String, Object>>(count);
+    for (int i = 0; i < count; i++) {
+      NSMutableDictionary<String, Object> row = new NSMutableDictionary<String, Object>();
+      row.setObjectForKey(10000000000L + i * 2, "id");
+      row.setObjectForKey(i % 7 - 3, "quantity");
+      row.setObjectForKey(i * 0.5, "price");
+      rows.addObject(row);
+    }
+    return rows;
+  }
+
+  private static NSRecordArray mappedArray(NSArray<?> rows) throws IOException {
+    File file = File.createTempFile("records", ".bin");
+    file.deleteOnExit();
+    NSRecordArray.writeToFile(rows, Layout, file);
+    assertEquals(rows.count() * Layout.recordLength(), file.length());
+    return NSRecordArray.mappedArray(file, Layout);
+  }
+
+  public void testLayout() {
+    assertEquals(20, Layout.recordLength());
+    assertEquals(3, Layout.columnCount());
+    assertEquals(1, Layout.indexOfColumn("quantity"));
+    assertEquals(NSArray.NotFound, Layout.indexOfColumn("name"));
+    try {
+      new NSRecordLayout.Builder().addColumn("id", ColumnType.Int).addColumn("id", ColumnType.Long);
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+    }
+  }
+
+  public void testMappedArray() throws IOException {
+    NSArray<NSDictionary<String, Object>> rows = rows(1000);
+    NSRecordArray records = mappedArray(rows);
+    assertEquals(1000, records.count());
+    assertEquals(10000000010L, records.longValueAtIndex(5, "id"));
+    assertEquals(-1, records.intValueAtIndex(9, "quantity"));
+    assertEquals(2.5, records.doubleValueAtIndex(5, "price"));
+
+    NSRecordArray.Record record = records.objectAtIndex(3);
+    assertEquals(10000000006L, record.valueForKey("id"));
+    assertEquals(0, record.valueForKey("quantity"));
+    assertEquals(1.5, record.valueForKey("price"));
+    assertEquals(record, records.objectAtIndex(3));
+    assertFalse(record.equals(records.objectAtIndex(4)));
+    assertEquals(rows.valueForKey("price"), records.valueForKey("price"));
+    assertTrue(Arrays.equals(rows.longValuesForKeyPath("id", null), records.longValuesForKeyPath("id", null)));
+
+    try {
+      record.takeValueForKey(1, "quantity");
+      fail("IllegalStateException expected");
+    } catch (IllegalStateException e) {
+    }
+    try {
+      records.add(record);
+      fail("UnsupportedOperationException expected");
+    } catch (UnsupportedOperationException e) {
+    }
+  }
+
+  public void testOperators() throws IOException {
+    NSArray<NSDictionary<String, Object>> rows = rows(1000);
+    NSRecordArray records = mappedArray(rows);
+    for (String keyPath : new String[] { "@sum.id", "@sum.quantity", "@sum.price", "@avg.id", "@avg.quantity", "@avg.price", "@min.quantity", "@max.quantity", "@min.id", "@max.price" }) {
+      assertEquals(keyPath, rows.valueForKeyPath(keyPath), records.valueForKeyPath(keyPath));
+    }
+    assertEquals(1000, records.valueForKeyPath("@count"));
+    assertEquals(new BigDecimal(10000000000L * 10 + 90), records.subarrayWithRange(new NSRange(0, 10)).valueForKeyPath("@sum.id"));
+    assertNull(records.subarrayWithRange(new NSRange(0, 0)).valueForKeyPath("@max.price"));
+  }
+
+  public void testBinarySearch() throws IOException {
+    NSRecordArray records = mappedArray(rows(1000));
+    assertEquals(500, records.binarySearch("id", 10000000000L + 1000));
+    assertEquals(-502, records.binarySearch("id", 10000000000L + 1001));
+    assertEquals(-1, records.binarySearch("id", 0));
+    assertEquals(-1001, records.binarySearch("id", Long.MAX_VALUE));
+    assertEquals(7, records.binarySearch("price", 3.5));
+
+    NSArray<NSRecordArray.Record> subarray = records.subarrayWithRange(new NSRange(100, 50));
+    assertTrue(subarray instanceof NSRecordArray);
+    assertEquals(50, subarray.count());
+    assertEquals(records.objectAtIndex(100), subarray.objectAtIndex(0));
+    assertEquals(10, ((NSRecordArray) subarray).binarySearch("id", 10000000000L + 220));
+    assertEquals(records.objectAtIndex(110), subarray.subList(10, 20).get(0));
+  }
+
+  public void testDirectBuffer() {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(Layout.recordLength() * 2);
+    buffer.putLong(7).putInt(3).putDouble(1.25).putLong(8).putInt(4).putDouble(2.5).flip();
+    NSRecordArray records = new NSRecordArray(Layout, buffer);
+    assertEquals(2, records.count());
+    assertEquals(8L, records.objectAtIndex(1).longValueForKey("id"));
+    assertEquals(new BigDecimal("3.75"), records.valueForKeyPath("@sum.price"));
+    assertEquals(4, records.valueForKeyPath("@max.quantity"));
+
+    ByteBuffer decimals = ByteBuffer.allocateDirect(Layout.recordLength() * 2);
+    decimals.putLong(1).putInt(1).putDouble(0.1).putLong(2).putInt(2).putDouble(0.2).flip();
+    assertEquals(new BigDecimal("0.3"), new NSRecordArray(Layout, decimals).valueForKeyPath("@sum.price"));
+
+    buffer.limit(Layout.recordLength() + 1);
+    try {
+      new NSRecordArray(Layout, buffer);
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+    }
+  }
+}
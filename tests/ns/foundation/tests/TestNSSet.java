@@ -3,6 +3,7 @@ package ns.foundation.tests;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import ns.foundation.collections.NSArray;
@@ -270,4 +271,124 @@ public class TestNSSet extends BaseTestCase {
 		}
 	}
 
+  public void testBuilder() {
+    NSSet.Builder<String> builder = new NSSet.Builder<String>();
+    builder.addObject("abc").addObject("abc").addObjectsFromCollection(new NSArray<String>(new String[] { "def", "ghi" }));
+    assertEquals(3, builder.count());
+    NSSet<String> set = builder.build();
+    assertEquals(new NSSet<String>("abc", "def", "ghi"), set);
+    assertSame(set, builder.build());
+
+    try {
+      builder.addObject("jkl");
+      fail("IllegalStateException expected");
+    } catch (IllegalStateException e) {
+    }
+    assertEquals(3, set.count());
+    try {
+      set.add("jkl");
+      fail("UnsupportedOperationException expected");
+    } catch (UnsupportedOperationException e) {
+    }
+    try {
+      new NSSet.Builder<String>().addObject(null);
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+    }
+  }
+
+  public void testHashCode() {
+    Set<String> set = new HashSet<String>();
+    set.add("abc");
+    set.add("def");
+    NSSet<String> nsset = new NSSet<String>(set);
+    NSMutableSet<String> mutableSet = new NSMutableSet<String>(set);
+    assertEquals(set.hashCode(), nsset.hashCode());
+    assertEquals(set.hashCode(), mutableSet.hashCode());
+    mutableSet.addObject("ghi");
+    set.add("ghi");
+    assertEquals(set.hashCode(), mutableSet.hashCode());
+    assertFalse(nsset.hashCode() == mutableSet.hashCode());
+  }
+
+  private static NSSet<Integer> multiples(int factor, int count) {
+    NSSet.Builder<Integer> builder = new NSSet.Builder<Integer>(count);
+    for (int i = 0; i < count; i++) {
+      builder.addObject(i * factor);
+    }
+    return builder.build();
+  }
+
+  public void testSetAlgebraWithSetsOfDifferentSizes() {
+    NSSet<Integer> small = multiples(3, 10);
+    NSSet<Integer> large = multiples(2, 1000);
+    Set<Integer> expected = new HashSet<Integer>(small);
+    expected.retainAll(large);
+    assertEquals(expected, small.setByIntersectingSet(large));
+    assertEquals(expected, large.setByIntersectingSet(small));
+    expected = new HashSet<Integer>(large);
+    expected.removeAll(small);
+    assertEquals(expected, large.setBySubtractingSet(small));
+    expected = new HashSet<Integer>(large);
+    expected.addAll(small);
+    assertEquals(expected, small.setByUnioningSet(large));
+    assertTrue(small.intersectsSet(large));
+    assertTrue(large.intersectsSet(small));
+    assertFalse(large.isSubsetOfSet(small));
+    assertTrue(multiples(4, 10).isSubsetOfSet(large));
+    assertEquals(large, large.setByUnioningSet(NSSet.<Integer> emptySet()));
+    assertNotSame(large, large.setByUnioningSet(NSSet.<Integer> emptySet()));
+  }
+
+  public void testSetAlgebraReturnsMutableSets() {
+    NSSet<Integer> small = multiples(3, 10);
+    NSSet<Integer> large = multiples(2, 1000);
+    List<NSSet<Integer>> sets = new ArrayList<NSSet<Integer>>();
+    sets.add(small);
+    sets.add(large);
+    assertTrue(small.setByIntersectingSet(large) instanceof NSMutableSet<?>);
+    assertTrue(small.setByIntersectingSet(NSSet.<Integer> emptySet()) instanceof NSMutableSet<?>);
+    assertTrue(large.setBySubtractingSet(small) instanceof NSMutableSet<?>);
+    assertTrue(large.setBySubtractingSet(NSSet.<Integer> emptySet()) instanceof NSMutableSet<?>);
+    assertTrue(small.setByUnioningSet(large) instanceof NSMutableSet<?>);
+    assertTrue(large.setByUnioningSet(NSSet.<Integer> emptySet()) instanceof NSMutableSet<?>);
+    assertTrue(NSSet.unionOfSets(sets) instanceof NSMutableSet<?>);
+    assertTrue(NSSet.intersectionOfSets(sets) instanceof NSMutableSet<?>);
+    assertTrue(NSSet.intersectionOfSets(new ArrayList<Set<Integer>>()) instanceof NSMutableSet<?>);
+
+    NSMutableSet<Integer> union = (NSMutableSet<Integer>) small.setByUnioningSet(large);
+    union.add(-1);
+    assertTrue(union.contains(-1));
+    assertFalse(large.contains(-1));
+    assertFalse(small.contains(-1));
+  }
+
+  public void testUnionAndIntersectionOfSets() {
+    List<Set<Integer>> sets = new ArrayList<Set<Integer>>();
+    sets.add(multiples(2, 600));
+    sets.add(multiples(3, 500));
+    sets.add(new HashSet<Integer>(multiples(5, 400)));
+    Set<Integer> union = new HashSet<Integer>();
+    Set<Integer> intersection = new HashSet<Integer>(sets.get(0));
+    for (Set<Integer> set : sets) {
+      union.addAll(set);
+      intersection.retainAll(set);
+    }
+    assertEquals(union, NSSet.unionOfSets(sets));
+    assertEquals(intersection, NSSet.intersectionOfSets(sets));
+    assertEquals(40, NSSet.intersectionOfSets(sets).count());
+
+    int threshold = NSArray.parallelOperatorThreshold();
+    NSArray.setParallelOperatorThreshold(10);
+    try {
+      assertEquals(union, NSSet.unionOfSets(sets));
+      assertEquals(intersection, NSSet.intersectionOfSets(sets));
+    } finally {
+      NSArray.setParallelOperatorThreshold(threshold);
+    }
+
+    assertTrue(NSSet.unionOfSets(new ArrayList<Set<Integer>>()).isEmpty());
+    sets.add(new HashSet<Integer>());
+    assertTrue(NSSet.intersectionOfSets(sets).isEmpty());
+  }
 }
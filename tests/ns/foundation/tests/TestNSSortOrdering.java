@@ -0,0 +1,161 @@
+package ns.foundation.tests;
+
+import java.util.Random;
+
+import ns.foundation.NSComparator;
+import ns.foundation.NSSortOrdering;
+import ns.foundation.collections.NSArray;
+import ns.foundation.collections.NSCopyOnWriteMutableArray;
+import ns.foundation.collections.NSMutableArray;
+import ns.foundation.kvc.NSKeyValueCoding;
+
+public class TestNSSortOrdering extends BaseTestCase {
+
+  public static class Customer {
+    private final String lastName;
+
+    public Customer(String lastName) {
+      this.lastName = lastName;
+    }
+
+    public String lastName() {
+      return lastName;
+    }
+  }
+
+  public static class Order {
+    private final Customer customer;
+    private final int amount;
+
+    public Order(String lastName, int amount) {
+      customer = lastName == null ? null : new Customer(lastName);
+      this.amount = amount;
+    }
+
+    public Customer customer() {
+      return customer;
+    }
+
+    public int amount() {
+      return amount;
+    }
+
+    @Override
+    public String toString() {
+      return (customer == null ? null : customer.lastName) + ":" + amount;
+    }
+  }
+
+  public static class CountingRow implements NSKeyValueCoding {
+    static int reads;
+    final int key;
+
+    CountingRow(int key) {
+      this.key = key;
+    }
+
+    public Object valueForKey(String name) {
+      reads++;
+      return key;
+    }
+
+    public void takeValueForKey(Object value, String name) {
+    }
+  }
+
+  private static NSArray<Order> orders() {
+    return new NSArray<Order>(new Order("smith", 3), new Order("Jones", 1), new Order("Smith", 2), new Order(null, 5), new Order("jones", 4), new Order("adams", 1));
+  }
+
+  private static String names(NSArray<Order> orders) {
+    StringBuilder buffer = new StringBuilder();
+    for (Order order : orders) {
+      if (buffer.length() > 0)
+        buffer.append(' ');
+      buffer.append(order);
+    }
+    return buffer.toString();
+  }
+
+  public void testSortedArrayUsingKeyOrderArray() {
+    NSArray<Order> orders = orders();
+    NSArray<NSSortOrdering> orderings = new NSArray<NSSortOrdering>(new NSSortOrdering("customer.lastName"));
+    assertEquals("Jones:1 Smith:2 adams:1 jones:4 smith:3 null:5", names(NSSortOrdering.sortedArrayUsingKeyOrderArray(orders, orderings)));
+
+    orderings = new NSArray<NSSortOrdering>(new NSSortOrdering("customer.lastName", true, true));
+    assertEquals("adams:1 Jones:1 jones:4 smith:3 Smith:2 null:5", names(NSSortOrdering.sortedArrayUsingKeyOrderArray(orders, orderings)));
+
+    orderings = new NSArray<NSSortOrdering>(new NSSortOrdering("customer.lastName", false, true), new NSSortOrdering("amount"));
+    assertEquals("null:5 Smith:2 smith:3 Jones:1 jones:4 adams:1", names(NSSortOrdering.sortedArrayUsingKeyOrderArray(orders, orderings)));
+
+    orderings = new NSArray<NSSortOrdering>(new NSSortOrdering("amount", false), new NSSortOrdering("customer.lastName", true, true));
+    assertEquals("null:5 jones:4 smith:3 Smith:2 adams:1 Jones:1", names(NSSortOrdering.sortedArrayUsingKeyOrderArray(orders, orderings)));
+
+    assertEquals(orders, NSSortOrdering.sortedArrayUsingKeyOrderArray(orders, NSArray.<NSSortOrdering> emptyArray()));
+    assertEquals(6, orders.count());
+    assertEquals("smith:3", orders.objectAtIndex(0).toString());
+  }
+
+  public void testSortArrayUsingKeyOrderArray() {
+    NSMutableArray<Order> orders = orders().mutableClone();
+    NSSortOrdering.sortArrayUsingKeyOrderArray(orders, new NSArray<NSSortOrdering>(new NSSortOrdering("amount"), new NSSortOrdering("customer.lastName", false)));
+    assertEquals("adams:1 Jones:1 Smith:2 smith:3 jones:4 null:5", names(orders));
+
+    NSCopyOnWriteMutableArray<Order> copyOnWriteOrders = new NSCopyOnWriteMutableArray<Order>(orders());
+    NSArray<Order> snapshot = copyOnWriteOrders.immutableClone();
+    NSSortOrdering.sortArrayUsingKeyOrderArray(copyOnWriteOrders, new NSArray<NSSortOrdering>(new NSSortOrdering("amount"), new NSSortOrdering("customer.lastName", false)));
+    assertEquals("adams:1 Jones:1 Smith:2 smith:3 jones:4 null:5", names(copyOnWriteOrders));
+    assertEquals("smith:3 Jones:1 Smith:2 null:5 jones:4 adams:1", names(snapshot));
+  }
+
+  public void testSortOrderingWithComparator() {
+    NSComparator<String> byLength = new NSComparator<String>() {
+      @Override
+      public int compare(String object1, String object2) {
+        return object1.length() - object2.length();
+      }
+    };
+    NSArray<Order> orders = new NSArray<Order>(new Order("smith", 1), new Order("li", 2), new Order("jones", 3), new Order("ng", 4));
+    NSArray<NSSortOrdering> orderings = new NSArray<NSSortOrdering>(new NSSortOrdering("customer.lastName", byLength), new NSSortOrdering("amount", false));
+    assertEquals("ng:4 li:2 jones:3 smith:1", names(NSSortOrdering.sortedArrayUsingKeyOrderArray(orders, orderings)));
+
+    NSSortOrdering ordering = new NSSortOrdering("amount", false, true);
+    assertEquals("amount", ordering.keyPath());
+    assertFalse(ordering.isAscending());
+    assertTrue(ordering.isCaseInsensitive());
+    try {
+      new NSSortOrdering(null);
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+    }
+  }
+
+  public void testKeysAreReadOnce() {
+    Random random = new Random(1);
+    NSMutableArray<CountingRow> rows = new NSMutableArray<CountingRow>();
+    for (int i = 0; i < 1000; i++) {
+      rows.addObject(new CountingRow(random.nextInt(100)));
+    }
+    CountingRow.reads = 0;
+    NSArray<NSSortOrdering> orderings = new NSArray<NSSortOrdering>(new NSSortOrdering("key", false));
+    NSArray<CountingRow> sorted = NSSortOrdering.sortedArrayUsingKeyOrderArray(rows, orderings);
+    assertEquals(1000, CountingRow.reads);
+    for (int i = 1; i < sorted.count(); i++) {
+      assertTrue(sorted.objectAtIndex(i - 1).key >= sorted.objectAtIndex(i).key);
+    }
+
+    NSComparator<CountingRow> comparator = NSSortOrdering.comparatorForKeyOrderArray(orderings);
+    for (int i = 1; i < sorted.count(); i++) {
+      assertTrue(comparator.compare(sorted.objectAtIndex(i - 1), sorted.objectAtIndex(i)) <= 0);
+    }
+  }
+
+  public void testCompareIgnoringCase() {
+    String[] strings = { "", "a", "A", "ab", "aB", "b", "_", "[", "\u00e9", "\u00c9", "stra\u00dfe", "STRASSE", "\u0130", "\u0131", "i" };
+    for (String string1 : strings) {
+      for (String string2 : strings) {
+        assertEquals(Integer.signum(String.CASE_INSENSITIVE_ORDER.compare(string1, string2)), Integer.signum(NSComparator._compareIgnoringCase(string1, string2)));
+      }
+    }
+  }
+}
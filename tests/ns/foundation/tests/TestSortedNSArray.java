@@ -0,0 +1,124 @@
+package ns.foundation.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import ns.foundation.NSComparator;
+import ns.foundation.NSRange;
+import ns.foundation.collections.NSArray;
+import ns.foundation.collections.NSMutableArray;
+import ns.foundation.collections.SortedNSArray;
+
+public class TestSortedNSArray extends BaseTestCase {
+
+  private static NSArray<Integer> randomArray(int count, int bound, long seed) {
+    Random random = new Random(seed);
+    NSMutableArray<Integer> array = new NSMutableArray<Integer>(count);
+    for (int i = 0; i < count; i++) {
+      array.addObject(random.nextInt(bound));
+    }
+    return array;
+  }
+
+  private static Integer[] sorted(NSArray<Integer> array) {
+    Integer[] objects = array.toArray(new Integer[array.count()]);
+    Arrays.sort(objects);
+    return objects;
+  }
+
+  public void testSortedArrayUsingComparator() {
+    NSArray<Integer> array = randomArray(1000, 100, 1);
+    NSArray<Integer> sortedArray = array.sortedArrayUsingComparator(NSComparator.AscendingNumberComparator);
+    assertTrue(sortedArray instanceof SortedNSArray<?>);
+    assertTrue(Arrays.equals(sorted(array), sortedArray.toArray()));
+    assertSame(NSComparator.AscendingNumberComparator, ((SortedNSArray<Integer>) sortedArray).comparator());
+    assertSame(sortedArray, sortedArray.sortedArrayUsingComparator(NSComparator.AscendingNumberComparator));
+    assertEquals(new NSArray<Integer>(3, 2, 1), new NSArray<Integer>(1, 3, 2).sortedArrayUsingComparator(NSComparator.DescendingNumberComparator));
+    try {
+      sortedArray.add(1);
+      fail("UnsupportedOperationException expected");
+    } catch (UnsupportedOperationException e) {
+    }
+  }
+
+  public void testSortIsStable() {
+    NSArray<String> array = new NSArray<String>("b1", "a1", "b2", "a2", "b3");
+    NSComparator<String> firstCharacter = new NSComparator<String>() {
+      @Override
+      public int compare(String object1, String object2) {
+        return object1.charAt(0) - object2.charAt(0);
+      }
+    };
+    SortedNSArray<String> sortedArray = new SortedNSArray<String>(array, firstCharacter);
+    assertEquals(new NSArray<String>("a1", "a2", "b1", "b2", "b3"), sortedArray);
+    assertEquals(1, sortedArray.indexOfObjectUsingBinarySearch("a2"));
+    assertEquals(4, sortedArray.indexOfObjectUsingBinarySearch("b3"));
+    assertEquals(NSArray.NotFound, sortedArray.indexOfObjectUsingBinarySearch("b4"));
+    assertEquals(2, sortedArray.insertionIndexForObject("a3"));
+    assertEquals(new NSRange(2, 3), sortedArray.rangeOfObjectsBetween("b", "b"));
+  }
+
+  public void testBinarySearch() {
+    SortedNSArray<Integer> array = new SortedNSArray<Integer>(randomArray(500, 1000, 2), NSComparator.AscendingNumberComparator);
+    for (int value = -1; value <= 1000; value++) {
+      int index = array.indexOfObjectUsingBinarySearch(value);
+      assertEquals(array.indexOfObject(value) == NSArray.NotFound, index == NSArray.NotFound);
+      if (index != NSArray.NotFound)
+        assertEquals(Integer.valueOf(value), array.objectAtIndex(index));
+      int insertionIndex = array.insertionIndexForObject(value);
+      assertTrue(insertionIndex == 0 || array.objectAtIndex(insertionIndex - 1) <= value);
+      assertTrue(insertionIndex == array.count() || array.objectAtIndex(insertionIndex) > value);
+    }
+  }
+
+  public void testRangeOfObjectsBetween() {
+    SortedNSArray<Integer> array = new SortedNSArray<Integer>(new NSArray<Integer>(1, 3, 3, 5, 7, 9), NSComparator.AscendingNumberComparator);
+    assertEquals(new NSRange(1, 3), array.rangeOfObjectsBetween(2, 5));
+    assertEquals(new NSRange(0, 4), array.rangeOfObjectsBetween(null, 6));
+    assertEquals(new NSRange(4, 2), array.rangeOfObjectsBetween(7, null));
+    assertEquals(0, array.rangeOfObjectsBetween(4, 4).length());
+    assertEquals(0, array.rangeOfObjectsBetween(8, 2).length());
+
+    SortedNSArray<Integer> subarray = array.subarrayWithObjectsBetween(3, 7);
+    assertEquals(new NSArray<Integer>(3, 3, 5, 7), subarray);
+    assertSame(array.comparator(), subarray.comparator());
+    assertEquals(2, subarray.indexOfObjectUsingBinarySearch(5));
+    assertEquals(new NSArray<Integer>(5), subarray.subarrayWithRange(new NSRange(2, 1)));
+    assertEquals(0, subarray.subarrayWithRange(new NSRange(0, 0)).count());
+  }
+
+  public void testMergedWithSortedArray() {
+    NSArray<Integer> left = randomArray(300, 50, 3);
+    NSArray<Integer> right = randomArray(200, 50, 4);
+    SortedNSArray<Integer> sortedLeft = new SortedNSArray<Integer>(left, NSComparator.AscendingNumberComparator);
+    SortedNSArray<Integer> sortedRight = new SortedNSArray<Integer>(right, NSComparator.AscendingNumberComparator);
+    NSArray<Integer> all = left.arrayByAddingObjectsFromArray(right);
+
+    assertTrue(Arrays.equals(sorted(all), sortedLeft.mergedWithSortedArray(sortedRight).toArray()));
+    assertTrue(Arrays.equals(sorted(all), sortedLeft.mergedWithSortedArray(right).toArray()));
+    assertTrue(Arrays.equals(sorted(all), sortedLeft.subarrayWithRange(new NSRange(0, 300)).mergedWithSortedArray(sortedRight.subarrayWithRange(new NSRange(0, 200))).toArray()));
+    assertSame(sortedLeft, sortedLeft.mergedWithSortedArray(NSArray.<Integer> emptyArray()));
+    assertEquals(500, sortedLeft.mergedWithSortedArray(sortedRight).count());
+  }
+
+  public void testSerialization() throws Exception {
+    NSComparator<String> firstCharacter = new NSComparator<String>() {
+      @Override
+      public int compare(String object1, String object2) {
+        return object1.charAt(0) - object2.charAt(0);
+      }
+    };
+    NSArray<String> sortedArray = new NSArray<String>("b1", "a1", "c1", "a2").sortedArrayUsingComparator(firstCharacter).subarrayWithRange(new NSRange(1, 3));
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(sortedArray);
+    out.close();
+    Object copy = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+    assertEquals(NSArray.class, copy.getClass());
+    assertEquals(new NSArray<String>("a2", "b1", "c1"), copy);
+  }
+}
@@ -0,0 +1,6 @@
+package ns.foundation.tests.protectedaccess;
+
+public class SubclassOfRestrictedClass extends RestrictedClass {
+  int intField = 42;
+  protected void setKnownMethod(Integer value) { knownField = value; }
+}
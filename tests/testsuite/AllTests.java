@@ -3,16 +3,26 @@ package testsuite;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 import ns.foundation.tests.TestNSArray;
+import ns.foundation.tests.TestNSConcurrentMutableDictionary;
+import ns.foundation.tests.TestNSConcurrentMutableSet;
+import ns.foundation.tests.TestNSCopyOnWriteMutableArray;
 import ns.foundation.tests.TestNSDictionary;
+import ns.foundation.tests.TestNSIndexSet;
+import ns.foundation.tests.TestNSKeyValueCodingAdditions;
+import ns.foundation.tests.TestNSKeyValueObserving;
 import ns.foundation.tests.TestNSMutableArray;
 import ns.foundation.tests.TestNSMutableDictionary;
 import ns.foundation.tests.TestNSMutableRange;
 import ns.foundation.tests.TestNSMutableSet;
 import ns.foundation.tests.TestNSNotificationCenter;
+import ns.foundation.tests.TestNSPrimitiveCollections;
 import ns.foundation.tests.TestNSRange;
+import ns.foundation.tests.TestNSRecordArray;
 import ns.foundation.tests.TestNSSelector;
 import ns.foundation.tests.TestNSSet;
+import ns.foundation.tests.TestNSSortOrdering;
 import ns.foundation.tests.TestNSTimestamp;
+import ns.foundation.tests.TestSortedNSArray;
 
 public class AllTests extends TestSuite {
 
@@ -30,6 +40,16 @@ public class AllTests extends TestSuite {
     suite.addTestSuite(TestNSRange.class);
     suite.addTestSuite(TestNSMutableDictionary.class);
     suite.addTestSuite(TestNSNotificationCenter.class);
+    suite.addTestSuite(TestNSKeyValueCodingAdditions.class);
+    suite.addTestSuite(TestNSPrimitiveCollections.class);
+    suite.addTestSuite(TestNSRecordArray.class);
+    suite.addTestSuite(TestSortedNSArray.class);
+    suite.addTestSuite(TestNSSortOrdering.class);
+    suite.addTestSuite(TestNSIndexSet.class);
+    suite.addTestSuite(TestNSConcurrentMutableDictionary.class);
+    suite.addTestSuite(TestNSConcurrentMutableSet.class);
+    suite.addTestSuite(TestNSCopyOnWriteMutableArray.class);
+    suite.addTestSuite(TestNSKeyValueObserving.class);
     //$JUnit-END$
     return suite;
   }